@@ -0,0 +1,48 @@
+package com.team254.lib.spline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.geometry.Translation2d;
+
+/**
+ * Optimizes the four-spline path from QuinticHermiteOptimizerTest.
+ * optimizeSpline mutates its input, so each invocation starts from fresh
+ * splines; the construction is cheap compared to the optimization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuinticHermiteSplineBenchmark {
+    List<Pose2d> waypoints;
+
+    @Setup
+    public void setup() {
+        waypoints = List.of(
+                new Pose2d(new Translation2d(0, 0), Rotation2d.fromDegrees(0)),
+                new Pose2d(new Translation2d(50, 0), Rotation2d.fromDegrees(0)),
+                new Pose2d(new Translation2d(100, 50), Rotation2d.fromDegrees(45)),
+                new Pose2d(new Translation2d(150, 0), Rotation2d.fromDegrees(270)),
+                new Pose2d(new Translation2d(150, -50), Rotation2d.fromDegrees(270)));
+    }
+
+    @Benchmark
+    public double optimizeSpline() {
+        List<QuinticHermiteSpline> splines = new ArrayList<>(waypoints.size() - 1);
+        for (int i = 1; i < waypoints.size(); ++i) {
+            splines.add(new QuinticHermiteSpline(waypoints.get(i - 1), waypoints.get(i)));
+        }
+        return QuinticHermiteSpline.optimizeSpline(splines);
+    }
+}
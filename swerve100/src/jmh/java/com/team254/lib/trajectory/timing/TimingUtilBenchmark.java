@@ -0,0 +1,96 @@
+package com.team254.lib.trajectory.timing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Pose2dWithCurvature;
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.geometry.Translation2d;
+import com.team254.lib.trajectory.DistanceView;
+import com.team254.lib.trajectory.Trajectory;
+import com.team254.lib.trajectory.TrajectoryUtil;
+
+/**
+ * Time-parameterizes a spline path, the last step of DriveMotionPlanner
+ * generateTrajectory(), with a centripetal constraint. The path and the
+ * distance view are built once in setup. Units are inches, like the rest of
+ * the 254 code.
+ *
+ * The long version samples the same path at 5000 points, with a velocity
+ * region and an acceleration constraint as well, which is where the PARALLEL
+ * mode should pay off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimingUtilBenchmark {
+    // same as DriveMotionPlanner
+    private static final double kMaxDx = 2.0;
+    private static final double kMaxDy = 0.25;
+    private static final double kMaxDTheta = Math.toRadians(1.0);
+
+    private static final int kLongPoints = 5000;
+
+    @Param({ "SERIAL", "PARALLEL" })
+    TimingUtil.Mode mode;
+
+    DistanceView<Pose2dWithCurvature, Rotation2d> distanceView;
+    List<TimingConstraint<Pose2dWithCurvature>> constraints;
+    List<TimingConstraint<Pose2dWithCurvature>> longConstraints;
+    double longStep;
+
+    @Setup
+    public void setup() {
+        List<Pose2d> waypoints = List.of(
+                new Pose2d(new Translation2d(0, 0), Rotation2d.fromDegrees(0)),
+                new Pose2d(new Translation2d(100, 0), Rotation2d.fromDegrees(0)),
+                new Pose2d(new Translation2d(200, 100), Rotation2d.fromDegrees(90)),
+                new Pose2d(new Translation2d(300, 100), Rotation2d.fromDegrees(0)));
+        List<Rotation2d> headings = List.of(
+                Rotation2d.fromDegrees(0),
+                Rotation2d.fromDegrees(0),
+                Rotation2d.fromDegrees(45),
+                Rotation2d.fromDegrees(90));
+        Trajectory<Pose2dWithCurvature, Rotation2d> trajectory = TrajectoryUtil.trajectoryFromWaypoints(
+                waypoints, headings, kMaxDx, kMaxDy, kMaxDTheta);
+        distanceView = new DistanceView<>(trajectory);
+        constraints = List.of(new CentripetalAccelerationConstraint(100));
+        longConstraints = List.of(
+                new CentripetalAccelerationConstraint(100),
+                new VelocityLimitRegionConstraint<>(new Translation2d(150, 0), new Translation2d(250, 100), 60.0),
+                new TimingConstraint<Pose2dWithCurvature>() {
+                    @Override
+                    public double getMaxVelocity(Pose2dWithCurvature state) {
+                        return Double.POSITIVE_INFINITY;
+                    }
+
+                    @Override
+                    public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithCurvature state, double velocity) {
+                        return new MinMaxAcceleration(-50.0, 40.0);
+                    }
+                });
+        longStep = distanceView.last_interpolant() / (kLongPoints - 1);
+    }
+
+    @Benchmark
+    public Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> timeParameterizeTrajectory() {
+        return TimingUtil.timeParameterizeTrajectory(
+                false, distanceView, kMaxDx, constraints, 0.0, 0.0, 120.0, 60.0, mode);
+    }
+
+    @Benchmark
+    public Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> timeParameterizeLongTrajectory() {
+        return TimingUtil.timeParameterizeTrajectory(
+                false, distanceView, longStep, longConstraints, 0.0, 0.0, 120.0, 60.0, mode);
+    }
+}
@@ -0,0 +1,63 @@
+package org.team100.lib.estimator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.math.AngularRandomVector;
+import org.team100.lib.math.MeasurementUncertainty;
+import org.team100.lib.math.RandomVector;
+import org.team100.lib.math.Variance;
+import org.team100.lib.math.WhiteNoiseVector;
+import org.team100.lib.system.examples.DoubleIntegratorRotary1D;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+
+/**
+ * One RK4 step with noise, the inner loop of replay: the old generic
+ * plus/times chain versus the in-place version in ExtrapolatingEstimator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExtrapolatingEstimatorBenchmark {
+    DoubleIntegratorRotary1D system;
+    ExtrapolatingEstimator<N2, N1, N2> estimator;
+    RandomVector<N2> x;
+    Matrix<N1, N1> u;
+
+    @Setup
+    public void setup() {
+        system = new DoubleIntegratorRotary1D(
+                WhiteNoiseVector.noise2(0.015, 0.17),
+                MeasurementUncertainty.for2(0.01, 0.1));
+        estimator = new ExtrapolatingEstimator<>(system);
+        x = new AngularRandomVector<>(VecBuilder.fill(0.5, 1.0), Variance.from2StdDev(0.1, 0.1));
+        u = VecBuilder.fill(1.0);
+    }
+
+    @Benchmark
+    public RandomVector<N2> generic() {
+        final double h = 0.02;
+        RandomVector<N2> k1 = system.f(x, u);
+        RandomVector<N2> k2 = system.f(x.plus(k1.times(h * 0.5)), u);
+        RandomVector<N2> k3 = system.f(x.plus(k2.times(h * 0.5)), u);
+        RandomVector<N2> k4 = system.f(x.plus(k3.times(h)), u);
+        RandomVector<N2> result = x.plus(k1.plus(k2.times(2.0)).plus(k3.times(2.0)).plus(k4).times(h / 6.0));
+        Variance<N2> noiseVariance = system.w().P.copy().times(h);
+        return result.make(result.x, result.Kxx.plus(noiseVariance));
+    }
+
+    @Benchmark
+    public RandomVector<N2> inPlace() {
+        return estimator.predictWithNoise(x, u, 0.02);
+    }
+}
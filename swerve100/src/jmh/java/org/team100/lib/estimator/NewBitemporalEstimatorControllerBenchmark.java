@@ -0,0 +1,99 @@
+package org.team100.lib.estimator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.math.AngularRandomVector;
+import org.team100.lib.math.MeasurementUncertainty;
+import org.team100.lib.math.RandomVector;
+import org.team100.lib.math.Variance;
+import org.team100.lib.math.WhiteNoiseVector;
+import org.team100.lib.reference.Reference;
+import org.team100.lib.system.examples.DoubleIntegratorRotary1D;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+
+/**
+ * One robot cycle of the estimator: a camera measurement arrives 75 ms late,
+ * we replay from it, predict now, and record the control. Compares full replay
+ * with incremental replay.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NewBitemporalEstimatorControllerBenchmark {
+    private static final double kDt = 0.02;
+    private static final double kLatency = 0.075;
+
+    @Param({ "false", "true" })
+    boolean incremental;
+
+    DoubleIntegratorRotary1D system;
+    NewBitemporalEstimatorController<N2, N1, N2> controller;
+    Matrix<N1, N1> u;
+    int cycle;
+
+    @Setup
+    public void setup() {
+        system = new DoubleIntegratorRotary1D(
+                WhiteNoiseVector.noise2(0.015, 0.17),
+                MeasurementUncertainty.for2(0.01, 0.1));
+        RandomVector<N2> initialState = new AngularRandomVector<>(VecBuilder.fill(0, 0),
+                Variance.from2StdDev(0.1, 0.1));
+        Matrix<N1, N1> initialControl = VecBuilder.fill(0);
+        Matrix<N1, N2> K = new Matrix<>(Nat.N1(), Nat.N2());
+        Reference<N2> reference = new Reference<>() {
+            @Override
+            public Matrix<N2, N1> getR(double tSec) {
+                return new Matrix<>(Nat.N2(), Nat.N1());
+            }
+
+            @Override
+            public Matrix<N2, N1> getRDot(double tSec) {
+                return new Matrix<>(Nat.N2(), Nat.N1());
+            }
+        };
+        if (incremental) {
+            controller = new NewBitemporalEstimatorController<>(
+                    system, initialState, initialControl, reference, K, 0.0);
+        } else {
+            controller = new NewBitemporalEstimatorController<>(
+                    system, initialState, initialControl, reference, K);
+        }
+        u = VecBuilder.fill(0.1);
+        // fill some history so the replay has something to walk over
+        for (int i = 0; i < 50; ++i) {
+            cycle();
+        }
+    }
+
+    private RandomVector<N2> cycle() {
+        cycle++;
+        double t = kDt * cycle;
+        long recordTime = 20000l * cycle;
+        if (t > kLatency) {
+            double validTime = t - kLatency;
+            controller.acceptMeasurement(recordTime, validTime, system.position(validTime));
+        }
+        controller.replay(recordTime);
+        RandomVector<N2> estimate = controller.predictNow(t);
+        controller.record(t, u);
+        return estimate;
+    }
+
+    @Benchmark
+    public RandomVector<N2> replayCycle() {
+        return cycle();
+    }
+}
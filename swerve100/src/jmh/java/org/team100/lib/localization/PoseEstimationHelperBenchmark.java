@@ -0,0 +1,69 @@
+package org.team100.lib.localization;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.cscore.CameraServerCvJNI;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+/**
+ * Pose solving for one tag, both the camera-rotation and gyro-rotation
+ * versions. This runs once per tag sighting, so several times per cycle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PoseEstimationHelperBenchmark {
+    Transform3d cameraInRobotCoords;
+    Pose3d tagInFieldCoords;
+    Rotation3d robotRotationInFieldCoordsFromGyro;
+    Blip blip;
+
+    @Setup
+    public void setup() throws IOException {
+        // the camera-rotation path uses opencv
+        CameraServerCvJNI.forceLoad();
+        cameraInRobotCoords = new Transform3d(
+                new Translation3d(0.3, 0.1, 0.5),
+                new Rotation3d(0, -0.3, 0.1));
+        tagInFieldCoords = new Pose3d(15.5, 1.1, 0.46, new Rotation3d(0, 0, Math.PI));
+        robotRotationInFieldCoordsFromGyro = new Rotation3d(0, 0, 0.2);
+        blip = new Blip(3,
+                new double[][] {
+                        { 0.98, 0, 0.2 },
+                        { 0, 1, 0 },
+                        { -0.2, 0, 0.98 } },
+                new double[][] {
+                        { 0.1 },
+                        { 0.2 },
+                        { 2.5 } });
+    }
+
+    @Benchmark
+    public Pose3d cameraRotation() {
+        return PoseEstimationHelper.getRobotPoseInFieldCoords(
+                cameraInRobotCoords,
+                tagInFieldCoords,
+                blip);
+    }
+
+    @Benchmark
+    public Pose3d gyroRotation() {
+        return PoseEstimationHelper.getRobotPoseInFieldCoords(
+                cameraInRobotCoords,
+                tagInFieldCoords,
+                blip,
+                robotRotationInFieldCoordsFromGyro);
+    }
+}
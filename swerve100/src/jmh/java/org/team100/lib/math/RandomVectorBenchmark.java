@@ -0,0 +1,64 @@
+package org.team100.lib.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Compares the generic allocating a + s * b with the in-place kernel, for the
+ * two state sizes we use. Run with the gc profiler to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RandomVectorBenchmark {
+    RandomVector<N2> a2;
+    RandomVector<N2> b2;
+    RandomVector<N2> out2;
+    RandomVector<N3> a3;
+    RandomVector<N3> b3;
+    RandomVector<N3> out3;
+    double s;
+
+    @Setup
+    public void setup() {
+        a2 = new RandomVector<>(VecBuilder.fill(1, 2), Variance.from2StdDev(0.1, 0.2));
+        b2 = new RandomVector<>(VecBuilder.fill(3, 4), Variance.from2StdDev(0.3, 0.4));
+        out2 = a2.copy();
+        a3 = new RandomVector<>(VecBuilder.fill(1, 2, 3), Variance.fromStdDev(Nat.N3(), VecBuilder.fill(0.1, 0.2, 0.3)));
+        b3 = new RandomVector<>(VecBuilder.fill(4, 5, 6), Variance.fromStdDev(Nat.N3(), VecBuilder.fill(0.4, 0.5, 0.6)));
+        out3 = a3.copy();
+        s = 0.01;
+    }
+
+    @Benchmark
+    public RandomVector<N2> genericN2() {
+        return a2.plus(b2.times(s));
+    }
+
+    @Benchmark
+    public RandomVector<N2> inPlaceN2() {
+        return out2.setPlusScaled(a2, s, b2);
+    }
+
+    @Benchmark
+    public RandomVector<N3> genericN3() {
+        return a3.plus(b3.times(s));
+    }
+
+    @Benchmark
+    public RandomVector<N3> inPlaceN3() {
+        return out3.setPlusScaled(a3, s, b3);
+    }
+}
@@ -0,0 +1,51 @@
+package org.team100.lib.profile;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Profile generation, replacing the wall-clock MotionProfilePerformanceTest.
+ * The constrained version samples the constraints every 0.25 m, so its cost
+ * grows with the length of the move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MotionProfileGeneratorBenchmark {
+    MotionState start;
+    MotionState goal;
+    VelocityConstraint velocityConstraint;
+    AccelerationConstraint accelerationConstraint;
+
+    @Setup
+    public void setup() {
+        start = new MotionState(0, 0);
+        goal = new MotionState(5, 0);
+        // slow down in the middle
+        velocityConstraint = s -> s > 2 && s < 3 ? 1.0 : 3.0;
+        accelerationConstraint = s -> 2.0;
+    }
+
+    @Benchmark
+    public MotionProfile generateMotionProfile() {
+        return MotionProfileGenerator.generateMotionProfile(
+                start, goal, velocityConstraint, accelerationConstraint);
+    }
+
+    @Benchmark
+    public MotionProfile generateSimpleMotionProfile() {
+        return MotionProfileGenerator.generateSimpleMotionProfile(start, goal, 3, 2);
+    }
+
+    @Benchmark
+    public MotionProfile generateJerkLimitedMotionProfile() {
+        return MotionProfileGenerator.generateSimpleMotionProfile(start, goal, 3, 2, 10);
+    }
+}
@@ -0,0 +1,77 @@
+package org.team100.lib.storage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Put and floor on a full buffer, so every put also evicts, which is the
+ * steady state for most of a match. Measurements arrive in order, at camera
+ * rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BitemporalBufferBenchmark {
+    private static final int kCapacity = 1000;
+    private static final double kDt = 0.02;
+
+    BitemporalBuffer<Double> buffer;
+    PrimitiveBitemporalBuffer<Double> primitive;
+    Double value;
+    long recordTime;
+    double validTime;
+    double lookupTime;
+
+    @Setup
+    public void setup() {
+        buffer = new BitemporalBuffer<>(kCapacity);
+        primitive = new PrimitiveBitemporalBuffer<>(kCapacity);
+        value = 1.0;
+        for (int i = 0; i < kCapacity; ++i) {
+            next();
+            buffer.put(recordTime, validTime, value);
+            primitive.put(recordTime, validTime, value);
+        }
+    }
+
+    private void next() {
+        recordTime += 20000;
+        validTime += kDt;
+        // somewhere in the last second
+        lookupTime = validTime - 1.0;
+    }
+
+    @Benchmark
+    public void put() {
+        next();
+        buffer.put(recordTime, validTime, value);
+    }
+
+    @Benchmark
+    public void putPrimitive() {
+        next();
+        primitive.put(recordTime, validTime, value);
+    }
+
+    @Benchmark
+    public Object floor() {
+        return buffer.floor(lookupTime);
+    }
+
+    @Benchmark
+    public Object floorPrimitive() {
+        return primitive.floor(lookupTime);
+    }
+
+    @Benchmark
+    public Double floorValuePrimitive() {
+        return primitive.floorValue(lookupTime);
+    }
+}
@@ -0,0 +1,70 @@
+package org.team100.lib.swerve;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.motion.drivetrain.kinematics.SwerveKinematics;
+
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.swerve.ChassisSpeeds;
+import com.team254.lib.swerve.SwerveModuleState;
+import com.team254.lib.swerve.SwerveSetpoint;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * One drivetrain cycle of the setpoint generator, with the limits and geometry
+ * used in SwerveLocal. The desired speed flips every second, so the generator
+ * spends most of its time limiting rather than sitting at the goal.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AsymSwerveSetpointGeneratorBenchmark {
+    private static final double kTrackWidth = 0.491;
+    private static final double kWheelBase = 0.765;
+    private static final double kDt = 0.02;
+
+    AsymSwerveSetpointGenerator generator;
+    AsymSwerveSetpointGenerator.KinematicLimits limits;
+    ChassisSpeeds forward;
+    ChassisSpeeds back;
+    SwerveSetpoint setpoint;
+    int cycle;
+
+    @Setup
+    public void setup() {
+        SwerveKinematics kinematics = new SwerveKinematics(
+                new Translation2d(kWheelBase / 2, kTrackWidth / 2),
+                new Translation2d(kWheelBase / 2, -kTrackWidth / 2),
+                new Translation2d(-kWheelBase / 2, kTrackWidth / 2),
+                new Translation2d(-kWheelBase / 2, -kTrackWidth / 2));
+        generator = new AsymSwerveSetpointGenerator(kinematics.as254());
+        limits = new AsymSwerveSetpointGenerator.KinematicLimits();
+        limits.kMaxDriveVelocity = 5;
+        limits.kMaxDriveAcceleration = 1;
+        limits.kMaxDriveDecceleration = 4;
+        limits.kMaxSteeringVelocity = 5;
+        forward = new ChassisSpeeds(4, 1, 2);
+        back = new ChassisSpeeds(-3, 2, -1);
+        setpoint = new SwerveSetpoint(new ChassisSpeeds(), new SwerveModuleState[] {
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity),
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity),
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity),
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity)
+        });
+    }
+
+    @Benchmark
+    public SwerveSetpoint generateSetpoint() {
+        ChassisSpeeds desired = (cycle++ / 50) % 2 == 0 ? forward : back;
+        setpoint = generator.generateSetpoint(limits, setpoint, desired, kDt);
+        return setpoint;
+    }
+}
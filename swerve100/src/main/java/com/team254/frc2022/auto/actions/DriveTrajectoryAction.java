@@ -5,7 +5,7 @@ import com.team254.frc2022.subsystems.RobotStateEstimator;
 import com.team254.lib.geometry.Pose2d;
 import com.team254.lib.geometry.Pose2dWithCurvature;
 import com.team254.lib.geometry.Rotation2d;
-import com.team254.lib.trajectory.TimedView;
+import com.team254.lib.trajectory.ColumnarTrajectory;
 import com.team254.lib.trajectory.Trajectory;
 import com.team254.lib.trajectory.TrajectoryIterator;
 import com.team254.lib.trajectory.timing.TimedState;
@@ -23,14 +23,14 @@ public class DriveTrajectoryAction implements Action {
     }
 
     public DriveTrajectoryAction(Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory, boolean resetPose) {
-        mTrajectory = new TrajectoryIterator<>(new TimedView<>(trajectory));
+        mTrajectory = new TrajectoryIterator<>(ColumnarTrajectory.of(trajectory).getTimeView());
         mResetPose = resetPose;
         mDrive = Drive.getInstance();
         mResetGyro = true;
     }
 
     public DriveTrajectoryAction(Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory, boolean resetPose, boolean resetGyro) {
-        mTrajectory = new TrajectoryIterator<>(new TimedView<>(trajectory));
+        mTrajectory = new TrajectoryIterator<>(ColumnarTrajectory.of(trajectory).getTimeView());
         mResetPose = resetPose;
         mDrive = Drive.getInstance();
         mResetGyro = resetGyro;
@@ -7,13 +7,20 @@ import com.team254.lib.geometry.Pose2dWithCurvature;
 import com.team254.lib.geometry.Rotation2d;
 import com.team254.lib.geometry.Translation2d;
 import com.team254.lib.trajectory.Trajectory;
+import com.team254.lib.trajectory.TrajectoryStore;
 import com.team254.lib.trajectory.timing.CentripetalAccelerationConstraint;
 import com.team254.lib.trajectory.timing.TimedState;
 import com.team254.lib.trajectory.timing.TimingConstraint;
+import com.team254.lib.trajectory.timing.TimingUtil;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Filesystem;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TrajectoryGenerator {
     // TODO tune
@@ -25,6 +32,10 @@ public class TrajectoryGenerator {
 
     private final DriveMotionPlanner mMotionPlanner;
     private TrajectorySet mTrajectorySet = null;
+    private TrajectoryStore mStore = TrajectoryStore.empty();
+    // everything generateTrajectory() has returned, by input hash, for writeTrajectories().
+    private final Map<Long, Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>>> mTrajectories =
+            new LinkedHashMap<>();
 
     public static TrajectoryGenerator getInstance() {
         return mInstance;
@@ -34,14 +45,49 @@ public class TrajectoryGenerator {
         mMotionPlanner = new DriveMotionPlanner();
     }
 
+    /**
+     * See DriveMotionPlanner.setTimingMode(); only offline tools should ask for PARALLEL.
+     */
+    public void setTimingMode(TimingUtil.Mode mode) {
+        mMotionPlanner.setTimingMode(mode);
+    }
+
+    /**
+     * Make the trajectory set, using the precomputed trajectories in the deploy directory where possible.
+     */
     public void generateTrajectories() {
+        generateTrajectories(TrajectoryStore.open(Filesystem.getDeployDirectory().toPath().resolve(
+                TrajectoryStore.kFileName)));
+    }
+
+    public void generateTrajectories(TrajectoryStore store) {
         if (mTrajectorySet == null) {
             System.out.println("Generating trajectories...");
+            long startNs = System.nanoTime();
+            mStore = store;
             mTrajectorySet = new TrajectorySet();
-            System.out.println("Finished trajectory generation");
+            System.out.printf("Finished trajectory generation in %.1f ms, %d of %d precomputed%n",
+                    (System.nanoTime() - startNs) / 1e6, countPrecomputed(), mTrajectories.size());
         }
     }
 
+    /**
+     * Write every trajectory generated so far, for the next boot. See TrajectoryStoreWriter.
+     */
+    public void writeTrajectories(Path path) throws IOException {
+        TrajectoryStore.write(path, mTrajectories);
+    }
+
+    private int countPrecomputed() {
+        int count = 0;
+        for (Long key : mTrajectories.keySet()) {
+            if (mStore.contains(key)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
     public TrajectorySet getTrajectorySet() {
         return mTrajectorySet;
     }
@@ -54,7 +100,7 @@ public class TrajectoryGenerator {
             double max_vel,  // inches/s
             double max_accel,  // inches/s^2
             double max_voltage) {
-        return mMotionPlanner.generateTrajectory(reversed, waypoints, headings, constraints, max_vel, max_accel, max_voltage);
+        return generateTrajectory(reversed, waypoints, headings, constraints, 0.0, 0.0, max_vel, max_accel, max_voltage);
     }
 
     public Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> generateTrajectory(
@@ -67,7 +113,52 @@ public class TrajectoryGenerator {
             double max_vel,  // inches/s
             double max_accel,  // inches/s^2
             double max_voltage) {
-        return mMotionPlanner.generateTrajectory(reversed, waypoints, headings, constraints, start_vel, end_vel, max_vel, max_accel, max_voltage);
+        long key;
+        try {
+            key = inputHash(reversed, waypoints, headings, constraints, start_vel, end_vel, max_vel, max_accel,
+                    max_voltage);
+        } catch (IllegalArgumentException e) {
+            // no key, so it can't be looked up or stored.
+            System.out.println("Not storing trajectory: " + e.getMessage());
+            return mMotionPlanner.generateTrajectory(reversed, waypoints, headings, constraints, start_vel,
+                    end_vel, max_vel, max_accel, max_voltage);
+        }
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory = mStore.get(key);
+        if (trajectory == null) {
+            trajectory = mMotionPlanner.generateTrajectory(reversed, waypoints, headings, constraints, start_vel,
+                    end_vel, max_vel, max_accel, max_voltage);
+        }
+        mTrajectories.put(key, trajectory);
+        return trajectory;
+    }
+
+    private static long inputHash(
+            boolean reversed,
+            final List<Pose2d> waypoints,
+            final List<Rotation2d> headings,
+            final List<TimingConstraint<Pose2dWithCurvature>> constraints,
+            double start_vel,
+            double end_vel,
+            double max_vel,
+            double max_accel,
+            double max_voltage) {
+        TrajectoryStore.Hasher hasher = new TrajectoryStore.Hasher();
+        hasher.add(reversed);
+        hasher.add(waypoints.size());
+        for (Pose2d waypoint : waypoints) {
+            hasher.add(waypoint);
+        }
+        hasher.add(headings.size());
+        for (Rotation2d heading : headings) {
+            hasher.add(heading);
+        }
+        hasher.add(constraints == null ? 0 : constraints.size());
+        if (constraints != null) {
+            for (TimingConstraint<Pose2dWithCurvature> constraint : constraints) {
+                hasher.addFields(constraint);
+            }
+        }
+        return hasher.add(start_vel).add(end_vel).add(max_vel).add(max_accel).add(max_voltage).get();
     }
 
     public class TrajectorySet {
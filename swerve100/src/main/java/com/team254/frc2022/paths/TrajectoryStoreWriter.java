@@ -0,0 +1,27 @@
+package com.team254.frc2022.paths;
+
+import com.team254.lib.trajectory.TrajectoryStore;
+import com.team254.lib.trajectory.timing.TimingUtil;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import java.nio.file.Path;
+
+/**
+ * Generates the trajectory set on the desktop and writes it to the deploy directory, so the robot can skip
+ * generating it at boot. Run it with "gradlew writeTrajectories" after changing any paths or the planner.
+ */
+public class TrajectoryStoreWriter {
+    public static void main(String[] args) throws Exception {
+        Path path = args.length > 0
+                ? Path.of(args[0])
+                : Filesystem.getDeployDirectory().toPath().resolve(TrajectoryStore.kFileName);
+        TrajectoryGenerator generator = TrajectoryGenerator.getInstance();
+        // on the desktop, so use all the cores.
+        generator.setTimingMode(TimingUtil.Mode.PARALLEL);
+        // start from nothing, so everything is regenerated with the current code.
+        generator.generateTrajectories(TrajectoryStore.empty());
+        generator.writeTrajectories(path);
+        System.out.println("Wrote " + path);
+        System.exit(0);
+    }
+}
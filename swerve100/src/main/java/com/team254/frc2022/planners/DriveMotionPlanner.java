@@ -79,6 +79,9 @@ public class DriveMotionPlanner implements CSVWritable {
 
     double mDt = 0.0;
 
+    // PARALLEL uses the common ForkJoin pool, which the robot shouldn't be fighting, so only offline.
+    TimingUtil.Mode mTimingMode = TimingUtil.Mode.SERIAL;
+
     public DriveMotionPlanner() {
         mModel = new SwerveDrive(
                 0.0942 / 2,
@@ -92,6 +95,14 @@ public class DriveMotionPlanner implements CSVWritable {
         SmartDashboard.putNumber("Adaptive Lookahead", -1.0);
     }
 
+    /**
+     * How generateTrajectory() evaluates the constraints; SERIAL, the default, on the robot, PARALLEL for desktop
+     * tools like TrajectoryStoreWriter. The trajectories are the same either way.
+     */
+    public void setTimingMode(TimingUtil.Mode mode) {
+        mTimingMode = mode;
+    }
+
     public void setTrajectory(final TrajectoryIterator<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory) {
 
         
@@ -190,7 +201,8 @@ public class DriveMotionPlanner implements CSVWritable {
         // Generate the timed trajectory.
         Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> timed_trajectory = TimingUtil.timeParameterizeTrajectory
                 (reversed, new
-                        DistanceView<>(trajectory), kMaxDx, Arrays.asList(), start_vel, end_vel, max_vel, max_accel);
+                        DistanceView<>(trajectory), kMaxDx, Arrays.asList(), start_vel, end_vel, max_vel, max_accel,
+                        mTimingMode);
         return timed_trajectory;
     }
 
@@ -6,10 +6,13 @@ import com.team254.frc2022.planners.DriveMotionPlanner;
 import com.team254.lib.loops.ILooper;
 import com.team254.lib.loops.Loop;
 import com.team254.lib.swerve.SwerveDriveOdometry;
-import com.team254.lib.util.ReflectingCSVWriter;
 import com.team254.lib.util.Units;
 import com.team254.lib.util.Util;
 
+import java.io.IOException;
+
+import org.team100.lib.telemetry.BinaryLog;
+
 import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.wpilibj.Timer;
 
@@ -110,7 +113,7 @@ public class RobotStateEstimator extends Subsystem {
         }
     }
 
-    private ReflectingCSVWriter<OdometryLogValues> mCSVWriter = null;
+    private BinaryLog<OdometryLogValues> mLog = null;
 
     public static RobotStateEstimator getInstance() {
         if (mInstance == null) {
@@ -157,9 +160,9 @@ public class RobotStateEstimator extends Subsystem {
                 //     Pose2d.fromRotation(Rotation2d.fromDegrees(Turret.getInstance().getAngle())),
                 //         Turret.getInstance().getVelocity());
 
-                if (mCSVWriter != null) {
+                if (mLog != null) {
                     try {
-                        logCSV();
+                        logOdometry();
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
@@ -185,19 +188,27 @@ public class RobotStateEstimator extends Subsystem {
     }
 
     public synchronized void startLogging() {
-        if (mCSVWriter == null) {
-            mCSVWriter = new ReflectingCSVWriter<>("/home/lvuser/ODOMETRY-LOGS.csv", OdometryLogValues.class);
+        if (mLog == null) {
+            try {
+                mLog = new BinaryLog<>(BinaryLog.newFileName("/home/lvuser/ODOMETRY-LOGS"), OdometryLogValues.class);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     public synchronized void stopLogging() {
-        if (mCSVWriter != null) {
-            mCSVWriter.flush();
-            mCSVWriter = null;
+        if (mLog != null) {
+            try {
+                mLog.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mLog = null;
         }
     }
 
-    private synchronized void logCSV() {
+    private synchronized void logOdometry() {
         double currentTime = WPIUtilJNI.now() * 1.0e-6;
 
         var modules_meas = mDrive.getModuleStates();
@@ -268,7 +279,7 @@ public class RobotStateEstimator extends Subsystem {
                 autonError.getRotation().getDegrees()
         );
 
-        mCSVWriter.add(logMsg);
+        mLog.add(logMsg);
     }
 
     @Override
@@ -280,8 +291,5 @@ public class RobotStateEstimator extends Subsystem {
     public synchronized void outputTelemetry() {
         RobotState.getInstance().outputToSmartDashboard();
 
-//        if (mCSVWriter != null) {
-//            mCSVWriter.write();
-//        }
     }
 }
\ No newline at end of file
@@ -9,8 +9,12 @@ import com.team254.lib.motion.MotionProfileConstraints;
 import com.team254.lib.motion.MotionState;
 import com.team254.lib.motion.SetpointGenerator;
 import com.team254.lib.motion.SetpointGenerator.Setpoint;
-import com.team254.lib.util.ReflectingCSVWriter;
 import com.team254.lib.util.Util;
+
+import java.io.IOException;
+
+import org.team100.lib.telemetry.BinaryLog;
+
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -253,7 +257,7 @@ public abstract class ServoMotorSubsystem extends Subsystem {
 
     protected PeriodicIO mPeriodicIO = new PeriodicIO();
     protected ControlState mControlState = ControlState.OPEN_LOOP;
-    protected ReflectingCSVWriter<PeriodicIO> mCSVWriter = null;
+    protected BinaryLog<PeriodicIO> mLog = null;
     protected boolean mHasBeenZeroed = false;
     protected StickyFaults mFaults = new StickyFaults();
     protected SetpointGenerator mSetpointGenerator = new SetpointGenerator();
@@ -326,8 +330,8 @@ public abstract class ServoMotorSubsystem extends Subsystem {
             }
         }
 
-        if (mCSVWriter != null) {
-            mCSVWriter.add(mPeriodicIO);
+        if (mLog != null) {
+            mLog.add(mPeriodicIO);
         }
     }
 
@@ -360,10 +364,14 @@ public abstract class ServoMotorSubsystem extends Subsystem {
         mEnabledLooper.register(new Loop() {
             @Override
             public void onStart(double timestamp) {
-                // if (mCSVWriter == null) {
-                //     mCSVWriter = new ReflectingCSVWriter<>("/home/lvuser/"
-                //             + mConstants.kName.replaceAll("[^A-Za-z0-9]+", "").toUpperCase() + "-LOGS.csv",
-                //             PeriodicIO.class);
+                // if (mLog == null) {
+                //     try {
+                //         mLog = new BinaryLog<>(BinaryLog.newFileName("/home/lvuser/"
+                //                 + mConstants.kName.replaceAll("[^A-Za-z0-9]+", "").toUpperCase() + "-LOGS"),
+                //                 PeriodicIO.class);
+                //     } catch (IOException e) {
+                //         e.printStackTrace();
+                //     }
                 // }
             }
 
@@ -390,9 +398,13 @@ public abstract class ServoMotorSubsystem extends Subsystem {
 
             @Override
             public void onStop(double timestamp) {
-                if (mCSVWriter != null) {
-                    mCSVWriter.flush();
-                    mCSVWriter = null;
+                if (mLog != null) {
+                    try {
+                        mLog.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                    mLog = null;
                 }
 
                 stop();
@@ -575,10 +587,5 @@ public abstract class ServoMotorSubsystem extends Subsystem {
     public void outputTelemetry() {
         SmartDashboard.putNumber(mConstants.kName + ": Position (units)", mPeriodicIO.position_units);
         SmartDashboard.putBoolean(mConstants.kName + ": Homing Location", atHomingLocation());
-        // synchronized (this) {
-        //     if (mCSVWriter != null) {
-        //         mCSVWriter.write();
-        //     }
-        // }
     }
 }
\ No newline at end of file
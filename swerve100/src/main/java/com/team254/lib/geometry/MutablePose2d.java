@@ -0,0 +1,128 @@
+package com.team254.lib.geometry;
+
+/**
+ * A Pose2d that can be changed in place, for the control loop, see MutableRotation2d.
+ * <p>
+ * Each operation changes this pose and returns it, for chaining; none of them allocate. The arithmetic is the same
+ * as Pose2d, so the results are too.
+ */
+public class MutablePose2d {
+    private final static double kEps = 1E-9;
+
+    private final MutableTranslation2d translation_ = new MutableTranslation2d();
+    private final MutableRotation2d rotation_ = new MutableRotation2d();
+
+    public MutablePose2d() {
+    }
+
+    public MutablePose2d(final Pose2d other) {
+        set(other);
+    }
+
+    public MutablePose2d set(final Pose2d other) {
+        translation_.set(other.translation_);
+        rotation_.set(other.rotation_);
+        return this;
+    }
+
+    public MutablePose2d set(final MutablePose2d other) {
+        translation_.set(other.translation_);
+        rotation_.set(other.rotation_);
+        return this;
+    }
+
+    public MutablePose2d set(double x, double y, final Rotation2d rotation) {
+        translation_.set(x, y);
+        rotation_.set(rotation);
+        return this;
+    }
+
+    /** The translation, which may be changed in place. */
+    public MutableTranslation2d getTranslation() {
+        return translation_;
+    }
+
+    /** The rotation, which may be changed in place. */
+    public MutableRotation2d getRotation() {
+        return rotation_;
+    }
+
+    /** This = the pose with the (constant curvature) velocity delta, see Pose2d.exp(). */
+    public MutablePose2d exp(double dx, double dy, double dtheta) {
+        double sin_theta = Math.sin(dtheta);
+        double cos_theta = Math.cos(dtheta);
+        double s, c;
+        if (Math.abs(dtheta) < kEps) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = .5 * dtheta;
+        } else {
+            s = sin_theta / dtheta;
+            c = (1.0 - cos_theta) / dtheta;
+        }
+        translation_.set(dx * s - dy * c, dx * c + dy * s);
+        rotation_.setTrig(cos_theta, sin_theta, false);
+        return this;
+    }
+
+    public MutablePose2d exp(final MutableTwist2d delta) {
+        return exp(delta.dx, delta.dy, delta.dtheta);
+    }
+
+    /** Write the logical inverse of exp() into the twist, see Pose2d.log(). */
+    public MutableTwist2d log(final MutableTwist2d out) {
+        final double dtheta = rotation_.getRadians();
+        final double half_dtheta = 0.5 * dtheta;
+        final double cos_minus_one = rotation_.cos() - 1.0;
+        double halftheta_by_tan_of_halfdtheta;
+        if (Math.abs(cos_minus_one) < kEps) {
+            halftheta_by_tan_of_halfdtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halftheta_by_tan_of_halfdtheta = -(half_dtheta * rotation_.sin()) / cos_minus_one;
+        }
+        // translation rotated by (halftheta_by_tan_of_halfdtheta, -half_dtheta), unnormalized
+        final double x = translation_.x();
+        final double y = translation_.y();
+        return out.set(
+                x * halftheta_by_tan_of_halfdtheta - y * -half_dtheta,
+                x * -half_dtheta + y * halftheta_by_tan_of_halfdtheta,
+                dtheta);
+    }
+
+    /** This = this * other, i.e. translate by other's translation, then rotate, see Pose2d.transformBy(). */
+    public MutablePose2d transformBy(final MutablePose2d other) {
+        final double cos = rotation_.cos();
+        final double sin = rotation_.sin();
+        final double x = other.translation_.x();
+        final double y = other.translation_.y();
+        translation_.translateBy(x * cos - y * sin, x * sin + y * cos);
+        rotation_.rotateBy(other.rotation_);
+        return this;
+    }
+
+    public MutablePose2d transformBy(final Pose2d other) {
+        final double cos = rotation_.cos();
+        final double sin = rotation_.sin();
+        final double x = other.translation_.x();
+        final double y = other.translation_.y();
+        translation_.translateBy(x * cos - y * sin, x * sin + y * cos);
+        rotation_.rotateBy(other.rotation_);
+        return this;
+    }
+
+    /** This = the inverse of this, see Pose2d.inverse(). */
+    public MutablePose2d inverse() {
+        rotation_.inverse();
+        translation_.scale(-1.0).rotateBy(rotation_);
+        return this;
+    }
+
+    /** A new immutable copy, e.g. for output. */
+    public Pose2d toPose2d() {
+        return new Pose2d(translation_.toTranslation2d(), rotation_.toRotation2d());
+    }
+
+    @Override
+    public String toString() {
+        return "Mutable" + toPose2d().toString();
+    }
+}
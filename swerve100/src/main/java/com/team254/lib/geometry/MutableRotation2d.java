@@ -0,0 +1,160 @@
+package com.team254.lib.geometry;
+
+import static com.team254.lib.util.Util.kEpsilon;
+
+/**
+ * A Rotation2d that can be changed in place, for the control loop, where a new Rotation2d for every rotateBy() or
+ * inverse() adds up.
+ * <p>
+ * Like Rotation2d, this keeps the cosine and sine, or the radians, or both, and computes the missing one only when
+ * asked, in the same way, so a chain of operations here gives exactly the same result as the same chain on
+ * Rotation2d.
+ * <p>
+ * Each operation changes this rotation and returns it, for chaining; none of them allocate.
+ */
+public class MutableRotation2d {
+    private double cos_angle_ = 1.0;
+    private double sin_angle_ = 0.0;
+    private double radians_ = 0.0;
+
+    public MutableRotation2d() {
+    }
+
+    public MutableRotation2d(final Rotation2d other) {
+        set(other);
+    }
+
+    public MutableRotation2d set(final Rotation2d other) {
+        cos_angle_ = other.cos_angle_;
+        sin_angle_ = other.sin_angle_;
+        radians_ = other.radians_;
+        return this;
+    }
+
+    public MutableRotation2d set(final MutableRotation2d other) {
+        cos_angle_ = other.cos_angle_;
+        sin_angle_ = other.sin_angle_;
+        radians_ = other.radians_;
+        return this;
+    }
+
+    /** Same as new Rotation2d(radians, normalize). */
+    public MutableRotation2d setRadians(double radians, boolean normalize) {
+        if (normalize) {
+            radians = wrapRadians(radians);
+        }
+        radians_ = radians;
+        cos_angle_ = Double.NaN;
+        sin_angle_ = Double.NaN;
+        return this;
+    }
+
+    /** Same as new Rotation2d(x, y, normalize). */
+    public MutableRotation2d setTrig(double x, double y, boolean normalize) {
+        if (normalize) {
+            double magnitude = Math.hypot(x, y);
+            if (magnitude > kEpsilon) {
+                sin_angle_ = y / magnitude;
+                cos_angle_ = x / magnitude;
+            } else {
+                sin_angle_ = 0.0;
+                cos_angle_ = 1.0;
+            }
+        } else {
+            cos_angle_ = x;
+            sin_angle_ = y;
+        }
+        radians_ = Double.NaN;
+        return this;
+    }
+
+    public double cos() {
+        ensureTrigComputed();
+        return cos_angle_;
+    }
+
+    public double sin() {
+        ensureTrigComputed();
+        return sin_angle_;
+    }
+
+    public double getRadians() {
+        ensureRadiansComputed();
+        return radians_;
+    }
+
+    public double getDegrees() {
+        return Math.toDegrees(getRadians());
+    }
+
+    /** This = this rotated by other, see Rotation2d.rotateBy(). */
+    public MutableRotation2d rotateBy(final Rotation2d other) {
+        if (hasTrig() && !Double.isNaN(other.cos_angle_) && !Double.isNaN(other.sin_angle_)) {
+            return setTrig(cos_angle_ * other.cos_angle_ - sin_angle_ * other.sin_angle_,
+                    cos_angle_ * other.sin_angle_ + sin_angle_ * other.cos_angle_, true);
+        }
+        return setRadians(getRadians() + other.getRadians(), true);
+    }
+
+    /** This = this rotated by other, see Rotation2d.rotateBy(). */
+    public MutableRotation2d rotateBy(final MutableRotation2d other) {
+        if (hasTrig() && other.hasTrig()) {
+            return setTrig(cos_angle_ * other.cos_angle_ - sin_angle_ * other.sin_angle_,
+                    cos_angle_ * other.sin_angle_ + sin_angle_ * other.cos_angle_, true);
+        }
+        return setRadians(getRadians() + other.getRadians(), true);
+    }
+
+    /** This = the inverse of this, see Rotation2d.inverse(). */
+    public MutableRotation2d inverse() {
+        if (hasTrig()) {
+            return setTrig(cos_angle_, -sin_angle_, false);
+        }
+        return setRadians(-getRadians(), true);
+    }
+
+    /** This = this rotated by 180 degrees, see Rotation2d.flip(). */
+    public MutableRotation2d flip() {
+        if (hasTrig()) {
+            return setTrig(-cos_angle_, -sin_angle_, false);
+        }
+        return setRadians(getRadians() + Math.PI, true);
+    }
+
+    /** A new immutable copy, e.g. for output. */
+    public Rotation2d toRotation2d() {
+        return new Rotation2d(cos_angle_, sin_angle_, radians_);
+    }
+
+    @Override
+    public String toString() {
+        return "Mutable" + toRotation2d().toString();
+    }
+
+    private boolean hasTrig() {
+        return !Double.isNaN(sin_angle_) && !Double.isNaN(cos_angle_);
+    }
+
+    private void ensureTrigComputed() {
+        if (!hasTrig()) {
+            sin_angle_ = Math.sin(radians_);
+            cos_angle_ = Math.cos(radians_);
+        }
+    }
+
+    private void ensureRadiansComputed() {
+        if (Double.isNaN(radians_)) {
+            radians_ = Math.atan2(sin_angle_, cos_angle_);
+        }
+    }
+
+    /** Same as Rotation2d.WrapRadians(). */
+    private static double wrapRadians(double radians) {
+        final double k2Pi = 2.0 * Math.PI;
+        radians = radians % k2Pi;
+        radians = (radians + k2Pi) % k2Pi;
+        if (radians > Math.PI)
+            radians -= k2Pi;
+        return radians;
+    }
+}
@@ -0,0 +1,71 @@
+package com.team254.lib.geometry;
+
+/**
+ * A Translation2d that can be changed in place, for the control loop, see MutableRotation2d.
+ * <p>
+ * Each operation changes this translation and returns it, for chaining; none of them allocate.
+ */
+public class MutableTranslation2d {
+    private double x_;
+    private double y_;
+
+    public MutableTranslation2d() {
+    }
+
+    public MutableTranslation2d(double x, double y) {
+        set(x, y);
+    }
+
+    public MutableTranslation2d set(double x, double y) {
+        x_ = x;
+        y_ = y;
+        return this;
+    }
+
+    public MutableTranslation2d set(final Translation2d other) {
+        return set(other.x_, other.y_);
+    }
+
+    public MutableTranslation2d set(final MutableTranslation2d other) {
+        return set(other.x_, other.y_);
+    }
+
+    public double x() {
+        return x_;
+    }
+
+    public double y() {
+        return y_;
+    }
+
+    public double norm() {
+        return Math.hypot(x_, y_);
+    }
+
+    public MutableTranslation2d translateBy(double x, double y) {
+        return set(x_ + x, y_ + y);
+    }
+
+    public MutableTranslation2d translateBy(final MutableTranslation2d other) {
+        return translateBy(other.x_, other.y_);
+    }
+
+    /** This = this rotated by rotation, see Translation2d.rotateBy(). */
+    public MutableTranslation2d rotateBy(final MutableRotation2d rotation) {
+        return set(x_ * rotation.cos() - y_ * rotation.sin(), x_ * rotation.sin() + y_ * rotation.cos());
+    }
+
+    public MutableTranslation2d scale(double s) {
+        return set(x_ * s, y_ * s);
+    }
+
+    /** A new immutable copy, e.g. for output. */
+    public Translation2d toTranslation2d() {
+        return new Translation2d(x_, y_);
+    }
+
+    @Override
+    public String toString() {
+        return "Mutable" + toTranslation2d().toString();
+    }
+}
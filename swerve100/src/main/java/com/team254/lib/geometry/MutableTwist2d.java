@@ -0,0 +1,50 @@
+package com.team254.lib.geometry;
+
+import com.team254.lib.util.Util;
+
+/**
+ * A Twist2d that can be changed in place, for the control loop, see MutableRotation2d.
+ */
+public class MutableTwist2d {
+    public double dx;
+    public double dy;
+    public double dtheta; // Radians!
+
+    public MutableTwist2d set(double dx, double dy, double dtheta) {
+        this.dx = dx;
+        this.dy = dy;
+        this.dtheta = dtheta;
+        return this;
+    }
+
+    public MutableTwist2d set(final Twist2d other) {
+        return set(other.dx, other.dy, other.dtheta);
+    }
+
+    public MutableTwist2d scale(double scale) {
+        return set(dx * scale, dy * scale, dtheta * scale);
+    }
+
+    public double norm() {
+        // Common case of dy == 0
+        if (dy == 0.0)
+            return Math.abs(dx);
+        return Math.hypot(dx, dy);
+    }
+
+    public boolean epsilonEquals(double dx, double dy, double dtheta, double epsilon) {
+        return Util.epsilonEquals(this.dx, dx, epsilon) &&
+                Util.epsilonEquals(this.dy, dy, epsilon) &&
+                Util.epsilonEquals(this.dtheta, dtheta, epsilon);
+    }
+
+    /** A new immutable copy, e.g. for output. */
+    public Twist2d toTwist2d() {
+        return new Twist2d(dx, dy, dtheta);
+    }
+
+    @Override
+    public String toString() {
+        return "Mutable" + toTwist2d().toString();
+    }
+}
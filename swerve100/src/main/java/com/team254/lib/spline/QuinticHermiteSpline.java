@@ -4,7 +4,9 @@ import com.team254.lib.geometry.Pose2d;
 import com.team254.lib.geometry.Rotation2d;
 import com.team254.lib.geometry.Translation2d;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class QuinticHermiteSpline extends Spline {
     private static final double kEpsilon = 1e-5;
@@ -187,6 +189,40 @@ public class QuinticHermiteSpline extends Spline {
         private double ddx, ddy;
     }
 
+    /**
+     * How to run the optimizer.
+     */
+    public enum Optimizer {
+        /** Recompute every spline for every gradient component, as originally. */
+        SERIAL,
+        /** Keep each spline's integral, and recompute only the splines that change. */
+        INCREMENTAL,
+        /** Same as INCREMENTAL, with the splines evaluated on the common ForkJoin pool. */
+        PARALLEL
+    }
+
+    /**
+     * What the optimizer did.
+     */
+    public static class OptimizationResult {
+        /** The final sumDCurvature2 */
+        public final double sumDCurvature2;
+        public final int iterations;
+        public final double wallTimeMs;
+
+        private OptimizationResult(double sumDCurvature2, int iterations, double wallTimeMs) {
+            this.sumDCurvature2 = sumDCurvature2;
+            this.iterations = iterations;
+            this.wallTimeMs = wallTimeMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("OptimizationResult(sumDCurvature2: %.6f, iterations: %d, wallTimeMs: %.3f)",
+                    sumDCurvature2, iterations, wallTimeMs);
+        }
+    }
+
     /**
      * Finds the optimal second derivative values for a set of splines to reduce the sum of the change in curvature
      * squared over the path
@@ -195,17 +231,56 @@ public class QuinticHermiteSpline extends Spline {
      * @return the final sumDCurvature2
      */
     public static double optimizeSpline(List<QuinticHermiteSpline> splines) {
+        return optimizeSpline(splines, Optimizer.SERIAL).sumDCurvature2;
+    }
+
+    /**
+     * Same as optimizeSpline(splines), using the specified optimizer. The incremental optimizers follow the same
+     * steps, but the gradient is computed from the two splines on either side of each control point, rather than
+     * the whole path, so the results differ by roundoff.
+     *
+     * @param splines the list of splines to optimize
+     * @return the final sumDCurvature2, with the iterations and time taken
+     */
+    public static OptimizationResult optimizeSpline(List<QuinticHermiteSpline> splines, Optimizer optimizer) {
+        long startNs = System.nanoTime();
+        if (optimizer == Optimizer.SERIAL) {
+            int count = 0;
+            double prev = sumDCurvature2(splines);
+            while (count < kMaxIterations) {
+                runOptimizationIteration(splines);
+                double current = sumDCurvature2(splines);
+                if (prev - current < kMinDelta)
+                    return new OptimizationResult(current, count + 1, (System.nanoTime() - startNs) / 1e6);
+                prev = current;
+                count++;
+            }
+            return new OptimizationResult(prev, count, (System.nanoTime() - startNs) / 1e6);
+        }
+        final boolean parallel = optimizer == Optimizer.PARALLEL;
+        final int n = splines.size();
+        // the start and end poses don't change, so neither does colinearity.
+        final boolean[] colinear = new boolean[Math.max(0, n - 1)];
+        for (int i = 0; i < n - 1; ++i) {
+            colinear[i] = splines.get(i).getStartPose().isColinear(splines.get(i + 1).getStartPose())
+                    || splines.get(i).getEndPose().isColinear(splines.get(i + 1).getEndPose());
+        }
+        final boolean[] all = new boolean[n];
+        Arrays.fill(all, true);
+        final double[] integrals = new double[n];
+        refresh(splines, integrals, all, parallel);
+
         int count = 0;
-        double prev = sumDCurvature2(splines);
+        double prev = sum(integrals);
         while (count < kMaxIterations) {
-            runOptimizationIteration(splines);
-            double current = sumDCurvature2(splines);
+            runIncrementalIteration(splines, integrals, colinear, parallel);
+            double current = sum(integrals);
             if (prev - current < kMinDelta)
-                return current;
+                return new OptimizationResult(current, count + 1, (System.nanoTime() - startNs) / 1e6);
             prev = current;
             count++;
         }
-        return prev;
+        return new OptimizationResult(prev, count, (System.nanoTime() - startNs) / 1e6);
     }
 
 
@@ -317,6 +392,142 @@ public class QuinticHermiteSpline extends Spline {
         }
     }
 
+    /**
+     * Same as runOptimizationIteration(), using and maintaining the integral of each spline.
+     */
+    private static void runIncrementalIteration(List<QuinticHermiteSpline> splines, double[] integrals,
+                                                boolean[] colinear, boolean parallel) {
+        //can't optimize anything with less than 2 splines
+        if (splines.size() <= 1) {
+            return;
+        }
+
+        final ControlPoint[] controlPoints = new ControlPoint[splines.size() - 1];
+
+        //calculate partial derivatives of sumDCurvature2; only the splines on either side of a control point
+        //depend on it, so each component is independent of the others.
+        range(controlPoints.length, parallel).forEach(i -> {
+            if (colinear[i]) {
+                return;
+            }
+            QuinticHermiteSpline temp = splines.get(i);
+            QuinticHermiteSpline temp1 = splines.get(i + 1);
+            double original = integrals[i] + integrals[i + 1];
+            ControlPoint controlPoint = new ControlPoint(); //holds the gradient at a control point
+            controlPoint.ddx = (temp.withSecondDerivatives(temp.ddx0, temp.ddx1 + kEpsilon, temp.ddy0, temp.ddy1)
+                    .sumDCurvature2()
+                    + temp1.withSecondDerivatives(temp1.ddx0 + kEpsilon, temp1.ddx1, temp1.ddy0, temp1.ddy1)
+                    .sumDCurvature2()
+                    - original) / kEpsilon;
+            controlPoint.ddy = (temp.withSecondDerivatives(temp.ddx0, temp.ddx1, temp.ddy0, temp.ddy1 + kEpsilon)
+                    .sumDCurvature2()
+                    + temp1.withSecondDerivatives(temp1.ddx0, temp1.ddx1, temp1.ddy0 + kEpsilon, temp1.ddy1)
+                    .sumDCurvature2()
+                    - original) / kEpsilon;
+            controlPoints[i] = controlPoint;
+        });
+
+        double magnitude = 0;
+        for (int i = 0; i < controlPoints.length; ++i) {
+            if (colinear[i]) {
+                continue;
+            }
+            magnitude += controlPoints[i].ddx * controlPoints[i].ddx + controlPoints[i].ddy * controlPoints[i].ddy;
+        }
+        magnitude = Math.sqrt(magnitude);
+
+        //a spline changes if either of its ends moves
+        final boolean[] changed = new boolean[splines.size()];
+        for (int i = 0; i < controlPoints.length; ++i) {
+            if (!colinear[i]) {
+                changed[i] = true;
+                changed[i + 1] = true;
+            }
+        }
+
+        //minimize along the direction of the gradient, same as runOptimizationIteration()
+        Translation2d p1, p2, p3;
+        p2 = new Translation2d(0, sum(integrals));
+
+        for (int i = 0; i < controlPoints.length; ++i) {
+            if (colinear[i]) {
+                continue;
+            }
+            controlPoints[i].ddx *= kStepSize / magnitude;
+            controlPoints[i].ddy *= kStepSize / magnitude;
+            splines.get(i).ddx1 -= controlPoints[i].ddx;
+            splines.get(i).ddy1 -= controlPoints[i].ddy;
+            splines.get(i + 1).ddx0 -= controlPoints[i].ddx;
+            splines.get(i + 1).ddy0 -= controlPoints[i].ddy;
+        }
+        refresh(splines, integrals, changed, parallel);
+        p1 = new Translation2d(-kStepSize, sum(integrals));
+
+        for (int i = 0; i < controlPoints.length; ++i) {
+            if (colinear[i]) {
+                continue;
+            }
+            splines.get(i).ddx1 += 2 * controlPoints[i].ddx;
+            splines.get(i).ddy1 += 2 * controlPoints[i].ddy;
+            splines.get(i + 1).ddx0 += 2 * controlPoints[i].ddx;
+            splines.get(i + 1).ddy0 += 2 * controlPoints[i].ddy;
+        }
+        refresh(splines, integrals, changed, parallel);
+        p3 = new Translation2d(kStepSize, sum(integrals));
+
+        double stepSize = fitParabola(p1, p2, p3); //approximate step size to minimize sumDCurvature2 along the gradient
+
+        for (int i = 0; i < controlPoints.length; ++i) {
+            if (colinear[i]) {
+                continue;
+            }
+            controlPoints[i].ddx *= 1 + stepSize / kStepSize;
+            controlPoints[i].ddy *= 1 + stepSize / kStepSize;
+            splines.get(i).ddx1 += controlPoints[i].ddx;
+            splines.get(i).ddy1 += controlPoints[i].ddy;
+            splines.get(i + 1).ddx0 += controlPoints[i].ddx;
+            splines.get(i + 1).ddy0 += controlPoints[i].ddy;
+        }
+        refresh(splines, integrals, changed, parallel);
+    }
+
+    /**
+     * Recompute the coefficients and integral of each changed spline.
+     */
+    private static void refresh(List<QuinticHermiteSpline> splines, double[] integrals, boolean[] changed,
+                                boolean parallel) {
+        range(integrals.length, parallel).forEach(i -> {
+            if (changed[i]) {
+                QuinticHermiteSpline spline = splines.get(i);
+                spline.computeCoefficients();
+                integrals[i] = spline.sumDCurvature2();
+            }
+        });
+    }
+
+    private static IntStream range(int n, boolean parallel) {
+        IntStream range = IntStream.range(0, n);
+        return parallel ? range.parallel() : range;
+    }
+
+    /**
+     * Sum in order, so the total is the same as sumDCurvature2(splines).
+     */
+    private static double sum(double[] integrals) {
+        double sum = 0;
+        for (double integral : integrals) {
+            sum += integral;
+        }
+        return sum;
+    }
+
+    /**
+     * A copy of this spline with different second derivatives at the ends.
+     */
+    private QuinticHermiteSpline withSecondDerivatives(double ddx0, double ddx1, double ddy0, double ddy1) {
+        return new QuinticHermiteSpline(x0, x1, dx0, dx1, ddx0, ddx1, y0, y1, dy0, dy1, ddy0, ddy1);
+    }
+
     /**
      * fits a parabola to 3 points
      *
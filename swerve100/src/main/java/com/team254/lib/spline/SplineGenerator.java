@@ -11,6 +11,54 @@ public class SplineGenerator {
     private static final double kMaxDY = 0.05; //inches
     private static final double kMaxDTheta = 0.1; //radians!
     private static final int kMinSampleSize = 1;
+    // where the adaptive sampler checks the distance to the chord, as fractions of the segment.
+    private static final double[] kChordChecks = {0.25, 0.5, 0.75};
+
+    /**
+     * Tolerances for the adaptive sampler, in inches like the rest of the 254 code. The defaults are within the
+     * tracking error of the drive, and give several times fewer points than DriveMotionPlanner's fixed steps.
+     */
+    public static class AdaptiveConfig {
+        /** Most distance from the spline to the chord between samples. */
+        public double maxChordError = 0.05;
+        /** Most change in curvature between samples, 1/inches. */
+        public double maxDCurvature = 0.005;
+        /** Most distance between samples, however straight the spline; this bound always holds. */
+        public double maxGap = 12.0;
+        /** Most bisections for the other tolerances, in case of a cusp. */
+        public int maxDepth = 16;
+    }
+
+    /**
+     * What the adaptive sampler made.
+     */
+    public static class AdaptiveResult {
+        public final List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> points;
+        /** Largest distance from the spline to a chord, at the points checked. */
+        public final double maxChordError;
+        /** Largest change in curvature between samples. */
+        public final double maxDCurvature;
+        /** Largest distance between samples. */
+        public final double maxGap;
+
+        private AdaptiveResult(List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> points, double maxChordError,
+                               double maxDCurvature, double maxGap) {
+            this.points = points;
+            this.maxChordError = maxChordError;
+            this.maxDCurvature = maxDCurvature;
+            this.maxGap = maxGap;
+        }
+
+        public int pointCount() {
+            return points.size();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("AdaptiveResult(points: %d, maxChordError: %.4f, maxDCurvature: %.5f, maxGap: %.3f)",
+                    pointCount(), maxChordError, maxDCurvature, maxGap);
+        }
+    }
 
     /**
      * Converts a spline into a list of Twist2d's.
@@ -64,6 +112,68 @@ public class SplineGenerator {
         return rv;
     }
 
+    /**
+     * Samples the splines more sparsely than parameterizeSplines(), bisecting only where the spline departs from the
+     * chord, or the curvature changes, by more than the tolerances, and wherever samples are too far apart.
+     */
+    public static AdaptiveResult parameterizeSplinesAdaptive(List<? extends Spline> splines,
+                                                             List<? extends Rotation2d> headings,
+                                                             AdaptiveConfig config) {
+        List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> rv = new ArrayList<>();
+        double[] stats = new double[3];
+        if (splines.isEmpty()) return new AdaptiveResult(rv, 0, 0, 0);
+        rv.add(new TrajectoryPoint<>(splines.get(0).getPose2dWithCurvature(0.0), headings.get(0).getRotation(), 0));
+        for (int i = 0; i < splines.size(); i++) {
+            List<Rotation2d> spline_rots = new ArrayList<>();
+            spline_rots.add(headings.get(i));
+            spline_rots.add(headings.get(i + 1));
+            getAdaptiveSegment(splines.get(i), spline_rots, rv, 0.0, 1.0, config, 0, stats);
+        }
+        return new AdaptiveResult(rv, stats[0], stats[1], stats[2]);
+    }
+
+    /**
+     * Appends the samples in (t0, t1], and updates stats: chord error, curvature change, gap.
+     */
+    private static void getAdaptiveSegment(Spline s, List<? extends Rotation2d> headings,
+                                           List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> rv,
+                                           double t0, double t1, AdaptiveConfig config, int depth, double[] stats) {
+        Translation2d p0 = s.getPoint(t0);
+        Translation2d p1 = s.getPoint(t1);
+        final double chord_x = p1.x() - p0.x();
+        final double chord_y = p1.y() - p0.y();
+        final double gap = Math.hypot(chord_x, chord_y);
+        double chord_error = 0.0;
+        for (double u : kChordChecks) {
+            Translation2d p = s.getPoint(t0 + u * (t1 - t0));
+            final double dx = p.x() - p0.x();
+            final double dy = p.y() - p0.y();
+            // distance to the segment, or to p0 if the segment is a point.
+            final double along = gap > 0 ? Math.max(0, Math.min(1, (dx * chord_x + dy * chord_y) / (gap * gap))) : 0;
+            chord_error = Math.max(chord_error, Math.hypot(dx - along * chord_x, dy - along * chord_y));
+        }
+        final double dcurvature = Math.abs(s.getCurvature(t1) - s.getCurvature(t0));
+
+        if (gap > config.maxGap || (depth < config.maxDepth
+                && (chord_error > config.maxChordError || dcurvature > config.maxDCurvature))) {
+            getAdaptiveSegment(s, headings, rv, t0, (t0 + t1) / 2, config, depth + 1, stats);
+            getAdaptiveSegment(s, headings, rv, (t0 + t1) / 2, t1, config, depth + 1, stats);
+        } else {
+            stats[0] = Math.max(stats[0], chord_error);
+            stats[1] = Math.max(stats[1], dcurvature);
+            stats[2] = Math.max(stats[2], gap);
+            rv.add(new TrajectoryPoint<>(s.getPose2dWithCurvature(t1), interpolateHeading(headings, t1, 1.0), rv.size()));
+        }
+    }
+
+    private static Rotation2d interpolateHeading(List<? extends Rotation2d> headings, double t, double totalTime) {
+        Rotation2d diff = headings.get(1).rotateBy(headings.get(0).inverse());
+        if (diff.getRadians() > Math.PI) {
+            diff = diff.inverse().rotateBy(Rotation2d.fromRadians( Math.PI));
+        }
+        return headings.get(0).rotateBy(diff.times(t / totalTime));
+    }
+
     private static void getSegmentArc(Spline s, List<? extends Rotation2d> headings, List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> rv,  double t0, double t1, double maxDx,
                                       double maxDy,
                                       double maxDTheta, double totalTime) {
@@ -79,11 +189,7 @@ public class SplineGenerator {
             getSegmentArc(s, headings, rv, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta, totalTime);
         } else {
             // Interpolate heading
-            Rotation2d diff = headings.get(1).rotateBy(headings.get(0).inverse());
-            if (diff.getRadians() > Math.PI) {
-                diff = diff.inverse().rotateBy(Rotation2d.fromRadians( Math.PI));
-            }
-            Rotation2d interpolated_heading = headings.get(0).rotateBy(diff.times(t1 / totalTime));
+            Rotation2d interpolated_heading = interpolateHeading(headings, t1, totalTime);
 
             rv.add(new TrajectoryPoint<>(s.getPose2dWithCurvature(t1), interpolated_heading, rv.size()-1));
         }
@@ -40,6 +40,8 @@ public class SwerveDriveKinematics {
     private final Translation2d[] m_modules;
     private Translation2d m_prevCoR = new Translation2d();
     private final Rotation2d[] m_rotations;
+    // m_forwardKinematics as an array, for the in-place version.
+    private final double[][] m_forward;
 
     /**
      * Constructs a swerve drive kinematics object. This takes in a variable number of wheel locations
@@ -64,6 +66,12 @@ public class SwerveDriveKinematics {
             m_rotations[i] = new Rotation2d(m_modules[i].x(), m_modules[i].y(), true);
         }
         m_forwardKinematics = m_inverseKinematics.pseudoInverse();
+        m_forward = new double[3][m_numModules * 2];
+        for (int r = 0; r < 3; ++r) {
+            for (int c = 0; c < m_numModules * 2; ++c) {
+                m_forward[r][c] = m_forwardKinematics.get(r, c);
+            }
+        }
     }
 
     /**
@@ -171,6 +179,39 @@ public class SwerveDriveKinematics {
                 chassisSpeedsVector.get(2, 0));
     }
 
+    /**
+     * Inverse kinematics about the robot center, in place: the x and y components of each module velocity are
+     * written into the arrays, in the same order as the constructor. This is the same as toSwerveModuleStates(), but
+     * it doesn't allocate, for the control loop.
+     */
+    public void toModuleVelocities(double vx, double vy, double omega, double[] moduleVx, double[] moduleVy) {
+        for (int i = 0; i < m_numModules; i++) {
+            moduleVx[i] = vx - m_modules[i].y() * omega;
+            moduleVy[i] = vy + m_modules[i].x() * omega;
+        }
+    }
+
+    /**
+     * Forward kinematics, in place: the chassis speed implied by the x and y components of each module velocity is
+     * written into out. This is the same as toChassisSpeeds(), but it doesn't allocate, for the control loop.
+     */
+    public void toChassisSpeeds(double[] moduleVx, double[] moduleVy, ChassisSpeeds out) {
+        out.vxMetersPerSecond = forward(m_forward[0], moduleVx, moduleVy);
+        out.vyMetersPerSecond = forward(m_forward[1], moduleVx, moduleVy);
+        out.omegaRadiansPerSecond = forward(m_forward[2], moduleVx, moduleVy);
+    }
+
+    /** Same order of operations as the matrix multiply. */
+    private double forward(double[] row, double[] moduleVx, double[] moduleVy) {
+        double total = row[0] * moduleVx[0];
+        total += row[1] * moduleVy[0];
+        for (int i = 1; i < m_numModules; i++) {
+            total += row[i * 2] * moduleVx[i];
+            total += row[i * 2 + 1] * moduleVy[i];
+        }
+        return total;
+    }
+
     public ChassisSpeeds toChasisSpeedWheelConstraints(SwerveModuleState... wheelStates) {
         if (wheelStates.length != m_numModules) {
             throw new IllegalArgumentException(
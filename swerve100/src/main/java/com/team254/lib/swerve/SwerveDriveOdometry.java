@@ -4,9 +4,10 @@
 
 package com.team254.lib.swerve;
 
+import com.team254.lib.geometry.MutablePose2d;
+import com.team254.lib.geometry.MutableRotation2d;
 import com.team254.lib.geometry.Pose2d;
 import com.team254.lib.geometry.Rotation2d;
-import com.team254.lib.geometry.Twist2d;
 
 import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -18,6 +19,9 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  *
  * <p>Teams can use odometry during the autonomous period for complex tasks like path following.
  * Furthermore, odometry can be used for latency compensation when using computer-vision systems.
+ *
+ * <p>The update math is done in place, in mutable scratch geometry, so an update allocates just the
+ * returned pose (and, for the wheel constraint version, the constraint solve).
  */
 public class SwerveDriveOdometry {
     private final SwerveDriveKinematics m_kinematics;
@@ -28,6 +32,14 @@ public class SwerveDriveOdometry {
     private Rotation2d m_previousAngle;
     private double[] m_previousDistances;
 
+    // scratch, so the updates don't allocate.
+    private final MutablePose2d m_pose = new MutablePose2d();
+    private final MutablePose2d m_step = new MutablePose2d();
+    private final MutableRotation2d m_rotation = new MutableRotation2d();
+    private final ChassisSpeeds m_chassisSpeeds = new ChassisSpeeds();
+    private final double[] m_moduleVx;
+    private final double[] m_moduleVy;
+
     /**
      * Constructs a SwerveDriveOdometry object.
      *
@@ -39,8 +51,11 @@ public class SwerveDriveOdometry {
         m_kinematics = kinematics;
         m_velocity = new ChassisSpeeds();
         m_poseMeters = initialPose;
+        m_pose.set(initialPose);
         m_previousAngle = initialPose.getRotation();
         m_previousDistances = previousDistances;
+        m_moduleVx = new double[kinematics.getNumModules()];
+        m_moduleVy = new double[kinematics.getNumModules()];
     }
 
 
@@ -74,6 +89,7 @@ public class SwerveDriveOdometry {
     public void resetPosition(Pose2d pose) {
         m_velocity = new ChassisSpeeds();
         m_poseMeters = pose;
+        m_pose.set(pose);
         m_previousAngle = pose.getRotation();
     }
 
@@ -115,16 +131,22 @@ public class SwerveDriveOdometry {
 
         var angle = gyroAngle;
 
-        var chassisState = m_kinematics.toChassisSpeeds(moduleStates);
-        var newPose =
-                Pose2d.exp(
-                        new Twist2d(
-                                chassisState.vxMetersPerSecond * period,
-                                chassisState.vyMetersPerSecond * period,
-                                angle.rotateBy(m_previousAngle.inverse()).getRadians()));
+        if (moduleStates.length != m_moduleVx.length) {
+            throw new IllegalArgumentException(
+                    "Number of modules is not consistent with number of wheel locations provided in "
+                            + "constructor");
+        }
+        for (int i = 0; i < moduleStates.length; i++) {
+            m_moduleVx[i] = moduleStates[i].speedMetersPerSecond * moduleStates[i].angle.cos();
+            m_moduleVy[i] = moduleStates[i].speedMetersPerSecond * moduleStates[i].angle.sin();
+        }
+        m_kinematics.toChassisSpeeds(m_moduleVx, m_moduleVy, m_chassisSpeeds);
+        m_step.exp(
+                m_chassisSpeeds.vxMetersPerSecond * period,
+                m_chassisSpeeds.vyMetersPerSecond * period,
+                m_rotation.set(m_previousAngle).inverse().rotateBy(angle).getRadians());
         m_previousAngle = angle;
-        m_poseMeters = new Pose2d(m_poseMeters.transformBy(newPose).getTranslation(), angle);
-        return m_poseMeters;
+        return updatePose(angle);
     }
 
     public Pose2d updateWithWheelConstraints(
@@ -136,16 +158,23 @@ public class SwerveDriveOdometry {
         var angle = gyroAngle;
         var chassisState = m_kinematics.toChasisSpeedWheelConstraints(moduleStates);
 
-        var idealStates = m_kinematics.toSwerveModuleStates(chassisState);
+        m_kinematics.toModuleVelocities(
+                chassisState.vxMetersPerSecond,
+                chassisState.vyMetersPerSecond,
+                chassisState.omegaRadiansPerSecond,
+                m_moduleVx,
+                m_moduleVy);
 
         // Project along ideal angles.
         double average = 0.0;
         for (int i = 0 ;i < moduleStates.length; ++i) {
-            double ratio = moduleStates[i].angle.rotateBy(idealStates[i].angle.inverse()).cos()*
+            double idealSpeed = Math.hypot(m_moduleVx[i], m_moduleVy[i]);
+            double ratio = m_rotation.setTrig(m_moduleVx[i], m_moduleVy[i], true).inverse()
+                    .rotateBy(moduleStates[i].angle).cos()*
                     (moduleStates[i].distanceMeters - m_previousDistances[i])
-                    / (idealStates[i].speedMetersPerSecond * period);
+                    / (idealSpeed * period);
             if (Double.isNaN(ratio) || Double.isInfinite(ratio) ||
-                    Math.abs(idealStates[i].speedMetersPerSecond) < 0.01) {
+                    Math.abs(idealSpeed) < 0.01) {
                 ratio = 1.0;
             }
             average = average + ratio;
@@ -156,18 +185,21 @@ public class SwerveDriveOdometry {
         //System.out.println(chassisState);
         SmartDashboard.putNumber("average", average);
 
-        var newPose =
-                Pose2d.exp(
-                        new Twist2d(
-                                chassisState.vxMetersPerSecond * period * average,
-                                chassisState.vyMetersPerSecond * period * average,
-                                chassisState.omegaRadiansPerSecond * period * average));
-        //System.out.println("Translation: " + newPose);
+        m_step.exp(
+                chassisState.vxMetersPerSecond * period * average,
+                chassisState.vyMetersPerSecond * period * average,
+                chassisState.omegaRadiansPerSecond * period * average);
         m_velocity = chassisState;
         // m_velocity.omegaRadiansPerSecond = m_previousAngle.inverse().rotateBy(gyroAngle).getRadians() / period;
-        m_poseMeters = new Pose2d(m_poseMeters.transformBy(newPose).getTranslation(), angle);
         m_previousAngle = angle;
-        //System.out.println(m_poseMeters);
+        return updatePose(angle);
+    }
+
+    /** Apply the step to the pose, take the heading from the gyro, and make a copy for output. */
+    private Pose2d updatePose(Rotation2d angle) {
+        m_pose.transformBy(m_step);
+        m_pose.getRotation().set(angle);
+        m_poseMeters = new Pose2d(m_pose.getTranslation().x(), m_pose.getTranslation().y(), angle);
         return m_poseMeters;
     }
 
@@ -0,0 +1,271 @@
+package com.team254.lib.trajectory;
+
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Pose2dWithCurvature;
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.geometry.Translation2d;
+import com.team254.lib.trajectory.timing.TimedState;
+import com.team254.lib.util.Util;
+
+/**
+ * A timed trajectory stored as columns of doubles instead of a list of nested objects, which is several times
+ * smaller, and a time index, so that sampling by time is constant-time instead of a scan (see buildIndex() for the
+ * fine print).
+ * <p>
+ * This is a Trajectory, so anything that takes one works unchanged: points are made on demand from the columns. Use
+ * getTimeView() instead of a TimedView, which would scan.
+ * <p>
+ * The path and the robot heading share t, velocity, and acceleration, as TimingUtil makes them.
+ */
+public class ColumnarTrajectory extends Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> {
+    private final double[] t_;
+    private final double[] x_;
+    private final double[] y_;
+    private final double[] cos_;
+    private final double[] sin_;
+    private final double[] curvature_;
+    private final double[] dcurvature_ds_;
+    private final double[] velocity_;
+    private final double[] acceleration_;
+    private final double[] heading_cos_;
+    private final double[] heading_sin_;
+
+    /** At most this many index slots per point, to bound the index size. */
+    private static final int kMaxSlotsPerPoint = 8;
+
+    // index_[k] is the first point at or after slot k, i.e. time start + k * slot_.
+    private int[] index_ = new int[0];
+    private double slot_;
+    private final TimeView time_view_ = new TimeView();
+
+    /**
+     * Copy the trajectory into columns.
+     */
+    public ColumnarTrajectory(final Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory) {
+        this(trajectory.length());
+        for (int i = 0; i < trajectory.length(); ++i) {
+            final TimedState<Pose2dWithCurvature> state = trajectory.getPoint(i).state();
+            final Rotation2d heading = trajectory.getPoint(i).heading().state();
+            set(i, state.t(),
+                    state.state().getTranslation().x(), state.state().getTranslation().y(),
+                    state.state().getRotation().cos(), state.state().getRotation().sin(),
+                    state.state().getCurvature(), state.state().getDCurvatureDs(),
+                    state.velocity(), state.acceleration(),
+                    heading.cos(), heading.sin());
+        }
+        setDefaultVelocity(trajectory.getDefaultVelocity());
+        buildIndex();
+    }
+
+    /**
+     * Empty columns, to be filled with set(), followed by buildIndex().
+     */
+    ColumnarTrajectory(int length) {
+        t_ = new double[length];
+        x_ = new double[length];
+        y_ = new double[length];
+        cos_ = new double[length];
+        sin_ = new double[length];
+        curvature_ = new double[length];
+        dcurvature_ds_ = new double[length];
+        velocity_ = new double[length];
+        acceleration_ = new double[length];
+        heading_cos_ = new double[length];
+        heading_sin_ = new double[length];
+    }
+
+    void set(int i, double t, double x, double y, double cos, double sin, double curvature, double dcurvature_ds,
+             double velocity, double acceleration, double heading_cos, double heading_sin) {
+        t_[i] = t;
+        x_[i] = x;
+        y_[i] = y;
+        cos_[i] = cos;
+        sin_[i] = sin;
+        curvature_[i] = curvature;
+        dcurvature_ds_[i] = dcurvature_ds;
+        velocity_[i] = velocity;
+        acceleration_[i] = acceleration;
+        heading_cos_[i] = heading_cos;
+        heading_sin_[i] = heading_sin;
+    }
+
+    /**
+     * @return the trajectory itself if it's already columnar, otherwise a columnar copy.
+     */
+    public static ColumnarTrajectory of(
+            final Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory) {
+        if (trajectory instanceof ColumnarTrajectory) {
+            return (ColumnarTrajectory) trajectory;
+        }
+        return new ColumnarTrajectory(trajectory);
+    }
+
+    /**
+     * Make the time index. The slots are as wide as the smallest gap between points, so no slot holds more than one
+     * point boundary, and ceilIndex() steps at most once or twice past the slot's entry, plus once per repeated time
+     * (a stop). To keep the index small, the slots are never narrower than the average gap divided by
+     * kMaxSlotsPerPoint; if the points are spaced more unevenly than that, the step count is bounded by the ratio of
+     * the slot to the smallest gap instead.
+     */
+    void buildIndex() {
+        double span = t_end() - t_start();
+        double min_gap = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < length(); ++i) {
+            final double gap = t_[i] - t_[i - 1];
+            if (gap > 0.0) {
+                min_gap = Math.min(min_gap, gap);
+            }
+        }
+        if (length() < 2 || span <= 0.0 || !Double.isFinite(min_gap)) {
+            slot_ = 0.0;
+            index_ = new int[0];
+            return;
+        }
+        slot_ = Math.max(min_gap, span / ((double) kMaxSlotsPerPoint * length()));
+        index_ = new int[(int) Math.ceil(span / slot_) + 1];
+        int i = 0;
+        for (int k = 0; k < index_.length; ++k) {
+            final double t = t_start() + k * slot_;
+            while (i < length() - 1 && t_[i] < t) {
+                ++i;
+            }
+            index_[k] = i;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return t_.length == 0;
+    }
+
+    @Override
+    public int length() {
+        return t_.length;
+    }
+
+    @Override
+    public TrajectoryPoint<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> getLastPoint() {
+        return getPoint(length() - 1);
+    }
+
+    /**
+     * A new point, made from the columns.
+     */
+    @Override
+    public TrajectoryPoint<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> getPoint(final int index) {
+        return new TrajectoryPoint<>(state(index), heading(index), index);
+    }
+
+    public TimedState<Pose2dWithCurvature> state(int index) {
+        return new TimedState<>(
+                new Pose2dWithCurvature(
+                        new Pose2d(new Translation2d(x_[index], y_[index]),
+                                new Rotation2d(cos_[index], sin_[index], false)),
+                        curvature_[index], dcurvature_ds_[index]),
+                t_[index], velocity_[index], acceleration_[index]);
+    }
+
+    public TimedState<Rotation2d> heading(int index) {
+        return new TimedState<>(new Rotation2d(heading_cos_[index], heading_sin_[index], false),
+                t_[index], velocity_[index], acceleration_[index]);
+    }
+
+    public double t(int index) {
+        return t_[index];
+    }
+
+    public double x(int index) {
+        return x_[index];
+    }
+
+    public double y(int index) {
+        return y_[index];
+    }
+
+    public double curvature(int index) {
+        return curvature_[index];
+    }
+
+    public double velocity(int index) {
+        return velocity_[index];
+    }
+
+    public double acceleration(int index) {
+        return acceleration_[index];
+    }
+
+    public double t_start() {
+        return t_.length == 0 ? 0.0 : t_[0];
+    }
+
+    public double t_end() {
+        return t_.length == 0 ? 0.0 : t_[t_.length - 1];
+    }
+
+    /**
+     * @return the first index at or after time t, in constant time, see buildIndex().
+     */
+    public int ceilIndex(double t) {
+        if (t <= t_start() || slot_ <= 0.0) {
+            return 0;
+        }
+        if (t >= t_end()) {
+            return length() - 1;
+        }
+        int k = Math.min(index_.length - 1, (int) ((t - t_start()) / slot_));
+        int i = index_[k];
+        // roundoff in the slot time
+        while (i > 0 && t_[i - 1] >= t) {
+            --i;
+        }
+        while (t_[i] < t) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * Samples by time, the same as a TimedView.
+     */
+    public TimeView getTimeView() {
+        return time_view_;
+    }
+
+    public class TimeView implements TrajectoryView<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> {
+        @Override
+        public TrajectorySamplePoint<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> sample(double t) {
+            if (t >= t_end()) {
+                return new TrajectorySamplePoint<>(getPoint(length() - 1));
+            }
+            if (t <= t_start()) {
+                return new TrajectorySamplePoint<>(getPoint(0));
+            }
+            final int i = ceilIndex(t);
+            if (Util.epsilonEquals(t_[i], t_[i - 1])) {
+                return new TrajectorySamplePoint<>(getPoint(i));
+            }
+            final TimedState<Pose2dWithCurvature> prev_state = state(i - 1);
+            final TimedState<Rotation2d> prev_heading = heading(i - 1);
+            final double x = (t - t_[i - 1]) / (t_[i] - t_[i - 1]);
+            return new TrajectorySamplePoint<>(
+                    prev_state.interpolate(state(i), x),
+                    prev_heading.interpolate(heading(i), x),
+                    i - 1, i);
+        }
+
+        @Override
+        public double first_interpolant() {
+            return t_start();
+        }
+
+        @Override
+        public double last_interpolant() {
+            return t_end();
+        }
+
+        @Override
+        public Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory() {
+            return ColumnarTrajectory.this;
+        }
+    }
+}
@@ -22,22 +22,36 @@ public class DistanceView<S extends State<S>, T extends State<T>> implements Tra
             return new TrajectorySamplePoint<>(trajectory_.getPoint(trajectory_.length() - 1));
         if (distance <= 0.0)
             return new TrajectorySamplePoint<>(trajectory_.getPoint(0));
-        for (int i = 1; i < distances_.length; ++i) {
-            final TrajectoryPoint<S, T> s = trajectory_.getPoint(i);
-            if (distances_[i] >= distance) {
-                final TrajectoryPoint<S, T> prev_s = trajectory_.getPoint(i - 1);
-                if (Util.epsilonEquals(distances_[i], distances_[i - 1])) {
-                    return new TrajectorySamplePoint<>(s);
-                } else {
-                    return new TrajectorySamplePoint<>(
-                            prev_s.state().interpolate(s.state(),
-                                    (distance - distances_[i - 1]) / (distances_[i] - distances_[i - 1])),
-                            prev_s.heading().interpolate(s.heading(),
-                                    (distance - distances_[i - 1]) / (distances_[i] - distances_[i - 1])), i - 1, i);
-                }
+        final int i = ceilIndex(distance);
+        final TrajectoryPoint<S, T> s = trajectory_.getPoint(i);
+        final TrajectoryPoint<S, T> prev_s = trajectory_.getPoint(i - 1);
+        if (Util.epsilonEquals(distances_[i], distances_[i - 1])) {
+            return new TrajectorySamplePoint<>(s);
+        } else {
+            return new TrajectorySamplePoint<>(
+                    prev_s.state().interpolate(s.state(),
+                            (distance - distances_[i - 1]) / (distances_[i] - distances_[i - 1])),
+                    prev_s.heading().interpolate(s.heading(),
+                            (distance - distances_[i - 1]) / (distances_[i] - distances_[i - 1])), i - 1, i);
+        }
+    }
+
+    /**
+     * The first index, at least 1, with distance at or beyond the given one, by bisection: the distances never
+     * decrease.
+     */
+    private int ceilIndex(double distance) {
+        int lo = 1;
+        int hi = distances_.length - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (distances_[mid] >= distance) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
             }
         }
-        throw new RuntimeException();
+        return lo;
     }
 
     @Override
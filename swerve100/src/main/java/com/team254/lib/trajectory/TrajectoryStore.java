@@ -0,0 +1,341 @@
+package com.team254.lib.trajectory;
+
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Pose2dWithCurvature;
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.trajectory.timing.TimedState;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed trajectories, read from a file in the deploy directory, so the robot doesn't have to generate them at
+ * boot.
+ * <p>
+ * Trajectories are keyed by a hash of everything that went into them (see Hasher), so a stale one is never used: if
+ * the waypoints or constraints change, so does the key, the lookup misses, and the caller generates the trajectory
+ * as usual. The generator code itself isn't in the key, so rewrite the file after changing it.
+ * <p>
+ * The file is memory-mapped, and each trajectory is decoded the first time it's asked for, into a
+ * ColumnarTrajectory. The heading's t, velocity and acceleration are the same as the path's, as TimingUtil makes
+ * them, so they're stored but not read.
+ * <p>
+ * The format is big-endian: magic, version, count; then for each trajectory, key, offset, length, and default
+ * velocity; then the points, each 14 doubles: x, y, cos, sin, curvature, dcurvature_ds, t, velocity, acceleration
+ * for the path, and cos, sin, t, velocity, acceleration for the heading.
+ */
+public class TrajectoryStore {
+    public static final String kFileName = "trajectories.bin";
+
+    private static final int kMagic = 0x54524a53; // "TRJS"
+    private static final int kVersion = 1;
+    private static final int kHeaderBytes = 3 * Integer.BYTES;
+    private static final int kIndexBytes = Long.BYTES + 2 * Integer.BYTES + Double.BYTES;
+    private static final int kPointBytes = 14 * Double.BYTES;
+
+    private final ByteBuffer mBuffer;
+    // key -> position of the index entry
+    private final Map<Long, Integer> mIndex;
+    private final Map<Long, Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>>> mDecoded =
+            new HashMap<>();
+
+    private TrajectoryStore(ByteBuffer buffer, Map<Long, Integer> index) {
+        mBuffer = buffer;
+        mIndex = index;
+    }
+
+    /**
+     * A store with nothing in it.
+     */
+    public static TrajectoryStore empty() {
+        return new TrajectoryStore(ByteBuffer.allocate(0), new HashMap<>());
+    }
+
+    /**
+     * Map the file. If it's missing or unreadable, say so, and return an empty store, so everything is generated.
+     */
+    public static TrajectoryStore open(Path path) {
+        if (!Files.exists(path)) {
+            System.out.println("No trajectory store at " + path);
+            return empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping outlives the channel.
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < kHeaderBytes || buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion) {
+                System.out.println("Ignoring trajectory store with bad header: " + path);
+                return empty();
+            }
+            int count = buffer.getInt(8);
+            if (count < 0 || kHeaderBytes + (long) count * kIndexBytes > buffer.capacity()) {
+                System.out.println("Ignoring truncated trajectory store: " + path);
+                return empty();
+            }
+            Map<Long, Integer> index = new HashMap<>();
+            for (int i = 0; i < count; ++i) {
+                int entry = kHeaderBytes + i * kIndexBytes;
+                index.put(buffer.getLong(entry), entry);
+            }
+            return new TrajectoryStore(buffer, index);
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable trajectory store: " + path + " " + e);
+            return empty();
+        }
+    }
+
+    public int size() {
+        return mIndex.size();
+    }
+
+    public boolean contains(long key) {
+        return mIndex.containsKey(key);
+    }
+
+    /**
+     * @return the trajectory for the key, or null if it isn't here.
+     */
+    public synchronized Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> get(long key) {
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory = mDecoded.get(key);
+        if (trajectory != null) {
+            return trajectory;
+        }
+        Integer entry = mIndex.get(key);
+        if (entry == null) {
+            return null;
+        }
+        trajectory = decode(entry);
+        if (trajectory != null) {
+            mDecoded.put(key, trajectory);
+        }
+        return trajectory;
+    }
+
+    private Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> decode(int entry) {
+        final int offset = mBuffer.getInt(entry + Long.BYTES);
+        final int length = mBuffer.getInt(entry + Long.BYTES + Integer.BYTES);
+        final double default_velocity = mBuffer.getDouble(entry + Long.BYTES + 2 * Integer.BYTES);
+        if (offset < 0 || length < 0 || offset + (long) length * kPointBytes > mBuffer.capacity()) {
+            System.out.println("Ignoring truncated trajectory in store");
+            return null;
+        }
+        ColumnarTrajectory trajectory = new ColumnarTrajectory(length);
+        for (int i = 0; i < length; ++i) {
+            int p = offset + i * kPointBytes;
+            trajectory.set(i, mBuffer.getDouble(p + 48),
+                    mBuffer.getDouble(p), mBuffer.getDouble(p + 8),
+                    mBuffer.getDouble(p + 16), mBuffer.getDouble(p + 24),
+                    mBuffer.getDouble(p + 32), mBuffer.getDouble(p + 40),
+                    mBuffer.getDouble(p + 56), mBuffer.getDouble(p + 64),
+                    mBuffer.getDouble(p + 72), mBuffer.getDouble(p + 80));
+        }
+        trajectory.buildIndex();
+        trajectory.setDefaultVelocity(default_velocity);
+        return trajectory;
+    }
+
+    /**
+     * Write the trajectories to the file, replacing it.
+     */
+    public static void write(Path path,
+                             Map<Long, Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>>> trajectories)
+            throws IOException {
+        long bytes = kHeaderBytes + (long) trajectories.size() * kIndexBytes;
+        for (Trajectory<?, ?> trajectory : trajectories.values()) {
+            bytes += (long) trajectory.length() * kPointBytes;
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Too many trajectories to store: " + bytes + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+        buffer.putInt(kMagic);
+        buffer.putInt(kVersion);
+        buffer.putInt(trajectories.size());
+        int offset = kHeaderBytes + trajectories.size() * kIndexBytes;
+        for (Map.Entry<Long, Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>>> entry :
+                trajectories.entrySet()) {
+            buffer.putLong(entry.getKey());
+            buffer.putInt(offset);
+            buffer.putInt(entry.getValue().length());
+            buffer.putDouble(entry.getValue().getDefaultVelocity());
+            offset += entry.getValue().length() * kPointBytes;
+        }
+        for (Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory : trajectories.values()) {
+            for (int i = 0; i < trajectory.length(); ++i) {
+                TimedState<Pose2dWithCurvature> state = trajectory.getPoint(i).state();
+                TimedState<Rotation2d> heading = trajectory.getPoint(i).heading();
+                Pose2d pose = state.state().getPose();
+                buffer.putDouble(pose.getTranslation().x());
+                buffer.putDouble(pose.getTranslation().y());
+                buffer.putDouble(pose.getRotation().cos());
+                buffer.putDouble(pose.getRotation().sin());
+                buffer.putDouble(state.state().getCurvature());
+                buffer.putDouble(state.state().getDCurvatureDs());
+                buffer.putDouble(state.t());
+                buffer.putDouble(state.velocity());
+                buffer.putDouble(state.acceleration());
+                buffer.putDouble(heading.state().cos());
+                buffer.putDouble(heading.state().sin());
+                buffer.putDouble(heading.t());
+                buffer.putDouble(heading.velocity());
+                buffer.putDouble(heading.acceleration());
+            }
+        }
+        // write beside and rename, so the robot never sees half a file.
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 64-bit FNV-1a of the exact bits of the inputs. The robot and the desktop must agree, so don't hash anything
+     * computed with transcendental functions, which can differ in the last bit; a mismatch is safe, it just means
+     * the robot generates that trajectory itself.
+     */
+    public static class Hasher {
+        private long mHash = 0xcbf29ce484222325L;
+
+        public Hasher add(long value) {
+            for (int i = 0; i < Long.BYTES; ++i) {
+                mHash ^= (value >>> (8 * i)) & 0xff;
+                mHash *= 0x100000001b3L;
+            }
+            return this;
+        }
+
+        public Hasher add(double value) {
+            return add(Double.doubleToLongBits(value));
+        }
+
+        public Hasher add(boolean value) {
+            return add(value ? 1L : 0L);
+        }
+
+        public Hasher add(String value) {
+            add(value.length());
+            for (int i = 0; i < value.length(); ++i) {
+                add((long) value.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         * Rotations made from degrees or radians keep the angle, which is exact.
+         */
+        public Hasher add(Rotation2d rotation) {
+            return add(rotation.getRadians());
+        }
+
+        public Hasher add(Pose2d pose) {
+            add(pose.getTranslation().x());
+            add(pose.getTranslation().y());
+            return add(pose.getRotation());
+        }
+
+        /**
+         * The class and all the fields of a parameter object, e.g. a timing constraint, recursively, so a constraint
+         * holding a Translation2d (say) changes the hash when the translation does. Numbers, booleans, chars,
+         * strings, enums, arrays and lists are hashed by value; anything else is walked field by field, except JDK
+         * classes, which we can't see into reliably.
+         *
+         * @throws IllegalArgumentException if the value can't be hashed completely, i.e. it holds a JDK class we
+         *                                  don't know, a field we can't read, a cycle, or is too deep. A partial
+         *                                  hash could match a stale trajectory, so there's no key at all.
+         */
+        public Hasher addFields(Object value) {
+            addValue(value, 0, new IdentityHashMap<>());
+            return this;
+        }
+
+        private static final int kMaxDepth = 8;
+
+        private void addValue(Object value, int depth, Map<Object, Boolean> seen) {
+            if (value == null) {
+                add("null");
+                return;
+            }
+            if (value instanceof Number) {
+                add(((Number) value).doubleValue());
+                return;
+            }
+            if (value instanceof Boolean) {
+                add((Boolean) value);
+                return;
+            }
+            if (value instanceof Character) {
+                add((long) (Character) value);
+                return;
+            }
+            if (value instanceof String) {
+                add((String) value);
+                return;
+            }
+            Class<?> c = value.getClass();
+            add(c.getName());
+            if (value instanceof Enum) {
+                add(((Enum<?>) value).name());
+                return;
+            }
+            if (depth >= kMaxDepth) {
+                throw new IllegalArgumentException("Too deep to hash: " + c.getName());
+            }
+            if (seen.put(value, Boolean.TRUE) != null) {
+                throw new IllegalArgumentException("Cycle through " + c.getName());
+            }
+            if (c.isArray()) {
+                int length = Array.getLength(value);
+                add(length);
+                for (int i = 0; i < length; ++i) {
+                    addValue(Array.get(value, i), depth + 1, seen);
+                }
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                add(list.size());
+                for (Object element : list) {
+                    addValue(element, depth + 1, seen);
+                }
+            } else if (c.getName().startsWith("java.") || c.getName().startsWith("javax.")
+                    || c.getName().startsWith("jdk.") || c.getName().startsWith("sun.")) {
+                throw new IllegalArgumentException("Can't hash " + c.getName());
+            } else {
+                for (; c != null && c != Object.class; c = c.getSuperclass()) {
+                    Field[] fields = c.getDeclaredFields();
+                    Arrays.sort(fields, Comparator.comparing(Field::getName));
+                    for (Field field : fields) {
+                        if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                            continue;
+                        }
+                        add(field.getName());
+                        Object fieldValue;
+                        try {
+                            field.setAccessible(true);
+                            fieldValue = field.get(value);
+                        } catch (ReflectiveOperationException | RuntimeException e) {
+                            throw new IllegalArgumentException("Can't read " + c.getName() + "." + field.getName(),
+                                    e);
+                        }
+                        addValue(fieldValue, depth + 1, seen);
+                    }
+                }
+            }
+            seen.remove(value);
+        }
+
+        public long get() {
+            return mHash;
+        }
+    }
+}
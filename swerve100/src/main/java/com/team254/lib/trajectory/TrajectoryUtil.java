@@ -72,10 +72,23 @@ public class TrajectoryUtil {
         for (int i = 1; i < waypoints.size(); ++i) {
             splines.add(new QuinticHermiteSpline(waypoints.get(i - 1), waypoints.get(i)));
         }
-        QuinticHermiteSpline.optimizeSpline(splines);
+        QuinticHermiteSpline.optimizeSpline(splines, QuinticHermiteSpline.Optimizer.INCREMENTAL);
         return trajectoryFromSplinesAndHeadings(splines, headings, maxDx, maxDy, maxDTheta);
     }
 
+    /**
+     * Same as above, with the splines sampled adaptively, so there are fewer points where the path is straight.
+     */
+    public static Trajectory<Pose2dWithCurvature, Rotation2d> trajectoryFromWaypoints(final List<Pose2d> waypoints, final List<Rotation2d> headings,
+            SplineGenerator.AdaptiveConfig config) {
+        List<QuinticHermiteSpline> splines = new ArrayList<>(waypoints.size() - 1);
+        for (int i = 1; i < waypoints.size(); ++i) {
+            splines.add(new QuinticHermiteSpline(waypoints.get(i - 1), waypoints.get(i)));
+        }
+        QuinticHermiteSpline.optimizeSpline(splines, QuinticHermiteSpline.Optimizer.INCREMENTAL);
+        return new Trajectory<>(SplineGenerator.parameterizeSplinesAdaptive(splines, headings, config).points);
+    }
+
     public static Trajectory<Pose2dWithCurvature, Rotation2d> trajectoryFromSplinesAndHeadings(final List<? extends Spline> splines, final List<Rotation2d> headings, double
             maxDx, double maxDy, double maxDTheta) {
         return new Trajectory<>(SplineGenerator.parameterizeSplines(splines, headings, maxDx, maxDy,
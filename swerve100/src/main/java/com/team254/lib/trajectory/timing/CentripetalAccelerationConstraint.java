@@ -2,7 +2,7 @@ package com.team254.lib.trajectory.timing;
 
 import com.team254.lib.geometry.Pose2dWithCurvature;
 
-public class CentripetalAccelerationConstraint implements TimingConstraint<Pose2dWithCurvature> {
+public class CentripetalAccelerationConstraint implements VelocityConstraint<Pose2dWithCurvature> {
     final double mMaxCentripetalAccel;
 
     public CentripetalAccelerationConstraint(final double max_centripetal_accel) {
@@ -15,7 +15,10 @@ public class CentripetalAccelerationConstraint implements TimingConstraint<Pose2
     }
 
     @Override
-    public MinMaxAcceleration getMinMaxAcceleration(final Pose2dWithCurvature state, final double velocity) {
-        return MinMaxAcceleration.kNoLimits;
+    public void limitMaxVelocity(double[] x, double[] y, double[] curvature, int from, int to,
+                                 double[] max_velocity) {
+        for (int i = from; i < to; ++i) {
+            max_velocity[i] = Math.min(max_velocity[i], Math.sqrt(Math.abs(mMaxCentripetalAccel / curvature[i])));
+        }
     }
 }
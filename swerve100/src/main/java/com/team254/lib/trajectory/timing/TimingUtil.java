@@ -1,13 +1,38 @@
 package com.team254.lib.trajectory.timing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
 
+import com.team254.lib.geometry.ICurvature;
+import com.team254.lib.geometry.ITranslation2d;
 import com.team254.lib.geometry.State;
+import com.team254.lib.geometry.Translation2d;
 import com.team254.lib.trajectory.DistanceView;
 import com.team254.lib.trajectory.Trajectory;
+import com.team254.lib.trajectory.TrajectorySamplePoint;
 
 public class TimingUtil {
+    // states per task when sampling or evaluating velocity constraints in parallel.
+    private static final int kChunkSize = 512;
+
+    /**
+     * How to evaluate the constraints.
+     */
+    public enum Mode {
+        /** Every constraint, for every state, on every retry, as originally. */
+        SERIAL,
+        /**
+         * Sampling and velocity limits for all the states first, on the common ForkJoin pool, with
+         * VelocityConstraints batched over columns; then the passes, with acceleration limits reused across retries
+         * at the same velocity. The result is the same as SERIAL. Constraints must be safe to call from several
+         * threads.
+         */
+        PARALLEL
+    }
+
     public static <S extends State<S>, T extends State<T>> Trajectory<TimedState<S>, TimedState<T>> timeParameterizeTrajectory(
             boolean reverse,
             final DistanceView<S, T> distance_view,
@@ -17,15 +42,36 @@ public class TimingUtil {
             double end_velocity,
             double max_translational_velocity,
             double max_abs_acceleration) {
+        return timeParameterizeTrajectory(reverse, distance_view, step_size, constraints, start_velocity,
+                end_velocity, max_translational_velocity, max_abs_acceleration, Mode.SERIAL);
+    }
+
+    public static <S extends State<S>, T extends State<T>> Trajectory<TimedState<S>, TimedState<T>> timeParameterizeTrajectory(
+            boolean reverse,
+            final DistanceView<S, T> distance_view,
+            double step_size,
+            final List<TimingConstraint<S>> constraints,
+            double start_velocity,
+            double end_velocity,
+            double max_translational_velocity,
+            double max_abs_acceleration,
+            Mode mode) {
         final int num_states = (int) Math.ceil(distance_view.last_interpolant() / step_size + 1);
-        List<S> states = new ArrayList<>(num_states);
-        List<T> headings = new ArrayList<>(num_states);
-        for (int i = 0; i < num_states; ++i) {
-            states.add(distance_view.sample(Math.min(i * step_size, distance_view.last_interpolant())).state());
-            headings.add(distance_view.sample(Math.min(i * step_size, distance_view.last_interpolant())).heading());
-        }
-        return timeParameterizeTrajectory(reverse, states, headings, constraints, start_velocity, end_velocity,
-                max_translational_velocity, max_abs_acceleration);
+        // sample each state once, into arrays, so the chunks can fill them in parallel.
+        @SuppressWarnings("unchecked")
+        final S[] states = (S[]) new State[num_states];
+        @SuppressWarnings("unchecked")
+        final T[] headings = (T[]) new State[num_states];
+        chunks(num_states, mode == Mode.PARALLEL).forEach(c -> {
+            for (int i = c * kChunkSize; i < Math.min(num_states, (c + 1) * kChunkSize); ++i) {
+                final TrajectorySamplePoint<S, T> sample = distance_view.sample(
+                        Math.min(i * step_size, distance_view.last_interpolant()));
+                states[i] = sample.state();
+                headings[i] = sample.heading();
+            }
+        });
+        return timeParameterizeTrajectory(reverse, Arrays.asList(states), Arrays.asList(headings), constraints,
+                start_velocity, end_velocity, max_translational_velocity, max_abs_acceleration, mode);
     }
 
     public static <S extends State<S>, T extends State<T>> Trajectory<TimedState<S>, TimedState<T>> timeParameterizeTrajectory(
@@ -37,9 +83,39 @@ public class TimingUtil {
             double end_velocity,
             double max_translational_velocity,
             double max_abs_acceleration) {
+        return timeParameterizeTrajectory(reverse, states, headings, constraints, start_velocity, end_velocity,
+                max_translational_velocity, max_abs_acceleration, Mode.SERIAL);
+    }
+
+    public static <S extends State<S>, T extends State<T>> Trajectory<TimedState<S>, TimedState<T>> timeParameterizeTrajectory(
+            boolean reverse,
+            final List<S> states,
+            final List<T> headings,
+            final List<TimingConstraint<S>> constraints,
+            double start_velocity,
+            double end_velocity,
+            double max_translational_velocity,
+            double max_abs_acceleration,
+            Mode mode) {
         List<ConstrainedState<S, T>> constraint_states = new ArrayList<>(states.size());
         final double kEpsilon = 1e-6;
 
+        // In PARALLEL mode, the velocity limits are computed up front, and the VelocityConstraints, which don't
+        // limit acceleration, are left out of the acceleration checks.
+        final boolean parallel = mode == Mode.PARALLEL;
+        final double[] velocity_limits = parallel ? velocityLimits(states, constraints) : null;
+        final List<TimingConstraint<S>> acceleration_constraints;
+        if (parallel) {
+            acceleration_constraints = new ArrayList<>(constraints.size());
+            for (final TimingConstraint<S> constraint : constraints) {
+                if (!(constraint instanceof VelocityConstraint)) {
+                    acceleration_constraints.add(constraint);
+                }
+            }
+        } else {
+            acceleration_constraints = constraints;
+        }
+
         // Forward pass. We look at pairs of consecutive states, where the start state has already been velocity
         // parameterized (though we may adjust the velocity downwards during the backwards pass). We wish to find an
         // acceleration that is admissible at both the start and end state, as well as an admissible end velocity. If
@@ -61,6 +137,12 @@ public class TimingUtil {
             final double ds = constraint_state.state.distance(predecessor.state);
             constraint_state.distance = ds + predecessor.distance;
 
+            // Acceleration limits depend only on the state and the velocity, so a retry at the same velocity can
+            // reuse them.
+            double cached_velocity = Double.NaN;
+            double cached_min_acceleration = 0.0;
+            double cached_max_acceleration = 0.0;
+
             // We may need to iterate to find the maximum end velocity and common acceleration, since acceleration
             // limits may be a function of velocity.
             while (true) {
@@ -81,9 +163,14 @@ public class TimingUtil {
                 // state max accel.
 
                 // Enforce all velocity constraints.
-                for (final TimingConstraint<S> constraint : constraints) {
+                if (parallel) {
                     constraint_state.max_translational_velocity = Math.min(constraint_state.max_translational_velocity,
-                            constraint.getMaxVelocity(constraint_state.state));
+                            velocity_limits[i]);
+                } else {
+                    for (final TimingConstraint<S> constraint : constraints) {
+                        constraint_state.max_translational_velocity = Math.min(constraint_state.max_translational_velocity,
+                                constraint.getMaxVelocity(constraint_state.state));
+                    }
                 }
                 if (constraint_state.max_translational_velocity < 0.0) {
                     // This should never happen if constraints are well-behaved.
@@ -91,18 +178,14 @@ public class TimingUtil {
                 }
 
                 // Now enforce all acceleration constraints.
-                for (final TimingConstraint<S> constraint : constraints) {
-                    final TimingConstraint.MinMaxAcceleration min_max_accel = constraint.getMinMaxAcceleration(
-                            constraint_state.state,
-                            (reverse ? -1.0 : 1.0) * constraint_state.max_translational_velocity);
-                    if (!min_max_accel.valid()) {
-                        // This should never happen if constraints are well-behaved.
-                        throw new RuntimeException();
-                    }
-                    constraint_state.min_translational_acceleration = Math.max(constraint_state.min_translational_acceleration,
-                            reverse ? -min_max_accel.max_acceleration() : min_max_accel.min_acceleration());
-                    constraint_state.max_acceleration = Math.min(constraint_state.max_acceleration,
-                            reverse ? -min_max_accel.min_acceleration() : min_max_accel.max_acceleration());
+                if (parallel && constraint_state.max_translational_velocity == cached_velocity) {
+                    constraint_state.min_translational_acceleration = cached_min_acceleration;
+                    constraint_state.max_acceleration = cached_max_acceleration;
+                } else {
+                    applyAccelerationConstraints(reverse, constraint_state, acceleration_constraints);
+                    cached_velocity = constraint_state.max_translational_velocity;
+                    cached_min_acceleration = constraint_state.min_translational_acceleration;
+                    cached_max_acceleration = constraint_state.max_acceleration;
                 }
                 if (constraint_state.min_translational_acceleration > constraint_state.max_acceleration) {
                     // This should never happen if constraints are well-behaved.
@@ -161,18 +244,7 @@ public class TimingUtil {
                 }
 
                 // Now check all acceleration constraints with the lower max velocity.
-                for (final TimingConstraint<S> constraint : constraints) {
-                    final TimingConstraint.MinMaxAcceleration min_max_accel = constraint.getMinMaxAcceleration(
-                            constraint_state.state,
-                            (reverse ? -1.0 : 1.0) * constraint_state.max_translational_velocity);
-                    if (!min_max_accel.valid()) {
-                        throw new RuntimeException();
-                    }
-                    constraint_state.min_translational_acceleration = Math.max(constraint_state.min_translational_acceleration,
-                            reverse ? -min_max_accel.max_acceleration() : min_max_accel.min_acceleration());
-                    constraint_state.max_acceleration = Math.min(constraint_state.max_acceleration,
-                            reverse ? -min_max_accel.min_acceleration() : min_max_accel.max_acceleration());
-                }
+                applyAccelerationConstraints(reverse, constraint_state, acceleration_constraints);
                 if (constraint_state.min_translational_acceleration > constraint_state.max_acceleration) {
                     throw new RuntimeException();
                 }
@@ -231,6 +303,73 @@ public class TimingUtil {
         return new Trajectory<>(timed_states, timed_headings);
     }
 
+    private static <S extends State<S>, T extends State<T>> void applyAccelerationConstraints(
+            boolean reverse,
+            final ConstrainedState<S, T> constraint_state,
+            final List<TimingConstraint<S>> constraints) {
+        for (final TimingConstraint<S> constraint : constraints) {
+            final TimingConstraint.MinMaxAcceleration min_max_accel = constraint.getMinMaxAcceleration(
+                    constraint_state.state,
+                    (reverse ? -1.0 : 1.0) * constraint_state.max_translational_velocity);
+            if (!min_max_accel.valid()) {
+                // This should never happen if constraints are well-behaved.
+                throw new RuntimeException();
+            }
+            constraint_state.min_translational_acceleration = Math.max(constraint_state.min_translational_acceleration,
+                    reverse ? -min_max_accel.max_acceleration() : min_max_accel.min_acceleration());
+            constraint_state.max_acceleration = Math.min(constraint_state.max_acceleration,
+                    reverse ? -min_max_accel.min_acceleration() : min_max_accel.max_acceleration());
+        }
+    }
+
+    /**
+     * The minimum of all the velocity constraints, for each state, computed in chunks on the common ForkJoin pool.
+     * VelocityConstraints see columns of the states' translation and curvature; the others are called per state.
+     */
+    static <S extends State<S>> double[] velocityLimits(List<S> states, final List<TimingConstraint<S>> constraints) {
+        final List<S> indexed = states instanceof RandomAccess ? states : new ArrayList<>(states);
+        final int n = indexed.size();
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        final double[] curvature = new double[n];
+        final double[] max_velocity = new double[n];
+        chunks(n, true).forEach(c -> {
+            final int from = c * kChunkSize;
+            final int to = Math.min(n, from + kChunkSize);
+            for (int i = from; i < to; ++i) {
+                final S state = indexed.get(i);
+                if (state instanceof ITranslation2d) {
+                    final Translation2d translation = ((ITranslation2d<?>) state).getTranslation();
+                    x[i] = translation.x();
+                    y[i] = translation.y();
+                }
+                if (state instanceof ICurvature) {
+                    curvature[i] = ((ICurvature<?>) state).getCurvature();
+                }
+                max_velocity[i] = Double.POSITIVE_INFINITY;
+            }
+            for (final TimingConstraint<S> constraint : constraints) {
+                if (constraint instanceof VelocityConstraint) {
+                    ((VelocityConstraint<S>) constraint).limitMaxVelocity(x, y, curvature, from, to, max_velocity);
+                } else {
+                    for (int i = from; i < to; ++i) {
+                        max_velocity[i] = Math.min(max_velocity[i], constraint.getMaxVelocity(indexed.get(i)));
+                    }
+                }
+            }
+        });
+        return max_velocity;
+    }
+
+    /**
+     * The indices of kChunkSize-state chunks covering n states, in parallel if asked and if there's more than one.
+     */
+    private static IntStream chunks(int n, boolean parallel) {
+        final int chunks = (n + kChunkSize - 1) / kChunkSize;
+        final IntStream range = IntStream.range(0, chunks);
+        return parallel && chunks > 1 ? range.parallel() : range;
+    }
+
     protected static class ConstrainedState<S extends State<S>, T extends State<T>> {
         public S state;
         public double distance;
@@ -0,0 +1,21 @@
+package com.team254.lib.trajectory.timing;
+
+import com.team254.lib.geometry.State;
+
+/**
+ * A constraint on velocity alone: getMinMaxAcceleration() returns no limits. In the PARALLEL mode, TimingUtil
+ * evaluates these once for the whole path, over columns of doubles, instead of once per state per retry.
+ */
+public interface VelocityConstraint<S extends State<S>> extends TimingConstraint<S> {
+    /**
+     * Lower max_velocity[i] to this constraint's limit, for each i in [from, to). The columns are the state's
+     * translation and curvature; curvature is zero for states that don't have one. This must agree exactly with
+     * getMaxVelocity(), and is called from several threads at once, on disjoint ranges.
+     */
+    void limitMaxVelocity(double[] x, double[] y, double[] curvature, int from, int to, double[] max_velocity);
+
+    @Override
+    default MinMaxAcceleration getMinMaxAcceleration(S state, double velocity) {
+        return MinMaxAcceleration.kNoLimits;
+    }
+}
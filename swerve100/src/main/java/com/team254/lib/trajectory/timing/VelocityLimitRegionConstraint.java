@@ -3,7 +3,7 @@ package com.team254.lib.trajectory.timing;
 import com.team254.lib.geometry.ITranslation2d;
 import com.team254.lib.geometry.Translation2d;
 
-public class VelocityLimitRegionConstraint<S extends ITranslation2d<S>> implements TimingConstraint<S> {
+public class VelocityLimitRegionConstraint<S extends ITranslation2d<S>> implements VelocityConstraint<S> {
     protected final Translation2d min_corner_;
     protected final Translation2d max_corner_;
     protected final double velocity_limit_;
@@ -25,9 +25,14 @@ public class VelocityLimitRegionConstraint<S extends ITranslation2d<S>> implemen
     }
 
     @Override
-    public TimingConstraint.MinMaxAcceleration getMinMaxAcceleration(S state,
-                                                                     double velocity) {
-        return MinMaxAcceleration.kNoLimits;
+    public void limitMaxVelocity(double[] x, double[] y, double[] curvature, int from, int to,
+                                 double[] max_velocity) {
+        for (int i = from; i < to; ++i) {
+            if (x[i] <= max_corner_.x() && x[i] >= min_corner_.x() &&
+                    y[i] <= max_corner_.y() && y[i] >= min_corner_.y()) {
+                max_velocity[i] = Math.min(max_velocity[i], velocity_limit_);
+            }
+        }
     }
 
 }
@@ -3,16 +3,17 @@ package org.team100.frc2023;
 import java.io.IOException;
 
 import org.team100.lib.config.Identity;
+import org.team100.lib.telemetry.LoopTiming;
+import org.team100.lib.telemetry.StageTimer;
 
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.util.WPILibVersion;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 
 public class Robot extends TimedRobot {
+    private final StageTimer m_schedulerTimer = LoopTiming.stage("CommandScheduler");
     private RobotContainer m_robotContainer;
 
     public Robot() {
@@ -29,11 +30,15 @@ public class Robot extends TimedRobot {
         System.out.printf("RoboRIO serial number: %s\n", RobotController.getSerialNumber());
         System.out.printf("Identity: %s\n", Identity.get().name());
         DataLogManager.start();
+        LoopTiming.instrument(CommandScheduler.getInstance());
     }
 
     @Override
     public void robotPeriodic() {
+        m_schedulerTimer.start();
         CommandScheduler.getInstance().run();
+        m_schedulerTimer.stop();
+        LoopTiming.periodic();
     }
 
     @Override
@@ -43,13 +48,7 @@ public class Robot extends TimedRobot {
 
     @Override
     public void disabledPeriodic() {
-        double keyList = NetworkTableInstance.getDefault().getTable("Vision").getKeys().size();
-        SmartDashboard.putNumber("KEY LIST", keyList);
-        if (keyList == 0) {
-            m_robotContainer.red();
-        } else {
-            m_robotContainer.green();
-        }
+        m_robotContainer.indicateCameras();
     }
 
     @Override
@@ -65,6 +64,7 @@ public class Robot extends TimedRobot {
     @Override
     public void testInit() {
         CommandScheduler.getInstance().cancelAll();
+        m_robotContainer.startTestLog();
     }
 
     @Override
@@ -72,6 +72,11 @@ public class Robot extends TimedRobot {
         m_robotContainer.runTest2();
     }
 
+    @Override
+    public void testExit() {
+        m_robotContainer.stopTestLog();
+    }
+
     @Override
     public void close() {
         super.close();
@@ -1,6 +1,5 @@
 package org.team100.frc2023;
 
-import java.io.FileWriter;
 import java.io.IOException;
 
 import org.team100.frc2023.autonomous.Autonomous;
@@ -14,6 +13,7 @@ import org.team100.frc2023.commands.DriveWithHeading;
 import org.team100.frc2023.commands.DriveWithSetpointGenerator;
 import org.team100.frc2023.commands.RumbleOn;
 import org.team100.frc2023.commands.arm.ArmTrajectory;
+import org.team100.frc2023.commands.arm.ArmTrajectoryCache;
 import org.team100.frc2023.commands.arm.ManualArm;
 import org.team100.frc2023.commands.arm.SetConeMode;
 import org.team100.frc2023.commands.arm.SetCubeMode;
@@ -38,6 +38,7 @@ import org.team100.lib.config.Identity;
 import org.team100.lib.controller.DriveControllers;
 import org.team100.lib.controller.DriveControllersFactory;
 import org.team100.lib.controller.HolonomicDriveController2;
+import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
 import org.team100.lib.indicator.LEDIndicator;
 import org.team100.lib.indicator.LEDIndicator.State;
@@ -48,6 +49,7 @@ import org.team100.lib.motion.drivetrain.SpeedLimits;
 import org.team100.lib.motion.drivetrain.SpeedLimitsFactory;
 import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
 import org.team100.lib.motion.drivetrain.SwerveLocal;
+import org.team100.lib.motion.drivetrain.SwerveModuleCollection.TestLogValues;
 import org.team100.lib.motion.drivetrain.SwerveModuleCollectionFactory;
 import org.team100.lib.motion.drivetrain.SwerveModuleCollectionInterface;
 import org.team100.lib.motion.drivetrain.VeeringCorrection;
@@ -57,7 +59,9 @@ import org.team100.lib.retro.Illuminator;
 import org.team100.lib.retro.IlluminatorInterface;
 import org.team100.lib.sensors.RedundantGyro;
 import org.team100.lib.sensors.RedundantGyroInterface;
+import org.team100.lib.telemetry.BinaryLog;
 import org.team100.lib.trajectory.FancyTrajectory;
+import org.team100.lib.trajectory.TrajectoryPlanner;
 
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
@@ -90,6 +94,9 @@ public class RobotContainer implements Sendable {
         public double kDriveCurrentLimit = SHOW_MODE ? 20 : 60;
 
         public boolean useSetpointGenerator = false;
+
+        /** With Experiment.FastDriveLoop, 200 Hz. */
+        public double kFastDrivePeriodSec = 0.005;
     }
 
     private final Config m_config = new Config();
@@ -107,18 +114,22 @@ public class RobotContainer implements Sendable {
     private final Field2d m_field;
     private final AprilTagFieldLayoutWithCorrectOrientation layout;
     private final SwerveDriveSubsystem m_robotDrive;
+    private final VisionDataProvider m_visionDataProvider;
     private final SwerveModuleCollectionInterface m_modules;
     private final SwerveDriveKinematics m_kinematics;
     private final FrameTransform m_frameTransform;
     private final ManipulatorInterface manipulator;
     private final ArmInterface m_arm;
+    private final ArmTrajectoryCache m_armTrajectories;
+    private final TrajectoryPlanner m_planner;
     private final IlluminatorInterface illuminator;
 
     // HID CONTROL
     private final Control control;
 
     // LOGGING
-    private final FileWriter myWriter;
+    // open only in test mode, see startTestLog().
+    private BinaryLog<TestLogValues> m_testLog;
 
     // AUTON
     private final Command m_auton;
@@ -168,35 +179,39 @@ public class RobotContainer implements Sendable {
             layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
         }
 
-        // hunting the memory leak
-        VisionDataProvider visionDataProvider = new VisionDataProvider(
+        m_visionDataProvider = new VisionDataProvider(
                 layout,
-                poseEstimator,
                 poseEstimator::getEstimatedPosition);
-        visionDataProvider.updateTimestamp(); // this is just to keep lint from complaining
+        m_visionDataProvider.start();
 
         SwerveLocal swerveLocal = new SwerveLocal(experiments, speedLimits, m_kinematics, m_modules);
 
-        DriveControllers controllers = new DriveControllersFactory().get(identity, speedLimits);
+        boolean fastDrive = experiments.enabled(Experiment.FastDriveLoop);
+        double drivePeriodSec = fastDrive ? m_config.kFastDrivePeriodSec : 0.02;
+        DriveControllers controllers = new DriveControllersFactory().get(identity, speedLimits, drivePeriodSec);
         HolonomicDriveController2 controller = new HolonomicDriveController2(controllers);
 
         m_robotDrive = new SwerveDriveSubsystem(
                 m_heading,
                 poseEstimator,
+                m_visionDataProvider,
                 m_frameTransform,
                 swerveLocal,
                 controller,
                 m_field);
+        if (fastDrive)
+            m_robotDrive.startFastLoop(drivePeriodSec);
         manipulator = new Manipulator.Factory(identity).get();
         m_arm = new ArmSubsystem.Factory(identity).get();
+        m_armTrajectories = new ArmTrajectoryCache();
+        m_armTrajectories.startWarmUp();
+        m_planner = new TrajectoryPlanner();
         illuminator = new Illuminator.Factory(identity).get(25);
 
         // TODO: control selection using names
         control = new DualXboxControl();
         // control = new JoystickControl();
 
-        myWriter = logFile();
-
         ////////////////////////////
         // DRIVETRAIN COMMANDS
         // control.autoLevel(new AutoLevel(false, m_robotDrive, ahrsclass));
@@ -225,7 +240,7 @@ public class RobotContainer implements Sendable {
         control.moveConeWidthLeft(new MoveConeWidth(m_robotDrive, speedLimits, new Timer(), true));
         control.moveConeWidthRight(new MoveConeWidth(m_robotDrive, speedLimits, new Timer(), false));
 
-        // control.driveWithLQR(new DriveToWaypoint3(new Pose2d(5, 0, new Rotation2d()), m_robotDrive, m_kinematics));
+        // control.driveWithLQR(new DriveToWaypoint3(new Pose2d(5, 0, new Rotation2d()), m_robotDrive, m_kinematics, m_planner));
 
         ///////////////////////////
         // MANIPULATOR COMMANDS
@@ -236,20 +251,20 @@ public class RobotContainer implements Sendable {
 
         ////////////////////////////
         // ARM COMMANDS
-        control.armHigh(new ArmTrajectory(ArmPosition.HIGH, m_arm, false));
-        control.armSafe(new ArmTrajectory(ArmPosition.SAFE, m_arm, false));
-        control.armSubstation(new ArmTrajectory(ArmPosition.SUB, m_arm, false));
+        control.armHigh(new ArmTrajectory(ArmPosition.HIGH, m_arm, m_armTrajectories, false));
+        control.armSafe(new ArmTrajectory(ArmPosition.SAFE, m_arm, m_armTrajectories, false));
+        control.armSubstation(new ArmTrajectory(ArmPosition.SUB, m_arm, m_armTrajectories, false));
         control.coneMode(new SetConeMode(m_arm, m_indicator));
         control.cubeMode(new SetCubeMode(m_arm, m_indicator));
-        control.armLow(new ArmTrajectory(ArmPosition.MID, m_arm, false));
-        control.armSafeBack(new ArmTrajectory(ArmPosition.SAFEBACK, m_arm, false));
-        control.armToSub(new ArmTrajectory(ArmPosition.SUBTOCUBE, m_arm, false));
-        control.safeWaypoint(new ArmTrajectory(ArmPosition.SAFEWAYPOINT, m_arm, false));
+        control.armLow(new ArmTrajectory(ArmPosition.MID, m_arm, m_armTrajectories, false));
+        control.armSafeBack(new ArmTrajectory(ArmPosition.SAFEBACK, m_arm, m_armTrajectories, false));
+        control.armToSub(new ArmTrajectory(ArmPosition.SUBTOCUBE, m_arm, m_armTrajectories, false));
+        control.safeWaypoint(new ArmTrajectory(ArmPosition.SAFEWAYPOINT, m_arm, m_armTrajectories, false));
         // control.oscillate(new Oscillate(armController));
-        control.oscillate(new ArmTrajectory(ArmPosition.SUB, m_arm, true));
+        control.oscillate(new ArmTrajectory(ArmPosition.SUB, m_arm, m_armTrajectories, true));
         // control.armSafeSequential(armSafeWaypoint, armSafe);
         // control.armMid(new ArmTrajectory(ArmPosition.LOW, armController));
-        control.driveWith254Trajec(new FancyTrajectory(m_robotDrive));
+        control.driveWith254Trajec(new FancyTrajectory(m_robotDrive, m_planner));
 
         //////////////////////////
         // MISC COMMANDS
@@ -260,6 +275,7 @@ public class RobotContainer implements Sendable {
                 m_robotDrive,
                 m_frameTransform,
                 m_arm,
+                m_armTrajectories,
                 manipulator,
                 ahrsclass,
                 m_indicator,
@@ -343,7 +359,7 @@ public class RobotContainer implements Sendable {
                 { rearLeft ? driveControl : 0, rearLeft ? turnControl : 0 },
                 { rearRight ? driveControl : 0, rearRight ? turnControl : 0 }
         };
-        m_robotDrive.test(desiredOutputs, myWriter);
+        m_robotDrive.test(desiredOutputs, m_testLog);
 
     }
 
@@ -363,21 +379,38 @@ public class RobotContainer implements Sendable {
         m_indicator.close();
     }
 
-    public void red() {
-        m_indicator.set(State.RED);
+    /** Green if any camera is sending frames, red otherwise. */
+    public void indicateCameras() {
+        if (m_visionDataProvider.liveness().aliveCount(Timer.getFPGATimestamp()) > 0) {
+            m_indicator.set(State.GREEN);
+        } else {
+            m_indicator.set(State.RED);
+        }
     }
 
-    public void green() {
-        m_indicator.set(State.GREEN);
+    /**
+     * A new log file for each test-mode run, so idle boots don't leave empty
+     * ones behind. Use BinaryLogToCSV to read it.
+     */
+    public void startTestLog() {
+        stopTestLog();
+        try {
+            m_testLog = new BinaryLog<>(BinaryLog.newFileName("/home/lvuser/module-test"), TestLogValues.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
-    private static FileWriter logFile() {
+    /** Write out the rest of the test log, e.g. the last second, and close it. */
+    public void stopTestLog() {
+        if (m_testLog == null)
+            return;
         try {
-            return new FileWriter("/home/lvuser/logs.txt", true);
+            m_testLog.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return null;
+        m_testLog = null;
     }
 
     private DriveToAprilTag toTag(
@@ -398,12 +431,15 @@ public class RobotContainer implements Sendable {
 
     // this keeps the tests from conflicting via the use of simulated HAL ports.
     public void close() {
+        m_visionDataProvider.close();
+        m_robotDrive.close();
         m_autonSelector.close();
         m_allianceSelector.close();
         m_indicator.close();
         m_modules.close();
         m_arm.close();
         illuminator.close();
+        stopTestLog();
     }
 
     @Override
@@ -3,6 +3,7 @@ package org.team100.frc2023.autonomous;
 import org.team100.frc2023.commands.AutoLevel;
 import org.team100.frc2023.commands.DriveMobility;
 import org.team100.frc2023.commands.arm.ArmTrajectory;
+import org.team100.frc2023.commands.arm.ArmTrajectoryCache;
 import org.team100.frc2023.commands.arm.SetCubeMode;
 import org.team100.frc2023.commands.manipulator.Intake;
 import org.team100.frc2023.subsystems.ManipulatorInterface;
@@ -33,6 +34,7 @@ public class Autonomous extends SequentialCommandGroup {
     private final SwerveDriveSubsystem m_robotDrive;
     private final FrameTransform m_transform;
     private final ArmInterface m_arm;
+    private final ArmTrajectoryCache m_armTrajectories;
     private final ManipulatorInterface m_manipulator;
     private final RedundantGyroInterface m_gyro;
     private final LEDIndicator m_indicator;
@@ -42,6 +44,7 @@ public class Autonomous extends SequentialCommandGroup {
             SwerveDriveSubsystem robotDrive,
             FrameTransform transform,
             ArmInterface arm,
+            ArmTrajectoryCache armTrajectories,
             ManipulatorInterface manipulator,
             RedundantGyroInterface gyro,
             LEDIndicator indicator,
@@ -49,6 +52,7 @@ public class Autonomous extends SequentialCommandGroup {
         m_robotDrive = robotDrive;
         m_transform = transform;
         m_arm = arm;
+        m_armTrajectories = armTrajectories;
         m_manipulator = manipulator;
         m_gyro = gyro;
         m_indicator = indicator;
@@ -70,9 +74,9 @@ public class Autonomous extends SequentialCommandGroup {
     private void placeCube() {
         addCommands(
                 new SetCubeMode(m_arm, m_indicator),
-                timeout(new ArmTrajectory(ArmPosition.HIGH, m_arm, false), m_config.kArmExtendTimeout),
+                timeout(new ArmTrajectory(ArmPosition.HIGH, m_arm, m_armTrajectories, false), m_config.kArmExtendTimeout),
                 timeout(new Intake(m_manipulator), m_config.kManipulatorRunTimeout),
-                timeout(new ArmTrajectory(ArmPosition.SAFE, m_arm, false), m_config.kArmSafeTimeout),
+                timeout(new ArmTrajectory(ArmPosition.SAFE, m_arm, m_armTrajectories, false), m_config.kArmSafeTimeout),
                 new ResetRotation(m_robotDrive, Rotation2d.fromDegrees(180)));
     }
 
@@ -6,6 +6,7 @@ import org.team100.frc2023.LQRManager;
 import org.team100.frc2023.commands.GoalOffset;
 import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
 import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.trajectory.TrajectoryPlanner;
 
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Nat;
@@ -42,6 +43,9 @@ import edu.wpi.first.wpilibj2.command.Command;
  * the command is scheduled, so it can capture the current robot location at
  * that instant. It runs forever, so it expects to be scheduled via
  * Trigger.whileTrue().
+ *
+ * The trajectory is generated by the planner thread; the robot holds position
+ * until it's ready.
  */
 
 public class DriveToWaypoint3 extends Command {
@@ -62,9 +66,9 @@ public class DriveToWaypoint3 extends Command {
     private final PIDController xController;
     private final PIDController yController;
     private final HolonomicLQR m_controller;
+    private final TrajectoryPlanner.Plan<Trajectory> m_plan;
     private GoalOffset previousOffset;
     private Trajectory m_trajectory;
-    private boolean isFinished = false;
 
     private final LQRManager xManager;
     private final LQRManager yManager;
@@ -89,12 +93,14 @@ public class DriveToWaypoint3 extends Command {
     public DriveToWaypoint3(
             Pose2d goal,
             SwerveDriveSubsystem drivetrain,
-            SwerveDriveKinematics kinematics) {
+            SwerveDriveKinematics kinematics,
+            TrajectoryPlanner planner) {
         m_goal = goal;
         m_swerve = drivetrain;
         m_kinematics = kinematics;
 
         m_timer = new Timer();
+        m_plan = planner.plan();
 
         m_rotationController = new ProfiledPIDController(6.5, 0, 1, m_config.rotationConstraints);
         m_rotationController.setTolerance(Math.PI / 180);
@@ -150,8 +156,8 @@ public class DriveToWaypoint3 extends Command {
         addRequirements(drivetrain);
     }
 
-    private Trajectory makeTrajectory(GoalOffset goalOffset, double startVelocity) {
-        Pose2d currentPose = m_swerve.getPose();
+    /** Runs on the planner thread, so it mustn't touch the drivetrain. */
+    private Trajectory makeTrajectory(Pose2d currentPose, GoalOffset goalOffset, double startVelocity) {
         Translation2d currentTranslation = currentPose.getTranslation();
 
         Transform2d goalTransform = new Transform2d();
@@ -171,24 +177,37 @@ public class DriveToWaypoint3 extends Command {
                     new Pose2d(goalTranslation, angleToGoal),
                     translationConfig);
         } catch (TrajectoryGenerationException e) {
-            isFinished = true;
+            // the plan fails, which finishes the command.
             return null;
         }
     }
 
     @Override
     public void initialize() {
-        isFinished = false;
         m_timer.restart();
         count = 0;
-        m_controller.reset(m_swerve.getPose());
+        Pose2d currentPose = m_swerve.getPose();
+        m_controller.reset(currentPose);
         m_controller.updateProfile(m_goal.getX(), m_goal.getY(), 5, 3, 1);
         m_controller.start();
-        m_trajectory = makeTrajectory(previousOffset, 0);
-
+        // the last plan started somewhere else, so hold position until the new one is ready.
+        m_trajectory = null;
+        m_plan.clear();
+        m_swerve.truncate();
+        GoalOffset goalOffset = previousOffset;
+        m_plan.request(() -> makeTrajectory(currentPose, goalOffset, 0));
     }
 
     public void execute() {
+        Trajectory trajectory = m_plan.poll();
+        if (trajectory != null) {
+            m_trajectory = trajectory;
+            m_timer.restart();
+        }
+        if (m_trajectory == null) {
+            // still planning
+            return;
+        }
         // if (m_trajectory == null) {
         // return;
         // }
@@ -226,13 +245,14 @@ public class DriveToWaypoint3 extends Command {
 
     @Override
     public boolean isFinished() {
-        return isFinished; // keep trying until the button is released
+        return m_plan.failed(); // keep trying until the button is released
     }
 
     @Override
     public void end(boolean interrupted) {
         // System.out.println("END");
         m_timer.stop();
+        m_plan.cancel();
         m_swerve.truncate();
     }
 
@@ -2,6 +2,7 @@ package org.team100.frc2023.autonomous;
 
 import org.team100.frc2023.commands.AutoLevel;
 import org.team100.frc2023.commands.arm.ArmTrajectory;
+import org.team100.frc2023.commands.arm.ArmTrajectoryCache;
 import org.team100.frc2023.commands.arm.SetCubeMode;
 import org.team100.frc2023.commands.manipulator.Intake;
 import org.team100.frc2023.subsystems.ManipulatorInterface;
@@ -11,6 +12,7 @@ import org.team100.lib.indicator.LEDIndicator;
 import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
 import org.team100.lib.motion.drivetrain.kinematics.FrameTransform;
 import org.team100.lib.sensors.RedundantGyro;
+import org.team100.lib.trajectory.TrajectoryPlanner;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
@@ -29,8 +31,10 @@ public class VasiliAutonomous extends SequentialCommandGroup {
             SwerveDriveKinematics kinematics, 
             RedundantGyro gyro,
             ArmSubsystem arm,
+            ArmTrajectoryCache armTrajectories,
             ManipulatorInterface manipulator,
-            LEDIndicator indicator) {
+            LEDIndicator indicator,
+            TrajectoryPlanner planner) {
 
         controlVectors.add(new Spline.ControlVector(
                 new double[] { drive.getPose().getX(), 0, 0 },
@@ -82,20 +86,21 @@ public class VasiliAutonomous extends SequentialCommandGroup {
                 new SetCubeMode(arm, indicator),
                 new ParallelDeadlineGroup(
                         new WaitCommand(3),
-                        new ArmTrajectory(ArmPosition.HIGH, arm, false)),
+                        new ArmTrajectory(ArmPosition.HIGH, arm, armTrajectories, false)),
                 new ParallelDeadlineGroup(
                         new WaitCommand(2),
                         new Intake(manipulator)),
                 new ParallelDeadlineGroup(
                         new WaitCommand(2),
-                        new ArmTrajectory(ArmPosition.SAFE, arm, false)),
+                        new ArmTrajectory(ArmPosition.SAFE, arm, armTrajectories, false)),
 
                 new VasiliWaypointTrajectory(
                         drive,
                         kinematics,
                         () -> new Rotation2d(Math.PI),
                         gyro,
-                        "output/BlueLeftExit.wpilib.json"),
+                        "output/BlueLeftExit.wpilib.json",
+                        planner),
 
                 new AutoLevel(true, drive, gyro, chassisSpeedFactory));
     }
@@ -7,6 +7,7 @@ import java.util.function.Supplier;
 import org.team100.frc2023.commands.SwerveControllerCommand;
 import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
 import org.team100.lib.sensors.RedundantGyro;
+import org.team100.lib.trajectory.TrajectoryPlanner;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
@@ -19,44 +20,66 @@ import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj2.command.Command;
 
+/**
+ * Follows a Pathweaver trajectory from the deploy directory. The file is read
+ * and parsed by the planner thread, starting at construction; if it's not done
+ * when the command starts, the robot holds position until it is.
+ */
 public class VasiliWaypointTrajectory extends Command {
-    private final SwerveControllerCommand m_swerveController;
+    private final SwerveDriveSubsystem m_robotDrive;
+    private final Supplier<Rotation2d> m_desiredRotation;
+    private final TrajectoryPlanner.Plan<Trajectory> m_plan;
+    private SwerveControllerCommand m_swerveController;
 
     public VasiliWaypointTrajectory(
             SwerveDriveSubsystem m_robotDrive,
             SwerveDriveKinematics kinematics,
             Supplier<Rotation2d> desiredRotation,
             RedundantGyro gyro,
-            String path) {
-
-        Trajectory trajectory = genTrajectory(path);
-
-        m_swerveController = new SwerveControllerCommand(
-                m_robotDrive,
-                trajectory,
-                desiredRotation);
+            String path,
+            TrajectoryPlanner planner) {
+        this.m_robotDrive = m_robotDrive;
+        m_desiredRotation = desiredRotation;
+        m_plan = planner.plan();
+        m_plan.request(() -> genTrajectory(path));
         addRequirements(m_robotDrive);
     }
 
     @Override
     public void initialize() {
-        m_swerveController.initialize();
+        m_swerveController = null;
+        m_robotDrive.truncate();
     }
 
     @Override
     public void execute() {
+        if (m_swerveController == null) {
+            Trajectory trajectory = m_plan.current();
+            if (trajectory == null) {
+                // still loading
+                return;
+            }
+            m_swerveController = new SwerveControllerCommand(
+                    m_robotDrive,
+                    trajectory,
+                    m_desiredRotation);
+            m_swerveController.initialize();
+        }
         m_swerveController.execute();
         running.set(5);
     }
 
     @Override
     public boolean isFinished() {
+        if (m_swerveController == null)
+            return false;
         return m_swerveController.isFinished();
     }
 
     @Override
     public void end(boolean interrupted) {
-        m_swerveController.end(interrupted);
+        if (m_swerveController != null)
+            m_swerveController.end(interrupted);
         running.set(0);
     }
 
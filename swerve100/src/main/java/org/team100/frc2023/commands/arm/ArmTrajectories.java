@@ -78,6 +78,24 @@ public class ArmTrajectories {
         return null;
     }
 
+    /** All the places a trajectory can end, i.e. where the next one will start. */
+    public List<ArmAngles> endpoints() {
+        return List.of(
+                m_config.highGoalCone,
+                m_config.midGoalCone,
+                m_config.lowGoalCone,
+                m_config.subCone,
+                m_config.highGoalCube,
+                m_config.midGoalCube,
+                m_config.lowGoalCube,
+                m_config.subCube,
+                m_config.subToCube,
+                m_config.safeBack,
+                m_config.safeGoalCone,
+                m_config.safeGoalCube,
+                m_config.safeWaypoint);
+    }
+
     /** from current location to an endpoint */
     private Trajectory onePoint(ArmAngles start, ArmAngles end, double degrees) {
         return withList(start, List.of(), end, degrees);
@@ -6,7 +6,6 @@ import org.team100.lib.motion.arm.ArmAngles;
 
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.trajectory.Trajectory.State;
-import edu.wpi.first.math.trajectory.TrajectoryConfig;
 import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.Timer;
@@ -19,12 +18,11 @@ public class ArmTrajectory extends Command {
         public double oscillatorScale = 0.025;
         /** start oscillating when this close to the target. */
         public double oscillatorZone = 0.1;
-        public TrajectoryConfig safeTrajectory = new TrajectoryConfig(9, 1.5);
-        public TrajectoryConfig normalTrajectory = new TrajectoryConfig(12, 2);
     }
 
     private final Config m_config = new Config();
     private final ArmInterface m_arm;
+    private final ArmTrajectoryCache m_trajectories;
     private final ArmPosition m_position;
     private final boolean m_oscillate;
 
@@ -40,8 +38,13 @@ public class ArmTrajectory extends Command {
     /**
      * Go to the specified position and optionally oscillate when you get there.
      */
-    public ArmTrajectory(ArmPosition position, ArmInterface arm, boolean oscillate) {
+    public ArmTrajectory(
+            ArmPosition position,
+            ArmInterface arm,
+            ArmTrajectoryCache trajectories,
+            boolean oscillate) {
         m_arm = arm;
+        m_trajectories = trajectories;
         m_position = position;
         m_oscillate = oscillate;
         m_timer = new Timer();
@@ -58,15 +61,12 @@ public class ArmTrajectory extends Command {
     @Override
     public void initialize() {
         m_timer.restart();
-        final TrajectoryConfig trajectoryConfig;
         if (m_position == ArmPosition.SAFE) {
-            trajectoryConfig = m_config.safeTrajectory;
             m_arm.setControlSafe();
         } else {
-            trajectoryConfig = m_config.normalTrajectory;
             m_arm.setControlNormal();
         }
-        m_trajectory = new ArmTrajectories(trajectoryConfig).makeTrajectory(
+        m_trajectory = m_trajectories.get(
                 m_arm.getMeasurement(),
                 m_position,
                 m_arm.getCubeMode());
@@ -0,0 +1,195 @@
+package org.team100.frc2023.commands.arm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.team100.frc2023.subsystems.arm.ArmPosition;
+import org.team100.lib.motion.arm.ArmAngles;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+
+/**
+ * Arm trajectories, generated ahead of time, so an arm move can start in the
+ * same cycle as the button press instead of waiting for the generator.
+ *
+ * Trajectories are keyed by goal, cube mode, and the start angles rounded to a
+ * bucket. Most moves start where a previous move ended, so warmUp() generates,
+ * in the background, every move from every configured endpoint; anything else
+ * is generated on the spot the first time (a miss), from the actual start, and
+ * kept for next time. A hit from a nearby start begins up to half a bucket away
+ * from the measurement, which the arm controller takes up in the first few
+ * cycles.
+ *
+ * The number of trajectories kept is bounded; the least-recently-used one is
+ * dropped to make room.
+ *
+ * Threadsafe: the map is locked, but generation happens outside the lock, so
+ * the robot loop never waits for the warm-up thread.
+ */
+public class ArmTrajectoryCache {
+    public static class Config {
+        /** Start angles are rounded to this, in radians. */
+        public double bucketRad = 0.05;
+        /** Most trajectories to keep. */
+        public int capacity = 512;
+        public TrajectoryConfig safeTrajectory = new TrajectoryConfig(9, 1.5);
+        public TrajectoryConfig normalTrajectory = new TrajectoryConfig(12, 2);
+    }
+
+    private static class Key {
+        private final long th1Bucket;
+        private final long th2Bucket;
+        private final ArmPosition goal;
+        private final boolean cubeMode;
+
+        private Key(long th1Bucket, long th2Bucket, ArmPosition goal, boolean cubeMode) {
+            this.th1Bucket = th1Bucket;
+            this.th2Bucket = th2Bucket;
+            this.goal = goal;
+            this.cubeMode = cubeMode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return th1Bucket == other.th1Bucket
+                    && th2Bucket == other.th2Bucket
+                    && goal == other.goal
+                    && cubeMode == other.cubeMode;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(th1Bucket, th2Bucket, goal, cubeMode);
+        }
+    }
+
+    private final Config m_config;
+    private final ArmTrajectories m_safe;
+    private final ArmTrajectories m_normal;
+    private final Map<Key, Trajectory> m_trajectories;
+    private long m_hits;
+    private long m_misses;
+
+    public ArmTrajectoryCache() {
+        this(new Config());
+    }
+
+    public ArmTrajectoryCache(Config config) {
+        m_config = config;
+        m_safe = new ArmTrajectories(config.safeTrajectory);
+        m_normal = new ArmTrajectories(config.normalTrajectory);
+        // access order, for LRU
+        m_trajectories = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Trajectory> eldest) {
+                return size() > m_config.capacity;
+            }
+        };
+    }
+
+    /**
+     * The trajectory from start to goal, cached if possible.
+     *
+     * @return null if start is null (i.e. unreachable) or the trajectory can't
+     *         be generated.
+     */
+    public Trajectory get(ArmAngles start, ArmPosition goal, boolean cubeMode) {
+        if (start == null)
+            return null;
+        Key key = key(start, goal, cubeMode);
+        synchronized (this) {
+            Trajectory trajectory = m_trajectories.get(key);
+            if (trajectory != null) {
+                m_hits++;
+                return trajectory;
+            }
+            m_misses++;
+        }
+        Trajectory trajectory = generate(start, goal, cubeMode);
+        if (trajectory != null) {
+            synchronized (this) {
+                m_trajectories.put(key, trajectory);
+            }
+        }
+        return trajectory;
+    }
+
+    /**
+     * Generate every move from each of the starts, skipping the ones already
+     * cached. This takes awhile, so call it from startWarmUp(), or from a test.
+     *
+     * @return the number generated.
+     */
+    public int warmUp(List<ArmAngles> starts) {
+        int generated = 0;
+        for (ArmAngles start : starts) {
+            for (ArmPosition goal : ArmPosition.values()) {
+                for (boolean cubeMode : new boolean[] { false, true }) {
+                    Key key = key(start, goal, cubeMode);
+                    synchronized (this) {
+                        if (m_trajectories.containsKey(key))
+                            continue;
+                    }
+                    Trajectory trajectory = generate(bucketCenter(start), goal, cubeMode);
+                    if (trajectory == null)
+                        continue;
+                    synchronized (this) {
+                        m_trajectories.putIfAbsent(key, trajectory);
+                    }
+                    generated++;
+                }
+            }
+        }
+        return generated;
+    }
+
+    /** Warm up from all the configured endpoints, in a background thread. */
+    public Thread startWarmUp() {
+        List<ArmAngles> starts = new ArrayList<>(m_normal.endpoints());
+        Thread thread = new Thread(() -> warmUp(starts), "Arm Trajectory Warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+    public synchronized long hits() {
+        return m_hits;
+    }
+
+    public synchronized long misses() {
+        return m_misses;
+    }
+
+    public synchronized int size() {
+        return m_trajectories.size();
+    }
+
+    ///////////////////////////////////////////////
+
+    private Trajectory generate(ArmAngles start, ArmPosition goal, boolean cubeMode) {
+        ArmTrajectories trajectories = goal == ArmPosition.SAFE ? m_safe : m_normal;
+        return trajectories.makeTrajectory(start, goal, cubeMode);
+    }
+
+    private Key key(ArmAngles start, ArmPosition goal, boolean cubeMode) {
+        return new Key(bucket(start.th1), bucket(start.th2), goal, cubeMode);
+    }
+
+    private long bucket(double angleRad) {
+        return Math.round(angleRad / m_config.bucketRad);
+    }
+
+    private ArmAngles bucketCenter(ArmAngles start) {
+        return new ArmAngles(
+                bucket(start.th1) * m_config.bucketRad,
+                bucket(start.th2) * m_config.bucketRad);
+    }
+}
@@ -5,6 +5,8 @@ import org.team100.lib.motor.FRCNEO;
 import org.team100.lib.config.Identity;
 import org.team100.lib.controller.State100;
 import org.team100.lib.motion.arm.ArmAngles;
+import org.team100.lib.telemetry.LoopTiming;
+import org.team100.lib.telemetry.StageTimer;
 
 import com.revrobotics.CANSparkMax.IdleMode;
 
@@ -138,6 +140,7 @@ public class ArmSubsystem extends Subsystem implements ArmInterface {
     private final AnalogInput upperArmInput;
     private final AnalogEncoder lowerArmEncoder;
     private final AnalogEncoder upperArmEncoder;
+    private final StageTimer m_timer = LoopTiming.stage("ArmSubsystem");
 
     // TODO: move this somewhere else
     private boolean cubeMode = true;
@@ -194,11 +197,13 @@ public class ArmSubsystem extends Subsystem implements ArmInterface {
 
     @Override
     public void periodic() {
+        m_timer.start();
         ArmAngles measurement = getMeasurement();
         double u1 = m_lowerController.calculate(measurement.th1, m_reference.th1);
         double u2 = m_upperController.calculate(measurement.th2, m_reference.th2);
         lowerArmMotor.set(soften(u1));
         upperArmMotor.set(u2);
+        m_timer.stop();
     }
 
     /**
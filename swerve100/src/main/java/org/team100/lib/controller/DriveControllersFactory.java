@@ -17,34 +17,38 @@ public class DriveControllersFactory {
 
     private final Config m_config = new Config();
 
-    public DriveControllers get(Identity identity, SpeedLimits speedLimits) {
+    /**
+     * @param periodSec how often the controllers run, which scales the I and D
+     *                  terms.
+     */
+    public DriveControllers get(Identity identity, SpeedLimits speedLimits, double periodSec) {
         switch (identity) {
             case COMP_BOT:
                 return new DriveControllers(
-                        pid(m_config.compBotCartesianGain),
-                        pid(m_config.compBotCartesianGain),
-                        pid(m_config.thetaGain));
+                        pid(m_config.compBotCartesianGain, periodSec),
+                        pid(m_config.compBotCartesianGain, periodSec),
+                        pid(m_config.thetaGain, periodSec));
             case SWERVE_ONE:
                 return new DriveControllers(
-                        pid(m_config.swerveOneCartesianGain),
-                        pid(m_config.swerveOneCartesianGain),
-                        pid(m_config.thetaGain));
+                        pid(m_config.swerveOneCartesianGain, periodSec),
+                        pid(m_config.swerveOneCartesianGain, periodSec),
+                        pid(m_config.thetaGain, periodSec));
             case SWERVE_TWO:
                 return new DriveControllers(
-                        pid(m_config.swerveTwoCartesianGain),
-                        pid(m_config.swerveTwoCartesianGain),
-                        pid(m_config.thetaGain));
+                        pid(m_config.swerveTwoCartesianGain, periodSec),
+                        pid(m_config.swerveTwoCartesianGain, periodSec),
+                        pid(m_config.thetaGain, periodSec));
             default:
                 // these RoboRIO's are have no drivetrains
                 return new DriveControllers(
-                        new PIDController(1, 0.0, 0.0),
-                        new PIDController(1, 0.0, 0.0),
-                        new PIDController(1, 0.0, 0.0));
+                        new PIDController(1, 0.0, 0.0, periodSec),
+                        new PIDController(1, 0.0, 0.0, periodSec),
+                        new PIDController(1, 0.0, 0.0, periodSec));
         }
     }
 
-    private static PIDController pid(PidGains g) {
-        PIDController pid = new PIDController(g.p, g.i, g.d);
+    private static PIDController pid(PidGains g, double periodSec) {
+        PIDController pid = new PIDController(g.p, g.i, g.d, periodSec);
         pid.setIntegratorRange(-1.0 * g.integratorRange, g.integratorRange);
         pid.setTolerance(g.tolerance);
         if (g.continuous)
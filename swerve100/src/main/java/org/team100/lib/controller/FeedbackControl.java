@@ -5,26 +5,41 @@ import org.team100.lib.math.Variance;
 import org.team100.lib.system.NonlinearPlant;
 
 import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.Num;
 import edu.wpi.first.math.numbers.N1;
 
 /**
- * Full state controller using constant gain.
+ * Full state controller using constant gain, or gain scheduled on the state.
  */
 public class FeedbackControl<States extends Num, Inputs extends Num, Outputs extends Num> {
     private static final boolean debug = false;
     private final NonlinearPlant<States, Inputs, Outputs> m_plant;
-    private final Matrix<Inputs, States> m_K;
+    private final GainSchedule<States, Inputs, Outputs> m_schedule;
+    /** Constant, or the most recent scheduled gain. */
+    private Matrix<Inputs, States> m_K;
 
     public FeedbackControl(
             NonlinearPlant<States, Inputs, Outputs> plant,
             Matrix<Inputs, States> K) {
         m_plant = plant;
+        m_schedule = null;
         m_K = K;
     }
 
     /**
-     * Returns control output, K(r-x), using constant K.
+     * Look up K at each state estimate.
+     */
+    public FeedbackControl(
+            NonlinearPlant<States, Inputs, Outputs> plant,
+            GainSchedule<States, Inputs, Outputs> schedule) {
+        m_plant = plant;
+        m_schedule = schedule;
+        m_K = schedule.getK(new Matrix<>(plant.states(), Nat.N1()));
+    }
+
+    /**
+     * Returns control output, K(r-x), using constant K, or K at x if scheduled.
      * 
      * Output is not aware of actuator limits; clamp the output yourself.
      * 
@@ -36,6 +51,8 @@ public class FeedbackControl<States extends Num, Inputs extends Num, Outputs ext
     public Matrix<Inputs, N1> calculate(RandomVector<States> x, Matrix<States, N1> r) {
         if (debug) System.out.println("x: " + x.x.get(0,0));
         if (debug) System.out.println("r: " + r.get(0,0));
+        if (m_schedule != null)
+            m_K = m_schedule.getK(x.x);
         RandomVector<States> rv = x.make(r, Variance.zero(m_plant.states()));
         if (debug) System.out.println("K: " + m_K);
         Matrix<States, N1> residual = rv.minus(x).x;
@@ -43,6 +60,9 @@ public class FeedbackControl<States extends Num, Inputs extends Num, Outputs ext
         return m_K.times(residual);
     }
 
+    /**
+     * Returns K times the error, using the most recent K if scheduled.
+     */
     public Matrix<Inputs, N1> calculate(Matrix<States, N1> error) {
         return m_K.times(error);
     }
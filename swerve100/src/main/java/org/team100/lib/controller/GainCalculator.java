@@ -15,14 +15,14 @@ import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.system.Discretization;
 
 /**
- * Fixed gain linearized around zero, cribbed from LQR.
+ * Fixed gain linearized around zero (or some other state), cribbed from LQR.
  */
 public class GainCalculator<States extends Num, Inputs extends Num, Outputs extends Num> {
     private final Matrix<Inputs, States> m_K;
 
     /**
-     * Calculate LQR gain linearized around zero. I don't think it's worth the
-     * trouble to make K sensitive to x, since all our systems are well behaved.
+     * Calculate LQR gain linearized around zero. For systems where K depends a lot
+     * on x, use GainSchedule instead.
      * 
      * This is all cribbed from WPI code, I don't really understand what it's doing.
      * 
@@ -34,11 +34,24 @@ public class GainCalculator<States extends Num, Inputs extends Num, Outputs exte
             Vector<States> qelms,
             Vector<Inputs> relms,
             double dtSeconds) {
+        this(plant, qelms, relms, dtSeconds, new Matrix<>(plant.states(), Nat.N1()));
+    }
+
+    /**
+     * Calculate LQR gain linearized around the state x0, with zero input. For
+     * plants like Pendulum1D, where f is linear in u, the input doesn't matter.
+     * GainSchedule uses this to make a table of K over x0.
+     */
+    public GainCalculator(
+            NonlinearPlant<States, Inputs, Outputs> plant,
+            Vector<States> qelms,
+            Vector<Inputs> relms,
+            double dtSeconds,
+            Matrix<States, N1> x0) {
         Matrix<Inputs, N1> kUZero = new Matrix<>(plant.inputs(), Nat.N1());
         Matrix<States, States> m_Q = StateSpaceUtil.makeCostMatrix(qelms);
         Matrix<Inputs, Inputs> m_R = StateSpaceUtil.makeCostMatrix(relms);
-        RandomVector<States> x = new RandomVector<>(new Matrix<>(plant.states(), Nat.N1()),
-                Variance.zero(plant.states()));
+        RandomVector<States> x = new RandomVector<>(x0.copy(), Variance.zero(plant.states()));
         Matrix<States, States> A = Jacobian.numericalJacobianX(plant.states(), plant.states(), plant::f,
                 x, kUZero);
         Matrix<States, Inputs> B = Jacobian.numericalJacobianU(plant.states(), plant.inputs(), plant::f,
@@ -0,0 +1,146 @@
+package org.team100.lib.controller;
+
+import java.util.stream.IntStream;
+
+import org.team100.lib.system.NonlinearPlant;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.Num;
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.numbers.N1;
+
+/**
+ * LQR gain that depends on the state, for plants whose linearization depends on
+ * where they are, e.g. Pendulum1D, where the effect of gravity depends on the
+ * angle.
+ *
+ * K is calculated at each point of a regular grid over some of the states
+ * (usually the positions) once, at construction, in parallel. The other states
+ * are zero at each grid point. After that, getK() is just a lookup with
+ * interpolation between the neighboring grid points, so there's no Riccati
+ * solve in the control loop.
+ */
+public class GainSchedule<States extends Num, Inputs extends Num, Outputs extends Num> {
+
+    /** One dimension of the grid. */
+    public static class Axis {
+        private final int m_state;
+        private final double m_min;
+        private final double m_step;
+        private final int m_count;
+
+        /**
+         * @param state index of the scheduling state
+         * @param min   first grid point
+         * @param max   last grid point; states outside [min, max] use the gain at
+         *              the nearest end.
+         * @param count number of grid points, at least two
+         */
+        public Axis(int state, double min, double max, int count) {
+            if (count < 2)
+                throw new IllegalArgumentException("need at least two grid points");
+            if (max <= min)
+                throw new IllegalArgumentException("max must be greater than min");
+            m_state = state;
+            m_min = min;
+            m_step = (max - min) / (count - 1);
+            m_count = count;
+        }
+
+        double point(int i) {
+            return m_min + i * m_step;
+        }
+
+        /** Grid position of x, clamped to the grid. */
+        double position(double x) {
+            return Math.max(0, Math.min(m_count - 1, (x - m_min) / m_step));
+        }
+    }
+
+    private final Nat<States> m_states;
+    private final Nat<Inputs> m_inputs;
+    private final Axis[] m_axes;
+    /** Flattened index step for each axis; the first axis varies fastest. */
+    private final int[] m_strides;
+    /** K at each grid point, row major, one after the other. */
+    private final double[] m_table;
+
+    /**
+     * Calculate K at each grid point, using all the cores.
+     *
+     * @param dtSeconds time step for discretization, as in GainCalculator.
+     * @param axes      grid dimensions, usually one or two.
+     */
+    public GainSchedule(
+            NonlinearPlant<States, Inputs, Outputs> plant,
+            Vector<States> qelms,
+            Vector<Inputs> relms,
+            double dtSeconds,
+            Axis... axes) {
+        m_states = plant.states();
+        m_inputs = plant.inputs();
+        m_axes = axes.clone();
+        m_strides = new int[axes.length];
+        int points = 1;
+        for (int i = 0; i < axes.length; ++i) {
+            if (axes[i].m_state < 0 || axes[i].m_state >= m_states.getNum())
+                throw new IllegalArgumentException("no such state: " + axes[i].m_state);
+            m_strides[i] = points;
+            points *= axes[i].m_count;
+        }
+        int size = m_inputs.getNum() * m_states.getNum();
+        m_table = new double[points * size];
+
+        // grid points are independent, and each writes its own part of the table.
+        IntStream.range(0, points).parallel().forEach(point -> {
+            Matrix<States, N1> x0 = new Matrix<>(m_states, Nat.N1());
+            for (int i = 0; i < m_axes.length; ++i) {
+                int index = (point / m_strides[i]) % m_axes[i].m_count;
+                x0.set(m_axes[i].m_state, 0, m_axes[i].point(index));
+            }
+            Matrix<Inputs, States> K = new GainCalculator<>(plant, qelms, relms, dtSeconds, x0).getK();
+            for (int row = 0; row < m_inputs.getNum(); ++row) {
+                for (int col = 0; col < m_states.getNum(); ++col) {
+                    m_table[point * size + row * m_states.getNum() + col] = K.get(row, col);
+                }
+            }
+        });
+    }
+
+    /**
+     * K at the state x, interpolated linearly between grid points (bilinear for
+     * two axes, etc).
+     */
+    public Matrix<Inputs, States> getK(Matrix<States, N1> x) {
+        int cols = m_states.getNum();
+        int size = m_inputs.getNum() * cols;
+        Matrix<Inputs, States> K = new Matrix<>(m_inputs, m_states);
+        // each corner of the grid cell containing x
+        for (int corner = 0; corner < 1 << m_axes.length; ++corner) {
+            double weight = 1.0;
+            int point = 0;
+            for (int i = 0; i < m_axes.length; ++i) {
+                Axis axis = m_axes[i];
+                double position = axis.position(x.get(axis.m_state, 0));
+                int lower = Math.min((int) position, axis.m_count - 2);
+                double fraction = position - lower;
+                if ((corner & (1 << i)) == 0) {
+                    weight *= 1 - fraction;
+                    point += lower * m_strides[i];
+                } else {
+                    weight *= fraction;
+                    point += (lower + 1) * m_strides[i];
+                }
+            }
+            if (weight == 0)
+                continue;
+            for (int row = 0; row < m_inputs.getNum(); ++row) {
+                for (int col = 0; col < cols; ++col) {
+                    K.set(row, col, K.get(row, col) + weight * m_table[point * size + row * cols + col]);
+                }
+            }
+        }
+        return K;
+    }
+}
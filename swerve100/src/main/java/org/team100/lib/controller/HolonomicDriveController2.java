@@ -1,23 +1,29 @@
 package org.team100.lib.controller;
 
 import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.telemetry.GatedDoublePublisher;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Twist2d;
-import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
 public class HolonomicDriveController2 {
+    /** Meters, radians, and m/s; this may run at 200 Hz, so be stingy. */
+    private static final double kDeadband = 0.001;
+    /** Dashboards don't need every cycle. */
+    private static final double kTelemetryRateHz = 25;
     private final PIDController m_xController;
     private final PIDController m_yController;
     private final PIDController m_thetaController;
 
-    private double xErr = 0;
-    private double yErr = 0;
-    private Rotation2d m_rotationError = new Rotation2d();
+    // written by calculate(), which may be on the fast loop thread, and read by
+    // commands via atReference().
+    private volatile double xErr = 0;
+    private volatile double yErr = 0;
+    private volatile Rotation2d m_rotationError = new Rotation2d();
     private Pose2d m_poseTolerance = new Pose2d();
 
     public HolonomicDriveController2(
@@ -104,19 +110,31 @@ public class HolonomicDriveController2 {
     private final NetworkTableInstance inst = NetworkTableInstance.getDefault();
     private final NetworkTable table = inst.getTable("Holonomic2");
 
-    private final DoublePublisher xSetPublisher = table.getDoubleTopic("xSet").publish();
-    private final DoublePublisher xFFPublisher = table.getDoubleTopic("xFF").publish();
-    private final DoublePublisher xFBPublisher = table.getDoubleTopic("xFB").publish();
-    private final DoublePublisher poseXErrorPublisher = table.getDoubleTopic("xErr").publish();
-
-    private final DoublePublisher ySetPublisher = table.getDoubleTopic("ySet").publish();
-    private final DoublePublisher yFFPublisher = table.getDoubleTopic("yFF").publish();
-    private final DoublePublisher yFBPublisher = table.getDoubleTopic("yFB").publish();
-    private final DoublePublisher poseYErrorPublisher = table.getDoubleTopic("yErr").publish();
-
-    private final DoublePublisher thetaSetPublisher = table.getDoubleTopic("thetaSet").publish();
-    private final DoublePublisher thetaFFPublisher = table.getDoubleTopic("thetaFF").publish();
-    private final DoublePublisher thetaFBPublisher = table.getDoubleTopic("thetaFB").publish();
-    private final DoublePublisher thetaErrorPublisher = table.getDoubleTopic("thetaErr").publish();
+    private final GatedDoublePublisher xSetPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("xSet").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher xFFPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("xFF").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher xFBPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("xFB").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher poseXErrorPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("xErr").publish(), kDeadband, kTelemetryRateHz);
+
+    private final GatedDoublePublisher ySetPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("ySet").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher yFFPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("yFF").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher yFBPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("yFB").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher poseYErrorPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("yErr").publish(), kDeadband, kTelemetryRateHz);
+
+    private final GatedDoublePublisher thetaSetPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("thetaSet").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher thetaFFPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("thetaFF").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher thetaFBPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("thetaFB").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher thetaErrorPublisher = new GatedDoublePublisher(
+            table.getDoubleTopic("thetaErr").publish(), kDeadband, kTelemetryRateHz);
 
 }
@@ -10,9 +10,14 @@ import edu.wpi.first.math.numbers.N1;
 
 /**
  * Extrapolates previous state to estimate future state using system dynamics.
+ * 
+ * The integration works in place on a scratch vector, so this is not
+ * threadsafe.
  */
 public class ExtrapolatingEstimator<States extends Num, Inputs extends Num, Outputs extends Num> {
     private final NonlinearPlant<States, Inputs, Outputs> m_plant;
+    // input to f for the intermediate RK4 stages; same class as x.
+    private RandomVector<States> m_stage;
 
     public ExtrapolatingEstimator(NonlinearPlant<States, Inputs, Outputs> plant) {
         m_plant = plant;
@@ -20,6 +25,7 @@ public class ExtrapolatingEstimator<States extends Num, Inputs extends Num, Outp
 
     /**
      * Predict state under output u for dtSec in the future using Runge-Kutta 4 and add noise.
+     * Returns a new vector, x is not modified.
      * 
      * @param x     initial state
      * @param u     total control output
@@ -34,26 +40,54 @@ public class ExtrapolatingEstimator<States extends Num, Inputs extends Num, Outp
 
     /**
      * RK4 integration
+     * 
+     * x + (k1 + 2 k2 + 2 k3 + k4) * h / 6
+     * 
+     * Each k is accumulated into the result as soon as it's computed, because f
+     * may return a vector sharing storage with its input, which is the stage
+     * scratch vector we're about to overwrite. The only allocations here are the
+     * result and whatever f does.
      */
     RandomVector<States> predict(
             RandomVector<States> x,
             Matrix<Inputs, N1> u,
             double dtS) {
         final double h = dtS;
+        RandomVector<States> result = x.copy();
+        RandomVector<States> stage = stage(x);
 
         RandomVector<States> k1 = m_plant.f(x, u);
-        RandomVector<States> k2 = m_plant.f(x.plus(k1.times(h * 0.5)), u);
-        RandomVector<States> k3 = m_plant.f(x.plus(k2.times(h * 0.5)), u);
-        RandomVector<States> k4 = m_plant.f(x.plus(k3.times(h)), u);
+        result.setPlusScaled(result, h / 6.0, k1);
+        stage.setPlusScaled(x, h * 0.5, k1);
+
+        RandomVector<States> k2 = m_plant.f(stage, u);
+        result.setPlusScaled(result, h / 3.0, k2);
+        stage.setPlusScaled(x, h * 0.5, k2);
+
+        RandomVector<States> k3 = m_plant.f(stage, u);
+        result.setPlusScaled(result, h / 3.0, k3);
+        stage.setPlusScaled(x, h, k3);
 
-        return x.plus(k1.plus(k2.times(2.0)).plus(k3.times(2.0)).plus(k4).times(h / 6.0));
+        RandomVector<States> k4 = m_plant.f(stage, u);
+        return result.setPlusScaled(result, h / 6.0, k4);
     }
 
-    /** Noise integration produces variance of t */
+    /**
+     * Noise integration produces variance of t. This modifies x in place, so only
+     * use it on vectors you own.
+     */
     RandomVector<States> addNoise(RandomVector<States> x, double dtSeconds) {
-        Variance<States> noiseVariance = m_plant.w().P.copy();
-        noiseVariance = noiseVariance.times(dtSeconds);
-        return x.make(x.x, x.Kxx.plus(noiseVariance));
+        Variance<States> noiseVariance = m_plant.w().P;
+        x.Kxx.setPlusScaled(x.Kxx, dtSeconds, noiseVariance);
+        return x;
+    }
+
+    /** The scratch vector for RK4 stages, remade if x is a different class. */
+    private RandomVector<States> stage(RandomVector<States> x) {
+        if (m_stage == null || m_stage.getClass() != x.getClass()) {
+            m_stage = x.copy();
+        }
+        return m_stage;
     }
 
 }
@@ -10,9 +10,9 @@ import org.team100.lib.fusion.LinearPooling;
 import org.team100.lib.fusion.VarianceWeightedLinearPooling;
 import org.team100.lib.math.RandomVector;
 import org.team100.lib.reference.Reference;
-import org.team100.lib.storage.BitemporalBuffer;
 import org.team100.lib.storage.EditableHistory;
 import org.team100.lib.storage.History;
+import org.team100.lib.storage.PrimitiveBitemporalBuffer;
 import org.team100.lib.system.NonlinearPlant;
 
 import edu.wpi.first.math.Matrix;
@@ -51,6 +51,20 @@ import edu.wpi.first.math.numbers.N1;
  * // record if you actually use it
  * record(actualTimeSec, u);
  *
+ * There are two replay modes. The full mode finds the earliest unseen
+ * measurement by scanning the unseen records, and re-integrates from the last
+ * fused state before it, keeping only the fused states.
+ * 
+ * The incremental mode (use the constructor with a checkpoint interval) tracks
+ * the earliest pending valid time as measurements arrive, so there's no scan,
+ * and also keeps the intermediate states computed at control changes (by both
+ * replay and predictNow), at most one per checkpoint interval, in a separate
+ * checkpoint history. Replay then starts from the nearest checkpoint or fused
+ * state before the earliest pending measurement, rather than from the previous
+ * measurement, which might be far back if the cameras are slow. The fused
+ * estimates are the same as in full mode, and m_estimates holds only those.
+ * 
+ * Both modes report the number of RK4 steps used by the last replay.
  */
 public class NewBitemporalEstimatorController<States extends Num, Inputs extends Num, Outputs extends Num> {
     private static final boolean debug = false;
@@ -59,9 +73,11 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
     public final Matrix<Inputs, N1> initialControl;
     public final Reference<States> m_reference;
     // measurements are bitemporal so we can notice late-arriving ones
-    public final BitemporalBuffer<RandomVector<Outputs>> m_measurements;
+    public final PrimitiveBitemporalBuffer<RandomVector<Outputs>> m_measurements;
     // we rewrite recent state history as needed.
     public final EditableHistory<RandomVector<States>> m_estimates;
+    // unfused states at control changes, incremental mode only.
+    private final EditableHistory<RandomVector<States>> m_checkpoints;
     // control history is immutable.
     public final History<Matrix<Inputs, N1>> m_control_history;
     public final ExtrapolatingEstimator<States, Inputs, Outputs> predictor;
@@ -74,6 +90,22 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
     // the last recordTime we've seen from the buffer
     private long recordTime;
 
+    private final boolean m_incremental;
+    // incremental mode only
+    private final double m_checkpointIntervalS;
+    // earliest valid time accepted since the last replay, guarded by m_pendingLock
+    private final Object m_pendingLock = new Object();
+    private double m_pendingValidTime = Double.MAX_VALUE;
+    // scratch for iterating over the measurements without allocating, both modes
+    private final double[] m_todoValidTimes;
+    private final long[] m_todoRecordTimes;
+    private final RandomVector<Outputs>[] m_todoValues;
+
+    // RK4 steps used by the most recent replay
+    private int m_replaySteps;
+    // RK4 steps used by integrateWithCheckpoints
+    private int m_steps;
+
     /**
      * @param system plant dynamics
      * @param initialState used by the predictor
@@ -87,11 +119,52 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
             Matrix<Inputs, N1> initialControl,
             Reference<States> reference,
             Matrix<Inputs, States> K) {
+        this(system, initialState, initialControl, reference, K, false, 0);
+    }
+
+    /**
+     * Uses incremental replay.
+     * 
+     * @param system              plant dynamics
+     * @param initialState        used by the predictor
+     * @param initialControl      used by the predictor
+     * @param reference           produces trajectory
+     * @param K                   feedback gain
+     * @param checkpointIntervalS minimum valid-time spacing of intermediate
+     *                            states kept for replay; zero keeps them all.
+     */
+    public NewBitemporalEstimatorController(
+            NonlinearPlant<States, Inputs, Outputs> system,
+            RandomVector<States> initialState,
+            Matrix<Inputs, N1> initialControl,
+            Reference<States> reference,
+            Matrix<Inputs, States> K,
+            double checkpointIntervalS) {
+        this(system, initialState, initialControl, reference, K, true, checkpointIntervalS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private NewBitemporalEstimatorController(
+            NonlinearPlant<States, Inputs, Outputs> system,
+            RandomVector<States> initialState,
+            Matrix<Inputs, N1> initialControl,
+            Reference<States> reference,
+            Matrix<Inputs, States> K,
+            boolean incremental,
+            double checkpointIntervalS) {
+        if (checkpointIntervalS < 0)
+            throw new IllegalArgumentException("Negative checkpoint interval: " + checkpointIntervalS);
         this.initialState = initialState;
         this.initialControl = initialControl;
         m_reference = reference;
-        m_measurements = new BitemporalBuffer<>(1000);
+        m_incremental = incremental;
+        m_checkpointIntervalS = checkpointIntervalS;
+        m_todoValidTimes = new double[1000];
+        m_todoRecordTimes = new long[1000];
+        m_todoValues = (RandomVector<Outputs>[]) new RandomVector[1000];
+        m_measurements = new PrimitiveBitemporalBuffer<>(1000);
         m_estimates = new EditableHistory<>(1000);
+        m_checkpoints = new EditableHistory<>(1000);
         m_control_history = new History<>(1000);
         predictor = new ExtrapolatingEstimator<>(system);
         pointEstimator = new PointEstimator<>(system);
@@ -107,28 +180,41 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
      */
     public void acceptMeasurement(long recordTimeUs, double validTimeSec, RandomVector<Outputs> measurement) {
         m_measurements.put(recordTimeUs, validTimeSec, measurement);
+        // note the pending time *after* the put, so replay can't miss it.
+        synchronized (m_pendingLock) {
+            if (validTimeSec < m_pendingValidTime)
+                m_pendingValidTime = validTimeSec;
+        }
+    }
+
+    /** Number of RK4 steps used by the most recent replay. */
+    public int getReplaySteps() {
+        return m_replaySteps;
     }
 
     /** Update the state history with any measurements that are pending. */
     public int replay(long currentSystemTimeMicrosec) {
+        if (m_incremental)
+            return replayIncremental();
+        m_replaySteps = 0;
         double earliestMeasurementSec = m_measurements.earliestValidTimeForRecordsAfter(recordTime);
         recordTime = currentSystemTimeMicrosec;
 
         // we need to replay all the measurements since then
-        NavigableMap<Double, Entry<Long, RandomVector<Outputs>>> todo = m_measurements
-                .validTailMap(earliestMeasurementSec);
+        int todo = m_measurements.validTail(earliestMeasurementSec,
+                m_todoValidTimes, m_todoRecordTimes, m_todoValues);
 
         // we don't need the old estimates, we're going to redo them all
         m_estimates.trim(earliestMeasurementSec);
 
         // loop through the measurements to replay, in valid-time order.
-        int replayCount = 0;
         if (debug)
-            System.out.println("replay " + todo.size());
-        for (Entry<Double, Entry<Long, RandomVector<Outputs>>> measurementEntry : todo.entrySet()) {
-            replayCount += 1;
+            System.out.println("replay " + todo);
+        for (int i = 0; i < todo; ++i) {
             // find the time of the measurement
-            double measurementTime = measurementEntry.getKey();
+            double measurementTime = m_todoValidTimes[i];
+            RandomVector<Outputs> measurement = m_todoValues[i];
+            m_todoValues[i] = null;
             // find the most-recent state earlier than the measurement
             Entry<Double, RandomVector<States>> entry = m_estimates.floor(measurementTime);
             if (entry == null) {
@@ -164,6 +250,7 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
                         priorState,
                         historical_u,
                         integrationSpanS);
+                m_replaySteps++;
                 if (debug)
                     System.out.println("tween estimate position " + priorState.x.get(0, 0));
 
@@ -183,12 +270,13 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
                     priorState,
                     historical_u,
                     stateToMeasurementS);
+            m_replaySteps++;
             if (debug)
                 System.out.println("replay estimate " + predictedState.x.get(0, 0));
 
             // this is the measurement state
             RandomVector<States> measurementState = pointEstimator
-                    .stateForMeasurementWithZeroU(measurementEntry.getValue().getValue());
+                    .stateForMeasurementWithZeroU(measurement);
             if (debug)
                 System.out.println("replay measurement " + measurementState.x.get(0, 0));
             // pool the measurement and the extrapolation
@@ -198,11 +286,107 @@ public class NewBitemporalEstimatorController<States extends Num, Inputs extends
                 System.out.println("replay fused " + fused.x.get(0, 0));
             m_estimates.put(measurementTime, fused);
         }
-        return replayCount;
+        return todo;
+    }
+
+    /**
+     * Incremental replay: start from the nearest checkpoint before the earliest
+     * pending measurement, and keep the states at control changes as checkpoints
+     * for next time.
+     */
+    private int replayIncremental() {
+        m_replaySteps = 0;
+        m_steps = 0;
+        double earliestMeasurementSec;
+        synchronized (m_pendingLock) {
+            earliestMeasurementSec = m_pendingValidTime;
+            m_pendingValidTime = Double.MAX_VALUE;
+        }
+        if (earliestMeasurementSec == Double.MAX_VALUE)
+            return 0;
+
+        // everything from here on, checkpoints included, is stale.
+        m_estimates.trim(earliestMeasurementSec);
+        m_checkpoints.trim(earliestMeasurementSec);
+
+        int todo = m_measurements.validTail(earliestMeasurementSec,
+                m_todoValidTimes, m_todoRecordTimes, m_todoValues);
+        if (debug)
+            System.out.println("incremental replay " + todo);
+
+        for (int i = 0; i < todo; ++i) {
+            double measurementTime = m_todoValidTimes[i];
+            RandomVector<Outputs> measurement = m_todoValues[i];
+            m_todoValues[i] = null;
+            RandomVector<States> predictedState = integrateWithCheckpoints(measurementTime);
+            RandomVector<States> measurementState = pointEstimator.stateForMeasurementWithZeroU(measurement);
+            RandomVector<States> fused = pooling.fuse(predictedState, measurementState);
+            if (debug)
+                System.out.println("incremental replay fused " + fused.x.get(0, 0));
+            m_estimates.put(measurementTime, fused);
+        }
+        m_replaySteps = m_steps;
+        return todo;
     }
 
-    /** Predict the state for the current instant. */
+    /**
+     * Integrate from the latest state before endTimeS, splitting at each control
+     * change and keeping the state at each split as a checkpoint, at most one per
+     * checkpoint interval. Zero-length spans are skipped, since they don't change
+     * the state. Steps are added to m_steps.
+     * 
+     * The splits are the same as in full replay, so the result is too.
+     */
+    private RandomVector<States> integrateWithCheckpoints(double endTimeS) {
+        Entry<Double, RandomVector<States>> entry = m_estimates.floor(endTimeS);
+        Entry<Double, RandomVector<States>> checkpoint = m_checkpoints.floor(endTimeS);
+        // a fused state beats a checkpoint at the same time
+        if (checkpoint != null && (entry == null || checkpoint.getKey() > entry.getKey()))
+            entry = checkpoint;
+        if (entry == null)
+            entry = Map.entry(0.0, initialState);
+        double stateTimeS = entry.getKey();
+        double checkpointTimeS = stateTimeS;
+        RandomVector<States> state = entry.getValue();
+
+        Entry<Double, Matrix<Inputs, N1>> uEntry = m_control_history.floor(stateTimeS);
+        if (uEntry == null)
+            uEntry = Map.entry(0.0, initialControl);
+        Matrix<Inputs, N1> u = uEntry.getValue();
+
+        for (Entry<Double, Matrix<Inputs, N1>> nextUEntry : m_control_history.validSubMap(stateTimeS, endTimeS)
+                .entrySet()) {
+            double splitS = nextUEntry.getKey();
+            if (splitS > stateTimeS) {
+                state = predictor.predictWithNoise(state, u, splitS - stateTimeS);
+                m_steps++;
+                stateTimeS = splitS;
+                if (splitS < endTimeS && splitS - checkpointTimeS >= m_checkpointIntervalS) {
+                    if (debug)
+                        System.out.println("checkpoint " + splitS + " " + state.x.get(0, 0));
+                    m_checkpoints.put(splitS, state);
+                    checkpointTimeS = splitS;
+                }
+            }
+            u = nextUEntry.getValue();
+        }
+        if (endTimeS > stateTimeS) {
+            state = predictor.predictWithNoise(state, u, endTimeS - stateTimeS);
+            m_steps++;
+        }
+        return state;
+    }
+
+    /**
+     * Predict the state for the current instant.
+     * 
+     * In incremental mode, this integrates through the control changes since the
+     * latest state, and keeps checkpoints there, so that a late measurement can
+     * be replayed from nearby.
+     */
     public RandomVector<States> predictNow(double currentTimeSec) {
+        if (m_incremental)
+            return integrateWithCheckpoints(currentTimeSec);
         Entry<Double, RandomVector<States>> entry = m_estimates.floor(currentTimeSec);
         if (entry == null)
             entry = Map.entry(0.0, initialState);
@@ -7,5 +7,10 @@ public enum Experiment {
     /** Offload the drive PID to the motor controller. */
     UseClosedLoopDrive,
     /** Offload the steering PID to the motor controller. */
-    UseClosedLoopSteering
+    UseClosedLoopSteering,
+    /**
+     * Run drivetrain odometry and control at 200 Hz on its own thread. Off
+     * everywhere until it's been tried on a real robot.
+     */
+    FastDriveLoop
 }
@@ -2,6 +2,7 @@ package org.team100.lib.fusion;
 
 import org.ejml.dense.row.MatrixFeatures_DDRM;
 import org.team100.lib.math.RandomVector;
+import org.team100.lib.math.SmallMatrixKernel;
 import org.team100.lib.math.Variance;
 
 import edu.wpi.first.math.Matrix;
@@ -50,6 +51,8 @@ import edu.wpi.first.math.numbers.N1;
  * https://stats.stackexchange.com/questions/16608/what-is-the-variance-of-the-weighted-mixture-of-two-gaussians
  */
 public abstract class LinearPooling<States extends Num> implements Pooling<States> {
+    // scratch for the small-matrix path
+    private final double[] m_tmp = new double[9];
     /**
      * Weights should add to one.
      * 
@@ -92,6 +95,10 @@ public abstract class LinearPooling<States extends Num> implements Pooling<State
 // this handles wrapping
         Matrix<States, N1> cx = a.combine(pb,b).x;
 
+        if (SmallMatrixKernel.isSmall(pa.getNumRows())) {
+            return a.make(cx, smallCovariance(a, pa, b, pb));
+        }
+
         Matrix<States, States> cK = pa.times(a.Kxx.getValue()).times(pa.transpose()).plus(
                 pb.times(b.Kxx.getValue()).times(pb.transpose()));
 
@@ -109,6 +116,37 @@ public abstract class LinearPooling<States extends Num> implements Pooling<State
 
     }
 
+    /**
+     * The same covariance as fuse() computes, pa A paT + pb B pbT + dispersion,
+     * accumulated into one matrix without intermediates. Not threadsafe.
+     */
+    Variance<States> smallCovariance(
+            RandomVector<States> a,
+            Matrix<States, States> pa,
+            RandomVector<States> b,
+            Matrix<States, States> pb) {
+        int n = pa.getNumRows();
+        double[] paData = SmallMatrixKernel.data(pa);
+        double[] pbData = SmallMatrixKernel.data(pb);
+        Matrix<States, States> cK = pa.copy();
+        double[] cKData = SmallMatrixKernel.data(cK);
+        for (int i = 0; i < n * n; ++i) {
+            cKData[i] = 0;
+        }
+        SmallMatrixKernel.addSandwich(paData, SmallMatrixKernel.data(a.Kxx.getValue()), cKData, m_tmp, n);
+        SmallMatrixKernel.addSandwich(pbData, SmallMatrixKernel.data(b.Kxx.getValue()), cKData, m_tmp, n);
+        // dispersion: pa pb diag(d)^2
+        Matrix<States, N1> d = a.xminus(b.x);
+        SmallMatrixKernel.multiply(paData, pbData, m_tmp, n);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                double dj = d.get(j, 0);
+                cKData[i * n + j] += m_tmp[i * n + j] * dj * dj;
+            }
+        }
+        return new Variance<>(cK);
+    }
+
     /**
      * Covariance of the mixture due to dispersion in the means.
      * 
@@ -1,6 +1,9 @@
 package org.team100.lib.fusion;
 
+import java.util.Arrays;
+
 import org.team100.lib.math.RandomVector;
+import org.team100.lib.math.SmallMatrixKernel;
 
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Num;
@@ -40,6 +43,11 @@ public class VarianceWeightedLinearPooling<States extends Num> extends LinearPoo
     }
 
     private final Config m_config = new Config();
+    // scratch for the small-matrix path
+    private final double[] m_aPI = new double[9];
+    private final double[] m_bPI = new double[9];
+    private final double[] m_PIsum = new double[9];
+    private final double[] m_PIsumI = new double[9];
 
     public RandomVector<States> fuse(RandomVector<States> a, RandomVector<States> b) {
         // TODO: turn off these checks somehow for matches, use some sort of backoff
@@ -59,6 +67,8 @@ public class VarianceWeightedLinearPooling<States extends Num> extends LinearPoo
     Pair<Matrix<States, States>, Matrix<States, States>> weights(RandomVector<States> a, RandomVector<States> b) {
         Matrix<States, States> aP = a.Kxx.getValue();
         Matrix<States, States> bP = b.Kxx.getValue();
+        if (SmallMatrixKernel.isSmall(aP.getNumRows()))
+            return smallWeights(aP, bP);
         if (aP.det() < m_config.kThreshold) {
             throw new IllegalArgumentException("aP is singular.\n" + aP.toString());
         }
@@ -77,4 +87,36 @@ public class VarianceWeightedLinearPooling<States extends Num> extends LinearPoo
         return Pair.of(pa, pb);
     }
 
+    /**
+     * Same as weights() but with closed-form inverses and no intermediate
+     * matrices. Not threadsafe.
+     */
+    private Pair<Matrix<States, States>, Matrix<States, States>> smallWeights(
+            Matrix<States, States> aP,
+            Matrix<States, States> bP) {
+        int n = aP.getNumRows();
+        double[] aPData = SmallMatrixKernel.data(aP);
+        double[] bPData = SmallMatrixKernel.data(bP);
+        if (SmallMatrixKernel.det(aPData, n) < m_config.kThreshold) {
+            throw new IllegalArgumentException("aP is singular.\n" + aP.toString());
+        }
+        if (SmallMatrixKernel.det(bPData, n) < m_config.kThreshold) {
+            throw new IllegalArgumentException("bP is singular.\n" + bP.toString());
+        }
+        SmallMatrixKernel.invert(aPData, m_aPI, n);
+        SmallMatrixKernel.invert(bPData, m_bPI, n);
+        for (int i = 0; i < n * n; ++i) {
+            m_PIsum[i] = m_aPI[i] + m_bPI[i];
+        }
+        if (SmallMatrixKernel.det(m_PIsum, n) < m_config.kThreshold) {
+            throw new IllegalArgumentException("PIsum is singular.\n" + Arrays.toString(m_PIsum));
+        }
+        SmallMatrixKernel.invert(m_PIsum, m_PIsumI, n);
+        Matrix<States, States> pa = aP.copy();
+        Matrix<States, States> pb = bP.copy();
+        SmallMatrixKernel.multiply(m_aPI, m_PIsumI, SmallMatrixKernel.data(pa), n);
+        SmallMatrixKernel.multiply(m_bPI, m_PIsumI, SmallMatrixKernel.data(pb), n);
+        return Pair.of(pa, pb);
+    }
+
 }
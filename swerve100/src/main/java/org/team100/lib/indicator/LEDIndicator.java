@@ -36,6 +36,7 @@ public class LEDIndicator {
 
     private final Map<State, AddressableLEDBuffer> buffers;
     private final AddressableLED led;
+    private State m_state;
 
     public LEDIndicator(int port) {
         buffers = new HashMap<State, AddressableLEDBuffer>();
@@ -52,8 +53,12 @@ public class LEDIndicator {
         set(State.ORANGE);
     }
 
+    /** Does nothing if the state hasn't changed, so it's fine to call every cycle. */
     public void set(State s) {
+        if (s == m_state)
+            return;
         led.setData(buffers.get(s));
+        m_state = s;
     }
 
     public void close() {
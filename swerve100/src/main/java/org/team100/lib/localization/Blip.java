@@ -3,50 +3,76 @@ package org.team100.lib.localization;
 import java.util.Arrays;
 
 /**
- * Something the camera sees. This is 1:1 copy of the representation in the
- * AprilTag library.
+ * Something the camera sees. This is the same information as the
+ * representation in the AprilTag library, with the matrices flattened in
+ * row-major order.
+ * 
+ * Blips are reused by the decoder (see Blips), so don't hold onto one after
+ * the next payload is decoded into the same Blips.
  */
 public class Blip {
     /**
      * AprilTag ID
      */
-    public final int id;
-    
+    public int id;
+
     /**
-     * Rotation in camera (z-forward) frame. This is generally not accurate enough
-     * to use for camera pose estimation.
+     * Rotation in camera (z-forward) frame, 3x3, row-major, so element (r, c) is
+     * pose_R[3 * r + c]. This is generally not accurate enough to use for camera
+     * pose estimation.
      */
-    public final double[][] pose_R;
+    public final double[] pose_R;
 
     /**
-     * Translation in camera (z-forward) frame. Even though this is logically a
-     * vector it is represented by the AprilTag library as a 3x1 2d array so we use
-     * the same representation
-     * here.
+     * Translation in camera (z-forward) frame. The AprilTag library represents
+     * this as a 3x1 2d array; here it's just the three elements.
      */
-    public final double[][] pose_t;
+    public final double[] pose_t;
 
     /**
-     * Package-private for testing.
+     * Package-private for testing. Takes the same nested arrays the AprilTag
+     * library uses.
      */
     Blip(int id, double[][] pose_R, double[][] pose_t) {
+        this();
         this.id = id;
-        this.pose_R = pose_R;
-        this.pose_t = pose_t;
+        for (int r = 0; r < 3; ++r) {
+            for (int c = 0; c < 3; ++c) {
+                this.pose_R[3 * r + c] = pose_R[r][c];
+            }
+            this.pose_t[r] = pose_t[r][0];
+        }
     }
 
     /**
-     * For the deserializer.
+     * For the decoder.
      */
-    protected Blip() {
+    Blip() {
         this.id = 0;
-        this.pose_R = new double[3][3];
-        this.pose_t = new double[3][1];
+        this.pose_R = new double[9];
+        this.pose_t = new double[3];
+    }
+
+    /** Back to the same state as new, for reuse. */
+    void clear() {
+        id = 0;
+        Arrays.fill(pose_R, 0);
+        Arrays.fill(pose_t, 0);
     }
 
+    /** Same format as the nested-array version. */
     @Override
     public String toString() {
-        return "Blip [id=" + id + ", pose_R=" + Arrays.deepToString(pose_R) + ", pose_t=" + Arrays.deepToString(pose_t)
-                + "]";
+        StringBuilder sb = new StringBuilder();
+        sb.append("Blip [id=").append(id).append(", pose_R=[");
+        for (int r = 0; r < 3; ++r) {
+            if (r > 0)
+                sb.append(", ");
+            sb.append("[").append(pose_R[3 * r]).append(", ").append(pose_R[3 * r + 1]).append(", ")
+                    .append(pose_R[3 * r + 2]).append("]");
+        }
+        sb.append("], pose_t=[[").append(pose_t[0]).append("], [").append(pose_t[1]).append("], [")
+                .append(pose_t[2]).append("]]]");
+        return sb.toString();
     }
 }
\ No newline at end of file
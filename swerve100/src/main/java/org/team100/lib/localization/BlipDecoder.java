@@ -0,0 +1,390 @@
+package org.team100.lib.localization;
+
+import java.io.IOException;
+
+/**
+ * Decodes the MessagePack payload from the camera directly into a Blips,
+ * without reflection and without allocating.
+ * 
+ * The payload looks like this (as JSON):
+ * 
+ * <pre>
+ * {"et": 0.01, "tags": [{"id": 1, "pose_t": [[x], [y], [z]], "pose_R": [[..], [..], [..]]}]}
+ * </pre>
+ * 
+ * Cameras that do time sync also send "capture", "echo", "echo_rx" and
+ * "sent", see Blips.
+ * 
+ * Keys are matched byte-by-byte against the ASCII names, so no Strings are
+ * made; keys we don't know about are skipped. Numbers may be any MessagePack
+ * int or float type. The matrices may be nested or flat, as long as they hold
+ * the right number of elements. A tag without both matrices is rejected, since
+ * there's nothing to estimate from; a missing id is zero. Anything nested
+ * deeper than kMaxDepth is rejected, rather than recursing on the listener
+ * thread until the stack runs out.
+ * 
+ * This keeps a cursor into the buffer, so use one decoder per thread.
+ */
+public class BlipDecoder {
+    private static final byte[] kEt = { 'e', 't' };
+    private static final byte[] kTags = { 't', 'a', 'g', 's' };
+    private static final byte[] kCapture = { 'c', 'a', 'p', 't', 'u', 'r', 'e' };
+    private static final byte[] kEcho = { 'e', 'c', 'h', 'o' };
+    private static final byte[] kEchoRx = { 'e', 'c', 'h', 'o', '_', 'r', 'x' };
+    private static final byte[] kSent = { 's', 'e', 'n', 't' };
+    private static final byte[] kId = { 'i', 'd' };
+    private static final byte[] kPoseR = { 'p', 'o', 's', 'e', '_', 'R' };
+    private static final byte[] kPoseT = { 'p', 'o', 's', 'e', '_', 't' };
+    /** Deepest nesting we'll follow in a matrix or a skipped value. */
+    private static final int kMaxDepth = 8;
+
+    private byte[] m_buf;
+    private int m_pos;
+    private int m_end;
+    // filled by readString()
+    private int m_strStart;
+    private int m_strLength;
+    // filled by readDoubles()
+    private int m_count;
+
+    /**
+     * Replace the contents of blips with the payload.
+     * 
+     * @throws IOException if the payload is malformed or truncated.
+     */
+    public void decode(byte[] payload, Blips blips) throws IOException {
+        decode(payload, 0, payload.length, blips);
+    }
+
+    /** Decode length bytes of payload starting at offset. */
+    public void decode(byte[] payload, int offset, int length, Blips blips) throws IOException {
+        m_buf = payload;
+        m_pos = offset;
+        m_end = offset + length;
+        blips.clear();
+        try {
+            int fields = readMapHeader();
+            for (int i = 0; i < fields; ++i) {
+                readString();
+                if (keyIs(kEt)) {
+                    blips.et = readDouble();
+                } else if (keyIs(kCapture)) {
+                    blips.capture = readDouble();
+                } else if (keyIs(kEcho)) {
+                    blips.echo = readDouble();
+                } else if (keyIs(kEchoRx)) {
+                    blips.echoReceived = readDouble();
+                } else if (keyIs(kSent)) {
+                    blips.sent = readDouble();
+                } else if (keyIs(kTags)) {
+                    int tags = readArrayHeader();
+                    for (int j = 0; j < tags; ++j) {
+                        readBlip(blips.addTag());
+                    }
+                } else {
+                    skip();
+                }
+            }
+        } finally {
+            m_buf = null;
+        }
+    }
+
+    private void readBlip(Blip blip) throws IOException {
+        boolean hasR = false;
+        boolean hasT = false;
+        int fields = readMapHeader();
+        for (int i = 0; i < fields; ++i) {
+            readString();
+            if (keyIs(kId)) {
+                blip.id = (int) readLong();
+            } else if (keyIs(kPoseR)) {
+                readMatrix(blip.pose_R);
+                hasR = true;
+            } else if (keyIs(kPoseT)) {
+                readMatrix(blip.pose_t);
+                hasT = true;
+            } else {
+                skip();
+            }
+        }
+        if (!hasR || !hasT)
+            throw new IOException("Tag " + blip.id + " is missing pose_R or pose_t");
+    }
+
+    /** Read a possibly-nested array of numbers, which must fill dest exactly. */
+    private void readMatrix(double[] dest) throws IOException {
+        m_count = 0;
+        readDoubles(dest, 0);
+        if (m_count != dest.length)
+            throw new IOException("Expected " + dest.length + " elements, got " + m_count);
+    }
+
+    private void readDoubles(double[] dest, int depth) throws IOException {
+        nest(depth);
+        int n = readArrayHeader();
+        for (int i = 0; i < n; ++i) {
+            if (isArray(peek())) {
+                readDoubles(dest, depth + 1);
+            } else {
+                if (m_count >= dest.length)
+                    throw new IOException("Too many elements, expected " + dest.length);
+                dest[m_count++] = readDouble();
+            }
+        }
+    }
+
+    private boolean keyIs(byte[] key) {
+        if (m_strLength != key.length)
+            return false;
+        for (int i = 0; i < key.length; ++i) {
+            if (m_buf[m_strStart + i] != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    //////////////////////////////////////////////////
+    //
+    // MessagePack primitives
+
+    private int peek() throws IOException {
+        need(1);
+        return m_buf[m_pos] & 0xff;
+    }
+
+    private int readByte() throws IOException {
+        need(1);
+        return m_buf[m_pos++] & 0xff;
+    }
+
+    private int readShort() throws IOException {
+        return (readByte() << 8) | readByte();
+    }
+
+    private int readInt() throws IOException {
+        return (readShort() << 16) | readShort();
+    }
+
+    private long readRawLong() throws IOException {
+        return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+    }
+
+    private void nest(int depth) throws IOException {
+        if (depth >= kMaxDepth)
+            throw new IOException("Nested deeper than " + kMaxDepth + " at " + m_pos);
+    }
+
+    private void need(int n) throws IOException {
+        if (m_pos + n > m_end)
+            throw new IOException("Truncated payload at " + m_pos);
+    }
+
+    private static boolean isArray(int b) {
+        return (b & 0xf0) == 0x90 || b == 0xdc || b == 0xdd;
+    }
+
+    private int readMapHeader() throws IOException {
+        int b = readByte();
+        if ((b & 0xf0) == 0x80)
+            return b & 0x0f;
+        if (b == 0xde)
+            return readShort();
+        if (b == 0xdf)
+            return length(readInt());
+        throw new IOException(String.format("Expected map at %d, got 0x%02x", m_pos - 1, b));
+    }
+
+    private int readArrayHeader() throws IOException {
+        int b = readByte();
+        if ((b & 0xf0) == 0x90)
+            return b & 0x0f;
+        if (b == 0xdc)
+            return readShort();
+        if (b == 0xdd)
+            return length(readInt());
+        throw new IOException(String.format("Expected array at %d, got 0x%02x", m_pos - 1, b));
+    }
+
+    /** Sets m_strStart and m_strLength and moves past the string. */
+    private void readString() throws IOException {
+        int b = readByte();
+        int n;
+        if ((b & 0xe0) == 0xa0)
+            n = b & 0x1f;
+        else if (b == 0xd9)
+            n = readByte();
+        else if (b == 0xda)
+            n = readShort();
+        else if (b == 0xdb)
+            n = length(readInt());
+        else
+            throw new IOException(String.format("Expected string at %d, got 0x%02x", m_pos - 1, b));
+        need(n);
+        m_strStart = m_pos;
+        m_strLength = n;
+        m_pos += n;
+    }
+
+    private double readDouble() throws IOException {
+        int b = peek();
+        if (b == 0xcb) {
+            m_pos++;
+            return Double.longBitsToDouble(readRawLong());
+        }
+        if (b == 0xca) {
+            m_pos++;
+            return Float.intBitsToFloat(readInt());
+        }
+        return readLong();
+    }
+
+    private long readLong() throws IOException {
+        int b = readByte();
+        if (b <= 0x7f) // positive fixint
+            return b;
+        if (b >= 0xe0) // negative fixint
+            return (byte) b;
+        switch (b) {
+            case 0xcc: // uint8
+                return readByte();
+            case 0xcd: // uint16
+                return readShort();
+            case 0xce: // uint32
+                return readInt() & 0xffffffffL;
+            case 0xcf: // uint64, we'll never see one big enough to wrap
+                return readRawLong();
+            case 0xd0: // int8
+                return (byte) readByte();
+            case 0xd1: // int16
+                return (short) readShort();
+            case 0xd2: // int32
+                return readInt();
+            case 0xd3: // int64
+                return readRawLong();
+            case 0xca: // float32
+                return (long) Float.intBitsToFloat(readInt());
+            case 0xcb: // float64
+                return (long) Double.longBitsToDouble(readRawLong());
+            default:
+                throw new IOException(String.format("Expected number at %d, got 0x%02x", m_pos - 1, b));
+        }
+    }
+
+    /** Skip one value of any type. */
+    private void skip() throws IOException {
+        skip(0);
+    }
+
+    private void skip(int depth) throws IOException {
+        int b = readByte();
+        if (b <= 0x7f || b >= 0xe0) // fixint
+            return;
+        if ((b & 0xf0) == 0x80) { // fixmap
+            skipValues(2 * (b & 0x0f), depth);
+            return;
+        }
+        if ((b & 0xf0) == 0x90) { // fixarray
+            skipValues(b & 0x0f, depth);
+            return;
+        }
+        if ((b & 0xe0) == 0xa0) { // fixstr
+            skipBytes(b & 0x1f);
+            return;
+        }
+        switch (b) {
+            case 0xc0: // nil
+            case 0xc2: // false
+            case 0xc3: // true
+                return;
+            case 0xcc:
+            case 0xd0:
+                skipBytes(1);
+                return;
+            case 0xcd:
+            case 0xd1:
+                skipBytes(2);
+                return;
+            case 0xca:
+            case 0xce:
+            case 0xd2:
+                skipBytes(4);
+                return;
+            case 0xcb:
+            case 0xcf:
+            case 0xd3:
+                skipBytes(8);
+                return;
+            case 0xc4: // bin8
+            case 0xd9: // str8
+                skipBytes(readByte());
+                return;
+            case 0xc5: // bin16
+            case 0xda: // str16
+                skipBytes(readShort());
+                return;
+            case 0xc6: // bin32
+            case 0xdb: // str32
+                skipBytes(length(readInt()));
+                return;
+            case 0xd4: // fixext
+                skipBytes(2);
+                return;
+            case 0xd5:
+                skipBytes(3);
+                return;
+            case 0xd6:
+                skipBytes(5);
+                return;
+            case 0xd7:
+                skipBytes(9);
+                return;
+            case 0xd8:
+                skipBytes(17);
+                return;
+            case 0xc7: // ext8
+                skipBytes(readByte() + 1);
+                return;
+            case 0xc8: // ext16
+                skipBytes(readShort() + 1);
+                return;
+            case 0xc9: // ext32
+                skipBytes(length(readInt()) + 1);
+                return;
+            case 0xdc:
+                skipValues(readShort(), depth);
+                return;
+            case 0xdd:
+                skipValues(length(readInt()), depth);
+                return;
+            case 0xde:
+                skipValues(2 * readShort(), depth);
+                return;
+            case 0xdf:
+                skipValues(2 * length(readInt()), depth);
+                return;
+            default:
+                throw new IOException(String.format("Unknown type at %d: 0x%02x", m_pos - 1, b));
+        }
+    }
+
+    /** Skip the n values in a container at the given depth. */
+    private void skipValues(int n, int depth) throws IOException {
+        nest(depth);
+        for (int i = 0; i < n; ++i) {
+            skip(depth + 1);
+        }
+    }
+
+    private void skipBytes(int n) throws IOException {
+        need(n);
+        m_pos += n;
+    }
+
+    /** 32-bit lengths are unsigned; anything that big is garbage anyway. */
+    private int length(int n) throws IOException {
+        if (n < 0 || n > m_end - m_pos)
+            throw new IOException("Bad length at " + m_pos + ": " + (n & 0xffffffffL));
+        return n;
+    }
+}
@@ -2,16 +2,15 @@ package org.team100.lib.localization;
 
 import java.io.IOException;
 
-import org.msgpack.jackson.dataformat.MessagePackFactory;
-
-import com.fasterxml.jackson.core.exc.StreamReadException;
-import com.fasterxml.jackson.databind.DatabindException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 public class BlipSerializer {
-    public static Blips deserialize(byte[] payload) throws StreamReadException, DatabindException, IOException {
-        ObjectMapper object_mapper = new ObjectMapper(new MessagePackFactory());
-        return object_mapper.readValue(payload, Blips.class);
+    /**
+     * Decode a payload into a new Blips. This allocates; in the loop, keep a
+     * BlipDecoder and a Blips and reuse them.
+     */
+    public static Blips deserialize(byte[] payload) throws IOException {
+        Blips blips = new Blips();
+        new BlipDecoder().decode(payload, blips);
+        return blips;
     }
 
 }
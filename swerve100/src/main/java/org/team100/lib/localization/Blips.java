@@ -4,26 +4,82 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * The entire payload from the camera. This is 1:1 copy of the representation in
- * the AprilTag library and our python wrapper.
+ * The entire payload from the camera. This is the same information as the
+ * representation in the AprilTag library and our python wrapper.
+ * 
+ * A Blips is meant to be reused: clear() keeps the Blip objects in a spare
+ * list, and addTag() takes them back out, so decoding into the same Blips
+ * every frame doesn't allocate once the pool is big enough for the most tags
+ * we've seen at once.
  */
 public class Blips {
     /**
      * Elapsed time of the analysis in python.
      */
-    public final double et;
+    public double et;
+
+    /**
+     * When the frame was captured, in seconds on the camera's clock. Zero if the
+     * camera doesn't say.
+     */
+    public double capture;
+
+    /**
+     * The most recent robot timestamp the camera had seen, echoed back, in FPGA
+     * seconds. Zero if the camera hasn't seen one.
+     */
+    public double echo;
+
+    /** When the camera received the echoed timestamp, on the camera's clock. */
+    public double echoReceived;
+
+    /** When the camera sent this payload, on the camera's clock. */
+    public double sent;
 
     /**
      * The set of targets seen by the camera.
      */
     public final List<Blip> tags;
 
+    private final List<Blip> m_spare;
+
     /**
-     * For the deserializer.
+     * For the decoder, and for testing.
      */
     protected Blips() {
         et = 0;
         tags = new ArrayList<Blip>();
+        m_spare = new ArrayList<Blip>();
+    }
+
+    /** Empty this, keeping the tags for reuse. */
+    void clear() {
+        et = 0;
+        capture = 0;
+        echo = 0;
+        echoReceived = 0;
+        sent = 0;
+        // backwards, so addTag() hands them out in the same order next time
+        for (int i = tags.size() - 1; i >= 0; --i) {
+            m_spare.add(tags.get(i));
+        }
+        tags.clear();
+    }
+
+    /**
+     * Add a tag, reusing a spare one if there is one. Either way it's blank, so
+     * nothing leaks in from an earlier frame.
+     */
+    Blip addTag() {
+        Blip blip;
+        if (m_spare.isEmpty()) {
+            blip = new Blip();
+        } else {
+            blip = m_spare.remove(m_spare.size() - 1);
+            blip.clear();
+        }
+        tags.add(blip);
+        return blip;
     }
 
     @Override
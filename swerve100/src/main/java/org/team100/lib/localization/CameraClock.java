@@ -0,0 +1,96 @@
+package org.team100.lib.localization;
+
+/**
+ * Estimates the offset between one camera's clock and the robot's FPGA clock,
+ * so capture times reported by the camera can be used directly.
+ *
+ * The robot publishes its FPGA time; the camera echoes the latest one it saw
+ * in each payload, along with when it got it and when it sent the payload.
+ * With the time the robot received the payload, that's the four timestamps of
+ * the NTP exchange:
+ *
+ * <pre>
+ * t1 robot sent the timestamp (robot clock)
+ * t2 camera received it       (camera clock, when it arrived, not the NT
+ *                               stamp, which is t1 moved to the camera clock)
+ * t3 camera sent the payload  (camera clock)
+ * t4 robot received payload   (robot clock)
+ *
+ * delay  = (t4 - t1) - (t3 - t2)
+ * offset = ((t2 - t1) + (t3 - t4)) / 2   (camera minus robot)
+ * </pre>
+ *
+ * The offset is exact if the delay is the same both ways, and off by up to
+ * half the delay otherwise, so, like NTP, we keep a window of recent samples
+ * and believe the one with the least delay.
+ *
+ * Not threadsafe; the vision solver thread owns these.
+ */
+public class CameraClock {
+    /** A few seconds of samples at camera rate, the window for the minimum. */
+    private static final int kWindow = 64;
+    /** Anything slower than this isn't worth using. */
+    private static final double kMaxDelaySec = 0.5;
+
+    private final double[] m_offset = new double[kWindow];
+    private final double[] m_delay = new double[kWindow];
+    private int m_count;
+    private int m_next;
+    // of the best sample in the window
+    private int m_best;
+
+    /**
+     * Add a sample.
+     *
+     * @return false if the sample was rejected, e.g. for negative or excessive
+     *         delay.
+     */
+    public boolean update(double t1, double t2, double t3, double t4) {
+        double delay = (t4 - t1) - (t3 - t2);
+        if (!Double.isFinite(delay) || delay < 0 || delay > kMaxDelaySec)
+            return false;
+        double offset = ((t2 - t1) + (t3 - t4)) / 2;
+        int slot = m_next;
+        boolean replacingBest = m_count > 0 && slot == m_best;
+        m_offset[slot] = offset;
+        m_delay[slot] = delay;
+        m_next = (m_next + 1) % kWindow;
+        if (m_count < kWindow)
+            m_count++;
+        if (replacingBest) {
+            // the best one just fell out of the window, so look again.
+            findBest();
+        } else if (m_count == 1 || delay <= m_delay[m_best]) {
+            m_best = slot;
+        }
+        return true;
+    }
+
+    /** True once there's a sample. */
+    public boolean valid() {
+        return m_count > 0;
+    }
+
+    /** Camera clock minus robot clock, in seconds. */
+    public double offsetSec() {
+        return m_offset[m_best];
+    }
+
+    /** Round-trip transport delay of the best sample, in seconds. */
+    public double delaySec() {
+        return m_delay[m_best];
+    }
+
+    /** Convert a time on the camera clock to the robot clock. */
+    public double toRobotTime(double cameraTimeSec) {
+        return cameraTimeSec - offsetSec();
+    }
+
+    private void findBest() {
+        m_best = 0;
+        for (int i = 1; i < m_count; ++i) {
+            if (m_delay[i] < m_delay[m_best])
+                m_best = i;
+        }
+    }
+}
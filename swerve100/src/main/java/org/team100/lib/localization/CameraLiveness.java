@@ -0,0 +1,84 @@
+package org.team100.lib.localization;
+
+import org.team100.lib.config.Camera;
+
+/**
+ * Tracks which cameras are talking to us: the last time each one sent a frame,
+ * and its frame rate, in fixed arrays indexed by Camera, so neither updating
+ * nor asking makes garbage. Unrecognized cameras count as Camera.UNKNOWN.
+ *
+ * VisionDataProvider feeds this from the NT listener thread, and the robot loop
+ * asks, so the methods are synchronized; they're all tiny.
+ *
+ * Times are FPGA seconds.
+ */
+public class CameraLiveness {
+    /** A camera that's been quiet this long is dead. Cameras run at 10-30 fps. */
+    static final double kTimeoutSec = 0.5;
+    /** Weight of each new frame interval in the average. */
+    private static final double kAlpha = 0.1;
+
+    private final double[] m_lastSeenSec = new double[Camera.values().length];
+    /** Smoothed interval between frames, zero until the second frame. */
+    private final double[] m_periodSec = new double[Camera.values().length];
+
+    public CameraLiveness() {
+        for (int i = 0; i < m_lastSeenSec.length; ++i) {
+            m_lastSeenSec[i] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /** Record a frame from the camera. */
+    public synchronized void seen(Camera camera, double nowSec) {
+        int i = camera.ordinal();
+        double last = m_lastSeenSec[i];
+        if (nowSec <= last)
+            return;
+        if (Double.isFinite(last)) {
+            double interval = nowSec - last;
+            if (interval > kTimeoutSec) {
+                // it went away and came back, so start over.
+                m_periodSec[i] = 0;
+            } else if (m_periodSec[i] == 0) {
+                m_periodSec[i] = interval;
+            } else {
+                m_periodSec[i] += kAlpha * (interval - m_periodSec[i]);
+            }
+        }
+        m_lastSeenSec[i] = nowSec;
+    }
+
+    /** The camera sent a frame recently. */
+    public synchronized boolean alive(Camera camera, double nowSec) {
+        return nowSec - m_lastSeenSec[camera.ordinal()] < kTimeoutSec;
+    }
+
+    /** How many cameras sent a frame recently. */
+    public synchronized int aliveCount(double nowSec) {
+        int count = 0;
+        for (double lastSeenSec : m_lastSeenSec) {
+            if (nowSec - lastSeenSec < kTimeoutSec)
+                ++count;
+        }
+        return count;
+    }
+
+    /** Smoothed frames per second, or zero if the camera is dead or just started. */
+    public synchronized double rateHz(Camera camera, double nowSec) {
+        int i = camera.ordinal();
+        if (!(nowSec - m_lastSeenSec[i] < kTimeoutSec) || m_periodSec[i] == 0)
+            return 0;
+        return 1 / m_periodSec[i];
+    }
+
+    /**
+     * For publishing: the alive count, then the rate of each camera, in Camera
+     * order. The array should be one longer than Camera.values().
+     */
+    public synchronized void summarize(double nowSec, double[] summary) {
+        summary[0] = aliveCount(nowSec);
+        for (Camera camera : Camera.values()) {
+            summary[camera.ordinal() + 1] = rateHz(camera, nowSec);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.team100.lib.localization;
+
+/**
+ * The robot position solved from all the tags in one frame together, with its
+ * covariance, see PoseEstimationHelper.solveRobotTranslation().
+ *
+ * This is meant to be reused for every frame, so it also holds the per-tag
+ * scratch space for the solver, which grows to fit the most tags seen at once.
+ */
+public class FrameEstimate {
+    /** Robot position in field coordinates, meters. */
+    public double x;
+    public double y;
+    /** Covariance of the position, square meters. */
+    public double cxx;
+    public double cxy;
+    public double cyy;
+    /**
+     * Information-weighted sum of the squared distances of the tags from the
+     * solution, i.e. chi-square with 2(tags - 1) degrees of freedom if the noise
+     * model is right. Zero for one tag.
+     */
+    public double residual;
+    /** The number of tags used; zero if nothing could be solved. */
+    public int tags;
+    /** The closest tag in the layout, or null. */
+    public Blip closest;
+
+    // per-tag estimates and information matrices, for the solver
+    double[] m_x = new double[0];
+    double[] m_y = new double[0];
+    double[] m_ixx = new double[0];
+    double[] m_ixy = new double[0];
+    double[] m_iyy = new double[0];
+    boolean[] m_used = new boolean[0];
+
+    /** Make sure there's room for n tags. */
+    void reserve(int n) {
+        if (m_x.length >= n)
+            return;
+        m_x = new double[n];
+        m_y = new double[n];
+        m_ixx = new double[n];
+        m_ixy = new double[n];
+        m_iyy = new double[n];
+        m_used = new boolean[n];
+    }
+
+    void clear() {
+        x = 0;
+        y = 0;
+        cxx = 0;
+        cxy = 0;
+        cyy = 0;
+        residual = 0;
+        tags = 0;
+        closest = null;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameEstimate [x=" + x + ", y=" + y + ", cxx=" + cxx + ", cxy=" + cxy + ", cyy=" + cyy
+                + ", residual=" + residual + ", tags=" + tags + "]";
+    }
+}
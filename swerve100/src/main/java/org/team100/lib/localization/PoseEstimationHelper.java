@@ -1,5 +1,7 @@
 package org.team100.lib.localization;
 
+import java.util.Optional;
+
 import org.opencv.calib3d.Calib3d;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
@@ -16,6 +18,182 @@ import edu.wpi.first.math.numbers.N3;
  * Static methods used to interpret camera input.
  */
 public class PoseEstimationHelper {
+    /**
+     * Range noise grows with the square of the distance: this is the standard
+     * deviation at one meter. Tuning guess.
+     */
+    static final double kRangeStdDevPerMeter2 = 0.01;
+    /**
+     * Lateral (bearing) noise grows with the distance: this is the standard
+     * deviation at one meter. Tuning guess.
+     */
+    static final double kLateralStdDevPerMeter = 0.005;
+    /** So a very close tag isn't treated as perfect. */
+    static final double kMinStdDev = 0.005;
+    /**
+     * Squared Mahalanobis distance beyond which a tag disagrees with the others
+     * (99% for two degrees of freedom).
+     */
+    static final double kOutlierGate = 9.21;
+    /**
+     * 99% chi-square values for 2, 4, 6 and 8 degrees of freedom, i.e. the most
+     * residual that 2, 3, 4 and 5 (or more) tags can have and still agree.
+     */
+    private static final double[] kAgreementGate = { 9.21, 13.28, 16.81, 20.09 };
+
+    /**
+     * Solve for the robot position using all the tags in the frame together.
+     * 
+     * Each tag yields an estimate of the robot position, using the same method as
+     * getRobotPoseInFieldCoords() (i.e. using the camera rotation for close tags
+     * and the gyro for far ones). AprilTag ranging is much worse along the line of
+     * sight than across it, and worse with distance, so each estimate gets a
+     * covariance stretched along the bearing to the tag; the result is the
+     * weighted least-squares combination, i.e. each estimate is weighted by its
+     * information matrix. Two tags at different bearings therefore pin each
+     * other's range error, which averaging wouldn't do.
+     * 
+     * With three or more tags, the one that disagrees most with the solution is
+     * dropped if it's outside the gate, and the rest are solved again. With two,
+     * there's no telling which one is wrong, so use tagsAgree() to decide whether
+     * to believe the frame at all.
+     * 
+     * @param result filled in; reuse it to avoid allocation.
+     * @return the number of tags used, which is zero if none are in the layout.
+     */
+    public static int solveRobotTranslation(
+            Transform3d cameraInRobotCoords,
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            Blips blips,
+            Rotation3d robotRotationInFieldCoordsFromGyro,
+            double thresholdMeters,
+            FrameEstimate result) {
+        result.clear();
+        int n = blips.tags.size();
+        result.reserve(n);
+        double closestRange = Double.MAX_VALUE;
+        for (int i = 0; i < n; ++i) {
+            Blip blip = blips.tags.get(i);
+            result.m_used[i] = false;
+            Optional<Pose3d> tagInFieldCoords = layout.getTagPose(blip.id);
+            if (!tagInFieldCoords.isPresent())
+                continue;
+            Pose3d robotPose = getRobotPoseInFieldCoords(
+                    cameraInRobotCoords,
+                    tagInFieldCoords.get(),
+                    blip,
+                    robotRotationInFieldCoordsFromGyro,
+                    thresholdMeters);
+            double x = robotPose.getX();
+            double y = robotPose.getY();
+            double range = blipToTranslation(blip).getNorm();
+            double sr = Math.max(kMinStdDev, kRangeStdDevPerMeter2 * range * range);
+            double sl = Math.max(kMinStdDev, kLateralStdDevPerMeter * range);
+            // unit vector along the line of sight, in the field frame
+            double dx = tagInFieldCoords.get().getX() - x;
+            double dy = tagInFieldCoords.get().getY() - y;
+            double norm = Math.hypot(dx, dy);
+            double ux = norm > 1e-9 ? dx / norm : 1;
+            double uy = norm > 1e-9 ? dy / norm : 0;
+            // information is (1/sr^2) u u^T + (1/sl^2) v v^T, v perpendicular to u
+            double ir = 1 / (sr * sr);
+            double il = 1 / (sl * sl);
+            result.m_x[i] = x;
+            result.m_y[i] = y;
+            result.m_ixx[i] = ir * ux * ux + il * uy * uy;
+            result.m_ixy[i] = (ir - il) * ux * uy;
+            result.m_iyy[i] = ir * uy * uy + il * ux * ux;
+            result.m_used[i] = true;
+            if (range < closestRange) {
+                closestRange = range;
+                result.closest = blip;
+            }
+        }
+        if (!combine(result, n))
+            return 0;
+        if (result.tags >= 3) {
+            int worst = -1;
+            double worstDistance = kOutlierGate;
+            for (int i = 0; i < n; ++i) {
+                if (!result.m_used[i])
+                    continue;
+                double rx = result.m_x[i] - result.x;
+                double ry = result.m_y[i] - result.y;
+                double d2 = rx * rx * result.m_ixx[i]
+                        + 2 * rx * ry * result.m_ixy[i]
+                        + ry * ry * result.m_iyy[i];
+                if (d2 > worstDistance) {
+                    worstDistance = d2;
+                    worst = i;
+                }
+            }
+            if (worst >= 0) {
+                result.m_used[worst] = false;
+                combine(result, n);
+            }
+        }
+        return result.tags;
+    }
+
+    /**
+     * True if the frame has several tags and they agree with each other, i.e.
+     * the residual is within the 99% gate for its degrees of freedom. For two
+     * tags, this is the test of their difference against the sum of their
+     * covariances.
+     */
+    public static boolean tagsAgree(FrameEstimate estimate) {
+        if (estimate.tags < 2)
+            return false;
+        int i = Math.min(estimate.tags - 2, kAgreementGate.length - 1);
+        return estimate.residual <= kAgreementGate[i];
+    }
+
+    /**
+     * Information-weighted combination of the used estimates, and its residual.
+     * 
+     * @return false if there's nothing to combine.
+     */
+    private static boolean combine(FrameEstimate result, int n) {
+        double ixx = 0;
+        double ixy = 0;
+        double iyy = 0;
+        double bx = 0;
+        double by = 0;
+        int tags = 0;
+        for (int i = 0; i < n; ++i) {
+            if (!result.m_used[i])
+                continue;
+            ixx += result.m_ixx[i];
+            ixy += result.m_ixy[i];
+            iyy += result.m_iyy[i];
+            bx += result.m_ixx[i] * result.m_x[i] + result.m_ixy[i] * result.m_y[i];
+            by += result.m_ixy[i] * result.m_x[i] + result.m_iyy[i] * result.m_y[i];
+            tags++;
+        }
+        double det = ixx * iyy - ixy * ixy;
+        if (tags == 0 || det <= 0) {
+            result.tags = 0;
+            return false;
+        }
+        result.cxx = iyy / det;
+        result.cxy = -ixy / det;
+        result.cyy = ixx / det;
+        result.x = result.cxx * bx + result.cxy * by;
+        result.y = result.cxy * bx + result.cyy * by;
+        result.tags = tags;
+        double residual = 0;
+        for (int i = 0; i < n; ++i) {
+            if (!result.m_used[i])
+                continue;
+            double rx = result.m_x[i] - result.x;
+            double ry = result.m_y[i] - result.y;
+            residual += rx * rx * result.m_ixx[i]
+                    + 2 * rx * ry * result.m_ixy[i]
+                    + ry * ry * result.m_iyy[i];
+        }
+        result.residual = residual;
+        return true;
+    }
 
     /**
      * Calculate robot pose.
@@ -143,7 +321,7 @@ public class PoseEstimationHelper {
      * Package-private for testing.
      */
     static Translation3d blipToTranslation(Blip b) {
-        return new Translation3d(b.pose_t[2][0], -1.0 * b.pose_t[0][0], -1.0 * b.pose_t[1][0]);
+        return new Translation3d(b.pose_t[2], -1.0 * b.pose_t[0], -1.0 * b.pose_t[1]);
     }
 
     /**
@@ -153,17 +331,17 @@ public class PoseEstimationHelper {
      */
     static Rotation3d blipToRotation(Blip b) {
         Mat rmat = new Mat(3, 3, CvType.CV_64F);
-        rmat.put(0, 0, b.pose_R[2][2]);
-        rmat.put(0, 1, -b.pose_R[2][0]);
-        rmat.put(0, 2, -b.pose_R[2][1]);
+        rmat.put(0, 0, b.pose_R[8]);
+        rmat.put(0, 1, -b.pose_R[6]);
+        rmat.put(0, 2, -b.pose_R[7]);
 
-        rmat.put(1, 0, -b.pose_R[0][2]);
-        rmat.put(1, 1, b.pose_R[0][0]);
-        rmat.put(1, 2, b.pose_R[0][1]);
+        rmat.put(1, 0, -b.pose_R[2]);
+        rmat.put(1, 1, b.pose_R[0]);
+        rmat.put(1, 2, b.pose_R[1]);
 
-        rmat.put(2, 0, -b.pose_R[1][2]);
-        rmat.put(2, 1, b.pose_R[1][0]);
-        rmat.put(2, 2, b.pose_R[1][1]);
+        rmat.put(2, 0, -b.pose_R[5]);
+        rmat.put(2, 1, b.pose_R[3]);
+        rmat.put(2, 2, b.pose_R[4]);
 
         // convert it to axis-angle
         Mat rvec = new Mat(3, 1, CvType.CV_64F);
@@ -2,25 +2,29 @@ package org.team100.lib.localization;
 
 import java.io.IOException;
 import java.util.EnumSet;
-import java.util.Optional;
-import java.util.function.BiConsumer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-import org.msgpack.jackson.dataformat.MessagePackFactory;
 import org.team100.frc2023.config.Cameras2023;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.team100.lib.config.Camera;
+import org.team100.lib.storage.DropOldestQueue;
+import org.team100.lib.telemetry.GatedDoubleArrayPublisher;
+import org.team100.lib.telemetry.LoopTiming;
+import org.team100.lib.telemetry.StageTimer;
 
 import edu.wpi.first.cscore.CameraServerCvJNI;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Transform3d;
-import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTable.TableEventListener;
@@ -33,8 +37,41 @@ import edu.wpi.first.wpilibj2.command.Subsystem;
 
 /**
  * Extracts robot pose estimates from camera input.
+ * 
+ * The work is split into stages, so the NetworkTables listener thread never
+ * blocks and the robot loop never races the solver:
+ * 
+ * <ol>
+ * <li>The NT listener thread copies each payload into a frame, with its
+ * receive time, and puts it in the frame queue.
+ * <li>The solver thread decodes each frame and solves for the robot pose,
+ * putting the results in the measurement queue.
+ * <li>The drivetrain calls drain() once per cycle, which feeds all the waiting
+ * measurements to the pose estimator, in order, on the drivetrain's thread,
+ * i.e. the robot loop, or the drivetrain's fast loop if it has one.
+ * </ol>
+ * 
+ * Both queues are bounded and drop the oldest entry when full, since an old
+ * frame is worth less than a new one. The time each frame spends in each stage
+ * is recorded in LoopTiming.
+ * 
+ * Each measurement carries its own standard deviations, from the covariance of
+ * the frame's solution, so a frame full of close tags counts for more than one
+ * distant tag. The estimator only takes a diagonal, so the x-y correlation is
+ * dropped.
+ * 
+ * Measurements are stamped with the capture time of the frame. The robot
+ * publishes its FPGA time every cycle, the cameras echo it back, and a
+ * CameraClock per camera turns that into the offset between the camera's clock
+ * and ours. Cameras that don't do that get the old fixed latency guess.
+ * 
+ * The listener also notes the arrival of each frame in CameraLiveness, so
+ * anyone can ask which cameras are working without enumerating the table.
+ * 
+ * Nothing runs until start(), so no other thread sees this half-built, and
+ * close() stops the solver and the listener.
  */
-public class VisionDataProvider extends Subsystem implements TableEventListener {
+public class VisionDataProvider extends Subsystem implements TableEventListener, AutoCloseable {
     public static class Config {
         /**
          * If the tag is closer than this threshold, then the camera's estimate of tag
@@ -51,57 +88,279 @@ public class VisionDataProvider extends Subsystem implements TableEventListener
         public double kTagRotationBeliefThresholdMeters = 1;
     }
 
+    /** Usually the pose estimator's addVisionMeasurement. */
+    public interface EstimateConsumer {
+        void accept(Pose2d pose, double timestampSec, Matrix<N3, N1> stdDevs);
+    }
+
+    /** A payload from a camera, as received. */
+    private static class Frame {
+        private final String key;
+        private final byte[] payload;
+        private final double receivedSec;
+        private final long receivedNs;
+
+        private Frame(String key, byte[] payload, double receivedSec, long receivedNs) {
+            this.key = key;
+            this.payload = payload;
+            this.receivedSec = receivedSec;
+            this.receivedNs = receivedNs;
+        }
+    }
+
+    /** A solved pose, waiting for the drivetrain. */
+    private static class Measurement {
+        private final Pose2d pose;
+        private final double timestampSec;
+        private final Matrix<N3, N1> stdDevs;
+        private final long solvedNs;
+
+        private Measurement(Pose2d pose, double timestampSec, Matrix<N3, N1> stdDevs, long solvedNs) {
+            this.pose = pose;
+            this.timestampSec = timestampSec;
+            this.stdDevs = stdDevs;
+            this.solvedNs = solvedNs;
+        }
+    }
+
+    /** About a second of frames from all the cameras. */
+    private static final int kFrameQueueCapacity = 64;
+    /** A few cycles of measurements. */
+    private static final int kMeasurementQueueCapacity = 64;
+    /** The solver sleeps this long when there's nothing to do. */
+    private static final long kIdleParkNs = 5_000_000;
+    /** For cameras that don't report the capture time. */
+    private static final double kDefaultLatencySec = 0.075;
+    /** Capture times older than this are surely wrong. */
+    private static final double kMaxLatencySec = 1.0;
+    /**
+     * The rotation in each measurement is the gyro's, so this is just what the
+     * estimator had before (see RobotContainer).
+     */
+    private static final double kRotationStdDev = 0.4;
+    /** The liveness summary is for humans, who don't need it often. */
+    private static final double kLivenessRateHz = 5;
+
     private final Config m_config = new Config();
     private final Supplier<Pose2d> poseSupplier;
     private final DoublePublisher timestampPublisher;
-    private final ObjectMapper objectMapper;
-    private final SwerveDrivePoseEstimator poseEstimator;
+    private final CameraLiveness m_liveness;
+    private final GatedDoubleArrayPublisher m_livenessPublisher;
+    private final DropOldestQueue<Frame> m_frames;
+    private final DropOldestQueue<Measurement> m_measurements;
+    private final NetworkTable m_visionTable;
+    private final Thread m_solver;
+    private volatile boolean m_running;
+    // zero until start()
+    private int m_listener;
+    // the decoder and blips belong to the solver thread.
+    private final BlipDecoder m_decoder;
+    // reused for every payload
+    private final Blips m_blips;
+    // reused for every frame, also solver-only.
+    private final FrameEstimate m_estimate;
+    // by camera key, also solver-only.
+    private final Map<String, CameraClock> m_clocks;
     /** Discard results further than this from the previous one. */
     private final double kVisionChangeToleranceMeters = 0.1;
     private final AprilTagFieldLayoutWithCorrectOrientation layout;
+    // periodic(), on the robot loop
+    private final StageTimer m_timer = LoopTiming.stage("VisionDataProvider");
+    // receipt to start of solving
+    private final StageTimer m_queueTimer = LoopTiming.stage("vision queue");
+    // decoding and solving
+    private final StageTimer m_solveTimer = LoopTiming.stage("vision solve");
+    // end of solving to the drivetrain
+    private final StageTimer m_handoffTimer = LoopTiming.stage("vision handoff");
+    // capture to receipt, for the synchronized cameras
+    private final StageTimer m_captureTimer = LoopTiming.stage("vision capture");
+    // sampled by drain() on the drivetrain's thread, used by the solver.
+    private volatile Rotation2d m_gyroRotation;
     // for Sendable observation
-    private Rotation3d tagRotation;
+    private volatile Rotation3d tagRotation;
     // for Sendable observation
-    private Pose2d currentRobotinFieldCoords;
+    private volatile Pose2d currentRobotinFieldCoords;
     // for blip filtering
     private Pose2d lastRobotInFieldCoords;
 
+    /**
+     * @param poseSupplier is called only by drain(), on the drivetrain's thread;
+     *                     the solver uses the rotation from the most recent call.
+     */
     public VisionDataProvider(
             AprilTagFieldLayoutWithCorrectOrientation layout,
-            SwerveDrivePoseEstimator poseEstimator,
             Supplier<Pose2d> poseSupplier) throws IOException {
         // load the JNI (used by PoseEstimationHelper)
         CameraServerCvJNI.forceLoad();
         this.layout = layout;
-        this.poseEstimator = poseEstimator;
         this.poseSupplier = poseSupplier;
+        m_gyroRotation = poseSupplier.get().getRotation();
         tagRotation = new Rotation3d();
         currentRobotinFieldCoords = new Pose2d();
+        m_frames = new DropOldestQueue<>(kFrameQueueCapacity);
+        m_measurements = new DropOldestQueue<>(kMeasurementQueueCapacity);
 
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         inst.startServer("example server");
         NetworkTable example_table = inst.getTable("example_table");
         timestampPublisher = example_table.getDoubleTopic("timestamp").publish();
-        objectMapper = new ObjectMapper(new MessagePackFactory());
-        NetworkTable vision_table = inst.getTable("Vision");
-        // Listen to ALL the updates in the vision table. :-)
-        vision_table.addListener(EnumSet.of(NetworkTableEvent.Kind.kValueAll), this);
+        m_liveness = new CameraLiveness();
+        m_livenessPublisher = new GatedDoubleArrayPublisher(
+                example_table.getDoubleArrayTopic("camera liveness").publish(),
+                Camera.values().length + 1, 0.5, kLivenessRateHz);
+        m_decoder = new BlipDecoder();
+        m_blips = new Blips();
+        m_estimate = new FrameEstimate();
+        m_clocks = new HashMap<>();
+        m_solver = new Thread(this::solve, "Vision Solver");
+        m_solver.setDaemon(true);
+        m_visionTable = inst.getTable("Vision");
 
         SmartDashboard.putData("Vision Data Provider", this);
     }
 
+    /** Start the solver, and then start listening for frames. Call once. */
+    public void start() {
+        m_running = true;
+        m_solver.start();
+        // Listen to ALL the updates in the vision table. :-)
+        m_listener = m_visionTable.addListener(EnumSet.of(NetworkTableEvent.Kind.kValueAll), this);
+    }
+
+    /** Stop listening, and stop the solver. Frames still queued are dropped. */
+    @Override
+    public void close() {
+        if (m_listener != 0) {
+            NetworkTableInstance.getDefault().removeListener(m_listener);
+            m_listener = 0;
+        }
+        m_running = false;
+        LockSupport.unpark(m_solver);
+        try {
+            m_solver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publish our time for the cameras to echo, and the liveness summary: the
+     * number of live cameras followed by the frame rate of each one.
+     */
+    @Override
+    public void periodic() {
+        m_timer.start();
+        updateTimestamp();
+        m_liveness.summarize(Timer.getFPGATimestamp(), m_livenessPublisher.buffer());
+        m_livenessPublisher.publish();
+        m_timer.stop();
+    }
+
     /**
-     * Accept a NetworkTableEvent and convert it to a Blips object
+     * Accept a NetworkTableEvent and queue it for the solver. This runs on the
+     * listener thread, so it does as little as possible.
      * 
-     * @param event the event to acceptx
+     * @param event the event to accept
      */
     public void accept(NetworkTable table, String key, NetworkTableEvent event) {
-        try {
-            Blips blips = objectMapper.readValue(event.valueData.value.getRaw(), Blips.class);
-            estimateRobotPose(Cameras2023::cameraOffset, poseEstimator::addVisionMeasurement, key, blips);
-        } catch (IOException e) {
-            e.printStackTrace();
+        double nowSec = Timer.getFPGATimestamp();
+        m_liveness.seen(Camera.get(key), nowSec);
+        enqueue(key, event.valueData.value.getRaw(), nowSec);
+    }
+
+    /** Which cameras are sending frames. */
+    public CameraLiveness liveness() {
+        return m_liveness;
+    }
+
+    /**
+     * Pass all the measurements solved since the last call to the consumer,
+     * oldest first, and sample the robot rotation for the solver to use next.
+     * Call this once per cycle from the drivetrain's loop, so the pose estimator
+     * is only ever touched by that thread.
+     * 
+     * @param estimateConsumer usually the pose estimator's addVisionMeasurement.
+     * @return the number of measurements passed
+     */
+    public int drain(EstimateConsumer estimateConsumer) {
+        m_gyroRotation = poseSupplier.get().getRotation();
+        long nowNs = System.nanoTime();
+        int count = 0;
+        Measurement measurement;
+        while ((measurement = m_measurements.poll()) != null) {
+            m_handoffTimer.record(nowNs - measurement.solvedNs);
+            estimateConsumer.accept(measurement.pose, measurement.timestampSec, measurement.stdDevs);
+            count++;
+        }
+        return count;
+    }
+
+    /** Frames dropped because the solver fell behind. */
+    public long droppedFrames() {
+        return m_frames.dropped();
+    }
+
+    /** Measurements dropped because nobody drained them. */
+    public long droppedMeasurements() {
+        return m_measurements.dropped();
+    }
+
+    void enqueue(String key, byte[] payload, double receivedSec) {
+        m_frames.offer(new Frame(key, payload, receivedSec, System.nanoTime()));
+        LockSupport.unpark(m_solver);
+    }
+
+    /** The solver thread. */
+    private void solve() {
+        while (m_running) {
+            Frame frame = m_frames.poll();
+            if (frame == null) {
+                LockSupport.parkNanos(kIdleParkNs);
+                continue;
+            }
+            long startNs = System.nanoTime();
+            m_queueTimer.record(startNs - frame.receivedNs);
+            try {
+                m_decoder.decode(frame.payload, m_blips);
+                estimateRobotPose(
+                        Cameras2023::cameraOffset,
+                        this::handOff,
+                        frame.key,
+                        m_blips,
+                        captureTime(frame.key, m_blips, frame.receivedSec));
+            } catch (IOException | RuntimeException e) {
+                // one bad frame shouldn't kill the thread
+                e.printStackTrace();
+            }
+            m_solveTimer.record(System.nanoTime() - startNs);
+        }
+    }
+
+    private void handOff(Pose2d pose, double timestampSec, Matrix<N3, N1> stdDevs) {
+        m_measurements.offer(new Measurement(pose, timestampSec, stdDevs, System.nanoTime()));
+    }
+
+    /**
+     * The capture time of the frame in FPGA seconds, using the camera's clock if
+     * it's synchronized, otherwise the receive time less the default latency.
+     */
+    double captureTime(String key, Blips blips, double receivedSec) {
+        if (blips.echo <= 0 || blips.capture <= 0)
+            return receivedSec - kDefaultLatencySec;
+        CameraClock clock = m_clocks.get(key);
+        if (clock == null) {
+            clock = new CameraClock();
+            m_clocks.put(key, clock);
         }
+        clock.update(blips.echo, blips.echoReceived, blips.sent, receivedSec);
+        if (!clock.valid())
+            return receivedSec - kDefaultLatencySec;
+        double captureSec = clock.toRobotTime(blips.capture);
+        double latencySec = receivedSec - captureSec;
+        if (latencySec < 0 || latencySec > kMaxLatencySec)
+            return receivedSec - kDefaultLatencySec;
+        m_captureTimer.record((long) (latencySec * 1e9));
+        return captureSec;
     }
 
     /**
@@ -111,52 +370,70 @@ public class VisionDataProvider extends Subsystem implements TableEventListener
         timestampPublisher.set(Timer.getFPGATimestamp());
     }
 
+    /** As if the blips were received just now, with the default latency. */
+    void estimateRobotPose(
+            Function<String, Transform3d> cameraOffsets,
+            EstimateConsumer estimateConsumer,
+            String key,
+            Blips blips) {
+        estimateRobotPose(cameraOffsets, estimateConsumer, key, blips,
+                Timer.getFPGATimestamp() - kDefaultLatencySec);
+    }
+
     /**
      * @param estimateConsumer is the pose estimator but exposing it here makes it
      *                         easier to test.
      * @param key              the camera identity, obtained from proc/cpuinfo
      * @param blips            all the targets the camera sees right now
+     * @param captureSec       when the frame was captured, in FPGA seconds
      */
     void estimateRobotPose(
             Function<String, Transform3d> cameraOffsets,
-            BiConsumer<Pose2d, Double> estimateConsumer,
+            EstimateConsumer estimateConsumer,
             String key,
-            Blips blips) {
-        for (Blip blip : blips.tags) {
-            Optional<Pose3d> tagInFieldCordsOptional = layout.getTagPose(blip.id);
-            if (!tagInFieldCordsOptional.isPresent())
-                continue;
+            Blips blips,
+            double captureSec) {
+        Rotation2d gyroRotation = m_gyroRotation;
 
-            Rotation2d gyroRotation = poseSupplier.get().getRotation();
-
-            Transform3d cameraInRobotCoordinates = cameraOffsets.apply(key);
-
-            // Gyro only produces yaw so use zero roll and zero pitch
-            Rotation3d robotRotationInFieldCoordsFromGyro = new Rotation3d(
-                    0, 0, gyroRotation.getRadians());
-
-            Pose3d robotPoseInFieldCoords = PoseEstimationHelper.getRobotPoseInFieldCoords(
-                    cameraInRobotCoordinates,
-                    tagInFieldCordsOptional.get(),
-                    blip,
-                    robotRotationInFieldCoordsFromGyro,
-                    m_config.kTagRotationBeliefThresholdMeters);
-
-            Translation2d robotTranslationInFieldCoords = robotPoseInFieldCoords.getTranslation().toTranslation2d();
-            currentRobotinFieldCoords = new Pose2d(robotTranslationInFieldCoords, gyroRotation);
-
-            tagRotation = PoseEstimationHelper.blipToRotation(blip);
-            if (lastRobotInFieldCoords != null) {
-                Transform2d translationSinceLast = currentRobotinFieldCoords.minus(lastRobotInFieldCoords);
-                double xComponent = translationSinceLast.getX();
-                double yComponent = translationSinceLast.getY();
-                if (xComponent * xComponent + yComponent * yComponent <= kVisionChangeToleranceMeters
-                        * kVisionChangeToleranceMeters) {
-                    estimateConsumer.accept(currentRobotinFieldCoords, Timer.getFPGATimestamp() - .075);
-                }
-            }
-            lastRobotInFieldCoords = currentRobotinFieldCoords;
+        Transform3d cameraInRobotCoordinates = cameraOffsets.apply(key);
+
+        // Gyro only produces yaw so use zero roll and zero pitch
+        Rotation3d robotRotationInFieldCoordsFromGyro = new Rotation3d(
+                0, 0, gyroRotation.getRadians());
+
+        int tags = PoseEstimationHelper.solveRobotTranslation(
+                cameraInRobotCoordinates,
+                layout,
+                blips,
+                robotRotationInFieldCoordsFromGyro,
+                m_config.kTagRotationBeliefThresholdMeters,
+                m_estimate);
+        if (tags == 0)
+            return;
+
+        currentRobotinFieldCoords = new Pose2d(m_estimate.x, m_estimate.y, gyroRotation);
+        tagRotation = PoseEstimationHelper.blipToRotation(m_estimate.closest);
+
+        // Several tags that agree with each other are believable by themselves;
+        // several that don't are not believable at all; a single tag has to agree
+        // with the previous frame.
+        boolean accept = PoseEstimationHelper.tagsAgree(m_estimate);
+        if (tags >= 2 && !accept)
+            return;
+        if (!accept && lastRobotInFieldCoords != null) {
+            Transform2d translationSinceLast = currentRobotinFieldCoords.minus(lastRobotInFieldCoords);
+            double xComponent = translationSinceLast.getX();
+            double yComponent = translationSinceLast.getY();
+            accept = xComponent * xComponent + yComponent * yComponent <= kVisionChangeToleranceMeters
+                    * kVisionChangeToleranceMeters;
+        }
+        if (accept) {
+            estimateConsumer.accept(currentRobotinFieldCoords, captureSec, VecBuilder.fill(
+                    Math.sqrt(m_estimate.cxx),
+                    Math.sqrt(m_estimate.cyy),
+                    kRotationStdDev));
         }
+        lastRobotInFieldCoords = currentRobotinFieldCoords;
     }
 
     @Override
@@ -0,0 +1,85 @@
+package org.team100.lib.loop;
+
+import org.team100.lib.telemetry.LoopTiming;
+import org.team100.lib.telemetry.StageTimer;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Threads;
+
+/**
+ * Runs one task faster than the 50 Hz robot loop, on its own Notifier thread,
+ * at real-time priority so the main loop and the garbage collector don't push
+ * it around.
+ *
+ * Unlike 254's Looper, there's no lock around the task: anything it shares
+ * with the main loop should go through a TripleBuffer.
+ *
+ * The time each tick takes is recorded in LoopTiming under the loop's name, and
+ * the jitter, i.e. the difference between the actual and nominal period, under
+ * "name jitter".
+ */
+public class FastLoop implements AutoCloseable {
+    /**
+     * Linux real-time priority, 1-99. The main robot thread isn't real-time, so
+     * anything wins; this stays well below the HAL and CAN threads we depend on.
+     */
+    private static final int kPriority = 15;
+
+    private final double m_periodSec;
+    private final long m_periodNs;
+    private final Runnable m_task;
+    private final Notifier m_notifier;
+    private final StageTimer m_timer;
+    private final StageTimer m_jitter;
+    // these belong to the notifier thread.
+    private boolean m_prioritySet;
+    private long m_lastNs;
+
+    /**
+     * @param name      for the thread and the timing stages
+     * @param periodSec e.g. 0.005 for 200 Hz
+     * @param task      runs every period, on the notifier thread
+     */
+    public FastLoop(String name, double periodSec, Runnable task) {
+        m_periodSec = periodSec;
+        m_periodNs = (long) (periodSec * 1e9);
+        m_task = task;
+        m_timer = LoopTiming.stage(name);
+        m_jitter = LoopTiming.stage(name + " jitter");
+        m_notifier = new Notifier(this::tick);
+        m_notifier.setName(name);
+    }
+
+    public double getPeriodSec() {
+        return m_periodSec;
+    }
+
+    public void start() {
+        m_notifier.startPeriodic(m_periodSec);
+    }
+
+    @Override
+    public void close() {
+        m_notifier.close();
+    }
+
+    private void tick() {
+        if (!m_prioritySet) {
+            // the notifier thread is only accessible from inside.
+            Threads.setCurrentThreadPriority(true, kPriority);
+            m_prioritySet = true;
+        }
+        long startNs = System.nanoTime();
+        if (m_lastNs != 0) {
+            m_jitter.record(Math.abs(startNs - m_lastNs - m_periodNs));
+        }
+        m_lastNs = startNs;
+        try {
+            m_task.run();
+        } catch (RuntimeException e) {
+            // one bad tick shouldn't kill the thread
+            e.printStackTrace();
+        }
+        m_timer.record(System.nanoTime() - startNs);
+    }
+}
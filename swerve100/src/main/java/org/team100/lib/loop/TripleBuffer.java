@@ -0,0 +1,70 @@
+package org.team100.lib.loop;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands the latest value of something from one thread to another, without
+ * locks and without garbage, e.g. setpoints from the 50 Hz loop to the fast
+ * loop, or sensor readings back.
+ *
+ * It's double buffering with a spare: the writer fills the back slot and
+ * publishes it by swapping it with the middle one, and the reader takes the
+ * middle one by swapping it with the front. Each side owns its slot outright
+ * between swaps, so neither ever waits for, or tears, the other, and the
+ * swaps are single atomic operations.
+ *
+ * There must be one writer thread and one reader thread. The slots are
+ * recycled, so the back slot holds whatever was there three publications ago:
+ * the writer has to fill in all of it every time.
+ *
+ * <pre>
+ * // writer
+ * Thing back = m_buffer.back();
+ * back.x = x;
+ * m_buffer.publish();
+ *
+ * // reader
+ * Thing front = m_buffer.latest();
+ * </pre>
+ */
+public class TripleBuffer<T> {
+    /** Marks the middle slot as newer than the front one. */
+    private static final int kFresh = 4;
+
+    private final T[] m_slots;
+    // owned by the writer
+    private int m_back = 0;
+    // owned by the reader
+    private int m_front = 1;
+    // index of the middle slot, maybe plus kFresh.
+    private final AtomicInteger m_middle = new AtomicInteger(2);
+
+    /** @param factory makes the three slots. */
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(Supplier<T> factory) {
+        m_slots = (T[]) new Object[] { factory.get(), factory.get(), factory.get() };
+    }
+
+    /** For the writer: the slot to fill before calling publish(). */
+    public T back() {
+        return m_slots[m_back];
+    }
+
+    /** For the writer: make the back slot the latest, and get a new back slot. */
+    public void publish() {
+        m_back = m_middle.getAndSet(m_back | kFresh) & ~kFresh;
+    }
+
+    /**
+     * For the reader: the most recently published slot, which stays put until
+     * the next call. If nothing new has been published, it's the same one as
+     * last time.
+     */
+    public T latest() {
+        if ((m_middle.get() & kFresh) != 0) {
+            m_front = m_middle.getAndSet(m_front) & ~kFresh;
+        }
+        return m_slots[m_front];
+    }
+}
@@ -31,6 +31,13 @@ public class AngularRandomVector<States extends Num> extends RandomVector<States
         return x;
     }
 
+    @Override
+    public RandomVector<States> setPlusScaled(RandomVector<States> a, double s, RandomVector<States> b) {
+        super.setPlusScaled(a, s, b);
+        x.set(0, 0, MathUtil.angleModulus(x.get(0, 0)));
+        return this;
+    }
+
     @Override
     public Matrix<States, N1> xplus(Matrix<States, N1> otherx) {
         Matrix<States, N1> x = super.xplus(otherx);
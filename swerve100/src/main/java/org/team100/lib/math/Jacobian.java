@@ -22,13 +22,16 @@ public class Jacobian {
             RandomVector<States> x,
             Matrix<Inputs, N1> u) {
         Matrix<Rows, States> result = new Matrix<>(rows, states);
+        // perturb one copy in place rather than making two copies per state.
+        RandomVector<States> dx = x.copy();
         for (int i = 0; i < states.getNum(); i++) {
-            RandomVector<States> dxPlus = x.copy();
-            RandomVector<States> dxMinus = x.copy();
-            dxPlus.x.set(i, 0, dxPlus.x.get(i, 0) + kEpsilon);
-            dxMinus.x.set(i, 0, dxMinus.x.get(i, 0) - kEpsilon);
-            var dF = f.apply(dxPlus, u).x.minus(f.apply(dxMinus, u).x).div(2 * kEpsilon);
-            result.setColumn(i, Matrix.changeBoundsUnchecked(dF));
+            double xi = dx.x.get(i, 0);
+            dx.x.set(i, 0, xi + kEpsilon);
+            // f may return storage shared with dx, so use the result right away.
+            setColumn(result, i, f.apply(dx, u).x);
+            dx.x.set(i, 0, xi - kEpsilon);
+            subtractColumnAndScale(result, i, f.apply(dx, u).x, 2 * kEpsilon);
+            dx.x.set(i, 0, xi);
         }
         return result;
     }
@@ -40,15 +43,30 @@ public class Jacobian {
             RandomVector<States> x,
             Matrix<Inputs, N1> u) {
         Matrix<Rows, Inputs> result = new Matrix<>(rows, inputs);
+        Matrix<Inputs, N1> du = u.copy();
         for (int i = 0; i < inputs.getNum(); i++) {
-            Matrix<Inputs, N1> duPlus = u.copy();
-            Matrix<Inputs, N1> duMinus = u.copy();
-            duPlus.set(i, 0, duPlus.get(i, 0) + kEpsilon);
-            duMinus.set(i, 0, duMinus.get(i, 0) - kEpsilon);
-            Matrix<States, N1> dF = f.apply(x, duPlus).x.minus(f.apply(x, duMinus).x).div(2 * kEpsilon);
-            result.setColumn(i, Matrix.changeBoundsUnchecked(dF));
+            double ui = du.get(i, 0);
+            du.set(i, 0, ui + kEpsilon);
+            setColumn(result, i, f.apply(x, du).x);
+            du.set(i, 0, ui - kEpsilon);
+            subtractColumnAndScale(result, i, f.apply(x, du).x, 2 * kEpsilon);
+            du.set(i, 0, ui);
         }
         return result;
     }
 
+    /** result[:, col] = v */
+    private static void setColumn(Matrix<?, ?> result, int col, Matrix<?, N1> v) {
+        for (int row = 0; row < result.getNumRows(); ++row) {
+            result.set(row, col, v.get(row, 0));
+        }
+    }
+
+    /** result[:, col] = (result[:, col] - v) / d */
+    private static void subtractColumnAndScale(Matrix<?, ?> result, int col, Matrix<?, N1> v, double d) {
+        for (int row = 0; row < result.getNumRows(); ++row) {
+            result.set(row, col, (result.get(row, col) - v.get(row, 0)) / d);
+        }
+    }
+
 }
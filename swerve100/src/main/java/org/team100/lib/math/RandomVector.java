@@ -38,6 +38,27 @@ public class RandomVector<States extends Num> {
         return make(x.copy(), Kxx.copy());
     }
 
+    /**
+     * Overwrite this with a + s * b, in place, without allocating. As with
+     * times(), the scalar is squared before applying to the covariance:
+     * 
+     * x = a.x + s * b.x
+     * P = a.P + s^2 * b.P
+     * 
+     * This is element-wise, so a or b may share storage with this.
+     * 
+     * @return this
+     */
+    public RandomVector<States> setPlusScaled(RandomVector<States> a, double s, RandomVector<States> b) {
+        SmallMatrixKernel.axpy(
+                SmallMatrixKernel.data(x),
+                SmallMatrixKernel.data(a.x),
+                s,
+                SmallMatrixKernel.data(b.x));
+        Kxx.setPlusScaled(a.Kxx, s * s, b.Kxx);
+        return this;
+    }
+
     /**
      * Mean and covariance are simply added, which corresponds to assuming the
      * variables are independent. This is Euclidean.
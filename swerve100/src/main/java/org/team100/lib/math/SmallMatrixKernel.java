@@ -0,0 +1,165 @@
+package org.team100.lib.math;
+
+import edu.wpi.first.math.Matrix;
+
+/**
+ * Arithmetic for the small matrices we actually use (2 and 3 states, so 2x1,
+ * 3x1, 2x2 and 3x3), done in place on the row-major arrays underneath WPILib
+ * Matrix, with the 2 and 3 cases written out as scalars.
+ *
+ * The WPILib/EJML operations allocate a new SimpleMatrix (and its backing
+ * array) for every result, which adds up: one RK4 step used to make about 15
+ * of them. These methods write into caller-supplied arrays instead.
+ *
+ * Element-wise methods read element i of the inputs before writing element i
+ * of the output, so the output may be the same array as an input. The matrix
+ * products may not alias.
+ */
+public class SmallMatrixKernel {
+
+    /** True if the dimension has a written-out fast path. */
+    public static boolean isSmall(int n) {
+        return n == 2 || n == 3;
+    }
+
+    /** The row-major array backing the matrix; writes go straight through. */
+    public static double[] data(Matrix<?, ?> m) {
+        return m.getStorage().getDDRM().getData();
+    }
+
+    /** y = a + s * b */
+    public static void axpy(double[] y, double[] a, double s, double[] b) {
+        switch (y.length) {
+            case 2:
+                y[0] = a[0] + s * b[0];
+                y[1] = a[1] + s * b[1];
+                return;
+            case 3:
+                y[0] = a[0] + s * b[0];
+                y[1] = a[1] + s * b[1];
+                y[2] = a[2] + s * b[2];
+                return;
+            case 4:
+                y[0] = a[0] + s * b[0];
+                y[1] = a[1] + s * b[1];
+                y[2] = a[2] + s * b[2];
+                y[3] = a[3] + s * b[3];
+                return;
+            default:
+                for (int i = 0; i < y.length; ++i) {
+                    y[i] = a[i] + s * b[i];
+                }
+        }
+    }
+
+    /** Determinant of the n x n matrix a; n must be 1, 2, or 3. */
+    public static double det(double[] a, int n) {
+        switch (n) {
+            case 1:
+                return a[0];
+            case 2:
+                return a[0] * a[3] - a[1] * a[2];
+            case 3:
+                return a[0] * (a[4] * a[8] - a[5] * a[7])
+                        - a[1] * (a[3] * a[8] - a[5] * a[6])
+                        + a[2] * (a[3] * a[7] - a[4] * a[6]);
+            default:
+                throw new IllegalArgumentException("No closed-form determinant for " + n);
+        }
+    }
+
+    /**
+     * out = inverse of the n x n matrix a, using the adjugate; n must be 1, 2, or
+     * 3. Check the determinant yourself first, this doesn't.
+     */
+    public static void invert(double[] a, double[] out, int n) {
+        double d = det(a, n);
+        switch (n) {
+            case 1:
+                out[0] = 1 / d;
+                return;
+            case 2: {
+                double a0 = a[0];
+                double a1 = a[1];
+                double a2 = a[2];
+                double a3 = a[3];
+                out[0] = a3 / d;
+                out[1] = -a1 / d;
+                out[2] = -a2 / d;
+                out[3] = a0 / d;
+                return;
+            }
+            case 3: {
+                double a0 = a[0], a1 = a[1], a2 = a[2];
+                double a3 = a[3], a4 = a[4], a5 = a[5];
+                double a6 = a[6], a7 = a[7], a8 = a[8];
+                out[0] = (a4 * a8 - a5 * a7) / d;
+                out[1] = (a2 * a7 - a1 * a8) / d;
+                out[2] = (a1 * a5 - a2 * a4) / d;
+                out[3] = (a5 * a6 - a3 * a8) / d;
+                out[4] = (a0 * a8 - a2 * a6) / d;
+                out[5] = (a2 * a3 - a0 * a5) / d;
+                out[6] = (a3 * a7 - a4 * a6) / d;
+                out[7] = (a1 * a6 - a0 * a7) / d;
+                out[8] = (a0 * a4 - a1 * a3) / d;
+                return;
+            }
+            default:
+                throw new IllegalArgumentException("No closed-form inverse for " + n);
+        }
+    }
+
+    /** out = a * b, all n x n. out must not be a or b. */
+    public static void multiply(double[] a, double[] b, double[] out, int n) {
+        switch (n) {
+            case 2:
+                out[0] = a[0] * b[0] + a[1] * b[2];
+                out[1] = a[0] * b[1] + a[1] * b[3];
+                out[2] = a[2] * b[0] + a[3] * b[2];
+                out[3] = a[2] * b[1] + a[3] * b[3];
+                return;
+            case 3:
+                out[0] = a[0] * b[0] + a[1] * b[3] + a[2] * b[6];
+                out[1] = a[0] * b[1] + a[1] * b[4] + a[2] * b[7];
+                out[2] = a[0] * b[2] + a[1] * b[5] + a[2] * b[8];
+                out[3] = a[3] * b[0] + a[4] * b[3] + a[5] * b[6];
+                out[4] = a[3] * b[1] + a[4] * b[4] + a[5] * b[7];
+                out[5] = a[3] * b[2] + a[4] * b[5] + a[5] * b[8];
+                out[6] = a[6] * b[0] + a[7] * b[3] + a[8] * b[6];
+                out[7] = a[6] * b[1] + a[7] * b[4] + a[8] * b[7];
+                out[8] = a[6] * b[2] + a[7] * b[5] + a[8] * b[8];
+                return;
+            default:
+                for (int i = 0; i < n; ++i) {
+                    for (int j = 0; j < n; ++j) {
+                        double sum = 0;
+                        for (int k = 0; k < n; ++k) {
+                            sum += a[i * n + k] * b[k * n + j];
+                        }
+                        out[i * n + j] = sum;
+                    }
+                }
+        }
+    }
+
+    /**
+     * out += p * a * p^T, all n x n, using tmp (n x n) as scratch. out must not
+     * be p or a.
+     */
+    public static void addSandwich(double[] p, double[] a, double[] out, double[] tmp, int n) {
+        multiply(p, a, tmp, n);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                double sum = 0;
+                for (int k = 0; k < n; ++k) {
+                    // (p a) p^T: row i of tmp dot row j of p
+                    sum += tmp[i * n + k] * p[j * n + k];
+                }
+                out[i * n + j] += sum;
+            }
+        }
+    }
+
+    private SmallMatrixKernel() {
+    }
+}
@@ -70,6 +70,21 @@ public class Variance<Dim extends Num> {
         return new Variance<>(value.times(a));
     }
 
+    /**
+     * Overwrite this with a + s * b, in place, without allocating. Note the
+     * scalar is applied as-is, not squared.
+     * 
+     * @return this
+     */
+    public Variance<Dim> setPlusScaled(Variance<Dim> a, double s, Variance<Dim> b) {
+        SmallMatrixKernel.axpy(
+                SmallMatrixKernel.data(value),
+                SmallMatrixKernel.data(a.value),
+                s,
+                SmallMatrixKernel.data(b.value));
+        return this;
+    }
+
     public Variance<Dim> times(Variance<Dim> other) {
         return new Variance<>(value.times(other.value));
     }
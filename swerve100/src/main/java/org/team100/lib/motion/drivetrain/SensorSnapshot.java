@@ -0,0 +1,84 @@
+package org.team100.lib.motion.drivetrain;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Everything the drivetrain reads from its sensors, read once at the top of
+ * the cycle, so that the odometry, the controller and the telemetry all see
+ * the same values, and each sensor getter (i.e. each CAN/JNI read) happens
+ * once per cycle instead of once per use.
+ *
+ * The drivetrain owns one of these and refills it every cycle; everyone else
+ * should treat it as read-only, and shouldn't hold on to the arrays past the
+ * cycle.
+ *
+ * The module arrays, and the positions and states in them, are made once and
+ * overwritten by each read, so reading doesn't make garbage beyond the
+ * immutable Rotation2ds and ChassisSpeeds WPILib hands back. The pose
+ * estimator copies the positions it keeps, so that's safe.
+ */
+public class SensorSnapshot {
+    private double m_timestampSec;
+    private Rotation2d m_headingNWU = new Rotation2d();
+    private double m_headingRateNWU;
+    private final SwerveModulePosition[] m_positions = {
+            new SwerveModulePosition(),
+            new SwerveModulePosition(),
+            new SwerveModulePosition(),
+            new SwerveModulePosition() };
+    private final SwerveModuleState[] m_states = {
+            new SwerveModuleState(),
+            new SwerveModuleState(),
+            new SwerveModuleState(),
+            new SwerveModuleState() };
+    private ChassisSpeeds m_speeds = new ChassisSpeeds();
+    private Pose2d m_pose = new Pose2d();
+
+    /** Read all the sensors. The pose comes later, from the odometry. */
+    void read(double timestampSec, HeadingInterface heading, SwerveLocal swerveLocal) {
+        m_timestampSec = timestampSec;
+        m_headingNWU = heading.getHeadingNWU();
+        m_headingRateNWU = heading.getHeadingRateNWU();
+        swerveLocal.read(m_positions, m_states);
+        m_speeds = swerveLocal.speeds(m_states);
+    }
+
+    /** The pose estimate after the odometry and vision updates. */
+    void setPose(Pose2d pose) {
+        m_pose = pose;
+    }
+
+    /** FPGA time of the read, in seconds. */
+    public double getTimestampSec() {
+        return m_timestampSec;
+    }
+
+    public Rotation2d getHeadingNWU() {
+        return m_headingNWU;
+    }
+
+    public double getHeadingRateNWU() {
+        return m_headingRateNWU;
+    }
+
+    public SwerveModulePosition[] getPositions() {
+        return m_positions;
+    }
+
+    public SwerveModuleState[] getStates() {
+        return m_states;
+    }
+
+    /** The speed implied by the module states. */
+    public ChassisSpeeds getSpeeds() {
+        return m_speeds;
+    }
+
+    public Pose2d getPose() {
+        return m_pose;
+    }
+}
@@ -1,54 +1,130 @@
 package org.team100.lib.motion.drivetrain;
 
-import java.io.FileWriter;
-
 import org.team100.lib.commands.DriveUtil;
 import org.team100.lib.controller.HolonomicDriveController2;
 import org.team100.lib.controller.HolonomicDriveRegulator;
 import org.team100.lib.controller.PidGains;
 import org.team100.lib.controller.State100;
+import org.team100.lib.localization.VisionDataProvider;
+import org.team100.lib.loop.FastLoop;
+import org.team100.lib.loop.TripleBuffer;
+import org.team100.lib.motion.drivetrain.SwerveModuleCollection.TestLogValues;
 import org.team100.lib.motion.drivetrain.kinematics.FrameTransform;
+import org.team100.lib.telemetry.BinaryLog;
+import org.team100.lib.telemetry.GatedDoubleArrayPublisher;
+import org.team100.lib.telemetry.GatedDoublePublisher;
+import org.team100.lib.telemetry.LoopTiming;
+import org.team100.lib.telemetry.StageTimer;
 
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.networktables.DoubleArrayPublisher;
-import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 
+/**
+ * The drivetrain: odometry, and control towards a reference.
+ * 
+ * Normally this all happens in periodic(), at 50 Hz, and commands drive the
+ * modules directly. With startFastLoop(), odometry and control move to their
+ * own faster thread, and everything the commands do becomes a request, handed
+ * over through a TripleBuffer, and the sensors and pose come back the same way,
+ * once per 50 Hz cycle, so commands see one consistent snapshot per cycle either
+ * way. Telemetry stays at 50 Hz.
+ */
 public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsystemInterface {
+    /** What the fast loop should do with the modules. */
+    private enum Mode {
+        /** Drive to the reference with the controller. */
+        REFERENCE,
+        /** Use the chassis speeds as given. */
+        SPEEDS,
+        DEFENSE,
+        STOP,
+        /** Leave the modules alone, for test(). */
+        IDLE
+    }
+
+    /** From the main loop to the fast loop. */
+    private static class Request {
+        private Mode mode = Mode.REFERENCE;
+        private SwerveState reference;
+        private com.team254.lib.swerve.ChassisSpeeds speeds;
+        private double timeSec;
+        private Pose2d resetPose;
+        private int resets;
+        // controller tuning, applied when tunings changes; null or NaN if never set.
+        private PidGains cartesianGains;
+        private PidGains rotationGains;
+        private double iRange;
+        private double cartesianTolerance;
+        private double rotationTolerance;
+        private int tunings;
+    }
+
+    /** Dashboards don't need every cycle. */
+    private static final double kTelemetryRateHz = 25;
+    /**
+     * At 50 Hz, commands driving the modules directly have to do it every cycle,
+     * or periodic() takes over. In the fast loop, requests other than REFERENCE
+     * lapse after this long, for the same effect.
+     */
+    private static final double kDirectTimeoutSec = 0.1;
     private final Heading m_heading;
     private final SwerveDrivePoseEstimator m_poseEstimator;
+    private final VisionDataProvider m_vision;
     private final Field2d m_field;
     private final FrameTransform m_frameTransform;
     private final SwerveLocal m_swerveLocal;
     private final HolonomicDriveController2 m_controller;
     private final HolonomicDriveRegulator m_regulator = new HolonomicDriveRegulator();
-
-    // TODO: this looks broken
-    public double keyList = -1;
-
+    private final StageTimer m_timer = LoopTiming.stage("SwerveDriveSubsystem");
+    private final TripleBuffer<Request> m_requests = new TripleBuffer<>(Request::new);
+    private final TripleBuffer<SensorSnapshot> m_snapshots = new TripleBuffer<>(SensorSnapshot::new);
+    // refilled at the top of every cycle, or, with the fast loop, its latest.
+    private SensorSnapshot m_snapshot = new SensorSnapshot();
+    // null unless startFastLoop() is called.
+    private FastLoop m_loop;
+
+    // the rest of these are the main loop's side of the request.
     private SwerveState m_desiredState;
+    private Mode m_mode = Mode.REFERENCE;
+    private double m_requestSec;
+    private com.team254.lib.swerve.ChassisSpeeds m_speeds = new com.team254.lib.swerve.ChassisSpeeds();
+    private Pose2d m_resetPose = new Pose2d();
+    private int m_resets;
+    private PidGains m_cartesianGains;
+    private PidGains m_rotationGains;
+    private double m_iRange = Double.NaN;
+    private double m_cartesianTolerance = Double.NaN;
+    private double m_rotationTolerance = Double.NaN;
+    private int m_tunings;
+    // the fast loop's side
+    private int m_resetsApplied;
+    private int m_tuningsApplied;
 
     public SwerveDriveSubsystem(
             Heading heading,
             SwerveDrivePoseEstimator poseEstimator,
+            VisionDataProvider vision,
             FrameTransform frameTransform,
             SwerveLocal swerveLocal,
             HolonomicDriveController2 controller,
             Field2d field) {
         m_heading = heading;
         m_poseEstimator = poseEstimator;
+        m_vision = vision;
         m_field = field;
         m_frameTransform = frameTransform;
         m_swerveLocal = swerveLocal;
         m_controller = controller;
+        m_snapshot.setPose(poseEstimator.getEstimatedPosition());
         truncate();
     }
 
@@ -56,23 +132,51 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
     public void truncate() {
         stop();
         Pose2d currentPose = getPose();
-        m_desiredState = new SwerveState(
+        setDesiredState(new SwerveState(
                 new State100(currentPose.getX(), 0, 0),
                 new State100(currentPose.getY(), 0, 0),
-                new State100(currentPose.getRotation().getRadians(), 0, 0));
+                new State100(currentPose.getRotation().getRadians(), 0, 0)));
     }
 
-    /** Drive to the desired reference. */
+    /**
+     * Move odometry and control to a FastLoop with the given period. The
+     * controller should be made for the same period. Call once, before enabling.
+     */
+    public void startFastLoop(double periodSec) {
+        // one tick here, so the main loop never sees an empty snapshot.
+        fastPeriodic();
+        m_snapshot = m_snapshots.latest();
+        m_loop = new FastLoop("drive loop", periodSec, this::fastPeriodic);
+        m_loop.start();
+    }
+
+    /** Drive to the desired reference, or with the fast loop, catch up with it. */
     @Override
     public void periodic() {
-        updateOdometry();
-        driveToReference();
-        m_field.setRobotPose(getPose());
+        m_timer.start();
+        if (m_loop == null) {
+            m_snapshot.read(Timer.getFPGATimestamp(), m_heading, m_swerveLocal);
+            updateOdometry(m_snapshot);
+            driveToReference(m_snapshot, m_desiredState);
+        } else {
+            m_snapshot = m_snapshots.latest();
+        }
+        publishPose(m_snapshot);
+        m_field.setRobotPose(m_snapshot.getPose());
+        m_timer.stop();
     }
 
-    /** The speed implied by the module states. */
+    /** The speed implied by the module states, as of the top of this cycle. */
     public ChassisSpeeds speeds() {
-        return m_swerveLocal.speeds();
+        return m_snapshot.getSpeeds();
+    }
+
+    /**
+     * The sensor readings from the top of this cycle, for commands, which run
+     * after periodic(). Treat it as read-only.
+     */
+    public SensorSnapshot getSnapshot() {
+        return m_snapshot;
     }
 
     /**
@@ -80,18 +184,40 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
      */
     public void setDesiredState(SwerveState desiredState) {
         m_desiredState = desiredState;
+        request(Mode.REFERENCE);
     }
 
+    /**
+     * The controller belongs to whichever thread drives, so with the fast loop,
+     * this and the other tuning setters are requests, applied on the next tick.
+     */
     public void setGains(PidGains cartesian, PidGains rotation) {
-        m_controller.setGains(cartesian, rotation);
+        if (m_loop == null) {
+            m_controller.setGains(cartesian, rotation);
+            return;
+        }
+        m_cartesianGains = cartesian;
+        m_rotationGains = rotation;
+        retune();
     }
 
     public void setIRange(double cartesian) {
-        m_controller.setIRange(cartesian);
+        if (m_loop == null) {
+            m_controller.setIRange(cartesian);
+            return;
+        }
+        m_iRange = cartesian;
+        retune();
     }
 
     public void setTolerance(double cartesian, double rotation) {
-        m_controller.setTolerance(cartesian, rotation);
+        if (m_loop == null) {
+            m_controller.setTolerance(cartesian, rotation);
+            return;
+        }
+        m_cartesianTolerance = cartesian;
+        m_rotationTolerance = rotation;
+        retune();
     }
 
     // this is for testing
@@ -101,43 +227,121 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
 
     ////////////////////////////////////////////////////////////////////
 
-    private void updateOdometry() {
-        m_poseEstimator.update(m_heading.getHeadingNWU(), m_swerveLocal.positions());
-        // {
-        // if (m_pose.aprilPresent()) {
-        // m_poseEstimator.addVisionMeasurement(
-        // m_pose.getRobotPose(0),
-        // Timer.getFPGATimestamp() - 0.3);
-        // }
+    /** Everything periodic() does at 50 Hz, but following the latest request. */
+    private void fastPeriodic() {
+        SensorSnapshot snapshot = m_snapshots.back();
+        snapshot.read(Timer.getFPGATimestamp(), m_heading, m_swerveLocal);
+        Request request = m_requests.latest();
+        if (request.resets != m_resetsApplied) {
+            m_poseEstimator.resetPosition(snapshot.getHeadingNWU(), snapshot.getPositions(), request.resetPose);
+            m_resetsApplied = request.resets;
+        }
+        if (request.tunings != m_tuningsApplied) {
+            tune(request);
+            m_tuningsApplied = request.tunings;
+        }
+        updateOdometry(snapshot);
+        Mode mode = request.mode;
+        if (snapshot.getTimestampSec() - request.timeSec > kDirectTimeoutSec)
+            mode = Mode.REFERENCE;
+        switch (mode) {
+            case REFERENCE:
+                driveToReference(snapshot, request.reference);
+                break;
+            case SPEEDS:
+                m_swerveLocal.setChassisSpeeds254(request.speeds);
+                break;
+            case DEFENSE:
+                m_swerveLocal.defense();
+                break;
+            case STOP:
+                m_swerveLocal.stop();
+                break;
+            case IDLE:
+                break;
+        }
+        m_snapshots.publish();
+    }
+
+    /**
+     * Hand the fast loop everything it needs, whole, since the buffer slots are
+     * recycled. Without the fast loop, nobody reads it.
+     */
+    private void request(Mode mode) {
+        m_mode = mode;
+        m_requestSec = Timer.getFPGATimestamp();
+        publishRequest();
+    }
+
+    /** Tuning doesn't renew the timeout on direct requests, so keep the time. */
+    private void retune() {
+        m_tunings++;
+        publishRequest();
+    }
+
+    private void publishRequest() {
+        Request request = m_requests.back();
+        request.mode = m_mode;
+        request.reference = m_desiredState;
+        request.speeds = m_speeds;
+        request.timeSec = m_requestSec;
+        request.resetPose = m_resetPose;
+        request.resets = m_resets;
+        request.cartesianGains = m_cartesianGains;
+        request.rotationGains = m_rotationGains;
+        request.iRange = m_iRange;
+        request.cartesianTolerance = m_cartesianTolerance;
+        request.rotationTolerance = m_rotationTolerance;
+        request.tunings = m_tunings;
+        m_requests.publish();
+    }
+
+    /** On the fast loop: apply whatever tuning has been requested so far. */
+    private void tune(Request request) {
+        if (request.cartesianGains != null)
+            m_controller.setGains(request.cartesianGains, request.rotationGains);
+        if (!Double.isNaN(request.iRange))
+            m_controller.setIRange(request.iRange);
+        if (!Double.isNaN(request.cartesianTolerance))
+            m_controller.setTolerance(request.cartesianTolerance, request.rotationTolerance);
+    }
+
+    private void updateOdometry(SensorSnapshot snapshot) {
+        m_poseEstimator.update(snapshot.getHeadingNWU(), snapshot.getPositions());
+        // vision measurements solved since the last cycle, on this thread.
+        m_vision.drain(m_poseEstimator::addVisionMeasurement);
+        snapshot.setPose(m_poseEstimator.getEstimatedPosition());
+    }
 
+    private void publishPose(SensorSnapshot snapshot) {
         // Update the Field2d widget
-        Pose2d newEstimate = getPose();
-        robotPosePub.set(new double[] {
-                newEstimate.getX(),
-                newEstimate.getY(),
-                newEstimate.getRotation().getDegrees()
-        });
+        Pose2d newEstimate = snapshot.getPose();
+        double[] robotPose = robotPosePub.buffer();
+        robotPose[0] = newEstimate.getX();
+        robotPose[1] = newEstimate.getY();
+        robotPose[2] = newEstimate.getRotation().getDegrees();
+        robotPosePub.publish();
         poseXPublisher.set(Units.metersToInches(newEstimate.getX()));
         poseYPublisher.set(Units.metersToInches(newEstimate.getY()));
         poseRotPublisher.set(newEstimate.getRotation().getRadians());
-        headingWUPublisher.set(m_heading.getHeadingRateNWU());
+        headingWUPublisher.set(snapshot.getHeadingRateNWU());
         // System.out.println(m_heading.getHeadingRateNWU());
     }
 
-    private void driveToReference() {
+    private void driveToReference(SensorSnapshot snapshot, SwerveState reference) {
         // TODO: pose should be a full state, with velocity and acceleration.
-        Pose2d currentPose = getPose();
+        Pose2d currentPose = snapshot.getPose();
 
-        Twist2d fieldRelativeTarget = m_controller.calculate(currentPose, m_desiredState);
-        driveInFieldCoords(fieldRelativeTarget);
+        Twist2d fieldRelativeTarget = m_controller.calculate(currentPose, reference);
+        driveInFieldCoords(fieldRelativeTarget, currentPose);
     }
 
-    private void driveToReference2() {
+    private void driveToReference2(SensorSnapshot snapshot, SwerveState reference) {
         // TODO: pose should be a full state, with velocity and acceleration.
-        Pose2d currentPose = getPose();
+        Pose2d currentPose = snapshot.getPose();
 
-        Twist2d fieldRelativeTarget = m_regulator.calculate(currentPose, m_desiredState);
-        driveInFieldCoords(fieldRelativeTarget);
+        Twist2d fieldRelativeTarget = m_regulator.calculate(currentPose, reference);
+        driveInFieldCoords(fieldRelativeTarget, currentPose);
     }
 
     ////////////////////////////
@@ -146,14 +350,19 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
     /**
      * @param twist Field coordinate velocities in meters and radians per second.
      */
-    private void driveInFieldCoords(Twist2d twist) {
+    private void driveInFieldCoords(Twist2d twist, Pose2d currentPose) {
         ChassisSpeeds targetChassisSpeeds = m_frameTransform.fromFieldRelativeSpeeds(
-                twist.dx, twist.dy, twist.dtheta, getPose().getRotation());
+                twist.dx, twist.dy, twist.dtheta, currentPose.getRotation());
         m_swerveLocal.setChassisSpeeds(targetChassisSpeeds);
     }
 
     public void setChassisSpeeds(com.team254.lib.swerve.ChassisSpeeds speeds){
-        m_swerveLocal.setChassisSpeeds254(speeds);
+        if (m_loop == null) {
+            m_swerveLocal.setChassisSpeeds254(speeds);
+            return;
+        }
+        m_speeds = speeds;
+        request(Mode.SPEEDS);
     }
     /**
      * Helper for incremental driving.
@@ -176,16 +385,31 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
     }
 
     public void defense() {
-        m_swerveLocal.defense();
+        if (m_loop == null) {
+            m_swerveLocal.defense();
+            return;
+        }
+        request(Mode.DEFENSE);
     }
 
-    public void test(double[][] desiredOutputs, FileWriter writer) {
-        m_swerveLocal.test(desiredOutputs, writer);
+    public void test(double[][] desiredOutputs, BinaryLog<TestLogValues> log) {
+        if (m_loop != null)
+            request(Mode.IDLE);
+        m_swerveLocal.test(desiredOutputs, log);
     }
 
     @Override
     public void stop() {
-        m_swerveLocal.stop();
+        if (m_loop == null) {
+            m_swerveLocal.stop();
+            return;
+        }
+        request(Mode.STOP);
+    }
+
+    public void close() {
+        if (m_loop != null)
+            m_loop.close();
     }
 
     ////////////////////////////////////////
@@ -194,27 +418,26 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
     /**
      * Note this doesn't include the gyro reading directly, the estimate is
      * considerably massaged by the odometry logic.
+     * 
+     * This is the estimate as of this cycle's periodic() (or resetPose()), from
+     * the snapshot, with or without the fast loop, so every command sees the same
+     * pose all cycle, and asking doesn't touch the estimator.
      */
     @Override
     public Pose2d getPose() {
-        return m_poseEstimator.getEstimatedPosition();
+        return m_snapshot.getPose();
     }
 
     public void resetPose(Pose2d robotPose) {
-        m_poseEstimator.resetPosition(m_heading.getHeadingNWU(), m_swerveLocal.positions(), robotPose);
-    }
-
-    ///////////////////////////////
-    // TODO: move this somewhere else
-
-    // TODO: this looks broken
-    public void setKeyList() {
-        keyList = NetworkTableInstance.getDefault().getTable("Vision").getKeys().size();
-    }
-
-    // TODO: this looks broken
-    public double getVisionSize() {
-        return keyList;
+        if (m_loop == null) {
+            m_poseEstimator.resetPosition(m_heading.getHeadingNWU(), m_swerveLocal.positions(), robotPose);
+        } else {
+            m_resetPose = robotPose;
+            m_resets++;
+            request(m_mode);
+        }
+        // so the rest of this cycle sees the new pose
+        m_snapshot.setPose(robotPose);
     }
 
     ///////////////////////////////////////////////////////////
@@ -227,17 +450,22 @@ public class SwerveDriveSubsystem extends Subsystem implements SwerveDriveSubsys
     // observers
     private final NetworkTableInstance inst = NetworkTableInstance.getDefault();
 
-    // current pose
+    // current pose; inches and radians, so about a tenth of an inch.
     private final NetworkTable pose = inst.getTable("current pose");
-    private final DoublePublisher poseXPublisher = pose.getDoubleTopic("x").publish();
-    private final DoublePublisher poseYPublisher = pose.getDoubleTopic("y").publish();
-    private final DoublePublisher poseRotPublisher = pose.getDoubleTopic("theta").publish();
+    private final GatedDoublePublisher poseXPublisher = new GatedDoublePublisher(
+            pose.getDoubleTopic("x").publish(), 0.1, kTelemetryRateHz);
+    private final GatedDoublePublisher poseYPublisher = new GatedDoublePublisher(
+            pose.getDoubleTopic("y").publish(), 0.1, kTelemetryRateHz);
+    private final GatedDoublePublisher poseRotPublisher = new GatedDoublePublisher(
+            pose.getDoubleTopic("theta").publish(), 0.002, kTelemetryRateHz);
 
-    private final DoublePublisher headingWUPublisher = pose.getDoubleTopic("Heading NWU").publish();
+    private final GatedDoublePublisher headingWUPublisher = new GatedDoublePublisher(
+            pose.getDoubleTopic("Heading NWU").publish(), 0.002, kTelemetryRateHz);
 
-    // current pose in format that field2d can use
+    // current pose in format that field2d can use; meters and degrees.
     private final NetworkTable field = inst.getTable("field");
-    private final DoubleArrayPublisher robotPosePub = field.getDoubleArrayTopic("robotPose").publish();
+    private final GatedDoubleArrayPublisher robotPosePub = new GatedDoubleArrayPublisher(
+            field.getDoubleArrayTopic("robotPose").publish(), 3, 0.003, kTelemetryRateHz);
     private final StringPublisher fieldTypePub = field.getStringTopic(".type").publish();
     {
         fieldTypePub.set("Field2d");
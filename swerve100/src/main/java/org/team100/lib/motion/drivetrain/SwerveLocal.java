@@ -1,19 +1,19 @@
 package org.team100.lib.motion.drivetrain;
 
-import java.io.FileWriter;
-
 import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
+import org.team100.lib.motion.drivetrain.SwerveModuleCollection.TestLogValues;
 import org.team100.lib.motion.drivetrain.kinematics.SwerveKinematics;
 import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
+import org.team100.lib.telemetry.BinaryLog;
+import org.team100.lib.telemetry.GatedBooleanPublisher;
+import org.team100.lib.telemetry.GatedDoublePublisher;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.networktables.BooleanPublisher;
-import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
@@ -25,6 +25,10 @@ import edu.wpi.first.math.geometry.Translation2d;
  * nothing about the outside world, it just accepts chassis speeds.
  */
 public class SwerveLocal {
+    /** Speeds are m/s and rad/s. */
+    private static final double kDeadband = 0.01;
+    /** Dashboards don't need every cycle. */
+    private static final double kTelemetryRateHz = 25;
     private final Experiments m_experiments;
     private final SpeedLimits m_speedLimits;
     private final SwerveDriveKinematics m_DriveKinematics;
@@ -125,6 +129,12 @@ public class SwerveLocal {
         setModuleStates(targetModuleStates);
     }
 
+    /**
+     * Not used: setChassisSpeeds() always drives normally, and the fast drive
+     * loop doesn't change that. If this is ever enabled, it needs the real loop
+     * period instead of the .05 below (see DriveControllersFactory), and not the
+     * println.
+     */
     private void setChassisSpeedsWithSetpointGenerator(ChassisSpeeds targetChassisSpeeds2) {
         // public void driveMetersPerSec2(Twist2d twist, boolean fieldRelative) {
         // this is handled by the caller.
@@ -184,16 +194,26 @@ public class SwerveLocal {
         return impliedSpeed(states);
     }
 
+    /** The speed implied by the given module states, without reading them. */
+    public ChassisSpeeds speeds(SwerveModuleState[] states) {
+        return impliedSpeed(states);
+    }
+
     public SwerveModulePosition[] positions() {
         return m_modules.positions();
     }
 
+    /** Fill in the module positions and states, see SensorSnapshot. */
+    void read(SwerveModulePosition[] positions, SwerveModuleState[] states) {
+        m_modules.read(positions, states);
+    }
+
     public void stop() {
         m_modules.stop();
     }
 
-    void test(double[][] desiredOutputs, FileWriter writer) {
-        m_modules.test(desiredOutputs, writer);
+    void test(double[][] desiredOutputs, BinaryLog<TestLogValues> log) {
+        m_modules.test(desiredOutputs, log);
     }
 
     ///////////////////////////////////////////////////////////
@@ -242,26 +262,40 @@ public class SwerveLocal {
 
     // desired speed
     private final NetworkTable desired = inst.getTable("desired speed");
-    private final DoublePublisher desiredSpeedXPublisher = desired.getDoubleTopic("x").publish();
-    private final DoublePublisher desiredSpeedYPublisher = desired.getDoubleTopic("y").publish();
-    private final DoublePublisher desiredSpeedRotPublisher = desired.getDoubleTopic("theta").publish();
-
-    private final DoublePublisher desiredSpeed254XPublisher = desired.getDoubleTopic("x254").publish();
-    private final DoublePublisher desiredSpeed254YPublisher = desired.getDoubleTopic("y254").publish();
-    private final DoublePublisher desiredSpeed254RotPublisher = desired.getDoubleTopic("theta254").publish();
-
-    private final DoublePublisher frModule = desired.getDoubleTopic("front right").publish();
-    private final DoublePublisher flModule = desired.getDoubleTopic("front left").publish();
-    private final DoublePublisher brModule = desired.getDoubleTopic("back right").publish();
-    private final DoublePublisher blModule = desired.getDoubleTopic("back left").publish();
+    private final GatedDoublePublisher desiredSpeedXPublisher = new GatedDoublePublisher(
+            desired.getDoubleTopic("x").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher desiredSpeedYPublisher = new GatedDoublePublisher(
+            desired.getDoubleTopic("y").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher desiredSpeedRotPublisher = new GatedDoublePublisher(
+            desired.getDoubleTopic("theta").publish(), kDeadband, kTelemetryRateHz);
+
+    private final GatedDoublePublisher desiredSpeed254XPublisher = new GatedDoublePublisher(
+            desired.getDoubleTopic("x254").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher desiredSpeed254YPublisher = new GatedDoublePublisher(
+            desired.getDoubleTopic("y254").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher desiredSpeed254RotPublisher = new GatedDoublePublisher(
+            desired.getDoubleTopic("theta254").publish(), kDeadband, kTelemetryRateHz);
+
+    private final GatedDoublePublisher frModule = new GatedDoublePublisher(
+            desired.getDoubleTopic("front right").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher flModule = new GatedDoublePublisher(
+            desired.getDoubleTopic("front left").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher brModule = new GatedDoublePublisher(
+            desired.getDoubleTopic("back right").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher blModule = new GatedDoublePublisher(
+            desired.getDoubleTopic("back left").publish(), kDeadband, kTelemetryRateHz);
 
 
 
     // actual speed
     private final NetworkTable speed = inst.getTable("actual speed");
-    private final DoublePublisher speedXPublisher = speed.getDoubleTopic("x").publish();
-    private final DoublePublisher speedYPublisher = speed.getDoubleTopic("y").publish();
-    private final DoublePublisher speedRotPublisher = speed.getDoubleTopic("theta").publish();
-    private final BooleanPublisher movingPublisher = speed.getBooleanTopic("moving").publish();
+    private final GatedDoublePublisher speedXPublisher = new GatedDoublePublisher(
+            speed.getDoubleTopic("x").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher speedYPublisher = new GatedDoublePublisher(
+            speed.getDoubleTopic("y").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedDoublePublisher speedRotPublisher = new GatedDoublePublisher(
+            speed.getDoubleTopic("theta").publish(), kDeadband, kTelemetryRateHz);
+    private final GatedBooleanPublisher movingPublisher = new GatedBooleanPublisher(
+            speed.getBooleanTopic("moving").publish(), kTelemetryRateHz);
 
 }
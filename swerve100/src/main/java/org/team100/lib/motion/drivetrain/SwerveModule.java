@@ -1,5 +1,6 @@
 package org.team100.lib.motion.drivetrain;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 
@@ -37,6 +38,18 @@ public class SwerveModule {
         return new SwerveModulePosition(m_driveServo.getDriveDistanceM(), m_turningServo.getTurningRotation());
     }
 
+    /**
+     * Package private for SwerveModuleCollection.read only. Fills in both from
+     * one turning encoder read, without allocating them.
+     */
+    void read(SwerveModulePosition position, SwerveModuleState state) {
+        Rotation2d turning = m_turningServo.getTurningRotation();
+        position.distanceMeters = m_driveServo.getDriveDistanceM();
+        position.angle = turning;
+        state.speedMetersPerSecond = m_driveServo.getDriveSpeedMS();
+        state.angle = turning;
+    }
+
     /**
      * Package private for SwerveModuleCollection.stop only.
      * This is low-level shutoff, not generally useful.
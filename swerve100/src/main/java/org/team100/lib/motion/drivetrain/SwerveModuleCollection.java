@@ -1,8 +1,8 @@
 package org.team100.lib.motion.drivetrain;
 
-import java.io.FileWriter;
-import java.io.IOException;
+import org.team100.lib.telemetry.BinaryLog;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.Timer;
@@ -35,12 +35,22 @@ public class SwerveModuleCollection implements SwerveModuleCollectionInterface {
             };
         }
 
+        @Override
+        public void read(SwerveModulePosition[] positions, SwerveModuleState[] states) {
+            for (int i = 0; i < 4; ++i) {
+                positions[i].distanceMeters = 0;
+                positions[i].angle = new Rotation2d();
+                states[i].speedMetersPerSecond = 0;
+                states[i].angle = new Rotation2d();
+            }
+        }
+
         @Override
         public void stop() {   
         }
 
         @Override
-        public void test(double[][] desiredOutputs, FileWriter writer) {
+        public void test(double[][] desiredOutputs, BinaryLog<TestLogValues> log) {
         }
 
         @Override
@@ -48,10 +58,26 @@ public class SwerveModuleCollection implements SwerveModuleCollectionInterface {
         }
 
     }
+
+    /** One row of the test log: every module, every cycle. */
+    public static class TestLogValues {
+        public double timestamp;
+        public double frontLeftPosition;
+        public double frontLeftSpeed;
+        public double frontRightPosition;
+        public double frontRightSpeed;
+        public double rearLeftPosition;
+        public double rearLeftSpeed;
+        public double rearRightPosition;
+        public double rearRightSpeed;
+    }
+
     private final SwerveModule m_frontLeft;
     private final SwerveModule m_frontRight;
     private final SwerveModule m_rearLeft;
     private final SwerveModule m_rearRight;
+    // reused, so logging doesn't make garbage
+    private final TestLogValues m_testLogValues = new TestLogValues();
 
     public SwerveModuleCollection(
             SwerveModule frontLeft,
@@ -82,6 +108,13 @@ public class SwerveModuleCollection implements SwerveModuleCollectionInterface {
         };
     }
 
+    public void read(SwerveModulePosition[] positions, SwerveModuleState[] states) {
+        m_frontLeft.read(positions[0], states[0]);
+        m_frontRight.read(positions[1], states[1]);
+        m_rearLeft.read(positions[2], states[2]);
+        m_rearRight.read(positions[3], states[3]);
+    }
+
     public void setDesiredStates(SwerveModuleState[] swerveModuleStates) {
         // System.out.println("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAaaa");
 
@@ -106,23 +139,22 @@ public class SwerveModuleCollection implements SwerveModuleCollectionInterface {
     }
 
     /** Test and log. */
-    public void test(double[][] desiredOutputs, FileWriter writer) {
-
-
+    public void test(double[][] desiredOutputs, BinaryLog<TestLogValues> log) {
         m_frontLeft.test(desiredOutputs[0]);
         m_frontRight.test(desiredOutputs[1]);
         m_rearLeft.test(desiredOutputs[2]);
         m_rearRight.test(desiredOutputs[3]);
-        try {
-            if (writer != null) {
-                writer.write("Timestamp: " + Timer.getFPGATimestamp() +
-                        ", P" + m_frontLeft.getPosition().distanceMeters
-                        + ", " + m_frontLeft.getState().speedMetersPerSecond + "\n");
-                writer.flush();
-            }
-        } catch (IOException e) {
-            System.out.println("An error occurred.");
-            e.printStackTrace();
+        if (log != null) {
+            m_testLogValues.timestamp = Timer.getFPGATimestamp();
+            m_testLogValues.frontLeftPosition = m_frontLeft.getPosition().distanceMeters;
+            m_testLogValues.frontLeftSpeed = m_frontLeft.getState().speedMetersPerSecond;
+            m_testLogValues.frontRightPosition = m_frontRight.getPosition().distanceMeters;
+            m_testLogValues.frontRightSpeed = m_frontRight.getState().speedMetersPerSecond;
+            m_testLogValues.rearLeftPosition = m_rearLeft.getPosition().distanceMeters;
+            m_testLogValues.rearLeftSpeed = m_rearLeft.getState().speedMetersPerSecond;
+            m_testLogValues.rearRightPosition = m_rearRight.getPosition().distanceMeters;
+            m_testLogValues.rearRightSpeed = m_rearRight.getState().speedMetersPerSecond;
+            log.add(m_testLogValues);
         }
     }
 
@@ -1,6 +1,7 @@
 package org.team100.lib.motion.drivetrain;
 
-import java.io.FileWriter;
+import org.team100.lib.motion.drivetrain.SwerveModuleCollection.TestLogValues;
+import org.team100.lib.telemetry.BinaryLog;
 
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
@@ -13,9 +14,15 @@ public interface SwerveModuleCollectionInterface {
 
     SwerveModuleState[] states();
 
+    /**
+     * Fill in the positions and states of all four modules, in the same order as
+     * positions() and states(), without allocating the arrays or their elements.
+     */
+    void read(SwerveModulePosition[] positions, SwerveModuleState[] states);
+
     void stop();
 
-    void test(double[][] desiredOutputs, FileWriter writer);
+    void test(double[][] desiredOutputs, BinaryLog<TestLogValues> log);
 
     void setDesiredStates(SwerveModuleState[] targetModuleStates);
     
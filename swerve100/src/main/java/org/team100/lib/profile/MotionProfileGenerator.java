@@ -1,6 +1,7 @@
 package org.team100.lib.profile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -405,6 +406,15 @@ public class MotionProfileGenerator {
             VelocityConstraint velocityConstraint,
             AccelerationConstraint accelerationConstraint,
             double resolution) {
+        if (velocityConstraint instanceof PiecewiseConstantConstraint
+                && accelerationConstraint instanceof PiecewiseConstantConstraint) {
+            // exact, and much faster, so resolution doesn't matter
+            return generatePiecewiseMotionProfile(
+                    start,
+                    goal,
+                    (PiecewiseConstantConstraint) velocityConstraint,
+                    (PiecewiseConstantConstraint) accelerationConstraint);
+        }
         if (goal.getX() < start.getX()) {
             return generateMotionProfile(
                     start.flipped(),
@@ -561,6 +571,154 @@ public class MotionProfileGenerator {
         return new MotionProfile(motionSegments);
     }
 
+    /**
+     * The same forward and backward passes as above, done exactly, for
+     * constraints that are constant between breaks. Within each region between
+     * breaks, the forward and backward limits on v^2 are linear in displacement
+     * up to the velocity limit, so the lower of the two is a polyline whose
+     * corners can be found directly, and each line is one constant-acceleration
+     * segment. The same warning about the endpoint states applies; the limits
+     * must be positive.
+     */
+    private static MotionProfile generatePiecewiseMotionProfile(
+            MotionState start,
+            MotionState goal,
+            PiecewiseConstantConstraint velocityConstraint,
+            PiecewiseConstantConstraint accelerationConstraint) {
+        // plan in the direction of travel, in displacement from the start
+        double direction = goal.getX() < start.getX() ? -1.0 : 1.0;
+        double length = direction * (goal.getX() - start.getX());
+        double[] bounds = regionBounds(start.getX(), direction, length,
+                velocityConstraint.getBreaks(), accelerationConstraint.getBreaks());
+        int n = bounds.length - 1;
+
+        // v^2 limit and acceleration in each region, and the forward and backward
+        // v^2 at the region boundaries.
+        double[] cap = new double[n];
+        double[] accel = new double[n];
+        for (int k = 0; k < n; ++k) {
+            double mid = start.getX() + direction * (bounds[k] + bounds[k + 1]) / 2;
+            double maxVel = velocityConstraint.get(mid);
+            cap[k] = maxVel * maxVel;
+            accel[k] = accelerationConstraint.get(mid);
+        }
+        double[] forwardIn = new double[n];
+        double startV = Math.max(0.0, direction * start.getV());
+        forwardIn[0] = Math.min(cap[0], startV * startV);
+        for (int k = 1; k < n; ++k) {
+            double forwardOut = Math.min(cap[k - 1],
+                    forwardIn[k - 1] + 2 * accel[k - 1] * (bounds[k] - bounds[k - 1]));
+            forwardIn[k] = Math.min(cap[k], forwardOut);
+        }
+        double[] backwardOut = new double[n];
+        double goalV = Math.max(0.0, direction * goal.getV());
+        backwardOut[n - 1] = Math.min(cap[n - 1], goalV * goalV);
+        for (int k = n - 2; k >= 0; --k) {
+            double backwardIn = Math.min(cap[k + 1],
+                    backwardOut[k + 1] + 2 * accel[k + 1] * (bounds[k + 2] - bounds[k + 1]));
+            backwardOut[k] = Math.min(cap[k], backwardIn);
+        }
+
+        // the corners of v^2(x)
+        List<double[]> corners = new ArrayList<>();
+        corners.add(new double[] { 0.0, limit(0.0, 0, bounds, cap, accel, forwardIn, backwardOut) });
+        double[] candidates = new double[4];
+        for (int k = 0; k < n; ++k) {
+            double b0 = bounds[k];
+            double b1 = bounds[k + 1];
+            int count = 0;
+            if (accel[k] > 0) {
+                // where the forward limit reaches the cap, where the backward one leaves
+                // it, and where they cross.
+                candidates[count++] = b0 + (cap[k] - forwardIn[k]) / (2 * accel[k]);
+                candidates[count++] = b1 - (cap[k] - backwardOut[k]) / (2 * accel[k]);
+                candidates[count++] = (backwardOut[k] - forwardIn[k] + 2 * accel[k] * (b0 + b1)) / (4 * accel[k]);
+            }
+            candidates[count++] = b1;
+            Arrays.sort(candidates, 0, count);
+            for (int c = 0; c < count; ++c) {
+                double x = candidates[c];
+                double[] last = corners.get(corners.size() - 1);
+                if (x <= last[0] || x > b1) {
+                    continue;
+                }
+                double u = limit(x, k, bounds, cap, accel, forwardIn, backwardOut);
+                if (corners.size() > 1) {
+                    // drop the last corner if it's on the line to this one
+                    double[] prev = corners.get(corners.size() - 2);
+                    double slope1 = (last[1] - prev[1]) / (last[0] - prev[0]);
+                    double slope2 = (u - last[1]) / (x - last[0]);
+                    if (MathUtil.epsilonEquals(slope1, slope2)) {
+                        corners.remove(corners.size() - 1);
+                    }
+                }
+                corners.add(new double[] { x, u });
+            }
+        }
+
+        List<MotionSegment> motionSegments = new ArrayList<MotionSegment>();
+        for (int i = 1; i < corners.size(); ++i) {
+            double x0 = corners.get(i - 1)[0];
+            double dx = corners.get(i)[0] - x0;
+            double v0 = Math.sqrt(corners.get(i - 1)[1]);
+            double v1 = Math.sqrt(corners.get(i)[1]);
+            double a = (v1 * v1 - v0 * v0) / (2 * dx);
+            // constant acceleration, so the average velocity is the mean.
+            double dt = 2 * dx / (v0 + v1);
+            motionSegments.add(new MotionSegment(
+                    new MotionState(start.getX() + direction * x0, direction * v0, direction * a),
+                    dt));
+        }
+        if (motionSegments.isEmpty()) {
+            // already there
+            motionSegments.add(new MotionSegment(start.stationary(), 0.0));
+        }
+        return new MotionProfile(motionSegments);
+    }
+
+    /**
+     * The region boundaries, in displacement from the start in the direction of
+     * travel: the ends, and the breaks in between.
+     */
+    private static double[] regionBounds(double start, double direction, double length,
+            double[] velocityBreaks, double[] accelerationBreaks) {
+        double[] bounds = new double[velocityBreaks.length + accelerationBreaks.length + 2];
+        int count = 0;
+        bounds[count++] = 0.0;
+        for (double[] breaks : new double[][] { velocityBreaks, accelerationBreaks }) {
+            for (double b : breaks) {
+                double d = direction * (b - start);
+                if (d > 0 && d < length) {
+                    bounds[count++] = d;
+                }
+            }
+        }
+        bounds[count++] = length;
+        Arrays.sort(bounds, 0, count);
+        // remove duplicates
+        int unique = 1;
+        for (int i = 1; i < count; ++i) {
+            if (bounds[i] > bounds[unique - 1]) {
+                bounds[unique++] = bounds[i];
+            }
+        }
+        if (unique == 1) {
+            // zero length: one empty region
+            return new double[] { 0.0, 0.0 };
+        }
+        return Arrays.copyOf(bounds, unique);
+    }
+
+    /**
+     * The lower of the forward and backward limits on v^2, at x in region k.
+     */
+    private static double limit(double x, int k, double[] bounds, double[] cap, double[] accel,
+            double[] forwardIn, double[] backwardOut) {
+        double forward = forwardIn[k] + 2 * accel[k] * (x - bounds[k]);
+        double backward = backwardOut[k] + 2 * accel[k] * (bounds[k + 1] - x);
+        return Math.min(cap[k], Math.min(forward, backward));
+    }
+
     // execute a forward pass that consists of applying maximum acceleration
     // starting at min(last velocity, max vel)
     // on a segment-by-segment basis
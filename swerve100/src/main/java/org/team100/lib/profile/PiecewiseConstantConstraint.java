@@ -0,0 +1,48 @@
+package org.team100.lib.profile;
+
+/**
+ * Velocity or acceleration constraint that is constant between breakpoints in
+ * displacement. MotionProfileGenerator plans with these exactly, in closed
+ * form, instead of sampling them.
+ */
+public class PiecewiseConstantConstraint implements VelocityConstraint, AccelerationConstraint {
+    private final double[] breaks;
+    private final double[] values;
+
+    /**
+     * @param breaks increasing displacements where the value changes
+     * @param values one more than the breaks: values[0] applies below breaks[0],
+     *               values[i] from breaks[i-1] up to breaks[i], and the last one
+     *               from the last break on.
+     */
+    public PiecewiseConstantConstraint(double[] breaks, double[] values) {
+        if (values.length != breaks.length + 1)
+            throw new IllegalArgumentException("need one more value than breaks");
+        for (int i = 1; i < breaks.length; ++i) {
+            if (breaks[i] <= breaks[i - 1])
+                throw new IllegalArgumentException("breaks must increase");
+        }
+        this.breaks = breaks.clone();
+        this.values = values.clone();
+    }
+
+    /**
+     * The same value everywhere.
+     */
+    public static PiecewiseConstantConstraint constant(double value) {
+        return new PiecewiseConstantConstraint(new double[0], new double[] { value });
+    }
+
+    @Override
+    public double get(double s) {
+        int i = 0;
+        while (i < breaks.length && s >= breaks[i]) {
+            ++i;
+        }
+        return values[i];
+    }
+
+    double[] getBreaks() {
+        return breaks;
+    }
+}
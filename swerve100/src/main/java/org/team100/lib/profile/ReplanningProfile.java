@@ -0,0 +1,104 @@
+package org.team100.lib.profile;
+
+/**
+ * Trapezoidal profile meant to be replanned every cycle, from the current
+ * state to a goal that may be moving, e.g. a vision target. Replanning is
+ * closed-form and allocates nothing, so it's cheap enough to do at 250 Hz.
+ *
+ * The plan is at most three constant-acceleration segments: accelerate (or
+ * decelerate) at max, coast at max velocity, then accelerate (or decelerate)
+ * at max to the goal. Unlike generateSimpleMotionProfile(), the start
+ * velocity may be in any direction and any magnitude: if it's above the max,
+ * the first segment slows down to it, and if it can't stop in time, the plan
+ * overshoots and comes back.
+ *
+ * For a jerk-limited S-curve, use
+ * MotionProfileGenerator.generateSimpleMotionProfile() with maxJerk, which
+ * searches, so it's much slower.
+ */
+public class ReplanningProfile {
+    private final double maxVel;
+    private final double maxAccel;
+
+    // the plan: start state, and the acceleration and duration of each segment.
+    private double x0;
+    private double v0;
+    private double goalX;
+    private double goalV;
+    private final double[] a = new double[3];
+    private final double[] dt = new double[3];
+
+    public ReplanningProfile(double maxVel, double maxAccel) {
+        if (maxVel <= 0 || maxAccel <= 0)
+            throw new IllegalArgumentException("limits must be positive");
+        this.maxVel = maxVel;
+        this.maxAccel = maxAccel;
+    }
+
+    public void replan(MotionState start, MotionState goal) {
+        replan(start.getX(), start.getV(), goal.getX(), goal.getV());
+    }
+
+    /**
+     * Plan from the start state to the goal state. The goal velocity should be
+     * within the max.
+     */
+    public void replan(double startX, double startV, double goalX, double goalV) {
+        x0 = startX;
+        v0 = startV;
+        this.goalX = goalX;
+        this.goalV = goalV;
+        double distance = goalX - startX;
+        // the distance covered going straight from the start velocity to the goal
+        // velocity at max acceleration decides whether the velocity goes up first
+        // or down first; plan the down-first case upside down.
+        double direct = Math.abs(goalV - startV) * (goalV + startV) / (2 * maxAccel);
+        double sign = distance >= direct ? 1.0 : -1.0;
+        double d = sign * distance;
+        double vs = sign * startV;
+        double vg = sign * goalV;
+
+        // peak velocity with no coast, which is at least both end velocities.
+        double peak = Math.sqrt(Math.max(0.0, (2 * maxAccel * d + vs * vs + vg * vg) / 2));
+        double coast = 0.0;
+        if (peak > maxVel) {
+            // a goal above the max is coasted at, rather than overshot.
+            peak = Math.max(maxVel, vg);
+            double d1 = Math.abs(peak - vs) * (peak + vs) / (2 * maxAccel);
+            double d3 = Math.abs(vg - peak) * (vg + peak) / (2 * maxAccel);
+            coast = Math.max(0.0, (d - d1 - d3) / peak);
+        }
+        a[0] = sign * Math.signum(peak - vs) * maxAccel;
+        dt[0] = Math.abs(peak - vs) / maxAccel;
+        a[1] = 0.0;
+        dt[1] = coast;
+        a[2] = sign * Math.signum(vg - peak) * maxAccel;
+        dt[2] = Math.abs(vg - peak) / maxAccel;
+    }
+
+    public double duration() {
+        return dt[0] + dt[1] + dt[2];
+    }
+
+    /**
+     * The planned state at time t since the last replan. Like MotionProfile,
+     * the state is stationary before the start. After the end, it's the goal
+     * state, with the goal velocity, which is what a follower should be
+     * tracking by then, even if the goal is moving.
+     */
+    public MotionState get(double t) {
+        if (t < 0.0)
+            return new MotionState(x0, 0.0, 0.0);
+        double x = x0;
+        double v = v0;
+        for (int i = 0; i < 3; ++i) {
+            if (t <= dt[i]) {
+                return new MotionState(x + v * t + a[i] / 2 * t * t, v + a[i] * t, a[i]);
+            }
+            x += v * dt[i] + a[i] / 2 * dt[i] * dt[i];
+            v += a[i] * dt[i];
+            t -= dt[i];
+        }
+        return new MotionState(goalX, goalV, 0.0);
+    }
+}
@@ -0,0 +1,105 @@
+package org.team100.lib.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free FIFO for handing things between threads, which makes room
+ * for a new entry by dropping the oldest one, so a slow consumer sees the most
+ * recent entries and the producer never blocks.
+ *
+ * This is the usual array queue with a sequence number per cell (Vyukov): a
+ * cell's sequence says whether it's ready to write (sequence == position) or
+ * ready to read (sequence == position + 1), and the head and tail positions
+ * are claimed with CAS. When the queue is full, offer() polls the oldest entry
+ * itself and counts it as dropped.
+ *
+ * Any number of producers and consumers is fine, but for us it's usually one of
+ * each.
+ */
+public class DropOldestQueue<T> {
+    private final int m_mask;
+    private final AtomicLongArray m_sequence;
+    private final AtomicReferenceArray<T> m_items;
+    private final AtomicLong m_head = new AtomicLong();
+    private final AtomicLong m_tail = new AtomicLong();
+    private final AtomicLong m_dropped = new AtomicLong();
+
+    /** @param capacity must be a power of two, at least 2. */
+    public DropOldestQueue(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        m_mask = capacity - 1;
+        m_sequence = new AtomicLongArray(capacity);
+        m_items = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            m_sequence.set(i, i);
+        }
+    }
+
+    /**
+     * Add the item at the tail, dropping the head if the queue is full.
+     *
+     * @return true if an older item was dropped to make room.
+     */
+    public boolean offer(T item) {
+        if (item == null)
+            throw new IllegalArgumentException("null item");
+        boolean dropped = false;
+        while (true) {
+            long pos = m_tail.get();
+            int cell = (int) pos & m_mask;
+            long dif = m_sequence.get(cell) - pos;
+            if (dif == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_items.set(cell, item);
+                    m_sequence.set(cell, pos + 1);
+                    return dropped;
+                }
+            } else if (dif < 0) {
+                // full
+                if (poll() != null) {
+                    m_dropped.incrementAndGet();
+                    dropped = true;
+                }
+            }
+            // otherwise someone else took this position, try the next one.
+        }
+    }
+
+    /** Remove the item at the head, or return null if the queue is empty. */
+    public T poll() {
+        while (true) {
+            long pos = m_head.get();
+            int cell = (int) pos & m_mask;
+            long dif = m_sequence.get(cell) - (pos + 1);
+            if (dif == 0) {
+                if (m_head.compareAndSet(pos, pos + 1)) {
+                    T item = m_items.getAndSet(cell, null);
+                    m_sequence.set(cell, pos + m_mask + 1);
+                    return item;
+                }
+            } else if (dif < 0) {
+                // empty
+                return null;
+            }
+            // otherwise someone else took this position, try the next one.
+        }
+    }
+
+    /** Approximate, since the other threads may be busy. */
+    public int size() {
+        long size = m_tail.get() - m_head.get();
+        return (int) Math.max(0, Math.min(size, m_mask + 1));
+    }
+
+    public int capacity() {
+        return m_mask + 1;
+    }
+
+    /** Total items dropped to make room, ever. */
+    public long dropped() {
+        return m_dropped.get();
+    }
+}
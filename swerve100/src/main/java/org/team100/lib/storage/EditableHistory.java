@@ -12,7 +12,7 @@ public class EditableHistory<Value> extends History<Value> {
     }
 
     /** remove history starting from vt */
-    public void trim(double vt) {
+    public synchronized void trim(double vt) {
         NavigableMap<Double, Value> tailMap = mutableValidTailMap(vt);
         if (debug) {
             System.out.println("trim " + vt);
@@ -21,6 +21,9 @@ public class EditableHistory<Value> extends History<Value> {
                 System.out.println("trimming " + e.getKey() + " " + e.getValue());
             }
         }
+        // keep the size in step, otherwise put() evicts entries it shouldn't.
+        int count = tailMap.size();
         tailMap.clear();
+        removed(count);
     }
 }
@@ -74,6 +74,11 @@ public class History<Value> {
         return size;
     }
 
+    /** For subclasses that remove entries directly from the map. */
+    synchronized void removed(int count) {
+        size -= count;
+    }
+
     NavigableMap<Double, Value> mutableValidTailMap(double vt) {
         return valid.tailMap(vt, true);
     }
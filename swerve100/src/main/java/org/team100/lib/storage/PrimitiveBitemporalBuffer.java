@@ -0,0 +1,363 @@
+package org.team100.lib.storage;
+
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Bitemporal Buffer, primitive-array backend.
+ *
+ * Same semantics as {@link BitemporalBuffer}, but the storage is a fixed pool
+ * of parallel primitive arrays (record time, valid time, value) plus two ring
+ * indices of slot numbers, one in valid-time order and one in record-time
+ * order. Lookups are binary searches over the rings. All the storage is
+ * allocated in the constructor, so put() makes no garbage at all, which
+ * matters when the estimator is fed at camera rate for the whole match.
+ *
+ * Eviction works the same as BitemporalBuffer: when the buffer is full, the
+ * entry with the earliest valid time is dropped. In the usual case, where
+ * measurements arrive roughly in order, both insert and evict are O(1); a late
+ * measurement costs a shift of the entries after it.
+ *
+ * Concurrency: writers serialize on the monitor (there's usually only one),
+ * and readers never lock. Readers use a sequence number ("seqlock"): the
+ * writer makes the version odd while it's mutating and even when it's done,
+ * and a reader retries if the version changed underneath it.
+ *
+ * The methods returning Entry and NavigableMap are here for compatibility with
+ * BitemporalBuffer; they copy a snapshot and so they allocate. The primitive
+ * accessors (floorValue, earliestValidTimeForRecordsAfter, validTail) do not.
+ */
+public class PrimitiveBitemporalBuffer<Value> {
+    private static final boolean debug = false;
+    private final int capacity;
+
+    // storage, indexed by slot
+    private final long[] m_recordTime;
+    private final double[] m_validTime;
+    private final Object[] m_value;
+
+    // slot numbers in each order
+    private final IndexRing m_validOrder;
+    private final IndexRing m_recordOrder;
+
+    // unused slots
+    private final int[] m_free;
+    private int m_freeCount;
+
+    // odd while the writer is mutating
+    private volatile int m_version;
+
+    public PrimitiveBitemporalBuffer(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        m_recordTime = new long[capacity];
+        m_validTime = new double[capacity];
+        m_value = new Object[capacity];
+        m_validOrder = new IndexRing(capacity);
+        m_recordOrder = new IndexRing(capacity);
+        m_free = new int[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            m_free[i] = capacity - 1 - i;
+        }
+        m_freeCount = capacity;
+    }
+
+    /**
+     * Store a measurement. Threadsafe.
+     *
+     * @param recordTime represents the system time the value was written, expected
+     *                   to be FPGATime.
+     * @param validTime  represents the real-world time the value describes, in
+     *                   seconds. the most-recent entries are retained, up to the
+     *                   capacity.
+     * @param value      value to store
+     */
+    public synchronized void put(long recordTime, double validTime, Value value) {
+        // fix the keys to avoid overwriting anything, same as BitemporalBuffer.
+        int recordIndex = recordLowerBound(recordTime);
+        while (recordIndex < m_recordOrder.size && m_recordTime[m_recordOrder.get(recordIndex)] == recordTime) {
+            recordTime++; // add one microsecond
+            recordIndex++;
+        }
+        int validIndex = validLowerBound(validTime);
+        while (validIndex < m_validOrder.size && m_validTime[m_validOrder.get(validIndex)] == validTime) {
+            validTime = Math.nextUp(validTime); // add smallest possible double
+            validIndex++;
+        }
+        if (m_validOrder.size == capacity && validIndex == 0) {
+            // this would be evicted immediately.
+            if (debug)
+                System.out.println("drop measurement " + validTime + " " + value);
+            return;
+        }
+        if (debug)
+            System.out.println("put measurement " + validTime + " " + value);
+
+        int version = m_version;
+        m_version = version + 1;
+        VarHandle.storeStoreFence();
+
+        if (m_validOrder.size == capacity) {
+            // evict the earliest valid time
+            int evicted = m_validOrder.get(0);
+            m_validOrder.remove(0);
+            validIndex--;
+            int evictedRecordIndex = recordLowerBound(m_recordTime[evicted]);
+            if (evictedRecordIndex >= m_recordOrder.size || m_recordOrder.get(evictedRecordIndex) != evicted)
+                throw new IllegalStateException("This should never happen: missing record: " + m_recordTime[evicted]);
+            m_recordOrder.remove(evictedRecordIndex);
+            if (evictedRecordIndex < recordIndex)
+                recordIndex--;
+            m_value[evicted] = null;
+            m_free[m_freeCount++] = evicted;
+        }
+
+        int slot = m_free[--m_freeCount];
+        m_recordTime[slot] = recordTime;
+        m_validTime[slot] = validTime;
+        m_value[slot] = value;
+        m_recordOrder.insert(recordIndex, slot);
+        m_validOrder.insert(validIndex, slot);
+
+        m_version = version + 2;
+    }
+
+    /**
+     * Find the most-recent value earlier than the specified valid time. Does not
+     * allocate.
+     */
+    @SuppressWarnings("unchecked")
+    public Value floorValue(double validTimeSec) {
+        if (validTimeSec < 0)
+            throw new IllegalArgumentException("Negative time is not allowed: " + validTimeSec);
+        while (true) {
+            int version = beginRead();
+            int i = validUpperBound(validTimeSec) - 1;
+            Object value = i < 0 ? null : m_value[m_validOrder.get(i)];
+            if (endRead(version)) {
+                if (i < 0)
+                    throw new IllegalStateException("No floor key (not initialized?): " + validTimeSec);
+                return (Value) value;
+            }
+        }
+    }
+
+    /**
+     * Find the most-recent value earlier than the specified valid time. Allocates
+     * the entries; prefer floorValue().
+     */
+    public Entry<Double, Entry<Long, Value>> floor(double validTimeSec) {
+        if (validTimeSec < 0)
+            throw new IllegalArgumentException("Negative time is not allowed: " + validTimeSec);
+        Entry<Double, Entry<Long, Value>> floor = validFloorEntry(validTimeSec);
+        if (floor == null)
+            throw new IllegalStateException("No floor key (not initialized?): " + validTimeSec);
+        return floor;
+    }
+
+    /**
+     * To consume out-of-sequence measurements, we just need to know the valid time
+     * of the earliest unseen record. Does not allocate.
+     */
+    public double earliestValidTimeForRecordsAfter(long recordTime) {
+        while (true) {
+            int version = beginRead();
+            double earliestMeasurementSec = Double.MAX_VALUE;
+            int size = m_recordOrder.size;
+            for (int i = recordLowerBound(recordTime); i < size; ++i) {
+                double measurementTimeSec = m_validTime[m_recordOrder.get(i)];
+                if (measurementTimeSec < earliestMeasurementSec)
+                    earliestMeasurementSec = measurementTimeSec;
+            }
+            if (endRead(version))
+                return earliestMeasurementSec;
+        }
+    }
+
+    /**
+     * Copy the entries at or after vt, in valid-time order, into the supplied
+     * arrays. Does not allocate.
+     *
+     * @return the number of entries copied.
+     * @throws IllegalArgumentException if the arrays are too small; arrays as
+     *                                  long as the capacity are always enough.
+     */
+    @SuppressWarnings("unchecked")
+    public int validTail(double vt, double[] validTimes, long[] recordTimes, Value[] values) {
+        while (true) {
+            int version = beginRead();
+            int start = validLowerBound(vt);
+            int count = m_validOrder.size - start;
+            boolean fits = count <= validTimes.length && count <= recordTimes.length && count <= values.length;
+            if (fits) {
+                for (int i = 0; i < count; ++i) {
+                    int slot = m_validOrder.get(start + i);
+                    validTimes[i] = m_validTime[slot];
+                    recordTimes[i] = m_recordTime[slot];
+                    values[i] = (Value) m_value[slot];
+                }
+            }
+            if (endRead(version)) {
+                if (!fits)
+                    throw new IllegalArgumentException("Arrays too small for " + count + " entries");
+                return count;
+            }
+        }
+    }
+
+    /** Snapshot of the records at or after tt. Allocates. */
+    public NavigableMap<Long, Entry<Double, Value>> recordTailMap(long tt) {
+        while (true) {
+            int version = beginRead();
+            NavigableMap<Long, Entry<Double, Value>> result = new TreeMap<>();
+            int size = m_recordOrder.size;
+            for (int i = recordLowerBound(tt); i < size; ++i) {
+                int slot = m_recordOrder.get(i);
+                result.put(m_recordTime[slot], new AbstractMap.SimpleImmutableEntry<>(m_validTime[slot], valueAt(slot)));
+            }
+            if (endRead(version))
+                return Collections.unmodifiableNavigableMap(result);
+        }
+    }
+
+    /** Snapshot of the records valid at or after vt. Allocates. */
+    public NavigableMap<Double, Entry<Long, Value>> validTailMap(double vt) {
+        while (true) {
+            int version = beginRead();
+            NavigableMap<Double, Entry<Long, Value>> result = new TreeMap<>();
+            int size = m_validOrder.size;
+            for (int i = validLowerBound(vt); i < size; ++i) {
+                int slot = m_validOrder.get(i);
+                result.put(m_validTime[slot], new AbstractMap.SimpleImmutableEntry<>(m_recordTime[slot], valueAt(slot)));
+            }
+            if (endRead(version))
+                return Collections.unmodifiableNavigableMap(result);
+        }
+    }
+
+    /** Find the entry for the greatest key less than or equal to vt. Allocates. */
+    public Entry<Double, Entry<Long, Value>> validFloorEntry(double vt) {
+        while (true) {
+            int version = beginRead();
+            int i = validUpperBound(vt) - 1;
+            Entry<Double, Entry<Long, Value>> result = null;
+            if (i >= 0) {
+                int slot = m_validOrder.get(i);
+                result = new AbstractMap.SimpleImmutableEntry<>(m_validTime[slot],
+                        new AbstractMap.SimpleImmutableEntry<>(m_recordTime[slot], valueAt(slot)));
+            }
+            if (endRead(version))
+                return result;
+        }
+    }
+
+    public int size() {
+        return m_validOrder.size;
+    }
+
+    ///////////////////////////////////////////////////////////
+
+    private int beginRead() {
+        while (true) {
+            int version = m_version;
+            if ((version & 1) == 0)
+                return version;
+            Thread.onSpinWait();
+        }
+    }
+
+    private boolean endRead(int version) {
+        VarHandle.loadLoadFence();
+        return m_version == version;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Value valueAt(int slot) {
+        return (Value) m_value[slot];
+    }
+
+    /** index of the first record time >= t */
+    private int recordLowerBound(long t) {
+        int lo = 0;
+        int hi = m_recordOrder.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_recordTime[m_recordOrder.get(mid)] < t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** index of the first valid time >= t */
+    private int validLowerBound(double t) {
+        int lo = 0;
+        int hi = m_validOrder.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_validTime[m_validOrder.get(mid)] < t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** index of the first valid time > t */
+    private int validUpperBound(double t) {
+        int lo = 0;
+        int hi = m_validOrder.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_validTime[m_validOrder.get(mid)] <= t)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Ordered list of slot numbers in a ring, so removing the first element is
+     * O(1). Readers may see it mid-edit; the modulus keeps every index in range
+     * so a torn read just produces a wrong answer that the seqlock discards.
+     */
+    private static class IndexRing {
+        private final int[] slots;
+        private int head;
+        private int size;
+
+        IndexRing(int capacity) {
+            slots = new int[capacity];
+        }
+
+        int get(int i) {
+            return slots[(head + i) % slots.length];
+        }
+
+        void insert(int i, int slot) {
+            for (int j = size; j > i; --j) {
+                slots[(head + j) % slots.length] = slots[(head + j - 1) % slots.length];
+            }
+            slots[(head + i) % slots.length] = slot;
+            size++;
+        }
+
+        void remove(int i) {
+            if (i == 0) {
+                head = (head + 1) % slots.length;
+            } else {
+                for (int j = i; j < size - 1; ++j) {
+                    slots[(head + j) % slots.length] = slots[(head + j + 1) % slots.length];
+                }
+            }
+            size--;
+        }
+    }
+}
@@ -1,12 +1,8 @@
 package org.team100.lib.swerve;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-
+import com.team254.lib.geometry.MutableRotation2d;
 import com.team254.lib.geometry.Rotation2d;
 import com.team254.lib.geometry.Translation2d;
-import com.team254.lib.geometry.Twist2d;
 import com.team254.lib.swerve.ChassisSpeeds;
 import com.team254.lib.swerve.SwerveDriveKinematics;
 import com.team254.lib.swerve.SwerveModuleState;
@@ -22,6 +18,10 @@ import com.team254.lib.util.Util;
  * quickly while avoiding any intermediate state that is
  * kinematically infeasible (and can result in wheel slip or robot heading drift
  * as a result).
+ *
+ * The drive limit is solved in closed form, and the steering limit by a
+ * bounded iterative search, so the cost per cycle is fixed; after each call,
+ * getStatus() says whether every limit was solved exactly.
  */
 public class AsymSwerveSetpointGenerator {
     public static class KinematicLimits {
@@ -31,10 +31,87 @@ public class AsymSwerveSetpointGenerator {
         public double kMaxSteeringVelocity; // rad/s
     }
 
+    public static class Config {
+        /** Most root-finding iterations per module for the steering limit. */
+        public int maxSteeringIterations = 8;
+        /** Most iterations for the drive limit, if the closed form fails. */
+        public int maxDriveIterations = 10;
+        /** Roots are good enough within this, in radians or m/s. */
+        public double tolerance = 1e-9;
+        /**
+         * If the limits take longer than this, stop solving and hold the previous
+         * setpoint for this cycle. Zero means no limit.
+         */
+        public long timeBudgetNs = 0;
+    }
+
+    /** How the most recent generateSetpoint() went, from best to worst. */
+    public enum Status {
+        /** Every limit was solved exactly, or to within the tolerance. */
+        CONVERGED,
+        /** Some search ran out of iterations, and used a conservative bound. */
+        ITERATION_LIMIT,
+        /** Ran out of time, and held the previous setpoint. */
+        TIME_LIMIT
+    }
+
+    private static final ChassisSpeeds kStop = new ChassisSpeeds();
+
     private final SwerveDriveKinematics mKinematics;
+    private final Config mConfig;
+    private Status mStatus = Status.CONVERGED;
+    private int mIterations;
+
+    // Scratch space, so that generateSetpoint() allocates only its result, which
+    // also means it's not reentrant.
+    private final double[] mPrevVx;
+    private final double[] mPrevVy;
+    private final double[] mDesiredVx;
+    private final double[] mDesiredVy;
+    private final double[] mDesiredSpeed;
+    private final MutableRotation2d[] mPrevHeading;
+    private final MutableRotation2d[] mDesiredAngle;
+    private final MutableRotation2d[] mOverrideSteering;
+    private final boolean[] mOverride;
+    private final MutableRotation2d mRotation = new MutableRotation2d();
+    private final MutableRotation2d mStep = new MutableRotation2d();
+    private final ChassisSpeeds mDesired = new ChassisSpeeds();
 
     public AsymSwerveSetpointGenerator(final SwerveDriveKinematics kinematics) {
+        this(kinematics, new Config());
+    }
+
+    public AsymSwerveSetpointGenerator(final SwerveDriveKinematics kinematics, final Config config) {
         this.mKinematics = kinematics;
+        this.mConfig = config;
+        final int n = kinematics.getNumModules();
+        mPrevVx = new double[n];
+        mPrevVy = new double[n];
+        mDesiredVx = new double[n];
+        mDesiredVy = new double[n];
+        mDesiredSpeed = new double[n];
+        mPrevHeading = mutableRotations(n);
+        mDesiredAngle = mutableRotations(n);
+        mOverrideSteering = mutableRotations(n);
+        mOverride = new boolean[n];
+    }
+
+    /** How the most recent generateSetpoint() went. */
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    /** Root-finding iterations used by the most recent generateSetpoint(). */
+    public int getIterations() {
+        return mIterations;
+    }
+
+    private static MutableRotation2d[] mutableRotations(int n) {
+        MutableRotation2d[] result = new MutableRotation2d[n];
+        for (int i = 0; i < n; ++i) {
+            result[i] = new MutableRotation2d();
+        }
+        return result;
     }
 
     /**
@@ -46,7 +123,7 @@ public class AsymSwerveSetpointGenerator {
      * @return True if the shortest path to achieve this rotation involves flipping
      *         the drive direction.
      */
-    private boolean flipHeading(Rotation2d prevToGoal) {
+    private boolean flipHeading(MutableRotation2d prevToGoal) {
         return Math.abs(prevToGoal.getRadians()) > Math.PI / 2.0;
     }
 
@@ -61,48 +138,65 @@ public class AsymSwerveSetpointGenerator {
         }
     }
 
-    @FunctionalInterface
-    private interface Function2d {
-        public double f(double x, double y);
-    }
-
     /**
-     * Find the root of the generic 2D parametric function 'func' using the regula
-     * falsi technique. This is a pretty naive way to
-     * do root finding, but it's usually faster than simple bisection while being
-     * robust in ways that e.g. the Newton-Raphson
-     * method isn't.
-     * 
-     * @param func            The Function2d to take the root of.
-     * @param x_0             x value of the lower bracket.
-     * @param y_0             y value of the lower bracket.
-     * @param f_0             value of 'func' at x_0, y_0 (passed in by caller to
-     *                        save a call to 'func' during recursion)
-     * @param x_1             x value of the upper bracket.
-     * @param y_1             y value of the upper bracket.
-     * @param f_1             value of 'func' at x_1, y_1 (passed in by caller to
-     *                        save a call to 'func' during recursion)
-     * @param iterations_left Number of iterations of root finding left.
-     * @return The parameter value 's' that interpolating between 0 and 1 that
-     *         corresponds to the (approximate) root.
+     * Find the root of f(s) = g(x(s), y(s)) - offset, where (x, y) is linearly
+     * interpolated from (x_0, y_0) at s = 0 to (x_1, y_1) at s = 1, and g is
+     * either the unwrapped heading (steering) or the speed (drive).
+     *
+     * This is regula falsi, with the "Illinois" adjustment: when the same end of
+     * the bracket is kept twice in a row, its value is halved, which keeps the
+     * other end moving, so it converges in a few iterations instead of creeping
+     * up on the root from one side. It's iterative, bounded by max_iterations,
+     * and doesn't allocate.
+     *
+     * @param steering   True for heading, false for speed.
+     * @param ref        Reference for unwrapping the heading.
+     * @param offset     The value of g at the root.
+     * @param f_0        f at s = 0, i.e. g(x_0, y_0) - offset.
+     * @param f_1        f at s = 1.
+     * @return The root if converged; otherwise the end of the final bracket on
+     *         the s = 0 side of the root, which is conservative.
      */
-    private double findRoot(Function2d func, double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
-            int iterations_left) {
-        if (iterations_left < 0 || Util.epsilonEquals(f_0, f_1)) {
-            return 1.0;
-        }
-        var s_guess = Math.max(0.0, Math.min(1.0, -f_0 / (f_1 - f_0)));
-        var x_guess = (x_1 - x_0) * s_guess + x_0;
-        var y_guess = (y_1 - y_0) * s_guess + y_0;
-        var f_guess = func.f(x_guess, y_guess);
-        if (Math.signum(f_0) == Math.signum(f_guess)) {
-            // 0 and guess on same side of root, so use upper bracket.
-            return s_guess
-                    + (1.0 - s_guess) * findRoot(func, x_guess, y_guess, f_guess, x_1, y_1, f_1, iterations_left - 1);
-        } else {
-            // Use lower bracket.
-            return s_guess * findRoot(func, x_0, y_0, f_0, x_guess, y_guess, f_guess, iterations_left - 1);
+    private double findRoot(boolean steering, double ref, double offset,
+            double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
+            int max_iterations) {
+        double s_lo = 0.0;
+        double s_hi = 1.0;
+        double f_lo = f_0;
+        double f_hi = f_1;
+        int kept = 0; // which end was kept last time, -1 lo, 1 hi
+        for (int i = 0; i < max_iterations; ++i) {
+            ++mIterations;
+            if (Util.epsilonEquals(f_lo, f_hi)) {
+                return s_lo;
+            }
+            double s = s_lo + (s_hi - s_lo) * Math.max(0.0, Math.min(1.0, -f_lo / (f_hi - f_lo)));
+            double x = (x_1 - x_0) * s + x_0;
+            double y = (y_1 - y_0) * s + y_0;
+            double f = steering
+                    ? unwrapAngle(ref, Math.atan2(y, x)) - offset
+                    : Math.hypot(x, y) - offset;
+            if (Math.abs(f) <= mConfig.tolerance) {
+                return s;
+            }
+            if (Math.signum(f_0) == Math.signum(f)) {
+                s_lo = s;
+                f_lo = f;
+                if (kept == 1) {
+                    f_hi *= 0.5;
+                }
+                kept = 1;
+            } else {
+                s_hi = s;
+                f_hi = f;
+                if (kept == -1) {
+                    f_lo *= 0.5;
+                }
+                kept = -1;
+            }
         }
+        limit(Status.ITERATION_LIMIT);
+        return s_lo;
     }
 
     protected double findSteeringMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
@@ -114,10 +208,7 @@ public class AsymSwerveSetpointGenerator {
             return 1.0;
         }
         double offset = f_0 + Math.signum(diff) * max_deviation;
-        Function2d func = (x, y) -> {
-            return unwrapAngle(f_0, Math.atan2(y, x)) - offset;
-        };
-        return findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+        return findRoot(true, f_0, offset, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
     }
 
     protected double findDriveMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
@@ -128,36 +219,32 @@ public class AsymSwerveSetpointGenerator {
             return 1.0;
         }
         double offset = f_0 + Math.signum(diff) * max_vel_step;
-        Function2d func = (x, y) -> {
-            return Math.hypot(x, y) - offset;
-        };
-        return findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+        // The speed squared is quadratic in s:
+        // v^2 = ((x_1 - x_0) * s + x_0)^2 + ((y_1 - y_0) * s + y_0)^2
+        // = a * s^2 + b * s + c
+        // so solve v^2 = offset^2 directly. v^2 is convex, so if the speed is
+        // going up, it crosses the offset at the larger root, and if it's going
+        // down, at the smaller one.
+        final double dx = x_1 - x_0;
+        final double dy = y_1 - y_0;
+        final double a = dx * dx + dy * dy;
+        final double b = 2.0 * (x_0 * dx + y_0 * dy);
+        final double c = x_0 * x_0 + y_0 * y_0 - offset * offset;
+        final double discriminant = b * b - 4.0 * a * c;
+        if (a > Util.kEpsilon && discriminant >= 0.0) {
+            // the numerically stable form
+            final double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+            final double r_0 = q / a;
+            final double r_1 = q == 0.0 ? r_0 : c / q;
+            final double s = diff > 0 ? Math.max(r_0, r_1) : Math.min(r_0, r_1);
+            if (s >= 0.0 && s <= 1.0) {
+                return s;
+            }
+        }
+        // Roundoff put the root outside the interval, so fall back to searching.
+        return findRoot(false, 0.0, offset, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
     }
 
-    // protected double findDriveMaxS(double x_0, double y_0, double x_1, double
-    // y_1, double max_vel_step) {
-    // // Our drive velocity between s=0 and s=1 is quadratic in s:
-    // // v^2 = ((x_1 - x_0) * s + x_0)^2 + ((y_1 - y_0) * s + y_0)^2
-    // // = a * s^2 + b * s + c
-    // // Where:
-    // // a = (x_1 - x_0)^2 + (y_1 - y_0)^2
-    // // b = 2 * x_0 * (x_1 - x_0) + 2 * y_0 * (y_1 - y_0)
-    // // c = x_0^2 + y_0^2
-    // // We want to find where this quadratic results in a velocity that is >
-    // max_vel_step from our velocity at s=0:
-    // // sqrt(x_0^2 + y_0^2) +/- max_vel_step = ...quadratic...
-    // final double dx = x_1 - x_0;
-    // final double dy = y_1 - y_0;
-    // final double a = dx * dx + dy * dy;
-    // final double b = 2.0 * x_0 * dx + 2.0 * y_0 * dy;
-    // final double c = x_0 * x_0 + y_0 * y_0;
-    // final double v_limit_upper_2 = Math.pow(Math.hypot(x_0, y_0) + max_vel_step,
-    // 2.0);
-    // final double v_limit_lower_2 = Math.pow(Math.hypot(x_0, y_0) - max_vel_step,
-    // 2.0);
-    // return 0.0;
-    // }
-
     /**
      * Generate a new setpoint.
      *
@@ -173,71 +260,89 @@ public class AsymSwerveSetpointGenerator {
      */
     public SwerveSetpoint generateSetpoint(final KinematicLimits limits, final SwerveSetpoint prevSetpoint,
             ChassisSpeeds desiredState, double dt) {
+        final long startNs = mConfig.timeBudgetNs > 0 ? System.nanoTime() : 0;
+        mStatus = Status.CONVERGED;
+        mIterations = 0;
         final Translation2d[] modules = mKinematics.getModuleLocations();
+        final SwerveModuleState[] prevStates = prevSetpoint.mModuleStates;
 
-        SwerveModuleState[] desiredModuleState = mKinematics.toSwerveModuleStates(desiredState);
+        // Desired module states, as speed and angle.
+        mKinematics.toModuleVelocities(
+                desiredState.vxMetersPerSecond,
+                desiredState.vyMetersPerSecond,
+                desiredState.omegaRadiansPerSecond,
+                mDesiredVx,
+                mDesiredVy);
+        for (int i = 0; i < modules.length; ++i) {
+            mDesiredSpeed[i] = Math.hypot(mDesiredVx[i], mDesiredVy[i]);
+            mDesiredAngle[i].setTrig(mDesiredVx[i], mDesiredVy[i], true);
+        }
+        double desiredVx = desiredState.vxMetersPerSecond;
+        double desiredVy = desiredState.vyMetersPerSecond;
+        double desiredOmega = desiredState.omegaRadiansPerSecond;
         // Make sure desiredState respects velocity limits.
         if (limits.kMaxDriveVelocity > 0.0) {
-            SwerveDriveKinematics.desaturateWheelSpeeds(desiredModuleState, limits.kMaxDriveVelocity);
-            desiredState = mKinematics.toChassisSpeeds(desiredModuleState);
+            desaturateWheelSpeeds(mDesiredSpeed, limits.kMaxDriveVelocity);
+            for (int i = 0; i < modules.length; ++i) {
+                mDesiredVx[i] = mDesiredSpeed[i] * mDesiredAngle[i].cos();
+                mDesiredVy[i] = mDesiredSpeed[i] * mDesiredAngle[i].sin();
+            }
+            mKinematics.toChassisSpeeds(mDesiredVx, mDesiredVy, mDesired);
+            desiredVx = mDesired.vxMetersPerSecond;
+            desiredVy = mDesired.vyMetersPerSecond;
+            desiredOmega = mDesired.omegaRadiansPerSecond;
         }
 
         // Special case: desiredState is a complete stop. In this case, module angle is
         // arbitrary, so just use the previous angle.
         boolean need_to_steer = true;
-        if (desiredState.toTwist2d().epsilonEquals(Twist2d.identity(), Util.kEpsilon)) {
+        if (isStopped(desiredVx, desiredVy, desiredOmega)) {
             need_to_steer = false;
             for (int i = 0; i < modules.length; ++i) {
-                desiredModuleState[i].angle = prevSetpoint.mModuleStates[i].angle;
-                desiredModuleState[i].speedMetersPerSecond = 0.0;
+                mDesiredAngle[i].set(prevStates[i].angle);
+                mDesiredSpeed[i] = 0.0;
             }
         }
 
         // For each module, compute local Vx and Vy vectors.
-        double[] prev_vx = new double[modules.length];
-        double[] prev_vy = new double[modules.length];
-        Rotation2d[] prev_heading = new Rotation2d[modules.length];
-        double[] desired_vx = new double[modules.length];
-        double[] desired_vy = new double[modules.length];
-        Rotation2d[] desired_heading = new Rotation2d[modules.length];
         boolean all_modules_should_flip = true;
         for (int i = 0; i < modules.length; ++i) {
-            prev_vx[i] = prevSetpoint.mModuleStates[i].angle.cos() * prevSetpoint.mModuleStates[i].speedMetersPerSecond;
-            prev_vy[i] = prevSetpoint.mModuleStates[i].angle.sin() * prevSetpoint.mModuleStates[i].speedMetersPerSecond;
-            prev_heading[i] = prevSetpoint.mModuleStates[i].angle;
-            if (prevSetpoint.mModuleStates[i].speedMetersPerSecond < 0.0) {
-                prev_heading[i] = prev_heading[i].flip();
-            }
-            desired_vx[i] = desiredModuleState[i].angle.cos() * desiredModuleState[i].speedMetersPerSecond;
-            desired_vy[i] = desiredModuleState[i].angle.sin() * desiredModuleState[i].speedMetersPerSecond;
-            desired_heading[i] = desiredModuleState[i].angle;
-            if (desiredModuleState[i].speedMetersPerSecond < 0.0) {
-                desired_heading[i] = desired_heading[i].flip();
+            mPrevVx[i] = prevStates[i].angle.cos() * prevStates[i].speedMetersPerSecond;
+            mPrevVy[i] = prevStates[i].angle.sin() * prevStates[i].speedMetersPerSecond;
+            mPrevHeading[i].set(prevStates[i].angle);
+            if (prevStates[i].speedMetersPerSecond < 0.0) {
+                mPrevHeading[i].flip();
             }
+            mDesiredVx[i] = mDesiredAngle[i].cos() * mDesiredSpeed[i];
+            mDesiredVy[i] = mDesiredAngle[i].sin() * mDesiredSpeed[i];
+            // desired speeds are never negative, so the desired heading is the desired angle.
             if (all_modules_should_flip) {
                 double required_rotation_rad = Math
-                        .abs(prev_heading[i].inverse().rotateBy(desired_heading[i]).getRadians());
+                        .abs(mRotation.set(mPrevHeading[i]).inverse().rotateBy(mDesiredAngle[i]).getRadians());
                 if (required_rotation_rad < Math.PI / 2.0) {
                     all_modules_should_flip = false;
                 }
             }
         }
         if (all_modules_should_flip &&
-                !prevSetpoint.mChassisSpeeds.toTwist2d().epsilonEquals(Twist2d.identity(), Util.kEpsilon) &&
-                !desiredState.toTwist2d().epsilonEquals(Twist2d.identity(), Util.kEpsilon)) {
+                !isStopped(prevSetpoint.mChassisSpeeds.vxMetersPerSecond,
+                        prevSetpoint.mChassisSpeeds.vyMetersPerSecond,
+                        prevSetpoint.mChassisSpeeds.omegaRadiansPerSecond)
+                &&
+                !isStopped(desiredVx, desiredVy, desiredOmega)) {
             // It will (likely) be faster to stop the robot, rotate the modules in place to
             // the complement of the desired
             // angle, and accelerate again.
-            return generateSetpoint(limits, prevSetpoint, new ChassisSpeeds(), dt);
+            return generateSetpoint(limits, prevSetpoint, kStop, dt);
         }
 
         // Compute the deltas between start and goal. We can then interpolate from the
         // start state to the goal state; then
         // find the amount we can move from start towards goal in this cycle such that
         // no kinematic limit is exceeded.
-        double dx = desiredState.vxMetersPerSecond - prevSetpoint.mChassisSpeeds.vxMetersPerSecond;
-        double dy = desiredState.vyMetersPerSecond - prevSetpoint.mChassisSpeeds.vyMetersPerSecond;
-        double dtheta = desiredState.omegaRadiansPerSecond - prevSetpoint.mChassisSpeeds.omegaRadiansPerSecond;
+        double dx = desiredVx - prevSetpoint.mChassisSpeeds.vxMetersPerSecond;
+        double dy = desiredVy - prevSetpoint.mChassisSpeeds.vyMetersPerSecond;
+        double dtheta = desiredOmega - prevSetpoint.mChassisSpeeds.omegaRadiansPerSecond;
 
         // 's' interpolates between start and goal. At 0, we are at prevState and at 1,
         // we are at desiredState.
@@ -247,7 +352,6 @@ public class AsymSwerveSetpointGenerator {
         // steering angle to command (since
         // inverse kinematics doesn't care about angle, we can be opportunistically
         // lazy).
-        List<Optional<Rotation2d>> overrideSteering = new ArrayList<>(modules.length);
         // Enforce steering velocity limits. We do this by taking the derivative of
         // steering angle at the current angle,
         // and then backing out the maximum interpolant between start and goal states.
@@ -256,37 +360,41 @@ public class AsymSwerveSetpointGenerator {
         final double max_theta_step = dt * limits.kMaxSteeringVelocity;
         for (int i = 0; i < modules.length; ++i) {
             if (!need_to_steer) {
-                overrideSteering.add(Optional.of(prevSetpoint.mModuleStates[i].angle));
+                mOverride[i] = true;
+                mOverrideSteering[i].set(prevStates[i].angle);
                 continue;
             }
-            overrideSteering.add(Optional.empty());
-            if (Util.epsilonEquals(prevSetpoint.mModuleStates[i].speedMetersPerSecond, 0.0)) {
+            mOverride[i] = false;
+            if (Util.epsilonEquals(prevStates[i].speedMetersPerSecond, 0.0)) {
                 // If module is stopped, we know that we will need to move straight to the final
                 // steering angle, so limit based
                 // purely on rotation in place.
-                if (Util.epsilonEquals(desiredModuleState[i].speedMetersPerSecond, 0.0)) {
+                if (Util.epsilonEquals(mDesiredSpeed[i], 0.0)) {
                     // Goal angle doesn't matter. Just leave module at its current angle.
-                    overrideSteering.set(i, Optional.of(prevSetpoint.mModuleStates[i].angle));
+                    mOverride[i] = true;
+                    mOverrideSteering[i].set(prevStates[i].angle);
                     continue;
                 }
 
-                var necessaryRotation = prevSetpoint.mModuleStates[i].angle.inverse().rotateBy(
-                        desiredModuleState[i].angle);
+                MutableRotation2d necessaryRotation = mRotation.set(prevStates[i].angle).inverse()
+                        .rotateBy(mDesiredAngle[i]);
                 if (flipHeading(necessaryRotation)) {
-                    necessaryRotation = necessaryRotation.rotateBy(Rotation2d.kPi);
+                    necessaryRotation.rotateBy(Rotation2d.kPi);
                 }
                 // getRadians() bounds to +/- Pi.
                 final double numStepsNeeded = Math.abs(necessaryRotation.getRadians()) / max_theta_step;
 
                 if (numStepsNeeded <= 1.0) {
                     // Steer directly to goal angle.
-                    overrideSteering.set(i, Optional.of(desiredModuleState[i].angle));
+                    mOverride[i] = true;
+                    mOverrideSteering[i].set(mDesiredAngle[i]);
                     // Don't limit the global min_s;
                     continue;
                 } else {
                     // Adjust steering by max_theta_step.
-                    overrideSteering.set(i, Optional.of(prevSetpoint.mModuleStates[i].angle.rotateBy(
-                            Rotation2d.fromRadians(Math.signum(necessaryRotation.getRadians()) * max_theta_step))));
+                    mOverride[i] = true;
+                    mOverrideSteering[i].set(prevStates[i].angle).rotateBy(
+                            mStep.setRadians(Math.signum(necessaryRotation.getRadians()) * max_theta_step, true));
                     min_s = 0.0;
                     continue;
                 }
@@ -295,12 +403,15 @@ public class AsymSwerveSetpointGenerator {
                 // s can't get any lower. Save some CPU.
                 continue;
             }
+            if (outOfTime(startNs)) {
+                min_s = 0.0;
+                continue;
+            }
 
             //TODO(add range reduction trick)
-            final int kMaxIterations = 8;
-            double s = findSteeringMaxS(prev_vx[i], prev_vy[i], prev_heading[i].getRadians(),
-                    desired_vx[i], desired_vy[i], desired_heading[i].getRadians(),
-                    max_theta_step, kMaxIterations);
+            double s = findSteeringMaxS(mPrevVx[i], mPrevVy[i], mPrevHeading[i].getRadians(),
+                    mDesiredVx[i], mDesiredVy[i], mDesiredAngle[i].getRadians(),
+                    max_theta_step, mConfig.maxSteeringIterations);
             min_s = Math.min(min_s, s);
         }
 
@@ -311,21 +422,21 @@ public class AsymSwerveSetpointGenerator {
                 // No need to carry on.
                 break;
             }
-            var max_vel_step = Math.hypot(desired_vx[i], desired_vy[i]) >= Math.hypot(prev_vx[i], prev_vy[i])
+            if (outOfTime(startNs)) {
+                min_s = 0.0;
+                break;
+            }
+            var max_vel_step = Math.hypot(mDesiredVx[i], mDesiredVy[i]) >= Math.hypot(mPrevVx[i], mPrevVy[i])
                     ? dt * limits.kMaxDriveAcceleration
                     : dt * limits.kMaxDriveDecceleration;
-            double vx_min_s = min_s == 1.0 ? desired_vx[i] : (desired_vx[i] - prev_vx[i]) * min_s + prev_vx[i];
-            double vy_min_s = min_s == 1.0 ? desired_vy[i] : (desired_vy[i] - prev_vy[i]) * min_s + prev_vy[i];
+            double vx_min_s = min_s == 1.0 ? mDesiredVx[i] : (mDesiredVx[i] - mPrevVx[i]) * min_s + mPrevVx[i];
+            double vy_min_s = min_s == 1.0 ? mDesiredVy[i] : (mDesiredVy[i] - mPrevVy[i]) * min_s + mPrevVy[i];
             // Find the max s for this drive wheel. Search on the interval between 0 and
             // min_s, because we already know we can't go faster
             // than that.
-            // TODO(for efficiency, do all this on v^2 to save a bunch of sqrts)
-            // TODO(be smarter about root finding, since this is just a quadratic in s:
-            // ((xf-x0)*s+x0)^2+((yf-y0)*s+y0)^2)
-            final int kMaxIterations = 10;
-            double s = min_s * findDriveMaxS(prev_vx[i], prev_vy[i], Math.hypot(prev_vx[i], prev_vy[i]),
+            double s = min_s * findDriveMaxS(mPrevVx[i], mPrevVy[i], Math.hypot(mPrevVx[i], mPrevVy[i]),
                     vx_min_s, vy_min_s, Math.hypot(vx_min_s, vy_min_s),
-                    max_vel_step, kMaxIterations);
+                    max_vel_step, mConfig.maxDriveIterations);
             min_s = Math.min(min_s, s);
         }
 
@@ -333,22 +444,67 @@ public class AsymSwerveSetpointGenerator {
                 prevSetpoint.mChassisSpeeds.vxMetersPerSecond + min_s * dx,
                 prevSetpoint.mChassisSpeeds.vyMetersPerSecond + min_s * dy,
                 prevSetpoint.mChassisSpeeds.omegaRadiansPerSecond + min_s * dtheta);
-        var retStates = mKinematics.toSwerveModuleStates(retSpeeds);
+        // the desired arrays are free now.
+        mKinematics.toModuleVelocities(
+                retSpeeds.vxMetersPerSecond,
+                retSpeeds.vyMetersPerSecond,
+                retSpeeds.omegaRadiansPerSecond,
+                mDesiredVx,
+                mDesiredVy);
+        SwerveModuleState[] retStates = new SwerveModuleState[modules.length];
         for (int i = 0; i < modules.length; ++i) {
-            final var maybeOverride = overrideSteering.get(i);
-            if (maybeOverride.isPresent()) {
-                var override = maybeOverride.get();
-                if (flipHeading(retStates[i].angle.inverse().rotateBy(override))) {
-                    retStates[i].speedMetersPerSecond *= -1.0;
+            double speed = Math.hypot(mDesiredVx[i], mDesiredVy[i]);
+            MutableRotation2d angle = mRotation.setTrig(mDesiredVx[i], mDesiredVy[i], true);
+            if (mOverride[i]) {
+                MutableRotation2d override = mOverrideSteering[i];
+                if (flipHeading(mStep.set(angle).inverse().rotateBy(override))) {
+                    speed *= -1.0;
                 }
-                retStates[i].angle = override;
+                angle.set(override);
             }
-            final var deltaRotation = prevSetpoint.mModuleStates[i].angle.inverse().rotateBy(retStates[i].angle);
+            final MutableRotation2d deltaRotation = mStep.set(prevStates[i].angle).inverse().rotateBy(angle);
             if (flipHeading(deltaRotation)) {
-                retStates[i].angle = retStates[i].angle.flip();
-                retStates[i].speedMetersPerSecond *= -1.0;
+                angle.flip();
+                speed *= -1.0;
             }
+            retStates[i] = new SwerveModuleState(speed, angle.toRotation2d());
         }
         return new SwerveSetpoint(retSpeeds, retStates);
     }
+
+    /** True if the time budget is used up, in which case also note it. */
+    private boolean outOfTime(long startNs) {
+        if (mConfig.timeBudgetNs <= 0 || System.nanoTime() - startNs < mConfig.timeBudgetNs) {
+            return false;
+        }
+        limit(Status.TIME_LIMIT);
+        return true;
+    }
+
+    /** Note a limit, keeping the worst one. */
+    private void limit(Status status) {
+        if (status.compareTo(mStatus) > 0) {
+            mStatus = status;
+        }
+    }
+
+    /** Same as toTwist2d().epsilonEquals(Twist2d.identity(), Util.kEpsilon). */
+    private static boolean isStopped(double vx, double vy, double omega) {
+        return Util.epsilonEquals(vx, 0.0, Util.kEpsilon)
+                && Util.epsilonEquals(vy, 0.0, Util.kEpsilon)
+                && Util.epsilonEquals(omega, 0.0, Util.kEpsilon);
+    }
+
+    /** Same as SwerveDriveKinematics.desaturateWheelSpeeds(), for bare speeds. */
+    private static void desaturateWheelSpeeds(double[] speeds, double attainableMaxSpeedMetersPerSecond) {
+        double realMaxSpeed = speeds[0];
+        for (int i = 1; i < speeds.length; ++i) {
+            realMaxSpeed = Math.max(realMaxSpeed, speeds[i]);
+        }
+        if (realMaxSpeed > attainableMaxSpeedMetersPerSecond) {
+            for (int i = 0; i < speeds.length; ++i) {
+                speeds[i] = speeds[i] / realMaxSpeed * attainableMaxSpeedMetersPerSecond;
+            }
+        }
+    }
 }
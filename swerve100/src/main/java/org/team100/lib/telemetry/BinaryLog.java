@@ -0,0 +1,181 @@
+package org.team100.lib.telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * High-rate binary log of records of one type, e.g. a PeriodicIO struct for
+ * every module every cycle.
+ *
+ * add() copies the record's public primitive fields (see LogSchema) into a
+ * preallocated direct buffer; it doesn't make strings or any other garbage, so
+ * it's fine to call from the control loop. Full buffers are written to the file
+ * by a background thread. If the writer falls so far behind that there are no
+ * empty buffers left, records are dropped rather than blocking the caller; see
+ * getDropped(). A partly-full buffer is handed to the writer once it's a second
+ * old, so a crash or a brownout loses at most about a second of records.
+ *
+ * Each log is a new file, so a reboot never clobbers the last run's log; use
+ * newFileName() to pick one.
+ *
+ * Use BinaryLogToCSV to read the file.
+ */
+public class BinaryLog<T> implements AutoCloseable {
+    private static final int kBufferBytes = 64 * 1024;
+    private static final int kBuffers = 8;
+    /** Tells the writer thread to stop. */
+    private static final ByteBuffer kStop = ByteBuffer.allocate(0);
+    private static final long kFlushPeriodNs = 1_000_000_000;
+    private static final DateTimeFormatter kTimeFormat = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final LogSchema m_schema;
+    private final FileChannel m_channel;
+    private final BlockingQueue<ByteBuffer> m_free = new ArrayBlockingQueue<>(kBuffers);
+    private final BlockingQueue<ByteBuffer> m_full = new ArrayBlockingQueue<>(kBuffers + 1);
+    private final Thread m_writer;
+    private final Object m_lock = new Object();
+
+    /** The buffer being filled, or null if there isn't one. */
+    private ByteBuffer m_current;
+    private long m_submitted;
+    private long m_submittedNs;
+    private int m_dropped;
+    /** Buffers written so far, guarded by m_lock. */
+    private long m_written;
+    /** The writer thread gave up, guarded by m_lock. */
+    private boolean m_failed;
+
+    /**
+     * Create the file and write the header.
+     *
+     * @throws java.nio.file.FileAlreadyExistsException if there's already a file
+     *                                                  by that name.
+     * @throws IllegalArgumentException                 if the type can't be
+     *                                                  logged.
+     */
+    public BinaryLog(String fileName, Class<T> type) throws IOException {
+        m_schema = LogSchema.of(type);
+        if (m_schema.getRecordBytes() > kBufferBytes || m_schema.headerBytes() > kBufferBytes)
+            throw new IllegalArgumentException("record too big: " + type.getName());
+        for (int i = 0; i < kBuffers; ++i) {
+            m_free.add(ByteBuffer.allocateDirect(kBufferBytes));
+        }
+        m_channel = FileChannel.open(Path.of(fileName),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        m_current = m_free.poll();
+        m_schema.writeHeader(m_current);
+        m_submittedNs = System.nanoTime();
+        m_writer = new Thread(this::run, "BinaryLog " + fileName);
+        m_writer.setDaemon(true);
+        m_writer.start();
+    }
+
+    /**
+     * A file name that isn't taken yet: the prefix, the local time, and ".bin",
+     * e.g. "/home/lvuser/module-test-20230312-141500.bin". The roboRIO's clock
+     * may not be set until the driver station connects, so if the name is taken,
+     * a counter is added.
+     */
+    public static String newFileName(String prefix) {
+        String name = prefix + "-" + LocalDateTime.now().format(kTimeFormat);
+        String fileName = name + ".bin";
+        for (int i = 1; Files.exists(Path.of(fileName)); ++i) {
+            fileName = name + "-" + i + ".bin";
+        }
+        return fileName;
+    }
+
+    /** Append the value's fields. Cheap enough for every cycle. */
+    public synchronized void add(T value) {
+        if (m_current != null && m_current.remaining() < m_schema.getRecordBytes())
+            submit();
+        else if (m_current != null && System.nanoTime() - m_submittedNs > kFlushPeriodNs)
+            submit();
+        if (m_current == null)
+            m_current = m_free.poll();
+        if (m_current == null) {
+            ++m_dropped;
+            return;
+        }
+        m_schema.write(value, m_current);
+    }
+
+    /** Records dropped because the writer couldn't keep up. */
+    public synchronized int getDropped() {
+        return m_dropped;
+    }
+
+    /**
+     * Write everything added so far, and wait for it. This blocks add() while it
+     * waits, so don't call it from the loop.
+     */
+    public synchronized void flush() {
+        if (m_current != null && m_current.position() > 0)
+            submit();
+        synchronized (m_lock) {
+            try {
+                while (m_written < m_submitted && !m_failed) {
+                    m_lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Flush, stop the writer thread, and close the file. */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        m_full.add(kStop);
+        try {
+            m_writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        m_channel.close();
+    }
+
+    private void submit() {
+        m_full.add(m_current);
+        m_current = null;
+        ++m_submitted;
+        m_submittedNs = System.nanoTime();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                ByteBuffer buffer = m_full.take();
+                if (buffer == kStop)
+                    return;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    m_channel.write(buffer);
+                }
+                buffer.clear();
+                m_free.add(buffer);
+                synchronized (m_lock) {
+                    ++m_written;
+                    m_lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (m_lock) {
+            m_failed = true;
+            m_lock.notifyAll();
+        }
+    }
+}
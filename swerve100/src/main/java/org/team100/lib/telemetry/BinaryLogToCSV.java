@@ -0,0 +1,94 @@
+package org.team100.lib.telemetry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Converts a BinaryLog file to CSV, offline, e.g. after copying the log off the
+ * robot. The format matches the old text logs: a header of field names, and
+ * ", " between values.
+ *
+ * Usage: BinaryLogToCSV input.bin output.csv
+ */
+public class BinaryLogToCSV {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BinaryLogToCSV input.bin output.csv");
+            System.exit(1);
+        }
+        convert(Path.of(args[0]), Path.of(args[1]));
+    }
+
+    /** @return the number of records */
+    public static int convert(Path input, Path output) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(input)));
+                BufferedWriter out = Files.newBufferedWriter(output)) {
+            return convert(in, out);
+        }
+    }
+
+    static int convert(DataInputStream in, Writer out) throws IOException {
+        if (in.readInt() != LogSchema.kMagic)
+            throw new IOException("not a BinaryLog file");
+        int fieldCount = in.readShort();
+        char[] codes = new char[fieldCount];
+        for (int i = 0; i < fieldCount; ++i) {
+            codes[i] = (char) in.readByte();
+            byte[] name = new byte[in.readShort()];
+            in.readFully(name);
+            if (i > 0)
+                out.write(", ");
+            out.write(new String(name, StandardCharsets.UTF_8));
+        }
+        out.write('\n');
+        int records = 0;
+        while (true) {
+            for (int i = 0; i < fieldCount; ++i) {
+                String value;
+                try {
+                    value = read(codes[i], in);
+                } catch (EOFException e) {
+                    if (i == 0)
+                        return records;
+                    throw new IOException("truncated record " + records, e);
+                }
+                if (i > 0)
+                    out.write(", ");
+                out.write(value);
+            }
+            out.write('\n');
+            ++records;
+        }
+    }
+
+    private static String read(char code, DataInputStream in) throws IOException {
+        switch (code) {
+            case 'D':
+                return Double.toString(in.readDouble());
+            case 'F':
+                return Float.toString(in.readFloat());
+            case 'J':
+                return Long.toString(in.readLong());
+            case 'I':
+                return Integer.toString(in.readInt());
+            case 'S':
+                return Short.toString(in.readShort());
+            case 'C':
+                return Character.toString(in.readChar());
+            case 'B':
+                return Byte.toString(in.readByte());
+            case 'Z':
+                return Boolean.toString(in.readByte() != 0);
+            default:
+                throw new IOException("unknown type code " + code);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.team100.lib.telemetry;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+
+/**
+ * Publishes a boolean only when it changes, at most at the max rate, within the
+ * global budget. See PublishGate.
+ */
+public class GatedBooleanPublisher {
+    private final BooleanPublisher m_publisher;
+    private final PublishGate m_gate;
+    private boolean m_last;
+
+    public GatedBooleanPublisher(BooleanPublisher publisher, double maxRateHz) {
+        m_publisher = publisher;
+        m_gate = new PublishGate(maxRateHz);
+    }
+
+    /** Call as often as you like. */
+    public void set(boolean value) {
+        if (m_gate.offer(value != m_last, 1, System.nanoTime())) {
+            m_publisher.set(value);
+            m_last = value;
+        }
+    }
+}
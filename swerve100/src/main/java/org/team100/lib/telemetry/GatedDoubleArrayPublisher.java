@@ -0,0 +1,54 @@
+package org.team100.lib.telemetry;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+
+/**
+ * Publishes a fixed-length double array only when some element changes by more
+ * than the deadband, at most at the max rate, within the global budget. See
+ * PublishGate.
+ *
+ * To avoid making an array every cycle, fill the buffer and then publish:
+ *
+ * <pre>
+ * double[] pose = m_posePublisher.buffer();
+ * pose[0] = x;
+ * pose[1] = y;
+ * m_posePublisher.publish();
+ * </pre>
+ */
+public class GatedDoubleArrayPublisher {
+    private final DoubleArrayPublisher m_publisher;
+    private final double m_deadband;
+    private final PublishGate m_gate;
+    private final double[] m_next;
+    private final double[] m_last;
+
+    public GatedDoubleArrayPublisher(DoubleArrayPublisher publisher, int length, double deadband, double maxRateHz) {
+        m_publisher = publisher;
+        m_deadband = deadband;
+        m_gate = new PublishGate(maxRateHz);
+        m_next = new double[length];
+        m_last = new double[length];
+    }
+
+    /** The array to fill before calling publish(). */
+    public double[] buffer() {
+        return m_next;
+    }
+
+    /** Publish the buffer, if it's changed enough. */
+    public void publish() {
+        boolean changed = false;
+        for (int i = 0; i < m_next.length; ++i) {
+            if (PublishGate.changed(m_next[i], m_last[i], m_deadband)) {
+                changed = true;
+                break;
+            }
+        }
+        if (m_gate.offer(changed, Double.BYTES * m_next.length, System.nanoTime())) {
+            // NT copies the array, so the buffer can be reused right away.
+            m_publisher.set(m_next);
+            System.arraycopy(m_next, 0, m_last, 0, m_next.length);
+        }
+    }
+}
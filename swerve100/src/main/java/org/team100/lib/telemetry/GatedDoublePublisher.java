@@ -0,0 +1,28 @@
+package org.team100.lib.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+
+/**
+ * Publishes a double only when it changes by more than the deadband, at most
+ * at the max rate, within the global budget. See PublishGate.
+ */
+public class GatedDoublePublisher {
+    private final DoublePublisher m_publisher;
+    private final double m_deadband;
+    private final PublishGate m_gate;
+    private double m_last;
+
+    public GatedDoublePublisher(DoublePublisher publisher, double deadband, double maxRateHz) {
+        m_publisher = publisher;
+        m_deadband = deadband;
+        m_gate = new PublishGate(maxRateHz);
+    }
+
+    /** Call as often as you like. */
+    public void set(double value) {
+        if (m_gate.offer(PublishGate.changed(value, m_last, m_deadband), Double.BYTES, System.nanoTime())) {
+            m_publisher.set(value);
+            m_last = value;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.team100.lib.telemetry;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary layout of a record type for BinaryLog: the public primitive instance
+ * fields of the class, one after the other, big-endian, with no framing. Every
+ * record of a type is the same size.
+ *
+ * The fields are read with method handles made once, when the type is first
+ * registered, so writing a record doesn't reflect, box, or allocate.
+ *
+ * The log file starts with a header describing the layout, so BinaryLogToCSV
+ * can read it without the class:
+ *
+ * <pre>
+ * int    magic
+ * short  field count
+ * for each field:
+ *   byte   type, the JVM descriptor character, e.g. 'D' for double
+ *   short  name length
+ *   byte[] name, UTF-8
+ * </pre>
+ */
+public class LogSchema {
+    static final int kMagic = 0x54313030; // "T100"
+
+    private static final Map<Class<?>, LogSchema> schemas = new ConcurrentHashMap<>();
+
+    private final String[] m_names;
+    private final char[] m_codes;
+    private final MethodHandle[] m_getters;
+    private final int m_recordBytes;
+
+    /**
+     * The schema for the type, made the first time it's asked for.
+     *
+     * @throws IllegalArgumentException if the type has a public field that isn't
+     *                                  primitive.
+     */
+    public static LogSchema of(Class<?> type) {
+        return schemas.computeIfAbsent(type, LogSchema::new);
+    }
+
+    private LogSchema(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()))
+                fields.add(field);
+        }
+        m_names = new String[fields.size()];
+        m_codes = new char[fields.size()];
+        m_getters = new MethodHandle[fields.size()];
+        int recordBytes = 0;
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (int i = 0; i < fields.size(); ++i) {
+            Field field = fields.get(i);
+            Class<?> fieldType = field.getType();
+            if (!fieldType.isPrimitive())
+                throw new IllegalArgumentException("not a primitive field: " + field);
+            m_names[i] = field.getName();
+            m_codes[i] = code(fieldType);
+            recordBytes += size(m_codes[i]);
+            try {
+                // erase the receiver, so the writer can use invokeExact on any T.
+                m_getters[i] = lookup.unreflectGetter(field)
+                        .asType(MethodType.methodType(fieldType, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("inaccessible field: " + field, e);
+            }
+        }
+        m_recordBytes = recordBytes;
+    }
+
+    public int getRecordBytes() {
+        return m_recordBytes;
+    }
+
+    public String[] getNames() {
+        return m_names.clone();
+    }
+
+    /** Bytes needed for the header. */
+    int headerBytes() {
+        int bytes = 6;
+        for (String name : m_names) {
+            bytes += 3 + name.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(kMagic);
+        buffer.putShort((short) m_names.length);
+        for (int i = 0; i < m_names.length; ++i) {
+            byte[] name = m_names[i].getBytes(StandardCharsets.UTF_8);
+            buffer.put((byte) m_codes[i]);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+    }
+
+    /** Append one record; the buffer must have room for it. */
+    void write(Object value, ByteBuffer buffer) {
+        try {
+            for (int i = 0; i < m_getters.length; ++i) {
+                MethodHandle getter = m_getters[i];
+                switch (m_codes[i]) {
+                    case 'D':
+                        buffer.putDouble((double) getter.invokeExact(value));
+                        break;
+                    case 'F':
+                        buffer.putFloat((float) getter.invokeExact(value));
+                        break;
+                    case 'J':
+                        buffer.putLong((long) getter.invokeExact(value));
+                        break;
+                    case 'I':
+                        buffer.putInt((int) getter.invokeExact(value));
+                        break;
+                    case 'S':
+                        buffer.putShort((short) getter.invokeExact(value));
+                        break;
+                    case 'C':
+                        buffer.putChar((char) getter.invokeExact(value));
+                        break;
+                    case 'B':
+                        buffer.put((byte) getter.invokeExact(value));
+                        break;
+                    case 'Z':
+                        buffer.put((boolean) getter.invokeExact(value) ? (byte) 1 : (byte) 0);
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown type code " + m_codes[i]);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // field getters don't throw checked exceptions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static char code(Class<?> type) {
+        if (type == double.class)
+            return 'D';
+        if (type == float.class)
+            return 'F';
+        if (type == long.class)
+            return 'J';
+        if (type == int.class)
+            return 'I';
+        if (type == short.class)
+            return 'S';
+        if (type == char.class)
+            return 'C';
+        if (type == byte.class)
+            return 'B';
+        if (type == boolean.class)
+            return 'Z';
+        throw new IllegalArgumentException("not a primitive type: " + type);
+    }
+
+    static int size(char code) {
+        switch (code) {
+            case 'D':
+            case 'J':
+                return 8;
+            case 'F':
+            case 'I':
+                return 4;
+            case 'S':
+            case 'C':
+                return 2;
+            case 'B':
+            case 'Z':
+                return 1;
+            default:
+                throw new IllegalArgumentException("unknown type code " + code);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.team100.lib.telemetry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Per-stage timing for the robot loop.
+ * 
+ * Each subsystem or command that wants to be measured asks for a StageTimer by
+ * name, once, and brackets its work with start() and stop(). Robot calls
+ * periodic() once per loop; every second or so that publishes each stage's
+ * [p50, p99, max, count] (ms, ms, ms, samples) to the "loop timing" table and
+ * starts a new window.
+ * 
+ * This is meant to find which stage eats the budget when the loop overruns,
+ * without attaching a profiler.
+ * 
+ * Subsystems time their own periodic(); commands are timed by instrument(),
+ * which hooks the scheduler, as "execute Name".
+ * 
+ * It also publishes the PublishBudget counters for the same window, as
+ * "telemetry": [published, suppressed, coalesced, dropped].
+ */
+public class LoopTiming {
+    /** Loop cycles between publications, i.e. once a second at 50 Hz. */
+    private static final int kPublishPeriod = 50;
+
+    private static final List<StageTimer> stages = new ArrayList<>();
+    private static final List<DoubleArrayPublisher> publishers = new ArrayList<>();
+    private static final double[] stats = new double[4];
+    private static int cycles;
+
+    // see instrument()
+    private static Thread mainThread;
+    private static long markNs;
+    // by name, not instance, since commands are often made per button press.
+    private static final Map<String, StageTimer> commands = new HashMap<>();
+
+    /**
+     * Find or make the timer for the named stage. Call this from a constructor,
+     * not from the loop.
+     */
+    public static synchronized StageTimer stage(String name) {
+        for (StageTimer stage : stages) {
+            if (stage.getName().equals(name))
+                return stage;
+        }
+        StageTimer stage = new StageTimer(name);
+        stages.add(stage);
+        publishers.add(table.getDoubleArrayTopic(name).publish());
+        return stage;
+    }
+
+    /**
+     * Time every command's execute(). The scheduler only says when each
+     * execute() has finished, so each command is charged with the time since the
+     * previous one finished, or, for the first, since the last stage on the robot
+     * thread stopped, i.e. the last subsystem periodic(). So the times include a
+     * little scheduler bookkeeping (button polling, the previous isFinished()),
+     * and every subsystem periodic() should be timed, or the first command is
+     * charged for it. Commands with the same name share a timer.
+     * 
+     * Call once, from the robot thread.
+     */
+    public static void instrument(CommandScheduler scheduler) {
+        mainThread = Thread.currentThread();
+        scheduler.onCommandExecute(LoopTiming::executed);
+    }
+
+    /** Called by StageTimer.stop(); only the robot thread counts. */
+    static void stopped(long nowNs) {
+        if (Thread.currentThread() == mainThread)
+            markNs = nowNs;
+    }
+
+    private static void executed(Command command) {
+        long nowNs = System.nanoTime();
+        String name = command.getName();
+        StageTimer timer = commands.get(name);
+        if (timer == null) {
+            timer = stage("execute " + name);
+            commands.put(name, timer);
+        }
+        timer.record(nowNs - markNs);
+        markNs = nowNs;
+    }
+
+    /** Call once per loop; publishes at a low rate. */
+    public static synchronized void periodic() {
+        if (++cycles < kPublishPeriod)
+            return;
+        cycles = 0;
+        for (int i = 0; i < stages.size(); ++i) {
+            stages.get(i).drain(stats);
+            publishers.get(i).set(stats);
+        }
+        PublishBudget.drain(telemetryCounts);
+        telemetryPublisher.set(telemetryCounts);
+    }
+
+    //////////////////////////////////////////////////
+
+    private static final NetworkTableInstance inst = NetworkTableInstance.getDefault();
+    private static final NetworkTable table = inst.getTable("loop timing");
+    private static final DoubleArrayPublisher telemetryPublisher = table.getDoubleArrayTopic("telemetry").publish();
+    private static final double[] telemetryCounts = new double[4];
+
+    private LoopTiming() {
+    }
+}
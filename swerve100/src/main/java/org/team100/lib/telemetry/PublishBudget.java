@@ -0,0 +1,93 @@
+package org.team100.lib.telemetry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global telemetry bandwidth limit, shared by all the gated publishers, and
+ * counters of what they did.
+ *
+ * The limit is a token bucket in bytes: it refills at the budget rate, up to a
+ * tenth of a second's worth, and each publish spends its estimated size. When
+ * the bucket is empty, updates are dropped; the publisher hasn't recorded the
+ * value as sent, so it goes out the next time the caller sets it, if there's
+ * room then.
+ *
+ * Like LoopTiming, this is static, so publishers don't need to be wired to it.
+ * Only the bucket is locked, in spend(); the counters are LongAdders, so the
+ * common cases, a suppressed or coalesced value, don't contend at all.
+ */
+public class PublishBudget {
+    /** Default budget, a small fraction of the field network. */
+    static final double kDefaultBytesPerSec = 50_000;
+    /** Rough size of an NT update besides the value: topic id, timestamp, type. */
+    static final int kOverheadBytes = 16;
+    private static final double kBurstSec = 0.1;
+
+    private static double bytesPerSec = kDefaultBytesPerSec;
+    private static double tokens = bytesPerSec * kBurstSec;
+    private static long lastNs = System.nanoTime();
+
+    private static final LongAdder published = new LongAdder();
+    private static final LongAdder suppressed = new LongAdder();
+    private static final LongAdder coalesced = new LongAdder();
+    private static final LongAdder dropped = new LongAdder();
+
+    /** Change the budget, e.g. to leave more room for vision. */
+    public static synchronized void setBytesPerSec(double budget) {
+        if (budget <= 0)
+            throw new IllegalArgumentException("budget must be positive");
+        bytesPerSec = budget;
+    }
+
+    /**
+     * Copy [published, suppressed, coalesced, dropped] since the last drain into
+     * the array, and start over. Updates racing with this land in one drain or
+     * the next.
+     */
+    public static void drain(double[] counts) {
+        counts[0] = published.sumThenReset();
+        counts[1] = suppressed.sumThenReset();
+        counts[2] = coalesced.sumThenReset();
+        counts[3] = dropped.sumThenReset();
+    }
+
+    /** The value is within the deadband of the last one published. */
+    static void suppress() {
+        suppressed.increment();
+    }
+
+    /** The value changed, but the key was published too recently. */
+    static void coalesce() {
+        coalesced.increment();
+    }
+
+    /** Spend the budget for a value of this size, if there's enough. */
+    static boolean spend(int valueBytes, long nowNs) {
+        if (take(valueBytes + kOverheadBytes, nowNs)) {
+            published.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private static synchronized boolean take(int bytes, long nowNs) {
+        tokens = Math.min(bytesPerSec * kBurstSec, tokens + (nowNs - lastNs) * 1e-9 * bytesPerSec);
+        lastNs = nowNs;
+        if (tokens < bytes)
+            return false;
+        tokens -= bytes;
+        return true;
+    }
+
+    /** For tests. */
+    static synchronized void reset(double budget, long nowNs) {
+        bytesPerSec = budget;
+        tokens = bytesPerSec * kBurstSec;
+        lastNs = nowNs;
+        drain(new double[4]);
+    }
+
+    private PublishBudget() {
+    }
+}
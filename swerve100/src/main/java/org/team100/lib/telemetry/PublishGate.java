@@ -0,0 +1,50 @@
+package org.team100.lib.telemetry;
+
+/**
+ * Decides whether one key's new value is worth publishing: only if it's moved
+ * past the deadband since the last publish, no faster than the max rate, and
+ * within the global PublishBudget. The first value always goes out (budget
+ * permitting).
+ *
+ * Values held back by the rate limit aren't queued; callers set every cycle,
+ * so the latest value goes out once the key is allowed again.
+ */
+public class PublishGate {
+    private final long m_minPeriodNs;
+    private boolean m_published;
+    private long m_lastNs;
+
+    /** @param maxRateHz use Double.POSITIVE_INFINITY for no rate limit. */
+    public PublishGate(double maxRateHz) {
+        if (maxRateHz <= 0)
+            throw new IllegalArgumentException("max rate must be positive");
+        m_minPeriodNs = (long) (1e9 / maxRateHz);
+    }
+
+    /**
+     * @param changed    the value is outside the deadband of the last one
+     *                   published
+     * @param valueBytes size of the value, for the budget
+     * @return true if the caller should publish the value now
+     */
+    public boolean offer(boolean changed, int valueBytes, long nowNs) {
+        if (m_published && !changed) {
+            PublishBudget.suppress();
+            return false;
+        }
+        if (m_published && nowNs - m_lastNs < m_minPeriodNs) {
+            PublishBudget.coalesce();
+            return false;
+        }
+        if (!PublishBudget.spend(valueBytes, nowNs))
+            return false;
+        m_published = true;
+        m_lastNs = nowNs;
+        return true;
+    }
+
+    /** True if value is more than deadband away from last. NaN is equal to NaN. */
+    public static boolean changed(double value, double last, double deadband) {
+        return Double.compare(value, last) != 0 && !(Math.abs(value - last) <= deadband);
+    }
+}
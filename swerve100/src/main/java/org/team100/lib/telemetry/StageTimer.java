@@ -0,0 +1,113 @@
+package org.team100.lib.telemetry;
+
+/**
+ * Times one stage of the robot loop, e.g. a subsystem periodic() or a command
+ * execute(), and keeps a histogram of the durations.
+ * 
+ * The histogram is a fixed array of counts in 100 microsecond buckets, out to
+ * 25 ms, with one more bucket for anything longer. It's allocated once, so
+ * recording doesn't make garbage. Percentiles are read from the histogram, so
+ * they're only as fine as the buckets, which is plenty to see what eats the 20
+ * ms budget. The max is exact.
+ * 
+ * Use it like this:
+ * 
+ * <pre>
+ * m_timer.start();
+ * // ... the work ...
+ * m_timer.stop();
+ * </pre>
+ * 
+ * There's one start time per stage, so all of a stage's start() and stop()
+ * calls have to come from one thread; a stage can't be shared between, say, the
+ * robot loop and a fast loop. Any thread may call record(), and reading the
+ * stats from another thread is fine.
+ */
+public class StageTimer {
+    static final long kBucketWidthNs = 100_000;
+    static final int kBuckets = 250;
+
+    private final String m_name;
+    // the last bucket is overflow
+    private final int[] m_counts = new int[kBuckets + 1];
+    private long m_startNs;
+    private long m_maxNs;
+    private int m_samples;
+
+    /** Use LoopTiming.stage() to get one of these. */
+    StageTimer(String name) {
+        m_name = name;
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public void start() {
+        m_startNs = System.nanoTime();
+    }
+
+    public void stop() {
+        long nowNs = System.nanoTime();
+        record(nowNs - m_startNs);
+        LoopTiming.stopped(nowNs);
+    }
+
+    /**
+     * Record a duration measured some other way, e.g. a latency that starts on
+     * one thread and ends on another. Any thread may call this.
+     */
+    public synchronized void record(long durationNs) {
+        int bucket = (int) Math.min(durationNs / kBucketWidthNs, kBuckets);
+        m_counts[Math.max(bucket, 0)]++;
+        m_samples++;
+        if (durationNs > m_maxNs)
+            m_maxNs = durationNs;
+    }
+
+    /** Number of samples since the last reset. */
+    public synchronized int samples() {
+        return m_samples;
+    }
+
+    /**
+     * Duration in milliseconds below which the fraction p of samples fall, taken
+     * as the upper edge of the bucket, so it's an overestimate by up to one
+     * bucket. Samples in the overflow bucket report the max. Zero if there are no
+     * samples.
+     */
+    public synchronized double percentileMs(double p) {
+        if (m_samples == 0)
+            return 0;
+        int rank = (int) Math.ceil(p * m_samples);
+        if (rank < 1)
+            rank = 1;
+        int cumulative = 0;
+        for (int i = 0; i < kBuckets; ++i) {
+            cumulative += m_counts[i];
+            if (cumulative >= rank)
+                return Math.min((i + 1) * kBucketWidthNs, m_maxNs) / 1e6;
+        }
+        return maxMs();
+    }
+
+    public synchronized double maxMs() {
+        return m_maxNs / 1e6;
+    }
+
+    /**
+     * Write p50, p99, max (all in ms) and the sample count into the array, then
+     * clear the histogram.
+     */
+    synchronized void drain(double[] stats) {
+        stats[0] = percentileMs(0.5);
+        stats[1] = percentileMs(0.99);
+        stats[2] = maxMs();
+        stats[3] = m_samples;
+        for (int i = 0; i < m_counts.length; ++i) {
+            m_counts[i] = 0;
+        }
+        m_maxNs = 0;
+        m_samples = 0;
+    }
+}
@@ -7,13 +7,14 @@ package org.team100.lib.trajectory;
 import java.util.List;
 
 import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
+import org.team100.lib.telemetry.GatedDoublePublisher;
 
 import com.team254.frc2022.planners.DriveMotionPlanner;
 import com.team254.lib.geometry.Pose2d;
 import com.team254.lib.geometry.Pose2dWithCurvature;
 import com.team254.lib.geometry.Rotation2d;
 import com.team254.lib.swerve.ChassisSpeeds;
-import com.team254.lib.trajectory.TimedView;
+import com.team254.lib.trajectory.ColumnarTrajectory;
 import com.team254.lib.trajectory.Trajectory;
 import com.team254.lib.trajectory.TrajectoryIterator;
 import com.team254.lib.trajectory.timing.CentripetalAccelerationConstraint;
@@ -21,7 +22,6 @@ import com.team254.lib.trajectory.timing.TimedState;
 import com.team254.lib.trajectory.timing.TimingConstraint;
 
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.Timer;
@@ -32,21 +32,31 @@ public class FancyTrajectory extends Command {
 
   private final NetworkTableInstance inst = NetworkTableInstance.getDefault();
   private final NetworkTable table = inst.getTable("Fancy Trajectory");
-  private final DoublePublisher poseErrorX = table.getDoubleTopic("Pose Error X").publish();
-  private final DoublePublisher poseErrorY = table.getDoubleTopic("Pose Error Y").publish();
-  private final DoublePublisher velocityPublisher = table.getDoubleTopic("Velocity Setpoint").publish();
+  private final GatedDoublePublisher poseErrorX = new GatedDoublePublisher(
+      table.getDoubleTopic("Pose Error X").publish(), 0.01, 25);
+  private final GatedDoublePublisher poseErrorY = new GatedDoublePublisher(
+      table.getDoubleTopic("Pose Error Y").publish(), 0.01, 25);
+  private final GatedDoublePublisher velocityPublisher = new GatedDoublePublisher(
+      table.getDoubleTopic("Velocity Setpoint").publish(), 0.01, 25);
 
 
   
   SwerveDriveSubsystem m_robotDrive;
   DriveMotionPlanner mMotionPlanner;
+  /** Generation runs on the planner thread, so it gets its own instance. */
+  private final DriveMotionPlanner mGenerator;
+  private final TrajectoryPlanner.Plan<Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>>> mPlan;
   private TrajectoryIterator<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> mCurrentTrajectory;
 
-  public FancyTrajectory(SwerveDriveSubsystem robotDrive ) {
+  public FancyTrajectory(SwerveDriveSubsystem robotDrive, TrajectoryPlanner planner) {
     // Use addRequirements() here to declare subsystem dependencies.
 
     m_robotDrive = robotDrive;
     mMotionPlanner = new DriveMotionPlanner();
+    mGenerator = new DriveMotionPlanner();
+    mPlan = planner.plan();
+    // the waypoints don't depend on where the robot is, so plan now.
+    mPlan.request(this::generate);
 
     addRequirements(m_robotDrive);
   }
@@ -54,6 +64,16 @@ public class FancyTrajectory extends Command {
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
+    // hold position until the trajectory is ready.
+    mCurrentTrajectory = null;
+    m_robotDrive.truncate();
+    if (mPlan.current() == null && !mPlan.pending()) {
+        // the last try failed, so try again.
+        mPlan.request(this::generate);
+    }
+  }
+
+  private Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> generate() {
 
     final double kMaxVel = 196;
     final double kMaxAccel = 196;
@@ -76,7 +96,7 @@ public class FancyTrajectory extends Command {
         double start_vel = 0;
         double end_vel = 0;
         // there's a bug in here; it doesn't use the constraints, nor the voltage.
-        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory = mMotionPlanner
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory = mGenerator
                 .generateTrajectory(
                         reversed,
                         waypoints,
@@ -87,27 +107,26 @@ public class FancyTrajectory extends Command {
                         kMaxVel,
                         kMaxAccel,
                         kMaxVoltage);
-        System.out.println(trajectory);
         System.out.println("TRAJECTORY LENGTH: " + trajectory.length());
-        // assertEquals(10, trajectory.length());
-
-        TrajectoryIterator<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> iter = new TrajectoryIterator<>(
-                new TimedView<>(trajectory));
-
-
-        mCurrentTrajectory = iter;
-        mMotionPlanner.reset();
-        mMotionPlanner.setTrajectory(iter);
-
-        // if(mMotionPlanner.mCurrentTrajectory == null){
-        //     System.out.println("BLLLLLLLLLLLLAJJJJJJJJJJJJJJJJjj");
-        // }
-
+        // convert here, on the planner thread, so the loop samples the columns.
+        return ColumnarTrajectory.of(trajectory);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
+    if (mCurrentTrajectory == null) {
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory = mPlan.current();
+        if (trajectory == null) {
+            // still planning
+            return;
+        }
+        TrajectoryIterator<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> iter = new TrajectoryIterator<>(
+                ColumnarTrajectory.of(trajectory).getTimeView());
+        mCurrentTrajectory = iter;
+        mMotionPlanner.reset();
+        mMotionPlanner.setTrajectory(iter);
+    }
     final double now = Timer.getFPGATimestamp();
     
     Pose2d currentPose = new Pose2d(  Units.metersToInches(m_robotDrive.getPose().getX()), Units.metersToInches(m_robotDrive.getPose().getY()), new Rotation2d(m_robotDrive.getPose().getRotation()));
@@ -0,0 +1,137 @@
+package org.team100.lib.trajectory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs trajectory generation on a background thread, so that spline
+ * optimization and time parameterization, which can take tens of
+ * milliseconds, never happen in the robot loop.
+ *
+ * There's a single low-priority worker shared by everyone, so the requests run
+ * one at a time, in order. A command asks for a Plan, and then makes requests
+ * through it; a new request cancels the previous one if it hasn't finished,
+ * since the robot has moved on, and until the new one is ready, the plan keeps
+ * the last finished result, so the command can follow that, or hold position
+ * if there isn't one.
+ */
+public class TrajectoryPlanner {
+    /**
+     * One command's view of the planner. The command owns this and calls it
+     * from the robot loop only; the worker only touches the futures.
+     */
+    public static class Plan<T> {
+        private final TrajectoryPlanner m_planner;
+        private CompletableFuture<T> m_pending;
+        private T m_current;
+        private boolean m_failed;
+
+        private Plan(TrajectoryPlanner planner) {
+            m_planner = planner;
+        }
+
+        /**
+         * Ask for a new plan, cancelling the outstanding one, if any. The
+         * planner may return null, or throw, if it can't make a plan.
+         */
+        public void request(Supplier<T> planner) {
+            cancel();
+            m_pending = m_planner.submit(planner);
+        }
+
+        /**
+         * If the outstanding request just finished, make it current and return
+         * it, once; otherwise null.
+         */
+        public T poll() {
+            if (m_pending == null || !m_pending.isDone())
+                return null;
+            CompletableFuture<T> done = m_pending;
+            m_pending = null;
+            if (done.isCancelled() || done.isCompletedExceptionally()) {
+                m_failed = true;
+                return null;
+            }
+            T result = done.join();
+            if (result == null) {
+                m_failed = true;
+                return null;
+            }
+            m_failed = false;
+            m_current = result;
+            return result;
+        }
+
+        /** The most recent finished plan, or null if none. */
+        public T current() {
+            poll();
+            return m_current;
+        }
+
+        /** True if there's an outstanding request. */
+        public boolean pending() {
+            return m_pending != null;
+        }
+
+        /** True if the most recent request produced no plan. */
+        public boolean failed() {
+            return m_failed;
+        }
+
+        /** Cancel the outstanding request, if any, and keep the current plan. */
+        public void cancel() {
+            if (m_pending != null) {
+                m_pending.cancel(false);
+                m_pending = null;
+            }
+        }
+
+        /** Cancel the outstanding request, and forget the current plan. */
+        public void clear() {
+            cancel();
+            m_current = null;
+            m_failed = false;
+        }
+    }
+
+    private final ExecutorService m_worker;
+
+    public TrajectoryPlanner() {
+        m_worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Trajectory Planner");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /** A new plan, for one command. */
+    public <T> Plan<T> plan() {
+        return new Plan<>(this);
+    }
+
+    /**
+     * Run the planner on the worker. If the future is cancelled before the
+     * worker gets to it, the planner never runs; if it's cancelled while
+     * running, the result is discarded. The future always completes, even if
+     * the planner throws an Error.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> planner) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        m_worker.execute(() -> {
+            if (future.isDone())
+                return;
+            try {
+                future.complete(planner.get());
+            } catch (Throwable e) {
+                // including Errors, e.g. a planner that overflows the stack;
+                // the command waiting on this must hear about it either way.
+                e.printStackTrace();
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
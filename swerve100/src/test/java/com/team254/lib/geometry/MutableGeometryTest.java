@@ -0,0 +1,85 @@
+package com.team254.lib.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/** The mutable versions should match the immutable ones exactly. */
+public class MutableGeometryTest {
+    private static final double kDelta = 1e-12;
+
+    private static void verify(Rotation2d expected, MutableRotation2d actual) {
+        assertEquals(expected.cos(), actual.cos(), kDelta);
+        assertEquals(expected.sin(), actual.sin(), kDelta);
+        assertEquals(expected.getRadians(), actual.getRadians(), kDelta);
+    }
+
+    private static void verify(Pose2d expected, MutablePose2d actual) {
+        assertEquals(expected.getTranslation().x(), actual.getTranslation().x(), kDelta);
+        assertEquals(expected.getTranslation().y(), actual.getTranslation().y(), kDelta);
+        verify(expected.getRotation(), actual.getRotation());
+    }
+
+    @Test
+    void testRotation() {
+        Rotation2d a = Rotation2d.fromDegrees(30);
+        Rotation2d b = new Rotation2d(-1, 2, true);
+        MutableRotation2d m = new MutableRotation2d(a);
+        verify(a, m);
+        verify(a.rotateBy(b), m.rotateBy(b));
+        verify(a.rotateBy(b).inverse(), m.inverse());
+        verify(a.rotateBy(b).inverse().flip(), m.flip());
+        verify(a.rotateBy(b).inverse().flip().rotateBy(Rotation2d.kPi), m.rotateBy(Rotation2d.kPi));
+        // chaining returns the same object
+        assertSame(m, m.set(b).inverse());
+        verify(b.inverse(), m);
+        verify(new Rotation2d(0, 0, true), m.setTrig(0, 0, true));
+        verify(Rotation2d.fromRadians(7), m.setRadians(7, true));
+        assertEquals(a.getRadians(), new MutableRotation2d(a).toRotation2d().getRadians(), kDelta);
+    }
+
+    @Test
+    void testTranslation() {
+        MutableTranslation2d m = new MutableTranslation2d(1, 2);
+        Translation2d t = new Translation2d(1, 2);
+        Rotation2d r = Rotation2d.fromDegrees(45);
+        Translation2d expected = t.rotateBy(r).translateBy(new Translation2d(3, 4)).scale(2);
+        m.rotateBy(new MutableRotation2d(r)).translateBy(3, 4).scale(2);
+        assertEquals(expected.x(), m.x(), kDelta);
+        assertEquals(expected.y(), m.y(), kDelta);
+        assertEquals(expected.norm(), m.norm(), kDelta);
+    }
+
+    @Test
+    void testPose() {
+        Pose2d a = new Pose2d(1, 2, Rotation2d.fromDegrees(30));
+        Pose2d b = new Pose2d(-3, 0.5, Rotation2d.fromDegrees(-100));
+        MutablePose2d m = new MutablePose2d(a);
+        verify(a, m);
+        verify(a.transformBy(b), m.transformBy(b));
+        verify(a.transformBy(b).inverse(), m.inverse());
+
+        MutablePose2d mb = new MutablePose2d(b);
+        verify(a.transformBy(b), m.set(a).transformBy(mb));
+    }
+
+    @Test
+    void testExpLog() {
+        MutableTwist2d twist = new MutableTwist2d();
+        MutablePose2d m = new MutablePose2d();
+        for (Twist2d t : new Twist2d[] {
+                new Twist2d(1, 0, 0),
+                new Twist2d(1, 2, 0.5),
+                new Twist2d(-1, 0.1, -2),
+                new Twist2d(0.5, 0, 1e-12) }) {
+            Pose2d expected = Pose2d.exp(t);
+            verify(expected, m.exp(twist.set(t)));
+            Twist2d log = Pose2d.log(expected);
+            m.log(twist);
+            assertEquals(log.dx, twist.dx, kDelta);
+            assertEquals(log.dy, twist.dy, kDelta);
+            assertEquals(log.dtheta, twist.dtheta, kDelta);
+        }
+    }
+}
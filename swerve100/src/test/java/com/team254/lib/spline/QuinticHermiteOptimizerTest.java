@@ -63,4 +63,56 @@ public class QuinticHermiteOptimizerTest {
         assertEquals(splines2.get(2).getCurvature(1.0), 0.0, kEpsilon);
         System.out.println("Optimization time (ms): " + (System.currentTimeMillis() - startTime));
     }
+
+    private static List<QuinticHermiteSpline> splines(Pose2d... waypoints) {
+        List<QuinticHermiteSpline> splines = new ArrayList<>();
+        for (int i = 1; i < waypoints.length; ++i) {
+            splines.add(new QuinticHermiteSpline(waypoints[i - 1], waypoints[i]));
+        }
+        return splines;
+    }
+
+    /** The incremental optimizers take the same steps, so they match the original. */
+    @Test
+    public void testIncremental() {
+        Pose2d[][] paths = new Pose2d[][] {
+                {
+                        new Pose2d(new Translation2d(0, 100), Rotation2d.fromDegrees(270)),
+                        new Pose2d(new Translation2d(50, 0), Rotation2d.fromDegrees(0)),
+                        new Pose2d(new Translation2d(100, 100), Rotation2d.fromDegrees(90))
+                },
+                {
+                        new Pose2d(new Translation2d(0, 0), Rotation2d.fromDegrees(90)),
+                        new Pose2d(new Translation2d(0, 50), Rotation2d.fromDegrees(0)),
+                        new Pose2d(new Translation2d(100, 0), Rotation2d.fromDegrees(90)),
+                        new Pose2d(new Translation2d(100, 100), Rotation2d.fromDegrees(0))
+                },
+                {
+                        new Pose2d(new Translation2d(0, 0), Rotation2d.fromDegrees(0)),
+                        new Pose2d(new Translation2d(50, 0), Rotation2d.fromDegrees(0)),
+                        new Pose2d(new Translation2d(100, 50), Rotation2d.fromDegrees(45)),
+                        new Pose2d(new Translation2d(150, 0), Rotation2d.fromDegrees(270)),
+                        new Pose2d(new Translation2d(150, -50), Rotation2d.fromDegrees(270))
+                }
+        };
+        double[] limits = new double[] { 0.014, 0.16, 0.05 };
+        for (int p = 0; p < paths.length; ++p) {
+            List<QuinticHermiteSpline> serial = splines(paths[p]);
+            QuinticHermiteSpline.OptimizationResult expected = QuinticHermiteSpline.optimizeSpline(serial,
+                    QuinticHermiteSpline.Optimizer.SERIAL);
+            for (QuinticHermiteSpline.Optimizer optimizer : new QuinticHermiteSpline.Optimizer[] {
+                    QuinticHermiteSpline.Optimizer.INCREMENTAL, QuinticHermiteSpline.Optimizer.PARALLEL }) {
+                List<QuinticHermiteSpline> splines = splines(paths[p]);
+                QuinticHermiteSpline.OptimizationResult actual = QuinticHermiteSpline.optimizeSpline(splines,
+                        optimizer);
+                System.out.println(optimizer + " " + actual + " was " + expected);
+                assertTrue(actual.sumDCurvature2 < limits[p]);
+                assertEquals(expected.sumDCurvature2, actual.sumDCurvature2, 1e-6);
+                assertEquals(expected.iterations, actual.iterations);
+                for (int i = 0; i < splines.size(); ++i) {
+                    assertEquals(serial.get(i).getCurvature(0.5), splines.get(i).getCurvature(0.5), 1e-6);
+                }
+            }
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.team254.lib.spline;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -44,4 +46,61 @@ public class SplineGeneratorTest {
         assertEquals(arclength, 23.17291953186379, kTestEpsilon);
         assertEquals(cur_heading.getRadians(), headings.get(1).getRadians(), kTestEpsilon);
     }
+
+    @Test
+    public void testAdaptive() {
+        List<Pose2d> waypoints = List.of(
+                new Pose2d(new Translation2d(0, 0), Rotation2d.fromDegrees(0)),
+                new Pose2d(new Translation2d(100, 0), Rotation2d.fromDegrees(0)),
+                new Pose2d(new Translation2d(200, 100), Rotation2d.fromDegrees(90)),
+                new Pose2d(new Translation2d(300, 100), Rotation2d.fromDegrees(0)));
+        List<Rotation2d> headings = List.of(
+                Rotation2d.fromDegrees(0),
+                Rotation2d.fromDegrees(0),
+                Rotation2d.fromDegrees(45),
+                Rotation2d.fromDegrees(90));
+        List<QuinticHermiteSpline> splines = new ArrayList<>();
+        for (int i = 1; i < waypoints.size(); ++i) {
+            splines.add(new QuinticHermiteSpline(waypoints.get(i - 1), waypoints.get(i)));
+        }
+        QuinticHermiteSpline.optimizeSpline(splines);
+
+        // same steps as DriveMotionPlanner
+        List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> fixed = SplineGenerator.parameterizeSplines(
+                splines, headings, 2.0, 0.25, Math.toRadians(1.0));
+        SplineGenerator.AdaptiveConfig config = new SplineGenerator.AdaptiveConfig();
+        SplineGenerator.AdaptiveResult adaptive = SplineGenerator.parameterizeSplinesAdaptive(splines, headings, config);
+        List<TrajectoryPoint<Pose2dWithCurvature, Rotation2d>> points = adaptive.points;
+
+        assertTrue(adaptive.pointCount() * 3 <= fixed.size(), adaptive + " vs " + fixed.size());
+        assertTrue(adaptive.maxChordError <= config.maxChordError);
+        assertTrue(adaptive.maxDCurvature <= config.maxDCurvature);
+        assertTrue(adaptive.maxGap <= config.maxGap);
+
+        // same ends
+        Pose2dWithCurvature last = points.get(points.size() - 1).state();
+        assertEquals(300, last.getTranslation().x(), kTestEpsilon);
+        assertEquals(100, last.getTranslation().y(), kTestEpsilon);
+        assertEquals(90, points.get(points.size() - 1).heading().getDegrees(), kTestEpsilon);
+
+        // every point on the spline is near the polyline; the sampler checks only a few points per segment.
+        for (Spline s : splines) {
+            for (double t = 0; t <= 1; t += 0.001) {
+                Translation2d p = s.getPoint(t);
+                double distance = Double.POSITIVE_INFINITY;
+                for (int i = 1; i < points.size(); ++i) {
+                    distance = Math.min(distance, distanceToSegment(p,
+                            points.get(i - 1).state().getTranslation(), points.get(i).state().getTranslation()));
+                }
+                assertTrue(distance <= 1.5 * config.maxChordError, "t=" + t + " distance=" + distance);
+            }
+        }
+    }
+
+    private static double distanceToSegment(Translation2d p, Translation2d a, Translation2d b) {
+        Translation2d ab = new Translation2d(a, b);
+        Translation2d ap = new Translation2d(a, p);
+        double along = Math.max(0, Math.min(1, Translation2d.dot(ap, ab) / ab.norm2()));
+        return new Translation2d(ap, ab.scale(along)).norm();
+    }
 }
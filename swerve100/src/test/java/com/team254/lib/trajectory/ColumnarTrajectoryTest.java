@@ -0,0 +1,123 @@
+package com.team254.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Pose2dWithCurvature;
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.trajectory.timing.TimedState;
+
+public class ColumnarTrajectoryTest {
+    private static final double kDelta = 1e-9;
+
+    /**
+     * Uneven time steps, and a repeated time, like a stop in the middle.
+     */
+    private static Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory() {
+        List<TimedState<Pose2dWithCurvature>> states = new ArrayList<>();
+        List<TimedState<Rotation2d>> headings = new ArrayList<>();
+        double t = 0;
+        for (int i = 0; i < 50; ++i) {
+            if (i != 20) {
+                t += 0.01 + 0.002 * (i % 7);
+            }
+            double v = 0.1 * i;
+            states.add(new TimedState<>(
+                    new Pose2dWithCurvature(new Pose2d(i, 0.1 * i * i, Rotation2d.fromDegrees(3 * i)), 0.01 * i, 0.001),
+                    t, v, 1));
+            headings.add(new TimedState<>(Rotation2d.fromDegrees(-2 * i), t, v, 1));
+        }
+        return new Trajectory<>(states, headings);
+    }
+
+    @Test
+    public void testPoints() {
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> expected = trajectory();
+        ColumnarTrajectory actual = ColumnarTrajectory.of(expected);
+        assertSame(actual, ColumnarTrajectory.of(actual));
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); ++i) {
+            assertEquals(expected.getPoint(i).state().state().getPose(), actual.getPoint(i).state().state().getPose());
+            assertEquals(expected.getPoint(i).state().t(), actual.t(i), kDelta);
+            assertEquals(expected.getPoint(i).state().velocity(), actual.velocity(i), kDelta);
+            assertEquals(expected.getPoint(i).heading().state(), actual.getPoint(i).heading().state());
+            assertEquals(i, actual.getPoint(i).index());
+        }
+    }
+
+    @Test
+    public void testCeilIndex() {
+        ColumnarTrajectory trajectory = ColumnarTrajectory.of(trajectory());
+        for (double t = -0.1; t < trajectory.t_end() + 0.1; t += 0.0007) {
+            int expected = trajectory.length() - 1;
+            for (int i = 0; i < trajectory.length(); ++i) {
+                if (trajectory.t(i) >= t) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, trajectory.ceilIndex(t), "t=" + t);
+        }
+        // exactly on a point
+        for (int i = 0; i < trajectory.length(); ++i) {
+            assertEquals(trajectory.t(i), trajectory.t(trajectory.ceilIndex(trajectory.t(i))), 0.0);
+        }
+    }
+
+    /**
+     * A tight cluster and a long gap, so the index is capped, and the lookup still has to be right.
+     */
+    @Test
+    public void testCeilIndexUneven() {
+        List<TimedState<Pose2dWithCurvature>> states = new ArrayList<>();
+        List<TimedState<Rotation2d>> headings = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            double t = i < 10 ? 0.0001 * i : 10 + i;
+            states.add(new TimedState<>(
+                    new Pose2dWithCurvature(new Pose2d(i, 0, Rotation2d.fromDegrees(0)), 0, 0), t, 1, 0));
+            headings.add(new TimedState<>(Rotation2d.fromDegrees(0), t, 1, 0));
+        }
+        ColumnarTrajectory trajectory = ColumnarTrajectory.of(new Trajectory<>(states, headings));
+        for (double t = -0.1; t < trajectory.t_end() + 0.1; t += 0.00037) {
+            int expected = trajectory.length() - 1;
+            for (int i = 0; i < trajectory.length(); ++i) {
+                if (trajectory.t(i) >= t) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, trajectory.ceilIndex(t), "t=" + t);
+        }
+    }
+
+    @Test
+    public void testSameAsTimedView() {
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory = trajectory();
+        TimedView<Pose2dWithCurvature, Rotation2d> expected = new TimedView<>(trajectory);
+        ColumnarTrajectory.TimeView actual = ColumnarTrajectory.of(trajectory).getTimeView();
+        assertEquals(expected.first_interpolant(), actual.first_interpolant(), kDelta);
+        assertEquals(expected.last_interpolant(), actual.last_interpolant(), kDelta);
+        for (double t = -0.1; t < expected.last_interpolant() + 0.1; t += 0.0013) {
+            TrajectorySamplePoint<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> e = expected.sample(t);
+            TrajectorySamplePoint<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> a = actual.sample(t);
+            Pose2d ePose = e.state().state().getPose();
+            Pose2d aPose = a.state().state().getPose();
+            assertEquals(ePose.getTranslation().x(), aPose.getTranslation().x(), kDelta);
+            assertEquals(ePose.getTranslation().y(), aPose.getTranslation().y(), kDelta);
+            assertEquals(ePose.getRotation().getRadians(), aPose.getRotation().getRadians(), kDelta);
+            assertEquals(e.state().state().getCurvature(), a.state().state().getCurvature(), kDelta);
+            assertEquals(e.state().t(), a.state().t(), kDelta);
+            assertEquals(e.state().velocity(), a.state().velocity(), kDelta);
+            assertEquals(e.state().acceleration(), a.state().acceleration(), kDelta);
+            assertEquals(e.heading().state().getRadians(), a.heading().state().getRadians(), kDelta);
+            assertEquals(e.index_floor(), a.index_floor());
+            assertEquals(e.index_ceil(), a.index_ceil());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.team254.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Pose2dWithCurvature;
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.geometry.Translation2d;
+import com.team254.lib.trajectory.timing.CentripetalAccelerationConstraint;
+import com.team254.lib.trajectory.timing.TimedState;
+import com.team254.lib.trajectory.timing.VelocityLimitRegionConstraint;
+
+public class TrajectoryStoreTest {
+    private static final double kDelta = 1e-12;
+
+    private static Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory(double scale) {
+        List<TimedState<Pose2dWithCurvature>> states = new ArrayList<>();
+        List<TimedState<Rotation2d>> headings = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            states.add(new TimedState<>(
+                    new Pose2dWithCurvature(new Pose2d(i * scale, 2 * i, Rotation2d.fromDegrees(i)), 0.1 * i, 0.01),
+                    0.5 * i, scale, -scale));
+            // the heading shares t, v and a with the path
+            headings.add(new TimedState<>(Rotation2d.fromDegrees(10 * i), 0.5 * i, scale, -scale));
+        }
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> trajectory =
+                new Trajectory<>(states, headings);
+        trajectory.setDefaultVelocity(scale);
+        return trajectory;
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Path path = Files.createTempFile("trajectories", ".bin");
+        try {
+            Map<Long, Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>>> trajectories =
+                    new LinkedHashMap<>();
+            trajectories.put(1L, trajectory(1));
+            trajectories.put(2L, trajectory(3));
+            TrajectoryStore.write(path, trajectories);
+
+            TrajectoryStore store = TrajectoryStore.open(path);
+            assertEquals(2, store.size());
+            assertNull(store.get(3L));
+            for (long key : new long[] { 1L, 2L }) {
+                Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> expected = trajectories.get(key);
+                Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> actual = store.get(key);
+                assertEquals(expected.length(), actual.length());
+                assertEquals(expected.getDefaultVelocity(), actual.getDefaultVelocity(), kDelta);
+                for (int i = 0; i < expected.length(); ++i) {
+                    TimedState<Pose2dWithCurvature> e = expected.getPoint(i).state();
+                    TimedState<Pose2dWithCurvature> a = actual.getPoint(i).state();
+                    assertEquals(e.state().getTranslation().x(), a.state().getTranslation().x(), kDelta);
+                    assertEquals(e.state().getTranslation().y(), a.state().getTranslation().y(), kDelta);
+                    assertEquals(e.state().getRotation().getRadians(), a.state().getRotation().getRadians(), kDelta);
+                    assertEquals(e.state().getCurvature(), a.state().getCurvature(), kDelta);
+                    assertEquals(e.state().getDCurvatureDs(), a.state().getDCurvatureDs(), kDelta);
+                    assertEquals(e.t(), a.t(), kDelta);
+                    assertEquals(e.velocity(), a.velocity(), kDelta);
+                    assertEquals(e.acceleration(), a.acceleration(), kDelta);
+                    TimedState<Rotation2d> eh = expected.getPoint(i).heading();
+                    TimedState<Rotation2d> ah = actual.getPoint(i).heading();
+                    assertEquals(eh.state().getRadians(), ah.state().getRadians(), kDelta);
+                    assertEquals(eh.t(), ah.t(), kDelta);
+                    assertEquals(eh.velocity(), ah.velocity(), kDelta);
+                    assertEquals(eh.acceleration(), ah.acceleration(), kDelta);
+                }
+                // decoded once
+                assertSame(actual, store.get(key));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void testMissingOrBad() throws Exception {
+        Path path = Files.createTempFile("trajectories", ".bin");
+        try {
+            Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 });
+            assertEquals(0, TrajectoryStore.open(path).size());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+        assertEquals(0, TrajectoryStore.open(path).size());
+    }
+
+    @Test
+    void testHasher() {
+        long a = new TrajectoryStore.Hasher()
+                .add(new Pose2d(1, 2, Rotation2d.fromDegrees(90)))
+                .addFields(new CentripetalAccelerationConstraint(60))
+                .get();
+        long b = new TrajectoryStore.Hasher()
+                .add(new Pose2d(1, 2, Rotation2d.fromDegrees(90)))
+                .addFields(new CentripetalAccelerationConstraint(60))
+                .get();
+        long c = new TrajectoryStore.Hasher()
+                .add(new Pose2d(1, 2, Rotation2d.fromDegrees(90)))
+                .addFields(new CentripetalAccelerationConstraint(61))
+                .get();
+        long d = new TrajectoryStore.Hasher()
+                .add(new Pose2d(1, 2.001, Rotation2d.fromDegrees(90)))
+                .addFields(new CentripetalAccelerationConstraint(60))
+                .get();
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertNotEquals(a, d);
+    }
+
+    @Test
+    void testHasherRecurses() {
+        long a = new TrajectoryStore.Hasher()
+                .addFields(new VelocityLimitRegionConstraint<Pose2dWithCurvature>(
+                        new Translation2d(0, 0), new Translation2d(1, 1), 10))
+                .get();
+        long b = new TrajectoryStore.Hasher()
+                .addFields(new VelocityLimitRegionConstraint<Pose2dWithCurvature>(
+                        new Translation2d(0, 0), new Translation2d(1, 2), 10))
+                .get();
+        // only the corner differs
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    void testHasherFailsClosed() {
+        // a JDK class it can't see into
+        assertThrows(IllegalArgumentException.class,
+                () -> new TrajectoryStore.Hasher().addFields(new HashMap<String, Double>()));
+    }
+}
@@ -11,11 +11,14 @@ import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import com.team254.lib.geometry.ITranslation2d;
+import com.team254.lib.geometry.Pose2d;
+import com.team254.lib.geometry.Pose2dWithCurvature;
 import com.team254.lib.geometry.Rotation2d;
 import com.team254.lib.geometry.State;
 import com.team254.lib.geometry.Translation2d;
 import com.team254.lib.trajectory.DistanceView;
 import com.team254.lib.trajectory.Trajectory;
+import com.team254.lib.trajectory.TrajectoryUtil;
 import com.team254.lib.trajectory.timing.TimingConstraint.MinMaxAcceleration;
 import com.team254.lib.util.Util;
 
@@ -163,4 +166,49 @@ public class TimingUtilTest {
         System.out.println(timed_traj.toCSV());
     }
 
+    @Test
+    public void testParallelSameAsSerial() {
+        Trajectory<Pose2dWithCurvature, Rotation2d> traj = TrajectoryUtil.trajectoryFromWaypoints(
+                List.of(new Pose2d(0, 0, Rotation2d.fromDegrees(0)),
+                        new Pose2d(100, 0, Rotation2d.fromDegrees(0)),
+                        new Pose2d(200, 100, Rotation2d.fromDegrees(90))),
+                List.of(Rotation2d.fromDegrees(0), Rotation2d.fromDegrees(0), Rotation2d.fromDegrees(90)),
+                2.0, 0.25, Math.toRadians(1.0));
+        DistanceView<Pose2dWithCurvature, Rotation2d> dist_view = new DistanceView<>(traj);
+
+        // tighter than the global limit, so the forward pass retries.
+        class AccelerationConstraint implements TimingConstraint<Pose2dWithCurvature> {
+            @Override
+            public double getMaxVelocity(Pose2dWithCurvature state) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            @Override
+            public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithCurvature state, double velocity) {
+                return new MinMaxAcceleration(-50.0, 40.0);
+            }
+        }
+        List<TimingConstraint<Pose2dWithCurvature>> constraints = List.of(
+                new CentripetalAccelerationConstraint(60.0),
+                new VelocityLimitRegionConstraint<>(new Translation2d(40, -10), new Translation2d(60, 10), 20.0),
+                new AccelerationConstraint());
+
+        // small steps, so there are several chunks.
+        double step_size = dist_view.last_interpolant() / 2999;
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> serial = TimingUtil
+                .timeParameterizeTrajectory(false, dist_view, step_size, constraints, 0.0, 0.0, 100.0, 60.0,
+                        TimingUtil.Mode.SERIAL);
+        Trajectory<TimedState<Pose2dWithCurvature>, TimedState<Rotation2d>> parallel = TimingUtil
+                .timeParameterizeTrajectory(false, dist_view, step_size, constraints, 0.0, 0.0, 100.0, 60.0,
+                        TimingUtil.Mode.PARALLEL);
+        // the acceleration limit is only approximately respected, in either mode, so check the velocity limits.
+        checkTrajectory(parallel, constraints.subList(0, 2), 0.0, 0.0, 100.0, 60.0);
+        assertEquals(serial.length(), parallel.length());
+        assertTrue(parallel.length() >= 3000);
+        for (int i = 0; i < serial.length(); ++i) {
+            assertEquals(serial.getPoint(i).state().t(), parallel.getPoint(i).state().t(), 0.0);
+            assertEquals(serial.getPoint(i).state().velocity(), parallel.getPoint(i).state().velocity(), 0.0);
+            assertEquals(serial.getPoint(i).state().acceleration(), parallel.getPoint(i).state().acceleration(), 0.0);
+        }
+    }
 }
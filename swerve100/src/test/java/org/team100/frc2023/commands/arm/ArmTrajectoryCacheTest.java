@@ -0,0 +1,88 @@
+package org.team100.frc2023.commands.arm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.frc2023.subsystems.arm.ArmPosition;
+import org.team100.lib.motion.arm.ArmAngles;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+
+public class ArmTrajectoryCacheTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testUnreachable() {
+        ArmTrajectoryCache cache = new ArmTrajectoryCache();
+        assertNull(cache.get(null, ArmPosition.MID, false));
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    void testHitAndMiss() {
+        ArmTrajectoryCache cache = new ArmTrajectoryCache();
+        ArmAngles start = new ArmAngles(0, 2);
+        Trajectory first = cache.get(start, ArmPosition.HIGH, false);
+        assertNotNull(first);
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        // a miss starts exactly at the measurement
+        assertEquals(2, first.sample(0).poseMeters.getX(), kDelta);
+        assertEquals(0, first.sample(0).poseMeters.getY(), kDelta);
+
+        // a nearby start is in the same bucket
+        Trajectory second = cache.get(new ArmAngles(0.01, 2.01), ArmPosition.HIGH, false);
+        assertSame(first, second);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // other goals and modes are different keys
+        cache.get(start, ArmPosition.HIGH, true);
+        cache.get(start, ArmPosition.MID, false);
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void testLRU() {
+        ArmTrajectoryCache.Config config = new ArmTrajectoryCache.Config();
+        config.capacity = 2;
+        ArmTrajectoryCache cache = new ArmTrajectoryCache(config);
+        ArmAngles start = new ArmAngles(0, 2);
+        cache.get(start, ArmPosition.HIGH, false);
+        cache.get(start, ArmPosition.MID, false);
+        // touch HIGH so MID is the eldest
+        cache.get(start, ArmPosition.HIGH, false);
+        cache.get(start, ArmPosition.LOW, false);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+
+        cache.get(start, ArmPosition.HIGH, false);
+        assertEquals(2, cache.hits());
+        // MID was dropped
+        cache.get(start, ArmPosition.MID, false);
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    void testWarmUp() {
+        ArmTrajectoryCache cache = new ArmTrajectoryCache();
+        ArmAngles start = new ArmAngles(0, 2);
+        int generated = cache.warmUp(List.of(start));
+        assertEquals(generated, cache.size());
+        // again does nothing
+        assertEquals(0, cache.warmUp(List.of(start)));
+
+        assertNotNull(cache.get(start, ArmPosition.SAFE, true));
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+}
@@ -0,0 +1,89 @@
+package org.team100.lib.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.math.MeasurementUncertainty;
+import org.team100.lib.math.RandomVector;
+import org.team100.lib.math.Variance;
+import org.team100.lib.math.WhiteNoiseVector;
+import org.team100.lib.system.NonlinearPlant;
+import org.team100.lib.system.examples.Pendulum1D;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.Vector;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+
+public class GainScheduleTest {
+    static final double kDelta = 0.001;
+    static final double kDt = 0.02;
+    Vector<N2> stateTolerance = VecBuilder.fill(0.01, 0.2);
+    Vector<N1> controlTolerance = VecBuilder.fill(12.0);
+    WhiteNoiseVector<N2> w = WhiteNoiseVector.noise2(0.015, 0.17);
+    MeasurementUncertainty<N2> v = MeasurementUncertainty.for2(0.01, 0.1);
+    NonlinearPlant<N2, N1, N2> plant = new Pendulum1D(w, v);
+
+    /** On the grid, K is the same as GainCalculator at that point. */
+    @Test
+    public void testGridPoints() {
+        GainSchedule<N2, N1, N2> schedule = new GainSchedule<>(plant, stateTolerance, controlTolerance, kDt,
+                new GainSchedule.Axis(0, -Math.PI, Math.PI, 9));
+        // same as double integrator when gravity is max
+        assertArrayEquals(new double[] { 572.773, 44.336 }, schedule.getK(VecBuilder.fill(0, 0)).getData(), kDelta);
+        for (int i = 0; i < 9; ++i) {
+            double p = -Math.PI + i * Math.PI / 4;
+            Matrix<N1, N2> expected = new GainCalculator<>(plant, stateTolerance, controlTolerance, kDt,
+                    VecBuilder.fill(p, 0)).getK();
+            assertArrayEquals(expected.getData(), schedule.getK(VecBuilder.fill(p, 0)).getData(), kDelta);
+        }
+        // straight up is unstable, so it needs more gain.
+        assertEquals(1, Math.signum(
+                schedule.getK(VecBuilder.fill(Math.PI / 2, 0)).get(0, 0)
+                        - schedule.getK(VecBuilder.fill(0, 0)).get(0, 0)));
+    }
+
+    /** Between grid points, K is interpolated, and the other state doesn't matter. */
+    @Test
+    public void testInterpolation() {
+        GainSchedule<N2, N1, N2> schedule = new GainSchedule<>(plant, stateTolerance, controlTolerance, kDt,
+                new GainSchedule.Axis(0, 0, 1, 2));
+        double[] k0 = schedule.getK(VecBuilder.fill(0, 0)).getData();
+        double[] k1 = schedule.getK(VecBuilder.fill(1, 0)).getData();
+        double[] mid = schedule.getK(VecBuilder.fill(0.25, 5)).getData();
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(0.75 * k0[i] + 0.25 * k1[i], mid[i], kDelta);
+        }
+        // outside the grid, use the end.
+        assertArrayEquals(k1, schedule.getK(VecBuilder.fill(2, 0)).getData(), kDelta);
+        assertArrayEquals(k0, schedule.getK(VecBuilder.fill(-2, 0)).getData(), kDelta);
+    }
+
+    /** A grid over both states works the same way. */
+    @Test
+    public void testTwoAxes() {
+        GainSchedule<N2, N1, N2> schedule = new GainSchedule<>(plant, stateTolerance, controlTolerance, kDt,
+                new GainSchedule.Axis(0, 0, 1, 3),
+                new GainSchedule.Axis(1, -1, 1, 2));
+        // pendulum dynamics don't depend on velocity
+        assertArrayEquals(
+                schedule.getK(VecBuilder.fill(0.5, -1)).getData(),
+                schedule.getK(VecBuilder.fill(0.5, 1)).getData(), kDelta);
+        Matrix<N1, N2> expected = new GainCalculator<>(plant, stateTolerance, controlTolerance, kDt,
+                VecBuilder.fill(0.5, 0)).getK();
+        assertArrayEquals(expected.getData(), schedule.getK(VecBuilder.fill(0.5, 0.3)).getData(), kDelta);
+    }
+
+    @Test
+    public void testFeedbackControl() {
+        GainSchedule<N2, N1, N2> schedule = new GainSchedule<>(plant, stateTolerance, controlTolerance, kDt,
+                new GainSchedule.Axis(0, -Math.PI, Math.PI, 9));
+        FeedbackControl<N2, N1, N2> controller = new FeedbackControl<>(plant, schedule);
+        RandomVector<N2> x = plant.make(VecBuilder.fill(Math.PI / 2, 0), Variance.zero2());
+        Matrix<N2, N1> r = VecBuilder.fill(Math.PI / 2 + 0.01, 0);
+        Matrix<N1, N2> K = schedule.getK(x.x);
+        assertEquals(K.get(0, 0) * 0.01, controller.calculate(x, r).get(0, 0), kDelta);
+    }
+}
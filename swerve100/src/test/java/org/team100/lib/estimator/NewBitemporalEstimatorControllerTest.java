@@ -1,5 +1,112 @@
 package org.team100.lib.estimator;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.math.AngularRandomVector;
+import org.team100.lib.math.MeasurementUncertainty;
+import org.team100.lib.math.RandomVector;
+import org.team100.lib.math.Variance;
+import org.team100.lib.math.WhiteNoiseVector;
+import org.team100.lib.reference.Reference;
+import org.team100.lib.system.examples.DoubleIntegratorRotary1D;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+
 public class NewBitemporalEstimatorControllerTest {
-    
+    private static final double kDelta = 1e-9;
+    private static final double kDt = 0.02;
+
+    WhiteNoiseVector<N2> w = WhiteNoiseVector.noise2(0.015, 0.17);
+    MeasurementUncertainty<N2> v = MeasurementUncertainty.for2(0.01, 0.1);
+    DoubleIntegratorRotary1D system = new DoubleIntegratorRotary1D(w, v);
+    RandomVector<N2> initialState = new AngularRandomVector<>(VecBuilder.fill(0, 0),
+            Variance.from2StdDev(0.1, 0.1));
+    Matrix<N1, N1> initialControl = VecBuilder.fill(0);
+    Matrix<N1, N2> K = new Matrix<>(Nat.N1(), Nat.N2());
+    Reference<N2> reference = new Reference<>() {
+        @Override
+        public Matrix<N2, N1> getR(double tSec) {
+            return new Matrix<>(Nat.N2(), Nat.N1());
+        }
+
+        @Override
+        public Matrix<N2, N1> getRDot(double tSec) {
+            return new Matrix<>(Nat.N2(), Nat.N1());
+        }
+    };
+
+    /**
+     * Two slow cameras with different latencies, so measurements arrive out of
+     * order. The incremental mode should produce the same fused estimates with
+     * fewer RK4 steps.
+     */
+    @Test
+    public void testIncrementalMatchesFull() {
+        NewBitemporalEstimatorController<N2, N1, N2> full = new NewBitemporalEstimatorController<>(
+                system, initialState, initialControl, reference, K);
+        NewBitemporalEstimatorController<N2, N1, N2> incremental = new NewBitemporalEstimatorController<>(
+                system, initialState, initialControl, reference, K, 0.0);
+
+        List<Double> measurementTimes = new ArrayList<>();
+        int fullSteps = 0;
+        int incrementalSteps = 0;
+        for (int i = 1; i <= 100; ++i) {
+            double t = kDt * i;
+            long recordTime = 20000l * i;
+            // camera A: every 5 cycles, 75 ms late
+            if (i % 5 == 0) {
+                double validTime = t - 0.075;
+                measurementTimes.add(validTime);
+                RandomVector<N2> y = system.position(0.5 * validTime * validTime);
+                full.acceptMeasurement(recordTime, validTime, y);
+                incremental.acceptMeasurement(recordTime, validTime, y);
+            }
+            // camera B: every 7 cycles, 150 ms late
+            if (i % 7 == 0 && i > 7) {
+                double validTime = t - 0.151;
+                measurementTimes.add(validTime);
+                RandomVector<N2> y = system.position(0.5 * validTime * validTime);
+                full.acceptMeasurement(recordTime, validTime, y);
+                incremental.acceptMeasurement(recordTime, validTime, y);
+            }
+            full.replay(recordTime);
+            incremental.replay(recordTime);
+            fullSteps += full.getReplaySteps();
+            incrementalSteps += incremental.getReplaySteps();
+
+            full.predictNow(t);
+            incremental.predictNow(t);
+
+            Matrix<N1, N1> u = VecBuilder.fill(1.0);
+            full.record(t, u);
+            incremental.record(t, u);
+        }
+        for (double measurementTime : measurementTimes) {
+            RandomVector<N2> expected = full.m_estimates.floorValue(measurementTime);
+            RandomVector<N2> actual = incremental.m_estimates.floorValue(measurementTime);
+            assertEquals(expected.x.get(0, 0), actual.x.get(0, 0), kDelta);
+            assertEquals(expected.x.get(1, 0), actual.x.get(1, 0), kDelta);
+            assertEquals(expected.Kxx.get(0, 0), actual.Kxx.get(0, 0), kDelta);
+        }
+        assertTrue(incrementalSteps < fullSteps, incrementalSteps + " " + fullSteps);
+        // the checkpoints are kept elsewhere, so the estimate histories match.
+        assertEquals(full.m_estimates.size(), incremental.m_estimates.size());
+    }
+
+    @Test
+    public void testNothingPending() {
+        NewBitemporalEstimatorController<N2, N1, N2> incremental = new NewBitemporalEstimatorController<>(
+                system, initialState, initialControl, reference, K, 0.0);
+        assertEquals(0, incremental.replay(0));
+        assertEquals(0, incremental.getReplaySteps());
+    }
 }
@@ -0,0 +1,186 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+
+public class BlipDecoderTest {
+    private static final double kDelta = 1e-9;
+
+    // same as BlipSerializerTest
+    private static final byte[] kOneTag = HexFormat.of().parseHex(
+            "81a4746167739183a2696401a6706f73" +
+                    "655f749391cb3ff000000000000091cb" +
+                    "400000000000000091cb400800000000" +
+                    "0000a6706f73655f529393cb3ff00000" +
+                    "00000000cb4000000000000000cb4008" +
+                    "00000000000093cb4010000000000000" +
+                    "cb4014000000000000cb401800000000" +
+                    "000093cb401c000000000000cb402000" +
+                    "0000000000cb4022000000000000");
+
+    /**
+     * Two tags, with et, extra keys (int, array, string, nil), int and float32
+     * values, and a flat pose_R.
+     */
+    private static final byte[] kTwoTags = HexFormat.of().parseHex(
+            "82a26574cb3fd0000000000000a47461" +
+                    "67739287a2696407a768616d6d696e67" +
+                    "00a663656e74657292cb3ff800000000" +
+                    "0000cb4004000000000000aa7461675f" +
+                    "66616d696c79a774616731366835a670" +
+                    "6f73655f529393010000930001009300" +
+                    "0001a6706f73655f749391ff91cb3fe0" +
+                    "0000000000009102a8706f73655f6572" +
+                    "72c083a26964cd012ca6706f73655f74" +
+                    "93ca3fc00000ca40000000ca40400000" +
+                    "a6706f73655f5299cb3fe00000000000" +
+                    "00000000cb3fe0000000000000000000" +
+                    "cb3fe0000000000000");
+
+    @Test
+    public void testOneTag() throws IOException {
+        Blips blips = new Blips();
+        new BlipDecoder().decode(kOneTag, blips);
+        assertEquals(0, blips.et, kDelta);
+        assertEquals(1, blips.tags.size());
+        Blip blip = blips.tags.get(0);
+        assertEquals(1, blip.id);
+        assertArrayEquals(new double[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 }, blip.pose_R, kDelta);
+        assertArrayEquals(new double[] { 1, 2, 3 }, blip.pose_t, kDelta);
+    }
+
+    @Test
+    public void testTwoTags() throws IOException {
+        Blips blips = new Blips();
+        new BlipDecoder().decode(kTwoTags, blips);
+        assertEquals(0.25, blips.et, kDelta);
+        assertEquals(2, blips.tags.size());
+        Blip a = blips.tags.get(0);
+        assertEquals(7, a.id);
+        assertArrayEquals(new double[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 }, a.pose_R, kDelta);
+        assertArrayEquals(new double[] { -1, 0.5, 2 }, a.pose_t, kDelta);
+        Blip b = blips.tags.get(1);
+        assertEquals(300, b.id);
+        assertArrayEquals(new double[] { 0.5, 0, 0, 0, 0.5, 0, 0, 0, 0.5 }, b.pose_R, kDelta);
+        assertArrayEquals(new double[] { 1.5, 2, 3 }, b.pose_t, kDelta);
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        BlipDecoder decoder = new BlipDecoder();
+        Blips blips = new Blips();
+        decoder.decode(kTwoTags, blips);
+        Blip first = blips.tags.get(0);
+        decoder.decode(kOneTag, blips);
+        // et isn't in this payload, so it goes back to zero
+        assertEquals(0, blips.et, kDelta);
+        assertEquals(1, blips.tags.size());
+        assertEquals(1, blips.tags.get(0).id);
+        decoder.decode(kTwoTags, blips);
+        assertEquals(2, blips.tags.size());
+        // the same objects come back around
+        assertSame(first, blips.tags.get(0));
+        assertEquals(7, blips.tags.get(0).id);
+    }
+
+    @Test
+    public void testReusedTagIsBlank() throws IOException {
+        // {"tags": [{"pose_t": [1, 2, 3], "pose_R": [1, 0, 0, 0, 1, 0, 0, 0, 1]}]}
+        byte[] noId = HexFormat.of().parseHex(
+                "81a47461677391" + "82a6706f73655f7493010203" +
+                        "a6706f73655f5299010000000100000001");
+        BlipDecoder decoder = new BlipDecoder();
+        Blips blips = new Blips();
+        decoder.decode(kTwoTags, blips);
+        decoder.decode(noId, blips);
+        // not 7 from the previous frame
+        assertEquals(0, blips.tags.get(0).id);
+        assertArrayEquals(new double[] { 1, 2, 3 }, blips.tags.get(0).pose_t, kDelta);
+    }
+
+    @Test
+    public void testMissingPose() {
+        // {"tags": [{"id": 1, "pose_t": [1, 2, 3]}]}
+        byte[] payload = HexFormat.of().parseHex("81a47461677391" + "82a2696401a6706f73655f7493010203");
+        BlipDecoder decoder = new BlipDecoder();
+        Blips blips = new Blips();
+        assertThrows(IOException.class, () -> decoder.decode(payload, blips));
+    }
+
+    @Test
+    public void testClockSync() throws IOException {
+        // {"capture": 100.5, "echo": 20.25, "echo_rx": 100.625, "sent": 100.75, "tags": []}
+        byte[] payload = HexFormat.of().parseHex(
+                "85a763617074757265cb405920000000" +
+                        "0000a46563686fcb4034400000000000" +
+                        "a76563686f5f7278cb40592800000000" +
+                        "00a473656e74cb4059300000000000a4" +
+                        "7461677390");
+        Blips blips = new Blips();
+        BlipDecoder decoder = new BlipDecoder();
+        decoder.decode(payload, blips);
+        assertEquals(100.5, blips.capture, kDelta);
+        assertEquals(20.25, blips.echo, kDelta);
+        assertEquals(100.625, blips.echoReceived, kDelta);
+        assertEquals(100.75, blips.sent, kDelta);
+        assertEquals(0, blips.tags.size());
+        // old cameras don't send these
+        decoder.decode(kOneTag, blips);
+        assertEquals(0, blips.capture, kDelta);
+        assertEquals(0, blips.echo, kDelta);
+    }
+
+    @Test
+    public void testOffset() throws IOException {
+        byte[] padded = new byte[kOneTag.length + 10];
+        System.arraycopy(kOneTag, 0, padded, 5, kOneTag.length);
+        Blips blips = new Blips();
+        new BlipDecoder().decode(padded, 5, kOneTag.length, blips);
+        assertEquals(1, blips.tags.get(0).id);
+        assertEquals(9, blips.tags.get(0).pose_R[8], kDelta);
+    }
+
+    @Test
+    public void testTruncated() {
+        byte[] truncated = Arrays.copyOf(kOneTag, kOneTag.length - 3);
+        assertThrows(IOException.class, () -> new BlipDecoder().decode(truncated, new Blips()));
+    }
+
+    @Test
+    public void testWrongShape() {
+        // {"tags": [{"pose_t": [1, 2]}]}
+        byte[] payload = HexFormat.of().parseHex("81a47461677391" + "81a6706f73655f74920102");
+        assertThrows(IOException.class, () -> new BlipDecoder().decode(payload, new Blips()));
+    }
+
+    @Test
+    public void testTooDeep() {
+        // {"tags": [{"pose_t": [[[...[1]...]]]}]}, nested far too deep
+        byte[] prefix = HexFormat.of().parseHex("81a47461677391" + "81a6706f73655f74");
+        byte[] payload = new byte[prefix.length + 10001];
+        System.arraycopy(prefix, 0, payload, 0, prefix.length);
+        Arrays.fill(payload, prefix.length, payload.length - 1, (byte) 0x91);
+        payload[payload.length - 1] = 0x01;
+        IOException e = assertThrows(IOException.class, () -> new BlipDecoder().decode(payload, new Blips()));
+        assertTrue(e.getMessage().startsWith("Nested"));
+        // same thing in a key we skip
+        payload[prefix.length - 1] = 'x';
+        e = assertThrows(IOException.class, () -> new BlipDecoder().decode(payload, new Blips()));
+        assertTrue(e.getMessage().startsWith("Nested"));
+    }
+
+    @Test
+    public void testNotAMap() {
+        byte[] payload = HexFormat.of().parseHex("9101");
+        assertThrows(IOException.class, () -> new BlipDecoder().decode(payload, new Blips()));
+    }
+}
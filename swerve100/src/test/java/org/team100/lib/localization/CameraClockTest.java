@@ -0,0 +1,63 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CameraClockTest {
+    private static final double kDelta = 1e-9;
+
+    @Test
+    public void testSymmetric() {
+        CameraClock clock = new CameraClock();
+        assertFalse(clock.valid());
+        // camera clock is 100 s ahead, 10 ms each way, camera holds it 30 ms.
+        assertTrue(clock.update(5.0, 105.01, 105.04, 5.05));
+        assertTrue(clock.valid());
+        assertEquals(100, clock.offsetSec(), kDelta);
+        assertEquals(0.02, clock.delaySec(), kDelta);
+        assertEquals(5.0, clock.toRobotTime(105.0), kDelta);
+    }
+
+    @Test
+    public void testLeastDelayWins() {
+        CameraClock clock = new CameraClock();
+        // 10 ms out, 50 ms back, so the offset is off by 20 ms
+        clock.update(5.0, 105.01, 105.04, 5.09);
+        assertEquals(99.98, clock.offsetSec(), kDelta);
+        // symmetric and faster
+        clock.update(6.0, 106.005, 106.035, 6.04);
+        assertEquals(100, clock.offsetSec(), kDelta);
+        assertEquals(0.01, clock.delaySec(), kDelta);
+        // slower again, ignored
+        clock.update(7.0, 107.01, 107.04, 7.09);
+        assertEquals(100, clock.offsetSec(), kDelta);
+    }
+
+    @Test
+    public void testRejects() {
+        CameraClock clock = new CameraClock();
+        // negative delay
+        assertFalse(clock.update(5.0, 105.01, 105.04, 5.0));
+        // too slow
+        assertFalse(clock.update(5.0, 105.01, 105.04, 6.0));
+        assertFalse(clock.valid());
+    }
+
+    @Test
+    public void testWindow() {
+        CameraClock clock = new CameraClock();
+        // one very good sample with a wrong offset
+        clock.update(1.0, 91.0, 91.0, 1.0);
+        assertEquals(90, clock.offsetSec(), kDelta);
+        // followed by lots of ordinary ones
+        for (int i = 0; i < 100; ++i) {
+            double t = 2.0 + i;
+            clock.update(t, t + 100.01, t + 100.04, t + 0.05);
+        }
+        // the good one has aged out
+        assertEquals(100, clock.offsetSec(), kDelta);
+    }
+}
@@ -0,0 +1,61 @@
+package org.team100.lib.localization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.config.Camera;
+
+public class CameraLivenessTest {
+    private static final double kDelta = 1e-9;
+
+    @Test
+    public void testNothing() {
+        CameraLiveness liveness = new CameraLiveness();
+        assertFalse(liveness.alive(Camera.A, 0));
+        assertEquals(0, liveness.aliveCount(0));
+        assertEquals(0, liveness.rateHz(Camera.A, 0), kDelta);
+    }
+
+    @Test
+    public void testAliveAndDead() {
+        CameraLiveness liveness = new CameraLiveness();
+        liveness.seen(Camera.A, 10);
+        assertTrue(liveness.alive(Camera.A, 10.1));
+        assertFalse(liveness.alive(Camera.C, 10.1));
+        assertEquals(1, liveness.aliveCount(10.1));
+        // quiet too long
+        assertFalse(liveness.alive(Camera.A, 10.6));
+        assertEquals(0, liveness.aliveCount(10.6));
+    }
+
+    @Test
+    public void testRate() {
+        CameraLiveness liveness = new CameraLiveness();
+        // 20 fps
+        for (int i = 0; i < 100; ++i) {
+            liveness.seen(Camera.C, 0.05 * i);
+        }
+        assertEquals(20, liveness.rateHz(Camera.C, 5), 1e-6);
+        assertEquals(0, liveness.rateHz(Camera.A, 5), kDelta);
+        // a gap starts the average over
+        liveness.seen(Camera.C, 10);
+        assertEquals(0, liveness.rateHz(Camera.C, 10), kDelta);
+        liveness.seen(Camera.C, 10.1);
+        assertEquals(10, liveness.rateHz(Camera.C, 10.1), 1e-6);
+    }
+
+    @Test
+    public void testSummary() {
+        CameraLiveness liveness = new CameraLiveness();
+        liveness.seen(Camera.A, 0);
+        liveness.seen(Camera.A, 0.1);
+        liveness.seen(Camera.UNKNOWN, 0.1);
+        double[] summary = new double[Camera.values().length + 1];
+        liveness.summarize(0.1, summary);
+        // count, A, C, D, UNKNOWN
+        assertArrayEquals(new double[] { 2, 10, 0, 0, 0 }, summary, 1e-6);
+    }
+}
@@ -1,6 +1,8 @@
 package org.team100.lib.localization;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 
@@ -318,4 +320,76 @@ public class PoseEstimationHelperTest {
         assertEquals(0, robotPoseInFieldCoords.getRotation().getZ(), kDelta);
     }
 
+    /** A far-away blip seen from the robot, with no rotation anywhere. */
+    private static Blip blipFrom(int id, Translation3d robot, Translation3d tag, double lateralErrorM) {
+        Translation3d t = tag.minus(robot);
+        // z-forward camera coordinates
+        return new Blip(id,
+                new double[][] { { 1, 0, 0 }, { 0, 1, 0 }, { 0, 0, 1 } },
+                new double[][] { { -t.getY() - lateralErrorM }, { -t.getZ() }, { t.getX() } });
+    }
+
+    @Test
+    public void testSolveRobotTranslation() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
+        Translation3d robot = new Translation3d(12, 2, 0);
+        Blips blips = new Blips();
+        blips.tags.add(blipFrom(4, robot, layout.getTagPose(4).get().getTranslation(), 0));
+        blips.tags.add(blipFrom(5, robot, layout.getTagPose(5).get().getTranslation(), 0));
+        // not in the layout, ignored
+        blips.tags.add(blipFrom(99, robot, new Translation3d(14, 2, 0), 0));
+        FrameEstimate result = new FrameEstimate();
+        int tags = PoseEstimationHelper.solveRobotTranslation(
+                new Transform3d(), layout, blips, new Rotation3d(), 1, result);
+        assertEquals(2, tags);
+        assertEquals(12, result.x, kDelta);
+        assertEquals(2, result.y, kDelta);
+        assertTrue(result.cxx > 0);
+        assertTrue(result.cyy > 0);
+        assertEquals(0, result.residual, kDelta);
+        assertTrue(PoseEstimationHelper.tagsAgree(result));
+    }
+
+    @Test
+    public void testSolveRobotTranslationDisagree() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
+        Translation3d robot = new Translation3d(12, 2, 0);
+        Blips blips = new Blips();
+        blips.tags.add(blipFrom(4, robot, layout.getTagPose(4).get().getTranslation(), 0));
+        // with only two, the bad one can't be dropped, but the frame can be
+        blips.tags.add(blipFrom(5, robot, layout.getTagPose(5).get().getTranslation(), 0.5));
+        FrameEstimate result = new FrameEstimate();
+        int tags = PoseEstimationHelper.solveRobotTranslation(
+                new Transform3d(), layout, blips, new Rotation3d(), 1, result);
+        assertEquals(2, tags);
+        assertTrue(result.residual > 9.21);
+        assertFalse(PoseEstimationHelper.tagsAgree(result));
+    }
+
+    @Test
+    public void testSolveRobotTranslationOutlier() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
+        Translation3d robot = new Translation3d(12, 2, 0);
+        Blips blips = new Blips();
+        blips.tags.add(blipFrom(3, robot, layout.getTagPose(3).get().getTranslation(), 0));
+        // half a meter sideways is way outside the lateral noise, even far away
+        blips.tags.add(blipFrom(4, robot, layout.getTagPose(4).get().getTranslation(), 0.5));
+        blips.tags.add(blipFrom(5, robot, layout.getTagPose(5).get().getTranslation(), 0));
+        blips.tags.add(blipFrom(6, robot, layout.getTagPose(6).get().getTranslation(), 0));
+        FrameEstimate result = new FrameEstimate();
+        int tags = PoseEstimationHelper.solveRobotTranslation(
+                new Transform3d(), layout, blips, new Rotation3d(), 1, result);
+        assertEquals(3, tags);
+        assertEquals(12, result.x, kDelta);
+        assertEquals(2, result.y, kDelta);
+    }
+
+    @Test
+    public void testSolveRobotTranslationNothing() throws IOException {
+        AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
+        Blips blips = new Blips();
+        FrameEstimate result = new FrameEstimate();
+        assertEquals(0, PoseEstimationHelper.solveRobotTranslation(
+                new Transform3d(), layout, blips, new Rotation3d(), 1, result));
+    }
 }
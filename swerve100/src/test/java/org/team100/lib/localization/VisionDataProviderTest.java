@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -112,7 +113,7 @@ public class VisionDataProviderTest {
     public void testEstimateRobotPose() throws IOException {
         Supplier<Pose2d> robotPose = () -> new Pose2d(); // always at the origin
         AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
-        VisionDataProvider vdp = new VisionDataProvider(layout, null, robotPose);
+        VisionDataProvider vdp = new VisionDataProvider(layout, robotPose);
 
         String key = "foo";
         // in red layout blip 5 is on the other side of the field
@@ -140,14 +141,14 @@ public class VisionDataProviderTest {
         final List<Double> timeEstimate = new ArrayList<Double>();
         vdp.estimateRobotPose(
                 (i) -> new Transform3d(),
-                (p, t) -> {
+                (p, t, s) -> {
                     poseEstimate.add(p);
                     timeEstimate.add(t);
                 }, key, blips);
         // do it twice to convince vdp it's a good estimate
         vdp.estimateRobotPose(
                 (i) -> new Transform3d(),
-                (p, t) -> {
+                (p, t, s) -> {
                     poseEstimate.add(p);
                     timeEstimate.add(t);
                 }, key, blips);
@@ -164,7 +165,7 @@ public class VisionDataProviderTest {
         // robot is panned right 45
         Supplier<Pose2d> robotPose = () -> new Pose2d(0, 0, new Rotation2d(-Math.PI / 4)); // just for rotation
         AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
-        VisionDataProvider vdp = new VisionDataProvider(layout, null, robotPose);
+        VisionDataProvider vdp = new VisionDataProvider(layout, robotPose);
 
         String key = "foo";
         // in red layout blip 5 is on the other side of the field
@@ -194,14 +195,14 @@ public class VisionDataProviderTest {
         final List<Double> timeEstimate = new ArrayList<Double>();
         vdp.estimateRobotPose(
                 (i) -> new Transform3d(),
-                (p, t) -> {
+                (p, t, s) -> {
                     poseEstimate.add(p);
                     timeEstimate.add(t);
                 }, key, blips);
         // two good estimates are required
         vdp.estimateRobotPose(
                 (i) -> new Transform3d(),
-                (p, t) -> {
+                (p, t, s) -> {
                     poseEstimate.add(p);
                     timeEstimate.add(t);
                 }, key, blips);
@@ -212,4 +213,55 @@ public class VisionDataProviderTest {
         assertEquals(2.26, result.getY(), kDelta); // one meter to the left
         assertEquals(-Math.PI / 4, result.getRotation().getRadians(), kDelta); // facing diagonal
     }
+
+    /**
+     * Frames go through the solver thread and come out of drain(), stamped with
+     * the receive time less the latency.
+     */
+    @Test
+    public void testPipeline() throws IOException, InterruptedException {
+        Supplier<Pose2d> robotPose = () -> new Pose2d(); // always at the origin
+        AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
+        VisionDataProvider vdp = new VisionDataProvider(layout, robotPose);
+        // {"tags": [{"id": 5, "pose_R": identity, "pose_t": one meter ahead}]}
+        byte[] payload = HexFormat.of().parseHex(
+                "81a4746167739183a2696405a6706f73" +
+                        "655f529393cb3ff0000000000000cb00" +
+                        "00000000000000cb0000000000000000" +
+                        "93cb0000000000000000cb3ff0000000" +
+                        "000000cb000000000000000093cb0000" +
+                        "000000000000cb0000000000000000cb" +
+                        "3ff0000000000000a6706f73655f7493" +
+                        "91cb000000000000000091cb00000000" +
+                        "0000000091cb3ff0000000000000");
+        // the first estimate is only used for filtering
+        vdp.start();
+        vdp.enqueue("foo", payload, 10.0);
+        vdp.enqueue("foo", payload, 10.1);
+        final List<Double> timeEstimate = new ArrayList<Double>();
+        for (int i = 0; i < 100 && timeEstimate.isEmpty(); ++i) {
+            Thread.sleep(10);
+            vdp.drain((p, t, s) -> timeEstimate.add(t));
+        }
+        assertEquals(1, timeEstimate.size());
+        assertEquals(10.025, timeEstimate.get(0), 1e-9);
+        assertEquals(0, vdp.droppedFrames());
+        vdp.close();
+    }
+
+    @Test
+    public void testCaptureTime() throws IOException {
+        Supplier<Pose2d> robotPose = () -> new Pose2d();
+        AprilTagFieldLayoutWithCorrectOrientation layout = AprilTagFieldLayoutWithCorrectOrientation.redLayout();
+        VisionDataProvider vdp = new VisionDataProvider(layout, robotPose);
+        Blips blips = new Blips();
+        // no sync, so use the default latency
+        assertEquals(9.925, vdp.captureTime("foo", blips, 10.0), 1e-9);
+        // camera clock is 100 s ahead, 10 ms each way, captured 40 ms before sending
+        blips.echo = 9.9;
+        blips.echoReceived = 109.91;
+        blips.sent = 109.99;
+        blips.capture = 109.95;
+        assertEquals(9.95, vdp.captureTime("foo", blips, 10.0), 1e-9);
+    }
 }
@@ -0,0 +1,73 @@
+package org.team100.lib.loop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class TripleBufferTest {
+    private static class Pair {
+        long a;
+        long b;
+    }
+
+    @Test
+    public void testLatest() {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        // nothing published yet
+        assertEquals(0, buffer.latest().a);
+        buffer.back().a = 1;
+        buffer.publish();
+        buffer.back().a = 2;
+        buffer.publish();
+        // the reader skips straight to the newest
+        Pair front = buffer.latest();
+        assertEquals(2, front.a);
+        // and keeps it until there's another
+        assertSame(front, buffer.latest());
+        buffer.back().a = 3;
+        buffer.publish();
+        assertEquals(3, buffer.latest().a);
+    }
+
+    @Test
+    public void testSlotsAreDistinct() {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        for (int i = 0; i < 10; ++i) {
+            Pair front = buffer.latest();
+            // the writer never gets the reader's slot
+            assertTrue(buffer.back() != front);
+            buffer.back().a = i;
+            buffer.publish();
+        }
+    }
+
+    @Test
+    public void testTwoThreads() throws InterruptedException {
+        TripleBuffer<Pair> buffer = new TripleBuffer<>(Pair::new);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (long i = 1; i <= 1_000_000; ++i) {
+                Pair back = buffer.back();
+                back.a = i;
+                back.b = -i;
+                buffer.publish();
+            }
+            done.set(true);
+        });
+        writer.start();
+        long last = 0;
+        while (!done.get()) {
+            Pair front = buffer.latest();
+            // never torn, never backwards
+            assertEquals(front.a, -front.b);
+            assertTrue(front.a >= last);
+            last = front.a;
+        }
+        writer.join();
+        assertEquals(1_000_000, buffer.latest().a);
+    }
+}
@@ -0,0 +1,108 @@
+package org.team100.lib.math;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.numbers.N3;
+
+public class SmallMatrixKernelTest {
+    private static final double kDelta = 1e-9;
+
+    @Test
+    public void testInvert2() {
+        Matrix<N2, N2> a = new Matrix<>(Nat.N2(), Nat.N2());
+        a.set(0, 0, 4);
+        a.set(0, 1, 1);
+        a.set(1, 0, 2);
+        a.set(1, 1, 3);
+        double[] out = new double[4];
+        SmallMatrixKernel.invert(SmallMatrixKernel.data(a), out, 2);
+        assertArrayEquals(a.inv().getData(), out, kDelta);
+        assertEquals(a.det(), SmallMatrixKernel.det(SmallMatrixKernel.data(a), 2), kDelta);
+    }
+
+    @Test
+    public void testInvert3() {
+        Matrix<N3, N3> a = new Matrix<>(Nat.N3(), Nat.N3());
+        a.set(0, 0, 2);
+        a.set(0, 1, -1);
+        a.set(1, 0, -1);
+        a.set(1, 1, 2);
+        a.set(1, 2, -1);
+        a.set(2, 1, -1);
+        a.set(2, 2, 2);
+        double[] out = new double[9];
+        SmallMatrixKernel.invert(SmallMatrixKernel.data(a), out, 3);
+        assertArrayEquals(a.inv().getData(), out, kDelta);
+        assertEquals(a.det(), SmallMatrixKernel.det(SmallMatrixKernel.data(a), 3), kDelta);
+    }
+
+    @Test
+    public void testMultiply3() {
+        Matrix<N3, N3> a = new Matrix<>(Nat.N3(), Nat.N3());
+        Matrix<N3, N3> b = new Matrix<>(Nat.N3(), Nat.N3());
+        for (int i = 0; i < 3; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                a.set(i, j, i + 2 * j);
+                b.set(i, j, 3 * i - j);
+            }
+        }
+        double[] out = new double[9];
+        SmallMatrixKernel.multiply(SmallMatrixKernel.data(a), SmallMatrixKernel.data(b), out, 3);
+        assertArrayEquals(a.times(b).getData(), out, kDelta);
+    }
+
+    @Test
+    public void testSandwich2() {
+        Matrix<N2, N2> p = new Matrix<>(Nat.N2(), Nat.N2());
+        p.set(0, 0, 0.5);
+        p.set(0, 1, 0.1);
+        p.set(1, 0, 0.2);
+        p.set(1, 1, 0.7);
+        Matrix<N2, N2> a = new Matrix<>(Nat.N2(), Nat.N2());
+        a.set(0, 0, 2);
+        a.set(0, 1, 0.3);
+        a.set(1, 0, 0.3);
+        a.set(1, 1, 1);
+        double[] out = new double[4];
+        double[] tmp = new double[4];
+        SmallMatrixKernel.addSandwich(SmallMatrixKernel.data(p), SmallMatrixKernel.data(a), out, tmp, 2);
+        assertArrayEquals(p.times(a).times(p.transpose()).getData(), out, kDelta);
+    }
+
+    @Test
+    public void testSetPlusScaledMatchesGeneric() {
+        RandomVector<N2> a = new RandomVector<>(VecBuilder.fill(1, 2), Variance.from2StdDev(1, 2));
+        RandomVector<N2> b = new RandomVector<>(VecBuilder.fill(3, 4), Variance.from2StdDev(3, 4));
+        RandomVector<N2> expected = a.plus(b.times(0.5));
+        RandomVector<N2> actual = a.copy().setPlusScaled(a, 0.5, b);
+        assertArrayEquals(expected.x.getData(), actual.x.getData(), kDelta);
+        assertArrayEquals(expected.Kxx.getData(), actual.Kxx.getData(), kDelta);
+        // a is untouched
+        assertArrayEquals(new double[] { 1, 2 }, a.x.getData(), kDelta);
+    }
+
+    @Test
+    public void testSetPlusScaledAliased() {
+        RandomVector<N2> a = new RandomVector<>(VecBuilder.fill(1, 2), Variance.from2StdDev(1, 2));
+        // a = a + 2a
+        a.setPlusScaled(a, 2, a);
+        assertArrayEquals(new double[] { 3, 6 }, a.x.getData(), kDelta);
+        // variance is 1 + 4, 4 + 16
+        assertArrayEquals(new double[] { 5, 0, 0, 20 }, a.Kxx.getData(), kDelta);
+    }
+
+    @Test
+    public void testSetPlusScaledWraps() {
+        RandomVector<N2> a = new AngularRandomVector<>(VecBuilder.fill(3, 0), Variance.from2StdDev(1, 1));
+        RandomVector<N2> b = new RandomVector<>(VecBuilder.fill(1, 0), Variance.from2StdDev(1, 1));
+        a.setPlusScaled(a, 1, b);
+        assertEquals(4 - 2 * Math.PI, a.x.get(0, 0), kDelta);
+    }
+}
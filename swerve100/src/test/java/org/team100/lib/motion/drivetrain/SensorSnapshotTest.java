@@ -0,0 +1,79 @@
+package org.team100.lib.motion.drivetrain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.config.Identity;
+import org.team100.lib.experiments.Experiments;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+public class SensorSnapshotTest {
+    private static final double kDelta = 0.001;
+
+    /** Counts reads, like a gyro on the CAN bus. */
+    private static class CountingHeading implements HeadingInterface {
+        int reads;
+
+        @Override
+        public Rotation2d getHeadingNWU() {
+            reads++;
+            return new Rotation2d(reads);
+        }
+
+        @Override
+        public double getHeadingRateNWU() {
+            reads++;
+            return reads;
+        }
+    }
+
+    @Test
+    public void testReadOnce() {
+        CountingHeading heading = new CountingHeading();
+        SwerveDriveKinematics kinematics = new SwerveDriveKinematics(
+                new Translation2d(0.5, 0.5),
+                new Translation2d(0.5, -0.5),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        SwerveLocal swerveLocal = new SwerveLocal(
+                new Experiments(Identity.BLANK),
+                new SpeedLimits(1, 1, 1, 1),
+                kinematics,
+                new SwerveModuleCollection.Noop());
+        SensorSnapshot snapshot = new SensorSnapshot();
+        snapshot.read(1.0, heading, swerveLocal);
+        assertEquals(2, heading.reads);
+        // asking again doesn't read again, and the answers don't change.
+        Rotation2d h = snapshot.getHeadingNWU();
+        assertSame(h, snapshot.getHeadingNWU());
+        assertEquals(1, h.getRadians(), kDelta);
+        assertEquals(2, snapshot.getHeadingRateNWU(), kDelta);
+        assertEquals(2, heading.reads);
+        assertEquals(1.0, snapshot.getTimestampSec(), kDelta);
+        assertEquals(4, snapshot.getPositions().length);
+        assertEquals(4, snapshot.getStates().length);
+        assertEquals(0, snapshot.getSpeeds().vxMetersPerSecond, kDelta);
+
+        Pose2d pose = new Pose2d(1, 2, new Rotation2d());
+        snapshot.setPose(pose);
+        assertSame(pose, snapshot.getPose());
+
+        SwerveModulePosition[] positions = snapshot.getPositions();
+        SwerveModuleState[] states = snapshot.getStates();
+
+        // next cycle
+        snapshot.read(1.02, heading, swerveLocal);
+        assertEquals(4, heading.reads);
+        assertEquals(3, snapshot.getHeadingNWU().getRadians(), kDelta);
+        // refilled in place
+        assertSame(positions, snapshot.getPositions());
+        assertSame(states, snapshot.getStates());
+    }
+}
@@ -1,6 +1,7 @@
 package org.team100.lib.profile;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 // passes uncommented
 // import com.acmerobotics.roadrunner.profile.MotionProfile;
@@ -90,5 +91,55 @@ public class MotionProfileGeneratorTest {
         assertEquals(5, samples);
 
     }
-    
+
+    @Test
+    void testConstantSameAsSimple() {
+        MotionState start = new MotionState(0, 0);
+        MotionState goal = new MotionState(5, 0);
+        MotionProfile p = MotionProfileGenerator.generateMotionProfile(start, goal,
+                PiecewiseConstantConstraint.constant(1),
+                PiecewiseConstantConstraint.constant(1));
+        MotionProfile simple = MotionProfileGenerator.generateSimpleMotionProfile(start, goal, 1, 1);
+        // three segments, instead of one per sample
+        assertEquals(3, p.getSegments().size());
+        assertEquals(simple.duration(), p.duration(), kDelta);
+        for (double t = 0; t < 6; t += 0.1) {
+            assertEquals(simple.get(t).getX(), p.get(t).getX(), kDelta);
+            assertEquals(simple.get(t).getV(), p.get(t).getV(), kDelta);
+        }
+
+        // backwards
+        p = MotionProfileGenerator.generateMotionProfile(goal, start,
+                PiecewiseConstantConstraint.constant(1),
+                PiecewiseConstantConstraint.constant(1));
+        assertEquals(6.0, p.duration(), kDelta);
+        assertEquals(0.0, p.end().getX(), kDelta);
+        assertEquals(-1.0, p.get(3).getV(), kDelta);
+    }
+
+    @Test
+    void testPiecewiseSameAsSampled() {
+        // slow zone from 2 to 3, faster acceleration after 4
+        PiecewiseConstantConstraint v = new PiecewiseConstantConstraint(
+                new double[] { 2, 3 }, new double[] { 2, 0.5, 2 });
+        PiecewiseConstantConstraint a = new PiecewiseConstantConstraint(
+                new double[] { 4 }, new double[] { 1, 3 });
+        MotionState start = new MotionState(0, 0);
+        MotionState goal = new MotionState(6, 0);
+        MotionProfile p = MotionProfileGenerator.generateMotionProfile(start, goal, v, a);
+        // the same constraints, but not recognizably piecewise, so they're sampled
+        MotionProfile sampled = MotionProfileGenerator.generateMotionProfile(start, goal,
+                s -> v.get(s), s -> a.get(s), 0.001);
+
+        assertEquals(7, p.getSegments().size());
+        assertEquals(sampled.duration(), p.duration(), 0.01);
+        assertEquals(6.0, p.end().getX(), kDelta);
+        assertEquals(0.0, p.end().getV(), kDelta);
+        for (double t = 0; t < p.duration(); t += 0.05) {
+            MotionState state = p.get(t);
+            assertEquals(sampled.get(t).getX(), state.getX(), 0.01);
+            // obeys the limits everywhere
+            assertTrue(state.getV() <= v.get(state.getX()) + kDelta, "t=" + t);
+        }
+    }
 }
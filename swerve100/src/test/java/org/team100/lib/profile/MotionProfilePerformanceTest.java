@@ -28,4 +28,40 @@ public class MotionProfilePerformanceTest {
         assertTrue(timePerProfileMs < 0.2);
     }
 
+    @Test
+    void testPiecewise() {
+        MotionState start = new MotionState(0, 0);
+        MotionState goal = new MotionState(1, 0);
+        PiecewiseConstantConstraint v = new PiecewiseConstantConstraint(new double[] { 0.5 }, new double[] { 1, 0.5 });
+        PiecewiseConstantConstraint a = PiecewiseConstantConstraint.constant(1);
+
+        Timer timer = new Timer();
+        timer.start();
+        int count = 1000;
+        for (int i = 0; i < count; ++i) {
+            MotionProfile profile = MotionProfileGenerator.generateMotionProfile(start, goal, v, a);
+            assertNotNull(profile);
+        }
+        timer.stop();
+        double timePerProfileMs = 1000 * timer.get() / count;
+        // the sampled version takes milliseconds
+        assertTrue(timePerProfileMs < 0.2);
+    }
+
+    @Test
+    void testReplanning() {
+        ReplanningProfile profile = new ReplanningProfile(1, 1);
+
+        Timer timer = new Timer();
+        timer.start();
+        int count = 100000;
+        for (int i = 0; i < count; ++i) {
+            // a moving goal
+            profile.replan(0, 0, 1 + 1e-5 * i, 0);
+        }
+        timer.stop();
+        double timePerReplanMs = 1000 * timer.get() / count;
+        // fast enough for 250 Hz with lots of room to spare
+        assertTrue(timePerReplanMs < 0.2);
+    }
 }
@@ -0,0 +1,76 @@
+package org.team100.lib.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ReplanningProfileTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testSameAsSimple() {
+        ReplanningProfile profile = new ReplanningProfile(1, 1);
+        for (double goal : new double[] { 5, 1, 0.1, -5, -1 }) {
+            profile.replan(0, 0, goal, 0);
+            MotionProfile simple = MotionProfileGenerator.generateSimpleMotionProfile(
+                    new MotionState(0, 0), new MotionState(goal, 0), 1, 1);
+            assertEquals(simple.duration(), profile.duration(), kDelta);
+            for (double t = 0; t < profile.duration(); t += 0.1) {
+                assertEquals(simple.get(t).getX(), profile.get(t).getX(), kDelta);
+                assertEquals(simple.get(t).getV(), profile.get(t).getV(), kDelta);
+            }
+        }
+    }
+
+    @Test
+    void testAnyStart() {
+        ReplanningProfile profile = new ReplanningProfile(1, 1);
+        // { start x, start v, goal x, goal v, duration }
+        double[][] cases = {
+                // too fast to stop, so overshoot and come back
+                { 0, 2, 1, 0, 4.0 },
+                // going the wrong way
+                { 0, -1, 1, 0, 3.5 },
+                // over the speed limit: slow down, coast, stop
+                { 0, 3, 10, 0, 8.5 },
+                // moving goal
+                { 0, 0.5, 0.2, 0.5, 0.342 } };
+        for (double[] c : cases) {
+            profile.replan(c[0], c[1], c[2], c[3]);
+            assertEquals(c[4], profile.duration(), kDelta);
+            assertEquals(c[1], profile.get(0).getV(), kDelta);
+            MotionState end = profile.get(profile.duration());
+            assertEquals(c[2], end.getX(), kDelta);
+            assertEquals(c[3], end.getV(), kDelta);
+            for (double t = 0; t < profile.duration(); t += 0.01) {
+                assertTrue(Math.abs(profile.get(t).getA()) <= 1 + kDelta);
+                if (Math.abs(c[1]) <= 1) {
+                    assertTrue(Math.abs(profile.get(t).getV()) <= 1 + kDelta);
+                }
+            }
+        }
+        // the goal state after the end, still moving
+        assertEquals(0.5, profile.get(100).getV(), kDelta);
+        assertEquals(0.2, profile.get(100).getX(), kDelta);
+        assertEquals(0, profile.get(100).getA(), kDelta);
+    }
+
+    @Test
+    void testReplanFollows() {
+        // replan every cycle from the planned state at the next cycle, as if
+        // tracking perfectly; the result is the same as the first plan.
+        ReplanningProfile profile = new ReplanningProfile(1, 1);
+        profile.replan(0, 0, 5, 0);
+        double duration = profile.duration();
+        double t = 0;
+        MotionState state = new MotionState(0, 0);
+        while (t < duration - 0.01) {
+            profile.replan(state.getX(), state.getV(), 5, 0);
+            state = profile.get(0.004);
+            t += 0.004;
+        }
+        assertEquals(5, state.getX(), 0.01);
+        assertEquals(0, state.getV(), 0.01);
+    }
+}
@@ -0,0 +1,92 @@
+package org.team100.lib.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class DropOldestQueueTest {
+    @Test
+    public void testFifo() {
+        DropOldestQueue<String> q = new DropOldestQueue<>(4);
+        assertNull(q.poll());
+        assertFalse(q.offer("a"));
+        assertFalse(q.offer("b"));
+        assertEquals(2, q.size());
+        assertEquals("a", q.poll());
+        assertEquals("b", q.poll());
+        assertNull(q.poll());
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    public void testDropOldest() {
+        DropOldestQueue<Integer> q = new DropOldestQueue<>(4);
+        for (int i = 0; i < 4; ++i) {
+            assertFalse(q.offer(i));
+        }
+        assertTrue(q.offer(4));
+        assertTrue(q.offer(5));
+        assertEquals(2, q.dropped());
+        assertEquals(4, q.size());
+        // the newest four survive, in order
+        for (int i = 2; i < 6; ++i) {
+            assertEquals(i, q.poll());
+        }
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void testWrap() {
+        DropOldestQueue<Integer> q = new DropOldestQueue<>(2);
+        for (int i = 0; i < 100; ++i) {
+            q.offer(i);
+            assertEquals(i, q.poll());
+        }
+        assertEquals(0, q.dropped());
+    }
+
+    @Test
+    public void testCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new DropOldestQueue<>(3));
+        assertThrows(IllegalArgumentException.class, () -> new DropOldestQueue<>(1));
+    }
+
+    /**
+     * One producer, one consumer: everything is either received, in order, or
+     * counted as dropped.
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        final int n = 100000;
+        DropOldestQueue<Integer> q = new DropOldestQueue<>(8);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; ++i) {
+                q.offer(i);
+            }
+        });
+        producer.start();
+        int received = 0;
+        int last = -1;
+        while (producer.isAlive() || q.size() > 0) {
+            Integer item = q.poll();
+            if (item == null)
+                continue;
+            assertTrue(item > last, item + " " + last);
+            last = item;
+            received++;
+        }
+        producer.join();
+        Integer item;
+        while ((item = q.poll()) != null) {
+            assertTrue(item > last);
+            last = item;
+            received++;
+        }
+        assertEquals(n - 1, last);
+        assertEquals(n, received + q.dropped());
+    }
+}
@@ -16,4 +16,18 @@ public class HistoryTest {
         assertEquals(1.0, e.getKey());
         assertEquals("hi 1", e.getValue());
     }
+
+    @Test
+    public void testTrimKeepsCapacity() {
+        EditableHistory<String> h = new EditableHistory<>(3);
+        h.put(1.0, "one");
+        h.put(2.0, "two");
+        h.trim(1.5);
+        assertEquals(1, h.size());
+        // trimmed entries don't count against the capacity
+        h.put(2.0, "two again");
+        h.put(3.0, "three");
+        assertEquals(3, h.size());
+        assertEquals("one", h.validFloorEntry(1.0).getValue());
+    }
 }
@@ -0,0 +1,185 @@
+package org.team100.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.motion.drivetrain.kinematics.SwerveKinematics;
+
+import com.team254.lib.geometry.Rotation2d;
+import com.team254.lib.swerve.ChassisSpeeds;
+import com.team254.lib.swerve.SwerveDriveKinematics;
+import com.team254.lib.swerve.SwerveModuleState;
+import com.team254.lib.swerve.SwerveSetpoint;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+public class AsymSwerveSetpointGeneratorTest {
+    private static final double kDelta = 1e-9;
+    private static final double kDt = 0.02;
+
+    private static SwerveDriveKinematics kinematics() {
+        // like 2023 comp bot
+        double kTrackWidth = 0.491;
+        double kWheelBase = 0.765;
+        SwerveKinematics k = new SwerveKinematics(new Translation2d(kWheelBase / 2, kTrackWidth / 2),
+                new Translation2d(kWheelBase / 2, -kTrackWidth / 2),
+                new Translation2d(-kWheelBase / 2, kTrackWidth / 2),
+                new Translation2d(-kWheelBase / 2, -kTrackWidth / 2));
+        return k.as254();
+    }
+
+    private static SwerveSetpoint stopped() {
+        return new SwerveSetpoint(new ChassisSpeeds(), new SwerveModuleState[] {
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity),
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity),
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity),
+                new SwerveModuleState(0, 0, Rotation2d.kIdentity)
+        });
+    }
+
+    private static AsymSwerveSetpointGenerator.KinematicLimits limits() {
+        AsymSwerveSetpointGenerator.KinematicLimits limits = new AsymSwerveSetpointGenerator.KinematicLimits();
+        limits.kMaxDriveVelocity = 5;
+        limits.kMaxDriveAcceleration = 10;
+        limits.kMaxDriveDecceleration = 10;
+        limits.kMaxSteeringVelocity = 5;
+        return limits;
+    }
+
+    /** Same case as the original SwerveSetpointGeneratorTest. */
+    @Test
+    void testSimple() {
+        AsymSwerveSetpointGenerator asym = new AsymSwerveSetpointGenerator(kinematics());
+        SwerveSetpoint setpoint = stopped();
+        ChassisSpeeds desired = new ChassisSpeeds(10, 10, 10);
+
+        // initially it's not moving fast at all
+        setpoint = asym.generateSetpoint(limits(), setpoint, desired, kDt);
+        assertEquals(0, setpoint.mChassisSpeeds.vxMetersPerSecond, 0.001);
+        assertEquals(0, setpoint.mChassisSpeeds.vyMetersPerSecond, 0.001);
+        assertEquals(0, setpoint.mChassisSpeeds.omegaRadiansPerSecond, 0.001);
+
+        // after 1 second, it's going faster.
+        for (int i = 0; i < 50; ++i) {
+            setpoint = asym.generateSetpoint(limits(), setpoint, desired, kDt);
+        }
+        assertEquals(2.687, setpoint.mChassisSpeeds.vxMetersPerSecond, 0.001);
+        assertEquals(2.687, setpoint.mChassisSpeeds.vyMetersPerSecond, 0.001);
+        assertEquals(2.687, setpoint.mChassisSpeeds.omegaRadiansPerSecond, 0.001);
+        assertEquals(AsymSwerveSetpointGenerator.Status.CONVERGED, asym.getStatus());
+    }
+
+    /**
+     * Through starts, stops, reversals, and turns, no module turns or speeds up
+     * faster than the limits. The original search sometimes gave up early and
+     * steered twice as fast as allowed.
+     */
+    @Test
+    void testRespectsLimits() {
+        AsymSwerveSetpointGenerator asym = new AsymSwerveSetpointGenerator(kinematics());
+        final double maxThetaStep = 5 * kDt;
+        final double maxVelStep = 10 * kDt;
+
+        ChassisSpeeds[] goals = new ChassisSpeeds[] {
+                new ChassisSpeeds(10, 10, 10),
+                new ChassisSpeeds(2, 0, 0),
+                new ChassisSpeeds(-2, 0, 0),
+                new ChassisSpeeds(0, 0, 0),
+                new ChassisSpeeds(0, 0, 3),
+                new ChassisSpeeds(0, -1, -3),
+                new ChassisSpeeds(1, 1, 0),
+                new ChassisSpeeds(0, 0, 0)
+        };
+        SwerveSetpoint setpoint = stopped();
+        for (ChassisSpeeds goal : goals) {
+            for (int i = 0; i < 25; ++i) {
+                SwerveSetpoint next = asym.generateSetpoint(limits(), setpoint, goal, kDt);
+                for (int j = 0; j < 4; ++j) {
+                    SwerveModuleState prev = setpoint.mModuleStates[j];
+                    SwerveModuleState state = next.mModuleStates[j];
+                    assertTrue(Math.abs(Math.abs(state.speedMetersPerSecond)
+                            - Math.abs(prev.speedMetersPerSecond)) <= maxVelStep + kDelta);
+                    // steering in place is limited separately
+                    if (Math.abs(prev.speedMetersPerSecond) > kDelta) {
+                        double dtheta = Math.abs(prev.angle.inverse().rotateBy(state.angle).getRadians());
+                        // reversing the wheel is free
+                        dtheta = Math.min(dtheta, Math.PI - dtheta);
+                        assertTrue(dtheta <= maxThetaStep + kDelta);
+                    }
+                }
+                assertTrue(asym.getIterations() <= 4 * 8);
+                setpoint = next;
+            }
+        }
+    }
+
+    @Test
+    void testDriveClosedForm() {
+        AsymSwerveSetpointGenerator asym = new AsymSwerveSetpointGenerator(kinematics());
+        // straight ahead, linear in s
+        assertEquals(0.1, asym.findDriveMaxS(0, 0, 0, 2, 0, 2, 0.2, 10), kDelta);
+        // slowing down
+        assertEquals(0.1, asym.findDriveMaxS(2, 0, 2, 0, 0, 0, 0.2, 10), kDelta);
+        // turning, the speed is exactly the step at the root
+        double s = asym.findDriveMaxS(1, 0, 1, 0, 2, 2, 0.2, 10);
+        assertEquals(1.2, Math.hypot(1 - s, 2 * s), kDelta);
+        assertEquals(0, asym.getIterations());
+        // within the step, go all the way
+        assertEquals(1.0, asym.findDriveMaxS(1, 0, 1, 1.1, 0, 1.1, 0.2, 10), kDelta);
+    }
+
+    /** Out of time, hold the previous setpoint and say so. */
+    @Test
+    void testTimeBudget() {
+        AsymSwerveSetpointGenerator.Config config = new AsymSwerveSetpointGenerator.Config();
+        config.timeBudgetNs = 1;
+        AsymSwerveSetpointGenerator unlimited = new AsymSwerveSetpointGenerator(kinematics());
+        AsymSwerveSetpointGenerator limited = new AsymSwerveSetpointGenerator(kinematics(), config);
+        SwerveSetpoint setpoint = stopped();
+        ChassisSpeeds forward = new ChassisSpeeds(2, 0, 0);
+        for (int i = 0; i < 5; ++i) {
+            setpoint = unlimited.generateSetpoint(limits(), setpoint, forward, kDt);
+        }
+        assertEquals(AsymSwerveSetpointGenerator.Status.CONVERGED, unlimited.getStatus());
+        double speed = setpoint.mChassisSpeeds.vxMetersPerSecond;
+        setpoint = limited.generateSetpoint(limits(), setpoint, forward, kDt);
+        assertEquals(AsymSwerveSetpointGenerator.Status.TIME_LIMIT, limited.getStatus());
+        assertEquals(speed, setpoint.mChassisSpeeds.vxMetersPerSecond, kDelta);
+    }
+
+    @Test
+    void testDesiredUnchanged() {
+        AsymSwerveSetpointGenerator asym = new AsymSwerveSetpointGenerator(kinematics());
+        AsymSwerveSetpointGenerator.KinematicLimits limits = new AsymSwerveSetpointGenerator.KinematicLimits();
+        limits.kMaxDriveVelocity = 1;
+        limits.kMaxDriveAcceleration = 10;
+        limits.kMaxDriveDecceleration = 10;
+        limits.kMaxSteeringVelocity = 5;
+        ChassisSpeeds desired = new ChassisSpeeds(10, 0, 0);
+        asym.generateSetpoint(limits, stopped(), desired, kDt);
+        // the desaturated speed is internal
+        assertEquals(10, desired.vxMetersPerSecond, kDelta);
+    }
+
+    /** Deceleration is limited separately. */
+    @Test
+    void testDecel() {
+        AsymSwerveSetpointGenerator asym = new AsymSwerveSetpointGenerator(kinematics());
+        AsymSwerveSetpointGenerator.KinematicLimits limits = new AsymSwerveSetpointGenerator.KinematicLimits();
+        limits.kMaxDriveVelocity = 5;
+        limits.kMaxDriveAcceleration = 10;
+        limits.kMaxDriveDecceleration = 5;
+        limits.kMaxSteeringVelocity = 5;
+        SwerveSetpoint setpoint = stopped();
+        ChassisSpeeds forward = new ChassisSpeeds(2, 0, 0);
+        for (int i = 0; i < 50; ++i) {
+            setpoint = asym.generateSetpoint(limits, setpoint, forward, kDt);
+        }
+        assertEquals(2, setpoint.mChassisSpeeds.vxMetersPerSecond, 0.001);
+        ChassisSpeeds slow = new ChassisSpeeds(1, 0, 0);
+        setpoint = asym.generateSetpoint(limits, setpoint, slow, kDt);
+        // 5 m/s^2 for 0.02 s
+        assertEquals(1.9, setpoint.mChassisSpeeds.vxMetersPerSecond, 0.001);
+    }
+}
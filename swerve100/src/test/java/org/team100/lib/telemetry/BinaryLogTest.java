@@ -0,0 +1,101 @@
+package org.team100.lib.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BinaryLogTest {
+    public static class Sample {
+        public static final int kIgnored = 7;
+        public double timestamp;
+        public int count;
+        public boolean enabled;
+        public long ticks;
+        public float current;
+    }
+
+    public static class NotPrimitive {
+        public double timestamp;
+        public String name;
+    }
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSchema() {
+        LogSchema schema = LogSchema.of(Sample.class);
+        assertSame(schema, LogSchema.of(Sample.class));
+        assertEquals(8 + 4 + 1 + 8 + 4, schema.getRecordBytes());
+        assertEquals(5, schema.getNames().length);
+        assertThrows(IllegalArgumentException.class, () -> LogSchema.of(NotPrimitive.class));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path bin = dir.resolve("test.bin");
+        Path csv = dir.resolve("test.csv");
+        // enough to fill several buffers
+        int n = 10000;
+        try (BinaryLog<Sample> log = new BinaryLog<>(bin.toString(), Sample.class)) {
+            Sample sample = new Sample();
+            for (int i = 0; i < n; ++i) {
+                sample.timestamp = 0.004 * i;
+                sample.count = i;
+                sample.enabled = i % 2 == 0;
+                sample.ticks = 1_000_000_000_000L + i;
+                sample.current = 0.5f * i;
+                log.add(sample);
+            }
+            assertEquals(0, log.getDropped());
+        }
+        assertEquals(n, BinaryLogToCSV.convert(bin, csv));
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(n + 1, lines.size());
+        assertEquals(List.of("timestamp", "count", "enabled", "ticks", "current"),
+                List.of(lines.get(0).split(", ")));
+        assertEquals("0.0, 0, true, 1000000000000, 0.0", lines.get(1));
+        assertEquals(0.004 * 5 + ", 5, false, 1000000000005, 2.5", lines.get(6));
+        assertEquals(0.004 * 9999 + ", 9999, false, 1000000009999, 4999.5", lines.get(n));
+    }
+
+    @Test
+    public void testNeverClobbers() throws IOException {
+        String prefix = dir.resolve("run").toString();
+        String first = BinaryLog.newFileName(prefix);
+        try (BinaryLog<Sample> log = new BinaryLog<>(first, Sample.class)) {
+            log.add(new Sample());
+        }
+        long size = Files.size(Path.of(first));
+        // the same second, so the counter comes into it
+        String second = BinaryLog.newFileName(prefix);
+        assertNotEquals(first, second);
+        new BinaryLog<>(second, Sample.class).close();
+        assertThrows(IOException.class, () -> new BinaryLog<>(first, Sample.class));
+        assertEquals(size, Files.size(Path.of(first)));
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+        Path bin = dir.resolve("flush.bin");
+        try (BinaryLog<Sample> log = new BinaryLog<>(bin.toString(), Sample.class)) {
+            Sample sample = new Sample();
+            log.add(sample);
+            log.flush();
+            long header = Files.size(bin) - LogSchema.of(Sample.class).getRecordBytes();
+            log.add(sample);
+            log.add(sample);
+            log.flush();
+            assertEquals(header + 3 * LogSchema.of(Sample.class).getRecordBytes(), Files.size(bin));
+        }
+    }
+}
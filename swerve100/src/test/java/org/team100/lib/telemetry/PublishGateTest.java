@@ -0,0 +1,66 @@
+package org.team100.lib.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PublishGateTest {
+    private static final long kMs = 1_000_000;
+
+    @Test
+    public void testChanged() {
+        assertFalse(PublishGate.changed(1.0, 1.0, 0));
+        assertFalse(PublishGate.changed(1.05, 1.0, 0.1));
+        assertTrue(PublishGate.changed(1.2, 1.0, 0.1));
+        assertTrue(PublishGate.changed(1.0, Double.NaN, 0.1));
+        assertFalse(PublishGate.changed(Double.NaN, Double.NaN, 0.1));
+    }
+
+    @Test
+    public void testDeadbandAndRate() {
+        PublishBudget.reset(1e9, 0);
+        // 10 Hz
+        PublishGate gate = new PublishGate(10);
+        // the first one always goes
+        assertTrue(gate.offer(false, 8, 0));
+        // unchanged
+        assertFalse(gate.offer(false, 8, 50 * kMs));
+        // changed, but too soon
+        assertFalse(gate.offer(true, 8, 60 * kMs));
+        assertTrue(gate.offer(true, 8, 100 * kMs));
+        assertFalse(gate.offer(true, 8, 150 * kMs));
+        assertFalse(gate.offer(true, 8, 199 * kMs));
+        assertTrue(gate.offer(true, 8, 200 * kMs));
+        double[] counts = new double[4];
+        PublishBudget.drain(counts);
+        // published, suppressed, coalesced, dropped
+        assertArrayEquals(new double[] { 3, 1, 3, 0 }, counts);
+        // drain starts over
+        PublishBudget.drain(counts);
+        assertArrayEquals(new double[] { 0, 0, 0, 0 }, counts);
+    }
+
+    @Test
+    public void testBudget() {
+        // 2400 bytes/s, so a 240 byte burst, i.e. ten 8-byte values with overhead.
+        PublishBudget.reset(2400, 0);
+        int published = 0;
+        for (int i = 0; i < 20; ++i) {
+            PublishGate gate = new PublishGate(Double.POSITIVE_INFINITY);
+            if (gate.offer(true, 8, 0))
+                ++published;
+        }
+        assertEquals(10, published);
+        // a dropped value goes out later, once the budget refills.
+        PublishGate gate = new PublishGate(Double.POSITIVE_INFINITY);
+        assertFalse(gate.offer(true, 8, 0));
+        assertTrue(gate.offer(true, 8, 20 * kMs));
+        double[] counts = new double[4];
+        PublishBudget.drain(counts);
+        assertArrayEquals(new double[] { 11, 0, 0, 11 }, counts);
+        PublishBudget.reset(PublishBudget.kDefaultBytesPerSec, System.nanoTime());
+    }
+}
@@ -0,0 +1,59 @@
+package org.team100.lib.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class StageTimerTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    public void testEmpty() {
+        StageTimer t = new StageTimer("empty");
+        assertEquals(0, t.samples());
+        assertEquals(0, t.percentileMs(0.5), kDelta);
+        assertEquals(0, t.maxMs(), kDelta);
+    }
+
+    @Test
+    public void testPercentiles() {
+        StageTimer t = new StageTimer("test");
+        // 98 fast ones, 1 ms each
+        for (int i = 0; i < 98; ++i) {
+            t.record(1_000_000);
+        }
+        // two slow ones
+        t.record(5_050_000);
+        t.record(12_000_000);
+        assertEquals(100, t.samples());
+        // upper edge of the 1.0-1.1 ms bucket
+        assertEquals(1.1, t.percentileMs(0.5), kDelta);
+        assertEquals(5.1, t.percentileMs(0.99), kDelta);
+        assertEquals(12, t.percentileMs(1.0), kDelta);
+        assertEquals(12, t.maxMs(), kDelta);
+    }
+
+    @Test
+    public void testOverflow() {
+        StageTimer t = new StageTimer("slow");
+        t.record(100_000_000);
+        assertEquals(100, t.percentileMs(0.5), kDelta);
+        assertEquals(100, t.maxMs(), kDelta);
+    }
+
+    @Test
+    public void testDrain() {
+        StageTimer t = new StageTimer("drain");
+        t.record(2_000_000);
+        t.record(3_000_000);
+        double[] stats = new double[4];
+        t.drain(stats);
+        assertEquals(2.1, stats[0], kDelta);
+        assertEquals(3, stats[1], kDelta);
+        assertEquals(3, stats[2], kDelta);
+        assertEquals(2, stats[3], kDelta);
+        // drain starts a new window
+        assertEquals(0, t.samples());
+        assertEquals(0, t.maxMs(), kDelta);
+    }
+}
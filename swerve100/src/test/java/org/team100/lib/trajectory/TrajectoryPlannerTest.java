@@ -0,0 +1,124 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class TrajectoryPlannerTest {
+
+    /** Wait for everything submitted so far. */
+    private static void flush(TrajectoryPlanner planner) throws Exception {
+        planner.submit(() -> "").get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPlan() throws Exception {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        TrajectoryPlanner.Plan<String> plan = planner.plan();
+        assertNull(plan.current());
+        assertFalse(plan.pending());
+
+        plan.request(() -> "one");
+        assertTrue(plan.pending());
+        flush(planner);
+        assertEquals("one", plan.poll());
+        // only once
+        assertNull(plan.poll());
+        assertEquals("one", plan.current());
+        assertFalse(plan.pending());
+        assertFalse(plan.failed());
+    }
+
+    @Test
+    void testKeepPreviousUntilReady() throws Exception {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        TrajectoryPlanner.Plan<String> plan = planner.plan();
+        plan.request(() -> "one");
+        flush(planner);
+        assertEquals("one", plan.current());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        plan.request(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "two";
+        });
+        // still the old one
+        assertEquals("one", plan.current());
+        assertTrue(plan.pending());
+        latch.countDown();
+        flush(planner);
+        assertEquals("two", plan.current());
+    }
+
+    @Test
+    void testSupersede() throws Exception {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        TrajectoryPlanner.Plan<String> plan = planner.plan();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        // keep the worker busy
+        planner.submit(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "";
+        });
+        plan.request(() -> {
+            runs.incrementAndGet();
+            return "stale";
+        });
+        plan.request(() -> {
+            runs.incrementAndGet();
+            return "fresh";
+        });
+        latch.countDown();
+        flush(planner);
+        assertEquals("fresh", plan.current());
+        // the superseded one never ran
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testFailure() throws Exception {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        TrajectoryPlanner.Plan<String> plan = planner.plan();
+        plan.request(() -> null);
+        flush(planner);
+        assertNull(plan.current());
+        assertTrue(plan.failed());
+
+        plan.request(() -> {
+            throw new IllegalStateException("expected");
+        });
+        flush(planner);
+        assertNull(plan.current());
+        assertTrue(plan.failed());
+
+        plan.request(() -> {
+            throw new StackOverflowError("expected");
+        });
+        flush(planner);
+        // not stuck pending
+        assertNull(plan.current());
+        assertFalse(plan.pending());
+        assertTrue(plan.failed());
+
+        plan.request(() -> "ok");
+        flush(planner);
+        assertEquals("ok", plan.current());
+        assertFalse(plan.failed());
+    }
+}
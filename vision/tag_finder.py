@@ -79,17 +79,13 @@ class TagFinder:
     def analyze(self, request):
         buffer = request.make_buffer("lores")
         # buffer = request.make_buffer("main")
-        # metadata = request.get_metadata()
-        # print(metadata)
+        metadata = request.get_metadata()
         # sensor timestamp is the boottime when the first byte was received from the sensor
-        # sensor_timestamp = metadata[
-        #     "SensorTimestamp"
-        # ]
-        # system_time_ns = time.clock_gettime_ns(
-        #     time.CLOCK_BOOTTIME
-        # )
-        # time_delta_ns = system_time_ns - sensor_timestamp
-        # print(sensor_timestamp, system_time_ns, time_delta_ns//1000000) # ms
+        sensor_timestamp = metadata["SensorTimestamp"]
+        system_time_ns = time.clock_gettime_ns(time.CLOCK_BOOTTIME)
+        time_delta_ns = system_time_ns - sensor_timestamp
+        # capture time on the NT clock, which is what the other times use
+        capture_us = ntcore._now() - time_delta_ns // 1000  # pylint:disable=W0212
 
         start_time = time.time()
         y_len = self.width * self.height
@@ -144,6 +140,15 @@ class TagFinder:
         total_et = current_time - self.frame_time
 
         tags["et"] = total_et
+
+        # clock sync: echo the robot's latest timestamp, with our receive time.
+        # the robot uses these to find our clock offset, see CameraClock.java.
+        # all our times are on the NT clock, in seconds.
+        echo, echo_rx_us = self.echo
+        tags["capture"] = capture_us / 1e6
+        tags["echo"] = echo
+        tags["echo_rx"] = echo_rx_us / 1e6
+        tags["sent"] = ntcore._now() / 1e6  # pylint:disable=W0212
         # print(tags)
 
         posebytes = msgpack.packb(tags)
@@ -285,6 +290,22 @@ class TagFinder:
         self.vision_nt_msgpack = self.vision_nt.getRawTopic(self.topic_name).publish(
             "msgpack"
         )
+        # the robot publishes its FPGA time here, for clock sync
+        self.robot_timestamp = (
+            inst.getTable("example_table").getDoubleTopic("timestamp").subscribe(0)
+        )
+        # (robot timestamp, our receive time in us), replaced as a unit.
+        self.echo = (0.0, 0)
+        # getAtomic().time is the robot's set() time, not ours, so note the
+        # arrival time here.
+        inst.addListener(
+            self.robot_timestamp, ntcore.EventFlags.kValueAll, self.timestamp_received
+        )
+
+    def timestamp_received(self, event):
+        """Runs on the NT listener thread as each robot timestamp arrives."""
+        now_us = ntcore._now()  # pylint:disable=W0212
+        self.echo = (event.data.value.getDouble(), now_us)
 
     # def reconnect_nt(self):
     #     """NT doesn't recover from network disruptions by itself, nor does it